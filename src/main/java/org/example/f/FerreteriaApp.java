@@ -4,6 +4,7 @@ import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
+import org.example.f.servicios.ClienteManager;
 import org.example.f.servicios.InventarioManager;
 import org.example.f.controles.MainSystemController;
 
@@ -43,8 +44,9 @@ public class FerreteriaApp extends Application {
      * Se utiliza para asegurar que todos los datos transaccionales y de inventario
      * se guarden en el disco antes de finalizar el programa.
      * <p>
-     * 🛑 NOTA: Crea temporalmente una instancia de MainSystemController para acceder
-     * a los managers singleton y forzar el guardado.
+     * Usa la instancia de MainSystemController creada al iniciar sesión, para volcar los cambios
+     * de los mismos managers que usó la interfaz (los clientes se escriben en diferido).
+     * Si nunca se inició sesión, no hay nada pendiente que guardar.
      * </p>
      * @throws Exception Si ocurre un error durante el proceso de cierre o guardado.
      */
@@ -52,10 +54,15 @@ public class FerreteriaApp extends Application {
     public void stop() throws Exception {
         super.stop();
 
-        // Accede a la instancia del MainSystemController para obtener los managers cargados
-        // ATENCIÓN: Crear una nueva instancia de MSC aquí solo es seguro si el Manager
-        // tiene un patrón Singleton estático o si el Manager no fue inicializado antes.
-        MainSystemController msc = new MainSystemController();
+        MainSystemController msc = MainSystemController.getInstanciaActiva();
+        if (msc == null) {
+            return;
+        }
+
+        ClienteManager clienteManager = msc.getClienteManager();
+        if (clienteManager != null) {
+            clienteManager.flush();
+        }
 
         InventarioManager managerInstance = msc.getInventarioManager();
         if (managerInstance != null) {
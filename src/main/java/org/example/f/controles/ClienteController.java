@@ -1,7 +1,6 @@
 package org.example.f.controles;
 
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
+import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
@@ -15,25 +14,35 @@ import javafx.stage.Modality;
 import javafx.stage.Stage;
 
 import org.example.f.modelos.Cliente;
+import org.example.f.servicios.BusEventos;
 import org.example.f.servicios.ClienteManager;
+import org.example.f.servicios.EventoDominio;
 import java.io.IOException;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * Controlador FXML para la vista de gestión de Clientes (Clientes-view.fxml).
  * Esta clase maneja la interacción del usuario con la tabla de clientes,
  * así como las operaciones CRUD (Crear, Leer, Actualizar, Eliminar) llamando
- * a la capa de servicio (ClienteManager).
+ * a la capa de servicio (ClienteManager). Los cambios de clientes hechos desde cualquier parte
+ * llegan por el {@link BusEventos}, agrupados en un lote por pulso de la interfaz, y se aplican
+ * fila por fila ({@link FilasPorId}) conservando la selección, el desplazamiento y el orden.
  * * @author [Tu Nombre/Proyecto]
  * @version 1.0
  * @since 2025-11-03
  */
-public class ClienteController {
+public class ClienteController implements ModuloRefrescable {
 
     /**
      * Instancia del Manager de Clientes. Inyectada desde MainSystemController.
      */
     private ClienteManager clienteManager;
+    /** Filas de la tabla por ID, donde se aplican los cambios del catálogo. */
+    private FilasPorId<Cliente> filas;
+    /** Suscripción a los cambios del catálogo de clientes (null hasta inyectar los managers). */
+    private BusEventos.Suscripcion suscripcion;
 
     // --- Elementos FXML ---
 
@@ -51,11 +60,18 @@ public class ClienteController {
     @FXML private TableColumn<Cliente, String> colDireccion;
 
     /**
-     * Inyecta la dependencia del ClienteManager al controlador y carga los datos iniciales.
+     * Inyecta la dependencia del ClienteManager al controlador, se suscribe a sus cambios y carga los datos iniciales.
      * @param manager La instancia única del ClienteManager.
+     * @param bus El bus de eventos donde el manager publica sus cambios.
      */
-    public void setManagers(ClienteManager manager) {
+    public void setManagers(ClienteManager manager, BusEventos bus) {
+        if (suscripcion != null) {
+            suscripcion.cancelar();
+        }
         this.clienteManager = manager;
+        this.suscripcion = bus.suscribirPorLotes(
+                Set.of(EventoDominio.ClienteActualizado.class, EventoDominio.ClienteEliminado.class),
+                this::aplicarCambios, Platform::runLater);
         cargarClientes();
     }
 
@@ -65,6 +81,7 @@ public class ClienteController {
      */
     @FXML
     public void initialize() {
+        filas = new FilasPorId<>(clientesTable, Cliente::getIdCliente);
         colID.setCellValueFactory(new PropertyValueFactory<>("idCliente"));
         colNombre.setCellValueFactory(new PropertyValueFactory<>("nombre"));
         colTelefono.setCellValueFactory(new PropertyValueFactory<>("telefono"));
@@ -79,21 +96,41 @@ public class ClienteController {
         });
     }
 
+    /**
+     * Al volver al módulo desde la caché de vistas no hay nada que recargar: la suscripción al bus sigue
+     * activa mientras la vista está oculta y las filas ya reflejan las altas, cambios y bajas de clientes.
+     */
+    @Override
+    public void refrescar() {
+        // Sin recarga: la vista se mantiene al día con los eventos de clientes
+    }
+
     /**
      * Carga y actualiza la lista de clientes desde el ClienteManager en la TableView.
      */
     private void cargarClientes() {
         if (clienteManager != null) {
-            ObservableList<Cliente> data = FXCollections.observableArrayList(
-                    clienteManager.obtenerTodosLosClientes()
-            );
-            clientesTable.setItems(data);
-
-            // Fuerza la actualización visual de la tabla (útil tras edición/eliminación)
-            clientesTable.refresh();
+            filas.reemplazarTodas(clienteManager.obtenerTodosLosClientes());
         }
     }
 
+    /**
+     * Recibe, en el hilo de JavaFX, los cambios de clientes acumulados desde el pulso anterior (uno por cliente)
+     * y los aplica solo a las filas afectadas.
+     * @param cambios Los eventos del lote.
+     */
+    private void aplicarCambios(List<EventoDominio> cambios) {
+        filas.conservandoSeleccion(() -> {
+            for (EventoDominio cambio : cambios) {
+                switch (cambio) {
+                    case EventoDominio.ClienteActualizado(Cliente cliente) -> filas.poner(cliente);
+                    case EventoDominio.ClienteEliminado(int idCliente) -> filas.quitar(idCliente);
+                    default -> { }
+                }
+            }
+        });
+    }
+
     // --- Métodos de Acción CRUD ---
 
     /**
@@ -141,9 +178,7 @@ public class ClienteController {
             controller.setCliente(cliente);
 
             stage.showAndWait();
-
-            // Recarga los datos al cerrar el formulario para reflejar los cambios
-            cargarClientes();
+            // La tabla se actualiza con el evento que publica el manager al guardar
 
         } catch (IOException e) {
             mostrarAlerta(Alert.AlertType.ERROR, "Error", "No se pudo cargar el formulario de cliente: " + e.getMessage());
@@ -166,11 +201,8 @@ public class ClienteController {
 
             if (result.isPresent() && result.get() == ButtonType.OK) {
 
-                // Llama al Manager para eliminar por ID
+                // Llama al Manager para eliminar por ID (publica ClienteEliminado y la tabla se actualiza)
                 clienteManager.eliminarCliente(clienteSeleccionado.getIdCliente());
-
-                // Actualiza la tabla para reflejar la eliminación
-                cargarClientes();
             }
 
         } else {
@@ -8,6 +8,7 @@ import javafx.stage.Stage;
 
 import org.example.f.modelos.Cliente;
 import org.example.f.servicios.ClienteManager;
+import org.example.f.servicios.PuntoVenta;
 
 /**
  * Controlador FXML para el formulario modal de registro y edición de Clientes.
@@ -25,6 +26,10 @@ public class ClienteFormController {
     private Cliente cliente;
     /** Instancia del Manager de Clientes para las operaciones CRUD. */
     private ClienteManager clienteManager;
+    /** Punto de venta donde se registran los clientes nuevos desde la vista de ventas (null = usar el ClienteManager). */
+    private PuntoVenta puntoVenta;
+    /** Indica si el cliente se guardó antes de cerrar el formulario. */
+    private boolean guardado;
 
     // --- Elementos FXML ---
 
@@ -56,6 +61,23 @@ public class ClienteFormController {
         this.clienteManager = manager;
     }
 
+    /**
+     * Inyecta el punto de venta donde se registran los clientes nuevos. En una caja conectada al
+     * servidor de cobro el cliente se da de alta en el servidor, que le asigna su ID.
+     * @param puntoVenta El punto de venta de la vista de ventas.
+     */
+    public void setPuntoVenta(PuntoVenta puntoVenta) {
+        this.puntoVenta = puntoVenta;
+    }
+
+    /**
+     * Devuelve el cliente guardado con el formulario.
+     * @return El cliente, o null si se canceló el formulario o no se pudo guardar.
+     */
+    public Cliente getClienteGuardado() {
+        return guardado ? cliente : null;
+    }
+
     /**
      * Asigna el objeto Cliente a este controlador, inicializando un nuevo objeto
      * si el cliente pasado es null (modo registro), o cargando sus datos
@@ -91,11 +113,17 @@ public class ClienteFormController {
             cliente.setDireccion(direccionField.getText());
 
             // Determinar si es un registro (ID == 0) o una actualización (ID > 0)
-            if (cliente.getIdCliente() == 0) {
+            if (puntoVenta != null && cliente.getIdCliente() == 0) {
+                if (!puntoVenta.registrarCliente(cliente)) {
+                    mostrarAlerta(Alert.AlertType.ERROR, "Error", "No se pudo registrar el cliente.");
+                    return;
+                }
+            } else if (cliente.getIdCliente() == 0) {
                 clienteManager.guardarCliente(cliente);
             } else {
                 clienteManager.actualizarCliente(cliente);
             }
+            guardado = true;
 
             mostrarAlerta(Alert.AlertType.INFORMATION, "Éxito", "Cliente guardado correctamente.");
 
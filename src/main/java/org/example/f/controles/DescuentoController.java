@@ -10,13 +10,15 @@ import javafx.util.StringConverter;
 import org.example.f.modelos.Descuento;
 import org.example.f.modelos.Descuento.TipoDescuento;
 
+import org.example.f.servicios.BusEventos;
 import org.example.f.servicios.DescuentoManager;
+import org.example.f.servicios.EventoDominio;
 import java.util.List;
 
 /**
  * Controlador FXML para el formulario modal de aplicación de descuentos (descuento-form-view.fxml).
- * Gestiona la visualización del catálogo de descuentos y notifica al componente principal
- * (VentaController) cuando se selecciona o remueve un descuento, utilizando la interfaz DescuentoAplicadoListener.
+ * Gestiona la visualización del catálogo de descuentos y publica en el {@link BusEventos} cuándo se
+ * selecciona o remueve un descuento (DescuentoAplicado / DescuentoRemovido), que recibe el VentaController.
  *
  * @author [Tu Nombre/Proyecto]
  * @version 1.0
@@ -26,8 +28,8 @@ public class DescuentoController {
 
     /** Instancia del Manager de Descuentos para obtener el catálogo. */
     private DescuentoManager descuentoManager;
-    /** Referencia al componente principal (VentaController) para notificar sobre cambios en el descuento (Callback). */
-    private DescuentoAplicadoListener listener; // Callback al VentaController
+    /** Bus donde se publica la elección del descuento (la recibe el VentaController). */
+    private BusEventos bus;
 
 
     // --- Elementos FXML ---
@@ -46,11 +48,11 @@ public class DescuentoController {
     /**
      * Inicializa los datos necesarios para el controlador modal. Se llama antes de mostrar la ventana.
      * @param dm La instancia del DescuentoManager.
-     * @param listener La instancia del objeto que recibirá la notificación (generalmente VentaController).
+     * @param bus El bus de eventos donde se publica el descuento elegido.
      */
-    public void initData(DescuentoManager dm, DescuentoAplicadoListener listener) {
+    public void initData(DescuentoManager dm, BusEventos bus) {
         this.descuentoManager = dm;
-        this.listener = listener;
+        this.bus = bus;
         cargarDescuentos();
     }
 
@@ -110,24 +112,24 @@ public class DescuentoController {
 
     /**
      * Maneja el evento de aplicar el descuento seleccionado.
-     * Notifica al listener y cierra la ventana.
+     * Publica el evento DescuentoAplicado y cierra la ventana.
      */
     @FXML
     private void handleAplicarDescuento() {
-        if (descuentoSeleccionado != null && listener != null) {
-            listener.onDescuentoAplicado(descuentoSeleccionado);
+        if (descuentoSeleccionado != null && bus != null) {
+            bus.publicar(new EventoDominio.DescuentoAplicado(descuentoSeleccionado));
             handleCancelar();
         }
     }
 
     /**
      * Maneja el evento de remover el descuento actual.
-     * Notifica al listener para que el total se recalcule sin descuento y cierra la ventana.
+     * Publica el evento DescuentoRemovido para que el total se recalcule sin descuento y cierra la ventana.
      */
     @FXML
     private void handleRemoverDescuento() {
-        if (listener != null) {
-            listener.onDescuentoRemovido();
+        if (bus != null) {
+            bus.publicar(new EventoDominio.DescuentoRemovido());
             handleCancelar();
         }
     }
@@ -0,0 +1,129 @@
+package org.example.f.controles;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.collections.transformation.SortedList;
+import javafx.scene.control.TableView;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
+/**
+ * Filas de una {@link TableView} indexadas por ID, para aplicar los cambios del catálogo fila por fila
+ * en lugar de reconstruir la tabla.
+ * <p>
+ * La tabla muestra las filas a través de una {@link SortedList} enlazada a su comparador, así que un
+ * alta o un cambio se coloca solo en su sitio según el orden elegido por el usuario, y la tabla conserva
+ * el desplazamiento. Una baja mueve la última fila al hueco (como el catálogo del manager), de modo que
+ * cada alta, cambio o baja cuesta uno o dos eventos de lista y tiempo constante en el índice.
+ * </p>
+ *
+ * @param <T> El tipo de las filas.
+ *
+ * @author [Tu Nombre/Proyecto]
+ * @version 1.0
+ * @since 2025-11-03
+ */
+final class FilasPorId<T> {
+
+    private final TableView<T> tabla;
+    private final ToIntFunction<T> idDe;
+    /** Filas en el orden de llegada (la tabla las ve ordenadas). */
+    private final ObservableList<T> filas = FXCollections.observableArrayList();
+    /** Vista ordenada que muestra la tabla. */
+    private final SortedList<T> ordenadas = new SortedList<>(filas);
+    /** ID → posición en {@code filas}. */
+    private final Map<Integer, Integer> posicionPorId = new HashMap<>();
+
+    /**
+     * Enlaza las filas a la tabla (reemplaza sus elementos).
+     * @param tabla La tabla.
+     * @param idDe Obtiene el ID de una fila.
+     */
+    FilasPorId(TableView<T> tabla, ToIntFunction<T> idDe) {
+        this.tabla = tabla;
+        this.idDe = idDe;
+        ordenadas.comparatorProperty().bind(tabla.comparatorProperty());
+        mostrar();
+    }
+
+    /**
+     * Vuelve a mostrar estas filas en la tabla (si se le asignaron otros elementos entretanto).
+     */
+    void mostrar() {
+        tabla.setItems(ordenadas);
+    }
+
+    /** @return El número de filas. */
+    int tamano() {
+        return filas.size();
+    }
+
+    /** @return Si hay una fila con ese ID. */
+    boolean contiene(int id) {
+        return posicionPorId.containsKey(id);
+    }
+
+    /**
+     * Reemplaza todas las filas (por ejemplo, al cambiar el filtro).
+     * @param nuevas Las filas nuevas.
+     */
+    void reemplazarTodas(Collection<? extends T> nuevas) {
+        conservandoSeleccion(() -> {
+            filas.setAll(nuevas);
+            posicionPorId.clear();
+            for (int i = 0; i < filas.size(); i++) {
+                posicionPorId.put(idDe.applyAsInt(filas.get(i)), i);
+            }
+        });
+    }
+
+    /**
+     * Añade la fila o, si ya hay una con su ID, la reemplaza (y la tabla la vuelve a dibujar).
+     * @param fila La fila.
+     */
+    void poner(T fila) {
+        int id = idDe.applyAsInt(fila);
+        Integer posicion = posicionPorId.get(id);
+        if (posicion == null) {
+            posicionPorId.put(id, filas.size());
+            filas.add(fila);
+        } else {
+            filas.set(posicion, fila);
+        }
+    }
+
+    /**
+     * Quita la fila con un ID, si está.
+     * @param id El ID.
+     */
+    void quitar(int id) {
+        Integer posicion = posicionPorId.remove(id);
+        if (posicion == null) { return; }
+        int ultima = filas.size() - 1;
+        if (posicion < ultima) {
+            T movida = filas.get(ultima);
+            filas.set(posicion, movida);
+            posicionPorId.put(idDe.applyAsInt(movida), posicion);
+        }
+        filas.remove(ultima);
+    }
+
+    /**
+     * Aplica cambios a las filas y después vuelve a seleccionar la fila que estaba seleccionada
+     * (por su ID), si sigue en la tabla: reemplazar una fila ordenada la saca de la selección.
+     * @param cambios Los cambios a aplicar.
+     */
+    void conservandoSeleccion(Runnable cambios) {
+        T seleccionada = tabla.getSelectionModel().getSelectedItem();
+        cambios.run();
+        if (seleccionada == null) { return; }
+        Integer posicion = posicionPorId.get(idDe.applyAsInt(seleccionada));
+        if (posicion == null) { return; }
+        if (tabla.getSelectionModel().getSelectedItem() != filas.get(posicion)) {
+            tabla.getSelectionModel().select(ordenadas.getViewIndex(posicion));
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package org.example.f.controles;
 
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
@@ -8,29 +9,49 @@ import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.control.Alert;
+import javafx.scene.control.Button;
 import javafx.scene.control.ButtonType;
+import javafx.scene.control.ComboBox;
+import javafx.scene.control.Label;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
+import javafx.scene.control.TextField;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
+import javafx.util.StringConverter;
 
 import org.example.f.modelos.Producto;
+import org.example.f.servicios.BusEventos;
+import org.example.f.servicios.EventoDominio;
 import org.example.f.servicios.InventarioManager;
 import java.io.IOException;
 import java.util.Optional;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Controlador FXML para la vista de gestión de Inventario (inventario-view.fxml).
  * Esta clase maneja la visualización de la tabla de productos, las operaciones CRUD (Crear, Leer,
- * Actualizar, Eliminar) y la gestión de alertas de stock bajo.
+ * Actualizar, Eliminar), el filtrado por categoría y rango de stock (consultado a los índices del
+ * manager, sin recorrer el catálogo) y la gestión de alertas de stock bajo. Se suscribe en el
+ * {@link BusEventos} a los cambios de productos y de stock, que recibe agrupados en un lote por pulso
+ * de la interfaz, y los aplica fila por fila ({@link FilasPorId}): la tabla conserva la selección,
+ * el desplazamiento y el orden, y editar un producto no vuelve a cargar el catálogo.
+ * A partir de {@link #UMBRAL_PAGINADO} productos la tabla pasa al modo paginado ({@link ProductosPaginados}):
+ * solo se cargan las páginas cercanas a la zona visible, ordenadas y filtradas por el manager.
  *
  * @author [Tu Nombre/Proyecto]
  * @version 1.0
  * @since 2025-11-03
  */
-public class InventarioController {
+public class InventarioController implements ModuloRefrescable {
+
+    /**
+     * Productos del catálogo a partir de los cuales la tabla se pagina
+     * (propiedad del sistema {@code ferreteria.inventario.umbralPaginado}).
+     */
+    static final int UMBRAL_PAGINADO = Integer.getInteger("ferreteria.inventario.umbralPaginado", 20_000);
 
     /** Instancia del Manager de Inventario, inyectada desde MainSystemController. */
     private InventarioManager inventarioManager;
@@ -49,14 +70,42 @@ public class InventarioController {
     @FXML private TableColumn<Producto, Double> colPrecio;
     /** Columna para la cantidad en stock del producto. */
     @FXML private TableColumn<Producto, Integer> colStock;
+    /** Filtro por categoría (con el número de productos de cada una). */
+    @FXML private ComboBox<InventarioManager.ResumenCategoria> categoriaCombo;
+    /** Límite inferior (incluido) del filtro de stock; vacío para no acotar. */
+    @FXML private TextField stockMinimoField;
+    /** Límite superior (incluido) del filtro de stock; vacío para no acotar. */
+    @FXML private TextField stockMaximoField;
+    /** Resumen de la selección: productos mostrados y totales de la categoría. */
+    @FXML private Label resumenFiltroLabel;
+    /** Botón de alertas; muestra cuántos productos tienen stock bajo. */
+    @FXML private Button alertasButton;
+
+    /** Filas de la tabla por ID, donde se aplican los cambios del inventario. */
+    private FilasPorId<Producto> filas;
+    /** Filas del modo paginado (null cuando la tabla muestra el catálogo completo). */
+    private ProductosPaginados paginados;
+    /** Suscripción a los cambios del inventario (null hasta inyectar los managers). */
+    private BusEventos.Suscripcion suscripcion;
+    /** Evita reaplicar el filtro mientras se reconstruye la lista de categorías. */
+    private boolean actualizandoCategorias;
 
     /**
-     * Inyecta la dependencia del InventarioManager al controlador y carga los datos iniciales.
+     * Inyecta la dependencia del InventarioManager al controlador, se suscribe a sus cambios y carga los datos iniciales.
      * @param manager La instancia única del InventarioManager.
+     * @param bus El bus de eventos donde el manager publica sus cambios.
      */
-    public void setManagers(InventarioManager manager) {
+    public void setManagers(InventarioManager manager, BusEventos bus) {
+        if (suscripcion != null) {
+            suscripcion.cancelar();
+        }
         this.inventarioManager = manager;
+        this.suscripcion = bus.suscribirPorLotes(
+                Set.of(EventoDominio.ProductoActualizado.class, EventoDominio.ProductoEliminado.class,
+                        EventoDominio.StockCambiado.class),
+                this::aplicarCambios, Platform::runLater);
         cargarDatosInventario();
+        actualizarIndicadorAlertas();
     }
 
     /**
@@ -65,12 +114,38 @@ public class InventarioController {
      */
     @FXML
     public void initialize() {
+        filas = new FilasPorId<>(productosTable, Producto::getIdProducto);
+        // En el modo paginado el orden lo aplica el manager, no la tabla
+        productosTable.setSortPolicy(tabla -> {
+            if (paginados == null) { return TableView.DEFAULT_SORT_POLICY.call(tabla); }
+            paginados.consultar(ordenActual(), filtroActual());
+            return true;
+        });
         colNombre.setCellValueFactory(new PropertyValueFactory<>("nombre"));
         colArticulo.setCellValueFactory(new PropertyValueFactory<>("numeroArticulo"));
         colCategoria.setCellValueFactory(new PropertyValueFactory<>("categoria"));
         colPrecio.setCellValueFactory(new PropertyValueFactory<>("precio"));
         colStock.setCellValueFactory(new PropertyValueFactory<>("cantidadEnStock"));
 
+        // Filtros: cualquier cambio vuelve a consultar al manager
+        categoriaCombo.setConverter(new StringConverter<>() {
+            @Override
+            public String toString(InventarioManager.ResumenCategoria r) {
+                if (r == null) { return ""; }
+                return (r.categoria() == null ? "Todas" : r.categoria()) + " (" + r.productos() + ")";
+            }
+
+            @Override
+            public InventarioManager.ResumenCategoria fromString(String texto) {
+                return null; // El combo no es editable
+            }
+        });
+        categoriaCombo.valueProperty().addListener((obs, anterior, nueva) -> {
+            if (!actualizandoCategorias) { aplicarFiltro(); }
+        });
+        stockMinimoField.textProperty().addListener((obs, anterior, nuevo) -> aplicarFiltro());
+        stockMaximoField.textProperty().addListener((obs, anterior, nuevo) -> aplicarFiltro());
+
         // Listener para la edición por doble clic
         productosTable.setOnMouseClicked(event -> {
             if (event.getClickCount() == 2 && productosTable.getSelectionModel().getSelectedItem() != null) {
@@ -80,16 +155,138 @@ public class InventarioController {
     }
 
     /**
-     * Carga y actualiza la lista de productos desde el InventarioManager en la TableView.
-     * Es crucial para reflejar los cambios de CRUD.
+     * Al volver al módulo desde la caché de vistas no hay nada que recargar: la suscripción al bus sigue
+     * activa mientras la vista está oculta, así que las filas y los totales por categoría ya reflejan
+     * los cambios. Recargar toda la tabla perdería la selección y el desplazamiento.
+     */
+    @Override
+    public void refrescar() {
+        // Sin recarga: la vista se mantiene al día con los eventos del inventario
+    }
+
+    /**
+     * Carga y actualiza la lista de productos desde el InventarioManager en la TableView,
+     * respetando los filtros activos. Es crucial para reflejar los cambios de CRUD.
      */
     private void cargarDatosInventario() {
         if (inventarioManager != null) {
-            ObservableList<Producto> data = FXCollections.observableArrayList(
-                    inventarioManager.obtenerTodosLosProductos()
-            );
-            productosTable.setItems(data);
-            productosTable.refresh();
+            actualizarCategorias();
+            aplicarFiltro();
+        }
+    }
+
+    /**
+     * Reconstruye la lista de categorías con sus totales actuales, conservando la categoría elegida.
+     */
+    private void actualizarCategorias() {
+        List<InventarioManager.ResumenCategoria> resumen = inventarioManager.obtenerResumenCategorias();
+        int productos = 0;
+        long unidades = 0;
+        double valor = 0;
+        for (InventarioManager.ResumenCategoria r : resumen) {
+            productos += r.productos();
+            unidades += r.unidades();
+            valor += r.valorStock();
+        }
+        InventarioManager.ResumenCategoria todas = new InventarioManager.ResumenCategoria(null, productos, unidades, valor);
+
+        InventarioManager.ResumenCategoria elegida = categoriaCombo.getValue();
+        String nombreElegido = elegida == null ? null : elegida.categoria();
+        actualizandoCategorias = true;
+        try {
+            ObservableList<InventarioManager.ResumenCategoria> opciones = FXCollections.observableArrayList(todas);
+            opciones.addAll(resumen);
+            categoriaCombo.setItems(opciones);
+            categoriaCombo.setValue(opciones.stream()
+                    .filter(r -> nombreElegido != null && nombreElegido.equals(r.categoria()))
+                    .findFirst().orElse(todas));
+        } finally {
+            actualizandoCategorias = false;
+        }
+    }
+
+    /** @return Los filtros elegidos (los campos vacíos no acotan). */
+    private InventarioManager.FiltroProductos filtroActual() {
+        InventarioManager.ResumenCategoria elegida = categoriaCombo.getValue();
+        Integer minimo = leerEntero(stockMinimoField);
+        Integer maximo = leerEntero(stockMaximoField);
+        return new InventarioManager.FiltroProductos(elegida == null ? null : elegida.categoria(),
+                minimo == null ? Integer.MIN_VALUE : minimo,
+                maximo == null ? Integer.MAX_VALUE : maximo);
+    }
+
+    /** @return El orden elegido en la tabla (la primera columna de ordenación), para el modo paginado. */
+    private InventarioManager.OrdenProductos ordenActual() {
+        if (productosTable.getSortOrder().isEmpty()) { return InventarioManager.OrdenProductos.CATALOGO; }
+        TableColumn<Producto, ?> columna = productosTable.getSortOrder().get(0);
+        InventarioManager.CampoOrden campo;
+        if (columna == colNombre) {
+            campo = InventarioManager.CampoOrden.NOMBRE;
+        } else if (columna == colArticulo) {
+            campo = InventarioManager.CampoOrden.ARTICULO;
+        } else if (columna == colCategoria) {
+            campo = InventarioManager.CampoOrden.CATEGORIA;
+        } else if (columna == colPrecio) {
+            campo = InventarioManager.CampoOrden.PRECIO;
+        } else if (columna == colStock) {
+            campo = InventarioManager.CampoOrden.STOCK;
+        } else {
+            campo = InventarioManager.CampoOrden.CATALOGO;
+        }
+        return new InventarioManager.OrdenProductos(campo, columna.getSortType() == TableColumn.SortType.DESCENDING);
+    }
+
+    /**
+     * Muestra en la tabla los productos de la categoría y el rango de stock elegidos.
+     * Sin filtros se muestra el catálogo completo. Si el catálogo alcanza {@link #UMBRAL_PAGINADO}
+     * productos, la tabla pasa al modo paginado (y vuelve al normal si baja del umbral).
+     */
+    private void aplicarFiltro() {
+        if (inventarioManager == null) { return; }
+
+        InventarioManager.FiltroProductos filtro = filtroActual();
+        if (inventarioManager.obtenerTodosLosProductos().size() >= UMBRAL_PAGINADO) {
+            if (paginados == null) {
+                filas.reemplazarTodas(List.of()); // Libera las filas del modo normal
+                paginados = new ProductosPaginados(inventarioManager, this::actualizarResumenFiltro);
+                productosTable.setItems(paginados);
+            }
+            paginados.consultar(ordenActual(), filtro);
+        } else {
+            if (paginados != null) {
+                paginados.cerrar();
+                paginados = null;
+                filas.mostrar();
+            }
+            filas.reemplazarTodas(filtro.vacio() ? inventarioManager.obtenerTodosLosProductos()
+                    : inventarioManager.buscarPorCategoria(filtro.categoria(), filtro.stockMinimo(), filtro.stockMaximo()));
+        }
+        actualizarResumenFiltro();
+    }
+
+    /**
+     * Muestra cuántos productos hay en la tabla y los totales de la categoría elegida.
+     */
+    private void actualizarResumenFiltro() {
+        InventarioManager.ResumenCategoria elegida = categoriaCombo.getValue();
+        int mostrados = paginados != null ? paginados.size() : filas.tamano();
+        if (elegida != null) {
+            resumenFiltroLabel.setText(String.format("Mostrando %d · %s: %d productos, %d unidades, valor $%.2f",
+                    mostrados, elegida.categoria() == null ? "Inventario" : elegida.categoria(),
+                    elegida.productos(), elegida.unidades(), elegida.valorStock()));
+        } else {
+            resumenFiltroLabel.setText("Mostrando " + mostrados);
+        }
+    }
+
+    /** @return El entero escrito en el campo, o null si está vacío o no es un número. */
+    private static Integer leerEntero(TextField campo) {
+        String texto = campo.getText() == null ? "" : campo.getText().trim();
+        if (texto.isEmpty()) { return null; }
+        try {
+            return Integer.parseInt(texto);
+        } catch (NumberFormatException e) {
+            return null;
         }
     }
 
@@ -141,9 +338,7 @@ public class InventarioController {
             controller.setProducto(producto);
 
             stage.showAndWait();
-
-            // Recarga los datos al cerrar el formulario
-            cargarDatosInventario();
+            // La tabla se actualiza con el evento que publica el manager al guardar
 
         } catch (IOException e) {
             mostrarAlerta(Alert.AlertType.ERROR, "Error", "No se pudo cargar el formulario de producto: " + e.getMessage());
@@ -163,9 +358,7 @@ public class InventarioController {
                     "¿Está seguro de que desea eliminar a " + seleccionado.getNombre() + "?");
 
             if (result.isPresent() && result.get() == ButtonType.OK) {
-                inventarioManager.eliminarProducto(seleccionado.getIdProducto());
-
-                cargarDatosInventario();
+                inventarioManager.eliminarProducto(seleccionado.getIdProducto()); // Publica ProductoEliminado
                 mostrarAlerta(Alert.AlertType.INFORMATION, "Éxito", "Producto eliminado correctamente.");
             }
         } else {
@@ -176,6 +369,62 @@ public class InventarioController {
 
     // --- Métodos de Alerta y Auxiliares ---
 
+    /**
+     * Recibe, en el hilo de JavaFX, los cambios de productos y de stock acumulados desde el pulso anterior
+     * (uno por producto) y los aplica a las filas afectadas: cada producto entra, se vuelve a dibujar o
+     * sale de la tabla según los filtros elegidos. En el modo paginado se vuelve a cargar la zona visible.
+     * Los totales por categoría se releen una vez por lote.
+     * @param cambios Los eventos del lote.
+     */
+    private void aplicarCambios(List<EventoDominio> cambios) {
+        if (inventarioManager == null) { return; }
+
+        if (paginados != null) {
+            paginados.invalidar();
+        } else {
+            aplicarCambiosFilas(cambios);
+        }
+        actualizarCategorias();
+        actualizarResumenFiltro();
+        actualizarIndicadorAlertas();
+    }
+
+    /** Aplica los cambios de un lote a las filas del modo normal. */
+    private void aplicarCambiosFilas(List<EventoDominio> cambios) {
+        InventarioManager.FiltroProductos filtro = filtroActual();
+        filas.conservandoSeleccion(() -> {
+            for (EventoDominio cambio : cambios) {
+                switch (cambio) {
+                    case EventoDominio.ProductoActualizado(Producto producto) -> mostrarSiCumple(producto, filtro);
+                    case EventoDominio.StockCambiado(int idProducto, int stock) ->
+                            inventarioManager.buscarPorId(idProducto).ifPresentOrElse(
+                                    producto -> mostrarSiCumple(producto, filtro), () -> filas.quitar(idProducto));
+                    case EventoDominio.ProductoEliminado(int idProducto) -> filas.quitar(idProducto);
+                    default -> { }
+                }
+            }
+        });
+    }
+
+    /** Muestra (o vuelve a dibujar) el producto si cumple el filtro; si no, lo quita de la tabla. */
+    private void mostrarSiCumple(Producto producto, InventarioManager.FiltroProductos filtro) {
+        if (filtro.cumple(producto)) {
+            filas.poner(producto);
+        } else {
+            filas.quitar(producto.getIdProducto());
+        }
+    }
+
+    /**
+     * Muestra en el botón de alertas el número de productos con stock bajo, resaltado si hay alguno.
+     */
+    private void actualizarIndicadorAlertas() {
+        if (inventarioManager == null || alertasButton == null) { return; }
+        int pendientes = inventarioManager.contarProductosStockBajo();
+        alertasButton.setText(pendientes == 0 ? "Ver Alertas" : "Ver Alertas (" + pendientes + ")");
+        alertasButton.setStyle(pendientes == 0 ? "" : "-fx-text-fill: #b00020; -fx-font-weight: bold;");
+    }
+
     /**
      * Muestra una alerta modal al usuario.
      * @param type El tipo de alerta (INFORMATION, WARNING, ERROR, CONFIRMATION).
@@ -200,7 +449,7 @@ public class InventarioController {
     public void handleVerAlertas(ActionEvent actionEvent) {
         if (inventarioManager == null) return; // Validación de dependencia
 
-        // Obtiene la lista de productos que cumplen con el umbral de stock bajo
+        // Obtiene la lista de productos en o por debajo de su punto de reorden, del más urgente al menos
         List<Producto> alertas = inventarioManager.obtenerProductosStockBajo();
 
         if (alertas.isEmpty()) {
@@ -211,7 +460,8 @@ public class InventarioController {
 
             for (Producto p : alertas) {
                 mensaje.append("- ").append(p.getNombre())
-                        .append(" (Stock: ").append(p.getCantidadEnStock()).append(")\n");
+                        .append(" (Stock: ").append(p.getCantidadEnStock())
+                        .append(", reorden: ").append(p.getPuntoReorden()).append(")\n");
             }
 
             mostrarAlerta(Alert.AlertType.WARNING, "Alerta de Reposición", mensaje.toString());
@@ -1,23 +1,41 @@
 package org.example.f.controles;
 
+import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.control.Label;
 import javafx.scene.control.Button;
+import javafx.scene.control.ProgressIndicator;
 import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.VBox;
+import org.example.f.servicios.AutocompletadoProductos;
+import org.example.f.servicios.BusEventos;
 import org.example.f.servicios.InventarioManager;
+import org.example.f.servicios.ClienteCaja;
 import org.example.f.servicios.ClienteManager;
+import org.example.f.servicios.PuntoVenta;
 import org.example.f.servicios.TransaccionManager;
 import org.example.f.servicios.DescuentoManager;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
 
 /**
  * Controlador principal de la aplicación (MainSystemView.fxml).
  * Es responsable de:
  * <ul>
- * <li>Inicializar todas las instancias únicas de los Managers (capa de servicio/POO).</li>
- * <li>Manejar la navegación entre los diferentes módulos (Inventario, Ventas, Clientes).</li>
+ * <li>Inicializar todas las instancias únicas de los Managers (capa de servicio/POO), en paralelo y en
+ * segundo plano, para que el panel principal se muestre sin esperar a que terminen de cargar los datos.</li>
+ * <li>Manejar la navegación entre los diferentes módulos (Inventario, Ventas, Clientes), conservando
+ * en caché la vista y el controlador de cada módulo ya cargado.</li>
  * <li>Inyectar las dependencias de los Managers a los controladores de los módulos cargados.</li>
  * </ul>
  *
@@ -29,14 +47,52 @@ public class MainSystemController {
 
     // --- Instancias Singleton (Managers) ---
 
-    /** Instancia única del InventarioManager. */
-    private final InventarioManager inventarioManager;
+    /** Hilos virtuales donde se cargan los datos de los managers al iniciar. */
+    private static final Executor CARGADOR = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("carga-datos-", 0).factory());
+
+    /** Bus de eventos del dominio compartido por los managers y los controladores. */
+    private final BusEventos bus = new BusEventos();
+    /** Instancia única del InventarioManager (se completa cuando termina de cargar sus datos). */
+    private final CompletableFuture<InventarioManager> inventarioManager;
     /** Instancia única del ClienteManager. */
-    private final ClienteManager clienteManager;
+    private final CompletableFuture<ClienteManager> clienteManager;
     /** Instancia única del TransaccionManager (depende de InventarioManager). */
-    private final TransaccionManager transaccionManager;
+    private final CompletableFuture<TransaccionManager> transaccionManager;
     /** Instancia única del DescuentoManager. */
-    private final DescuentoManager descuentoManager;
+    private final CompletableFuture<DescuentoManager> descuentoManager;
+    /** Punto de venta de la vista de ventas: el TransaccionManager local o una caja del servidor de cobro. */
+    private final CompletableFuture<PuntoVenta> puntoVenta;
+    /** Propiedad del sistema con la dirección ({@code host:puerto}) del servidor de cobro compartido. */
+    private static final String PROPIEDAD_SERVIDOR = "ferreteria.servidor";
+    /**
+     * Si esta instancia es una caja conectada al servidor de cobro: el inventario, el carrito y el diario
+     * de ventas viven en el servidor, así que no se cargan localmente ni se muestra el módulo de inventario.
+     */
+    private final boolean modoCaja;
+    /** Autocompletado del punto de venta (depende del inventario y del historial de ventas; null en modo caja). */
+    private final CompletableFuture<AutocompletadoProductos> autocompletado;
+    /** Días de historial de ventas con que se inicializa la popularidad del autocompletado. */
+    private static final int DIAS_HISTORIAL_AUTOCOMPLETADO = 90;
+    /** Momento (System.nanoTime) en que empezó el arranque, para medir el tiempo hasta la interacción. */
+    private final long inicioArranque;
+    /** Propiedad del sistema que desactiva la precarga de vistas tras el inicio de sesión ("false"). */
+    private static final String PROPIEDAD_PRECALENTAR = "ferreteria.vistas.precalentar";
+    /** Módulos cuyas vistas se precargan en segundo plano tras el inicio de sesión. */
+    private static final List<String> MODULOS_PRECALENTADOS = List.of("inventario", "ventas", "clientes");
+
+    /**
+     * Vista de un módulo ya construida: su nodo raíz y su controlador con los managers inyectados.
+     */
+    private record VistaModulo(Parent raiz, Object controlador) { }
+
+    /** Caché de vistas por nombre de módulo (solo se accede desde el hilo de JavaFX). */
+    private final Map<String, VistaModulo> vistasCacheadas = new HashMap<>();
+    /** Último módulo solicitado; evita mostrar un módulo cuyos datos terminan de cargar cuando ya se navegó a otro. */
+    private String moduloSolicitado;
+
+    /** Última instancia creada por la vista principal, usada al cerrar la aplicación para volcar los datos pendientes. */
+    private static volatile MainSystemController instanciaActiva;
 
     // --- Elementos FXML ---
 
@@ -56,17 +112,84 @@ public class MainSystemController {
     @FXML private Button clientesButton;
 
     /**
-     * Constructor de la clase. Inicializa todas las instancias de la capa de servicio (Managers).
+     * Constructor de la clase. Lanza la carga de todas las instancias de la capa de servicio (Managers)
+     * en hilos virtuales, sin esperar a que terminen: cada manager lee su archivo en paralelo con los demás.
      * Este es el punto de inicio de la arquitectura POO de servicios.
      */
     public MainSystemController() {
-        this.inventarioManager = new InventarioManager();
-        this.clienteManager = new ClienteManager();
-        this.descuentoManager = new DescuentoManager();
-        // El TransaccionManager recibe el InventarioManager por inyección de constructor
-        this.transaccionManager = new TransaccionManager(inventarioManager);
+        this.inicioArranque = System.nanoTime();
+        String servidor = System.getProperty(PROPIEDAD_SERVIDOR);
+        this.modoCaja = servidor != null && !servidor.isBlank();
+        this.descuentoManager = cargarEnSegundoPlano("Descuentos", DescuentoManager::new);
+
+        if (modoCaja) {
+            // Con un servidor de cobro configurado, el carrito y el stock se comparten con las demás cajas:
+            // no se abren el inventario, los clientes ni el diario de ventas locales (sus IDs no serían los del servidor)
+            IllegalStateException sinInventario = new IllegalStateException(
+                    "Caja conectada al servidor de cobro " + servidor + ": sin inventario local.");
+            this.clienteManager = CompletableFuture.failedFuture(sinInventario);
+            this.inventarioManager = CompletableFuture.failedFuture(sinInventario);
+            this.transaccionManager = CompletableFuture.failedFuture(sinInventario);
+            this.puntoVenta = CompletableFuture.supplyAsync(() -> conectarCaja(servidor), CARGADOR);
+            this.autocompletado = CompletableFuture.completedFuture(null);
+        } else {
+            this.clienteManager = cargarEnSegundoPlano("Clientes", () -> {
+                ClienteManager cm = new ClienteManager();
+                cm.setBusEventos(bus);
+                return cm;
+            });
+            this.inventarioManager = cargarEnSegundoPlano("Inventario", () -> {
+                InventarioManager im = new InventarioManager();
+                im.setBusEventos(bus);
+                return im;
+            });
+            // El TransaccionManager recibe el InventarioManager por inyección de constructor y el
+            // ClienteManager por setter (los clientes de la venta se buscan a través del punto de venta)
+            this.transaccionManager = inventarioManager.thenCombineAsync(clienteManager, (im, cm) -> {
+                TransaccionManager tm = new TransaccionManager(im);
+                tm.setBusEventos(bus);
+                tm.setClienteManager(cm);
+                return tm;
+            }, CARGADOR);
+            this.puntoVenta = transaccionManager.thenApply(tm -> (PuntoVenta) tm);
+            this.autocompletado = transaccionManager.thenApplyAsync(tm -> {
+                AutocompletadoProductos sugerencias = new AutocompletadoProductos(inventarioManager.join());
+                sugerencias.registrarVentas(tm.obtenerHistorialVentas(LocalDateTime.now().minusDays(DIAS_HISTORIAL_AUTOCOMPLETADO), null));
+                System.out.println("Autocompletado listo en " + milisDesdeArranque() + " ms.");
+                return sugerencias;
+            }, CARGADOR);
+        }
+        instanciaActiva = this;
 
-        System.out.println("Servicios POO inicializados (Instancias únicas).");
+        System.out.println("Servicios POO en carga (Instancias únicas).");
+    }
+
+    /**
+     * Construye un manager en un hilo virtual y registra cuánto tardó en cargar sus datos.
+     * @param nombre Nombre del conjunto de datos (para el registro).
+     * @param constructor El constructor del manager.
+     * @return Un {@code CompletableFuture} que se completa con el manager ya cargado.
+     */
+    private <T> CompletableFuture<T> cargarEnSegundoPlano(String nombre, Supplier<T> constructor) {
+        return CompletableFuture.supplyAsync(() -> {
+            T manager = constructor.get();
+            System.out.println(nombre + " cargado en " + milisDesdeArranque() + " ms.");
+            return manager;
+        }, CARGADOR);
+    }
+
+    private static PuntoVenta conectarCaja(String servidor) {
+        try {
+            PuntoVenta caja = ClienteCaja.conectar(servidor.strip());
+            System.out.println("Caja conectada al servidor de cobro " + servidor + ".");
+            return caja;
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo conectar con el servidor de cobro " + servidor, e);
+        }
+    }
+
+    private long milisDesdeArranque() {
+        return (System.nanoTime() - inicioArranque) / 1_000_000;
     }
 
     /**
@@ -82,8 +205,13 @@ public class MainSystemController {
         if (clientesButton != null) {
             clientesButton.setOnAction(event -> cargarModulo("clientes"));
         }
-        // Módulo cargado por defecto al iniciar el sistema
-        cargarModulo("inventario");
+        // Módulo cargado por defecto al iniciar el sistema (muestra su estado de carga si aún no hay datos)
+        cargarModulo(modoCaja ? "ventas" : "inventario");
+        System.out.println("Panel principal interactivo en " + milisDesdeArranque() + " ms.");
+
+        if (Boolean.parseBoolean(System.getProperty(PROPIEDAD_PRECALENTAR, "true"))) {
+            precalentarVistas();
+        }
     }
 
     /**
@@ -97,40 +225,47 @@ public class MainSystemController {
     /**
      * Carga la vista FXML de un módulo específico en el panel central (BorderPane.center).
      * Realiza la inyección de dependencias (Managers) al controlador del módulo cargado.
+     * Si los datos que necesita el módulo aún se están cargando, muestra un indicador de progreso
+     * y vuelve a intentarlo cuando estén listos. Si la vista ya está en caché, no se reconstruye:
+     * solo se refrescan sus datos.
      *
      * @param modulo El nombre base del módulo a cargar (ej: "inventario", "ventas").
      */
     private void cargarModulo(String modulo) {
-        String fxmlPath = "/org/example/f/view/" + modulo + "-view.fxml";
+        moduloSolicitado = modulo;
+        if (modoCaja && "inventario".equals(modulo)) {
+            mainBorderPane.setCenter(new Label("El inventario se administra en el servidor de cobro."));
+            return;
+        }
+        if (modoCaja && "clientes".equals(modulo)) {
+            mainBorderPane.setCenter(new Label("Los clientes se administran en el servidor de cobro."));
+            return;
+        }
+        CompletableFuture<Void> datos = datosDelModulo(modulo);
+        if (!datos.isDone()) {
+            mostrarCargando(modulo, datos);
+            return;
+        }
+        if (datos.isCompletedExceptionally()) {
+            System.err.println("Error al cargar los datos del módulo: " + modulo + ".");
+            mainBorderPane.setCenter(new Label("ERROR: No se pudieron cargar los datos del módulo " + modulo.toUpperCase() + "."));
+            return;
+        }
+
+        VistaModulo vista = vistasCacheadas.get(modulo);
+        if (vista != null) {
+            if (vista.controlador() instanceof ModuloRefrescable refrescable) {
+                refrescable.refrescar();
+            }
+            mainBorderPane.setCenter(vista.raiz());
+            return;
+        }
 
         try {
-            FXMLLoader loader = new FXMLLoader(getClass().getResource(fxmlPath));
+            FXMLLoader loader = crearLoader(modulo);
             Parent root = loader.load();
-
-            Object controller = loader.getController();
-
-            // --- INYECCIÓN DE DEPENDENCIAS (Inyección por Setter) ---
-
-            if ("inventario".equals(modulo)) {
-                // Inyección simple: InventarioController solo necesita InventarioManager
-                ((InventarioController) controller).setManagers(inventarioManager);
-
-            } else if ("ventas".equals(modulo)) {
-                // Inyección múltiple: VentaController necesita los cuatro managers
-                ((VentaController) controller).setManagers(
-                        inventarioManager,
-                        clienteManager,
-                        transaccionManager,
-                        descuentoManager
-                );
-
-            } else if ("clientes".equals(modulo)) {
-                // Inyección simple: ClienteController solo necesita ClienteManager
-                ((ClienteController) controller).setManagers(clienteManager);
-
-            } else {
-                System.out.println("ADVERTENCIA: Módulo " + modulo + " cargado sin inyección de dependencias.");
-            }
+            inyectarManagers(modulo, loader.getController());
+            vistasCacheadas.put(modulo, new VistaModulo(root, loader.getController()));
 
             mainBorderPane.setCenter(root);
             System.out.println("Módulo '" + modulo.toUpperCase() + "' cargado exitosamente.");
@@ -150,12 +285,139 @@ public class MainSystemController {
         }
     }
 
+    private FXMLLoader crearLoader(String modulo) {
+        String fxmlPath = "/org/example/f/view/" + modulo + "-view.fxml";
+        return new FXMLLoader(getClass().getResource(fxmlPath));
+    }
+
+    /**
+     * Inyecta los managers que necesita el controlador de un módulo recién construido.
+     * @param modulo El nombre base del módulo.
+     * @param controller El controlador creado por el FXMLLoader.
+     * @throws ClassCastException Si el controlador del FXML no es el esperado para el módulo.
+     */
+    private void inyectarManagers(String modulo, Object controller) {
+        // --- INYECCIÓN DE DEPENDENCIAS (Inyección por Setter) ---
+
+        if ("inventario".equals(modulo)) {
+            // Inyección simple: InventarioController necesita InventarioManager y el bus de eventos
+            ((InventarioController) controller).setManagers(inventarioManager.join(), bus);
+
+        } else if ("ventas".equals(modulo)) {
+            // Inyección múltiple: VentaController necesita el punto de venta (productos, clientes y carrito),
+            // los descuentos, el autocompletado y el bus
+            ((VentaController) controller).setManagers(
+                    puntoVenta.join(),
+                    descuentoManager.join(),
+                    autocompletado.join(),
+                    bus
+            );
+
+        } else if ("clientes".equals(modulo)) {
+            // Inyección simple: ClienteController necesita ClienteManager y el bus de eventos
+            ((ClienteController) controller).setManagers(clienteManager.join(), bus);
+
+        } else {
+            System.out.println("ADVERTENCIA: Módulo " + modulo + " cargado sin inyección de dependencias.");
+        }
+    }
+
+    /**
+     * Construye en segundo plano las vistas de los módulos principales, a medida que sus datos terminan
+     * de cargar, para que la primera visita a cada módulo no tenga que analizar el FXML.
+     * El análisis del FXML se hace en un hilo virtual (los nodos aún no pertenecen a ninguna escena);
+     * la inyección de managers y el registro en la caché, en el hilo de JavaFX.
+     */
+    private void precalentarVistas() {
+        for (String modulo : MODULOS_PRECALENTADOS) {
+            if (modoCaja && !"ventas".equals(modulo)) { continue; }
+            datosDelModulo(modulo)
+                    .thenApplyAsync(datos -> {
+                        FXMLLoader loader = crearLoader(modulo);
+                        try {
+                            loader.load();
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                        return loader;
+                    }, CARGADOR)
+                    .whenComplete((loader, error) -> Platform.runLater(() -> {
+                        if (error != null) {
+                            System.err.println("No se pudo precargar el módulo " + modulo + ": " + error.getMessage());
+                        } else if (!vistasCacheadas.containsKey(modulo)) {
+                            try {
+                                inyectarManagers(modulo, loader.getController());
+                                vistasCacheadas.put(modulo, new VistaModulo(loader.getRoot(), loader.getController()));
+                            } catch (ClassCastException e) {
+                                System.err.println("Error de casting al precargar el módulo " + modulo + ".");
+                            }
+                        }
+                    }));
+        }
+    }
+
+    /**
+     * Indica qué datos necesita cada módulo antes de poder mostrarse.
+     * @param modulo El nombre base del módulo.
+     * @return Un {@code CompletableFuture} que se completa cuando todos sus managers están cargados.
+     */
+    private CompletableFuture<Void> datosDelModulo(String modulo) {
+        switch (modulo) {
+            case "inventario":
+                return CompletableFuture.allOf(inventarioManager);
+            case "ventas":
+                // El punto de venta y el autocompletado ya esperan al inventario y al TransaccionManager locales
+                return CompletableFuture.allOf(puntoVenta, descuentoManager, autocompletado);
+            case "clientes":
+                return CompletableFuture.allOf(clienteManager);
+            default:
+                return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    /**
+     * Muestra el estado de carga de un módulo y lo carga cuando sus datos estén listos,
+     * siempre que el usuario no haya navegado a otro módulo mientras tanto.
+     * @param modulo El nombre base del módulo.
+     * @param datos La carga pendiente de los datos del módulo.
+     */
+    private void mostrarCargando(String modulo, CompletableFuture<Void> datos) {
+        VBox cargando = new VBox(20, new ProgressIndicator(), new Label("Cargando datos de " + modulo.toUpperCase() + "..."));
+        cargando.setStyle("-fx-alignment: center;");
+        mainBorderPane.setCenter(cargando);
+
+        datos.whenComplete((resultado, error) -> Platform.runLater(() -> {
+            if (modulo.equals(moduloSolicitado)) {
+                cargarModulo(modulo);
+            }
+        }));
+    }
+
     /**
      * Proporciona acceso a la instancia del InventarioManager. Utilizado principalmente
      * por la clase principal (FerreteriaApp) para guardar datos al cerrar la aplicación.
-     * @return La instancia única del InventarioManager.
+     * @return La instancia única del InventarioManager, o null si aún no ha terminado de cargar
+     *         (o si es una caja conectada al servidor de cobro).
      */
     public InventarioManager getInventarioManager() {
-        return this.inventarioManager;
+        return modoCaja ? null : this.inventarioManager.getNow(null);
+    }
+
+    /**
+     * Proporciona acceso a la instancia del ClienteManager. Utilizado por la clase principal
+     * (FerreteriaApp) para escribir los cambios pendientes de clientes al cerrar la aplicación.
+     * @return La instancia única del ClienteManager, o null si aún no ha terminado de cargar
+     *         (o si es una caja conectada al servidor de cobro).
+     */
+    public ClienteManager getClienteManager() {
+        return modoCaja ? null : this.clienteManager.getNow(null);
+    }
+
+    /**
+     * Obtiene la instancia del controlador principal creada al iniciar sesión.
+     * @return La instancia activa, o null si la vista principal aún no se ha cargado.
+     */
+    public static MainSystemController getInstanciaActiva() {
+        return instanciaActiva;
     }
-}
\ No newline at end of file
+}
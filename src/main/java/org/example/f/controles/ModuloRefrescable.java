@@ -0,0 +1,21 @@
+package org.example.f.controles;
+
+/**
+ * Define la interfaz (contrato) para los controladores de módulo cuya vista se conserva en caché.
+ * <p>
+ * El MainSystemController no vuelve a construir la vista de un módulo al regresar a él;
+ * en su lugar llama a {@link #refrescar()} para que el controlador actualice sus datos.
+ * </p>
+ * * @author [Tu Nombre/Proyecto]
+ * @version 1.0
+ * @since 2025-11-03
+ */
+public interface ModuloRefrescable {
+
+    /**
+     * Método llamado cada vez que el módulo vuelve a mostrarse desde la caché de vistas.
+     * La clase implementadora debe recargar los datos que pudieron cambiar mientras estaba oculta.
+     */
+    void refrescar();
+
+}
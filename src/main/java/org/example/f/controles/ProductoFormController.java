@@ -43,6 +43,8 @@ public class ProductoFormController {
     @FXML private TextField precioField;
     /** Campo de texto para ingresar/mostrar el stock inicial/actual del producto. */
     @FXML private TextField stockField;
+    /** Campo de texto para el punto de reorden (vacío = valor predeterminado). */
+    @FXML private TextField puntoReordenField;
 
 
     /**
@@ -78,6 +80,7 @@ public class ProductoFormController {
             categoriaField.setText(producto.getCategoria());
             precioField.setText(String.valueOf(producto.getPrecio()));
             stockField.setText(String.valueOf(producto.getCantidadEnStock()));
+            puntoReordenField.setText(String.valueOf(producto.getPuntoReorden()));
         } else {
             tituloLabel.setText("Registrar Nuevo Producto");
         }
@@ -122,34 +125,44 @@ public class ProductoFormController {
      * Maneja la acción de guardar o actualizar el producto.
      * Realiza la validación, maneja la excepción NumberFormatException,
      * y llama al método CRUD correspondiente en el InventarioManager.
+     * Los datos del formulario se copian a un Producto nuevo, no al que muestra el catálogo: si el
+     * manager lo rechaza (o un campo numérico no es válido), el producto del catálogo queda intacto.
      */
     @FXML
     private void handleGuardarProducto() {
         if (isInputValid()) {
-            // 1. Copiar datos del formulario al objeto Producto
-            this.producto.setNombre(nombreField.getText());
-            this.producto.setDescripcion(descripcionField.getText());
-            this.producto.setNumeroArticulo(articuloField.getText());
-            this.producto.setCategoria(categoriaField.getText());
-
+            Producto editado;
             try {
-                // 2. Manejo de Excepciones: Conversión de campos numéricos
-                this.producto.setPrecio(Double.parseDouble(precioField.getText()));
-                this.producto.setCantidadEnStock(Integer.parseInt(stockField.getText()));
+                // 1. Copiar datos del formulario a un Producto nuevo con el mismo ID
+                //    (Manejo de Excepciones: Conversión de campos numéricos)
+                editado = new Producto(this.producto.getIdProducto(), nombreField.getText(),
+                        descripcionField.getText(), articuloField.getText(), categoriaField.getText(),
+                        Double.parseDouble(precioField.getText()), Integer.parseInt(stockField.getText()),
+                        this.producto.getProveedor());
+                String puntoReorden = puntoReordenField.getText();
+                editado.setPuntoReorden(puntoReorden == null || puntoReorden.isBlank()
+                        ? Producto.PUNTO_REORDEN_PREDETERMINADO : Integer.parseInt(puntoReorden.trim()));
             } catch (NumberFormatException e) {
-                // 3. Manejo de Error: Si la conversión falla, muestra alerta y termina
-                mostrarAlerta(Alert.AlertType.ERROR, "Error de Formato", "El Precio y Stock deben ser números válidos.");
+                // 2. Manejo de Error: Si la conversión falla, muestra alerta y termina
+                mostrarAlerta(Alert.AlertType.ERROR, "Error de Formato", "El Precio, el Stock y el Punto de Reorden deben ser números válidos.");
                 return;
             }
 
-            // 4. Llamada al Manager
-            if (this.producto.getIdProducto() == 0) {
-                inventarioManager.agregarProducto(this.producto);
-            } else {
-                inventarioManager.actualizarProducto(this.producto);
+            // 3. Llamada al Manager
+            try {
+                if (editado.getIdProducto() == 0) {
+                    inventarioManager.agregarProducto(editado);
+                } else {
+                    inventarioManager.actualizarProducto(editado);
+                }
+            } catch (IllegalArgumentException e) {
+                // El número de artículo (SKU) es único: se rechaza el duplicado y se deja el formulario abierto
+                mostrarAlerta(Alert.AlertType.ERROR, "Número de Artículo Duplicado", e.getMessage());
+                return;
             }
+            this.producto = editado;
 
-            // 5. Cierre
+            // 4. Cierre
             mostrarAlerta(Alert.AlertType.INFORMATION, "Éxito", "Producto guardado correctamente.");
             if (dialogStage != null) {
                 dialogStage.close();
@@ -0,0 +1,271 @@
+package org.example.f.controles;
+
+import javafx.application.Platform;
+import javafx.collections.ObservableListBase;
+
+import org.example.f.modelos.Producto;
+import org.example.f.servicios.InventarioManager;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Lista de solo lectura para una {@link javafx.scene.control.TableView} que muestra un catálogo demasiado
+ * grande para cargarlo completo: pide al {@link InventarioManager} solo las páginas que la tabla dibuja.
+ * <p>
+ * Su tamaño es el total de la consulta, pero solo guarda las filas de las páginas cercanas a la última
+ * fila dibujada. Cuando la tabla pide una fila de una página que no está cargada, la lista devuelve
+ * {@code null} (la fila se dibuja vacía) y carga en segundo plano esa página y las {@value #PAGINAS_PREVIAS}
+ * de cada lado; al llegar, avisa a la tabla para que la vuelva a dibujar. Las páginas que quedan a más de
+ * {@value #DISTANCIA_DESCARTE} páginas de la zona visible se descartan, así que la memoria que ocupa no
+ * depende del tamaño del catálogo.
+ * </p>
+ * <p>
+ * Se usa solo desde el hilo de JavaFX; las consultas al manager se hacen en un hilo aparte y las
+ * peticiones que se alejaron de la zona visible mientras esperaban se omiten.
+ * </p>
+ *
+ * @author [Tu Nombre/Proyecto]
+ * @version 1.0
+ * @since 2025-11-03
+ */
+final class ProductosPaginados extends ObservableListBase<Producto> {
+
+    /** Filas por página. */
+    static final int TAMANO_PAGINA = 200;
+    /** Páginas que se cargan por adelantado a cada lado de la visible. */
+    static final int PAGINAS_PREVIAS = 2;
+    /** Distancia (en páginas) a partir de la cual una página cargada se descarta. */
+    static final int DISTANCIA_DESCARTE = 4;
+
+    /** Hilo de las consultas paginadas (compartido por todas las tablas paginadas). */
+    private static final ExecutorService CARGADOR = Executors.newSingleThreadExecutor(r -> {
+        Thread hilo = new Thread(r, "paginas-inventario");
+        hilo.setDaemon(true);
+        return hilo;
+    });
+
+    private final InventarioManager inventarioManager;
+    /** Se llama cuando cambia el total de filas (por ejemplo, para el resumen de la vista). */
+    private final Runnable alCambiarTotal;
+
+    private InventarioManager.OrdenProductos orden = InventarioManager.OrdenProductos.CATALOGO;
+    private InventarioManager.FiltroProductos filtro = InventarioManager.FiltroProductos.TODOS;
+    private int total;
+    /** Páginas cargadas por número de página. */
+    private final Map<Integer, List<Producto>> paginas = new HashMap<>();
+    /** Páginas pedidas que aún no llegan. */
+    private final Set<Integer> pedidas = new HashSet<>();
+    /** Página de la última fila que pidió la tabla (la leen las cargas para omitir peticiones viejas). */
+    private volatile int paginaVisible;
+    /** Cambia con cada consulta o invalidación; las páginas de una generación anterior se ignoran. */
+    private volatile int generacion;
+    /** Hay una recarga de la zona visible en curso, y otra pendiente si llegaron cambios mientras tanto. */
+    private boolean recargando;
+    private boolean recargaPendiente;
+    private boolean cerrada;
+
+    /**
+     * Crea la lista vacía; se llena con {@link #consultar(InventarioManager.OrdenProductos, InventarioManager.FiltroProductos)}.
+     * @param inventarioManager El manager del que se leen las páginas.
+     * @param alCambiarTotal Se llama cuando cambia el total de filas.
+     */
+    ProductosPaginados(InventarioManager inventarioManager, Runnable alCambiarTotal) {
+        this.inventarioManager = inventarioManager;
+        this.alCambiarTotal = alCambiarTotal;
+    }
+
+    @Override
+    public int size() {
+        return total;
+    }
+
+    /**
+     * Devuelve la fila si su página está cargada y, si no, la pide (junto con las cercanas).
+     * @param index La posición de la fila.
+     * @return El producto, o null si su página aún no está cargada.
+     */
+    @Override
+    public Producto get(int index) {
+        if (index < 0 || index >= total) {
+            throw new IndexOutOfBoundsException("Índice " + index + " fuera de rango (tamaño " + total + ")");
+        }
+        int pagina = index / TAMANO_PAGINA;
+        List<Producto> filas = paginas.get(pagina);
+        if (filas == null || pagina != paginaVisible) {
+            paginaVisible = pagina;
+            pedirVentana();
+        }
+        int posicion = index % TAMANO_PAGINA;
+        return filas == null || posicion >= filas.size() ? null : filas.get(posicion);
+    }
+
+    /**
+     * Cambia la consulta (orden y filtros): descarta las páginas cargadas y vuelve a cargar la zona visible.
+     * @param orden El orden.
+     * @param filtro Los filtros.
+     */
+    void consultar(InventarioManager.OrdenProductos orden, InventarioManager.FiltroProductos filtro) {
+        this.orden = orden;
+        this.filtro = filtro;
+        generacion++;
+        paginas.clear();
+        pedidas.clear();
+        recargando = false;
+        recargaPendiente = false;
+        pedirVentana();
+    }
+
+    /**
+     * Indica que el catálogo cambió: vuelve a cargar las páginas de la zona visible con una sola consulta,
+     * conservando las filas actuales hasta que llegan las nuevas. Las invalidaciones que llegan durante
+     * una recarga se agrupan en una sola recarga posterior. Con un orden o filtro por stock, la recarga
+     * tras unas ventas no reordena el catálogo: el manager solo recoloca los productos vendidos
+     * (ver {@link InventarioManager#obtenerPagina(int, int, InventarioManager.OrdenProductos, InventarioManager.FiltroProductos)}).
+     */
+    void invalidar() {
+        if (cerrada) { return; }
+        if (recargando) {
+            recargaPendiente = true;
+            return;
+        }
+        recargando = true;
+        int generacionPedida = ++generacion;
+        pedidas.clear();
+        int primera = Math.max(0, paginaVisible - PAGINAS_PREVIAS);
+        int paginasVentana = 2 * PAGINAS_PREVIAS + 1;
+        InventarioManager.OrdenProductos ordenPedido = orden;
+        InventarioManager.FiltroProductos filtroPedido = filtro;
+        CARGADOR.execute(() -> {
+            InventarioManager.PaginaProductos ventana = consultarSeguro(
+                    primera * TAMANO_PAGINA, paginasVentana * TAMANO_PAGINA, ordenPedido, filtroPedido);
+            Platform.runLater(() -> recibirRecarga(generacionPedida, primera, ventana));
+        });
+    }
+
+    /**
+     * Deja de cargar páginas (la tabla dejó de usar la lista).
+     */
+    void cerrar() {
+        cerrada = true;
+        generacion++;
+        paginas.clear();
+        pedidas.clear();
+    }
+
+    // =======================================================
+    // CARGA EN SEGUNDO PLANO
+    // =======================================================
+
+    /** Pide las páginas de la zona visible que no están cargadas ni pedidas. */
+    private void pedirVentana() {
+        if (cerrada) { return; }
+        int ultimaPagina = Math.max(0, (total - 1) / TAMANO_PAGINA);
+        int desde = Math.max(0, paginaVisible - PAGINAS_PREVIAS);
+        int hasta = total == 0 ? 0 : Math.min(ultimaPagina, paginaVisible + PAGINAS_PREVIAS);
+        for (int pagina = desde; pagina <= hasta; pagina++) {
+            if (!paginas.containsKey(pagina) && pedidas.add(pagina)) {
+                pedir(pagina);
+            }
+        }
+    }
+
+    private void pedir(int pagina) {
+        int generacionPedida = generacion;
+        InventarioManager.OrdenProductos ordenPedido = orden;
+        InventarioManager.FiltroProductos filtroPedido = filtro;
+        CARGADOR.execute(() -> {
+            // Al arrastrar la barra se acumulan peticiones: las que ya no están cerca de la vista se omiten
+            if (generacionPedida != generacion || lejana(pagina)) {
+                Platform.runLater(() -> pedidas.remove(pagina));
+                return;
+            }
+            InventarioManager.PaginaProductos cargada = consultarSeguro(
+                    pagina * TAMANO_PAGINA, TAMANO_PAGINA, ordenPedido, filtroPedido);
+            Platform.runLater(() -> recibir(generacionPedida, pagina, cargada));
+        });
+    }
+
+    private InventarioManager.PaginaProductos consultarSeguro(int offset, int limite,
+                                                              InventarioManager.OrdenProductos ordenPedido,
+                                                              InventarioManager.FiltroProductos filtroPedido) {
+        try {
+            return inventarioManager.obtenerPagina(offset, limite, ordenPedido, filtroPedido);
+        } catch (RuntimeException e) {
+            System.err.println("Error al cargar una página del inventario: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private boolean lejana(int pagina) {
+        return Math.abs(pagina - paginaVisible) > DISTANCIA_DESCARTE;
+    }
+
+    /** Guarda una página cargada y avisa a la tabla. */
+    private void recibir(int generacionPedida, int pagina, InventarioManager.PaginaProductos cargada) {
+        if (generacionPedida != generacion) { return; }
+        pedidas.remove(pagina);
+        if (cargada == null || lejana(pagina)) { return; }
+        ajustarTotal(cargada.total());
+        guardar(pagina, cargada.productos());
+        descartarLejanas();
+    }
+
+    /** Reparte en páginas la zona visible recargada y avisa a la tabla. */
+    private void recibirRecarga(int generacionPedida, int primera, InventarioManager.PaginaProductos ventana) {
+        if (generacionPedida != generacion) { return; }
+        recargando = false;
+        if (ventana != null) {
+            ajustarTotal(ventana.total());
+            List<Producto> filas = ventana.productos();
+            for (int desde = 0, pagina = primera; desde < filas.size(); desde += TAMANO_PAGINA, pagina++) {
+                guardar(pagina, filas.subList(desde, Math.min(filas.size(), desde + TAMANO_PAGINA)));
+            }
+            // Las páginas cargadas más allá del nuevo final ya no existen
+            paginas.keySet().removeIf(p -> p * TAMANO_PAGINA >= total);
+            descartarLejanas();
+        }
+        if (recargaPendiente) {
+            recargaPendiente = false;
+            invalidar();
+        } else {
+            pedirVentana(); // Páginas de la zona que no cubría la recarga
+        }
+    }
+
+    private void guardar(int pagina, List<Producto> filas) {
+        paginas.put(pagina, filas);
+        int desde = pagina * TAMANO_PAGINA;
+        int hasta = Math.min(total, desde + filas.size());
+        if (desde >= hasta) { return; }
+        beginChange();
+        for (int i = desde; i < hasta; i++) {
+            nextUpdate(i);
+        }
+        endChange();
+    }
+
+    private void descartarLejanas() {
+        paginas.keySet().removeIf(this::lejana);
+    }
+
+    /** Cambia el total de filas, avisando a la tabla de las filas añadidas o quitadas al final. */
+    private void ajustarTotal(int nuevoTotal) {
+        if (nuevoTotal == total) { return; }
+        int anterior = total;
+        beginChange();
+        total = nuevoTotal;
+        if (nuevoTotal > anterior) {
+            nextAdd(anterior, nuevoTotal);
+        } else {
+            nextRemove(nuevoTotal, Collections.nCopies(anterior - nuevoTotal, null));
+        }
+        endChange();
+        alCambiarTotal.run();
+    }
+}
@@ -1,5 +1,7 @@
 package org.example.f.controles;
 
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
@@ -10,46 +12,77 @@ import javafx.scene.control.cell.TextFieldTableCell;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.util.Duration;
 import javafx.util.converter.IntegerStringConverter;
+import javafx.geometry.Side;
 import javafx.stage.Stage;
 import javafx.stage.Modality;
 
-import org.example.f.controles.DescuentoAplicadoListener;
 import org.example.f.controles.DescuentoController;
 import org.example.f.modelos.Cliente;
 import org.example.f.modelos.LineaVenta;
 import org.example.f.modelos.Producto;
 import org.example.f.modelos.Venta;
 import org.example.f.modelos.Descuento;
-import org.example.f.servicios.InventarioManager;
-import org.example.f.servicios.TransaccionManager;
-import org.example.f.servicios.ClienteManager;
+import org.example.f.servicios.AutocompletadoProductos;
+import org.example.f.servicios.BusEventos;
+import org.example.f.servicios.EventoDominio;
+import org.example.f.servicios.PuntoVenta;
 import org.example.f.servicios.DescuentoManager;
 import java.io.IOException;
 import java.util.Optional;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Controlador FXML para la vista del Punto de Venta (Ventas-view.fxml).
  * Es responsable de gestionar el carrito de compras (líneas de venta),
  * integrar múltiples servicios (Inventario, Clientes, Transacciones)
- * y manejar la lógica de descuentos mediante la interfaz DescuentoAplicadoListener.
+ * y manejar la lógica de descuentos: el formulario de descuentos publica su elección en el
+ * {@link BusEventos} (DescuentoAplicado / DescuentoRemovido) y este controlador la recibe en el hilo de JavaFX.
  *
  * @author [Tu Nombre/Proyecto]
  * @version 1.0
  * @since 2025-11-03
  */
-public class VentaController implements DescuentoAplicadoListener {
+public class VentaController implements ModuloRefrescable {
 
     // --- Managers Inyectados (Capa de Servicio POO) ---
-    /** Servicio para buscar productos y actualizar stock. */
-    private InventarioManager inventarioManager;
-    /** Servicio para buscar clientes. */
-    private ClienteManager clienteManager;
-    /** Servicio para manejar la venta en curso y el historial de transacciones. */
-    private TransaccionManager transaccionManager;
+    /**
+     * Punto de venta que maneja el carrito: el TransaccionManager local o una caja conectada al servidor.
+     * Los productos y clientes también se buscan en él, para que su ID sea el del servidor donde se
+     * reservan y registran las ventas.
+     */
+    private PuntoVenta transaccionManager;
     /** Servicio para gestionar y validar descuentos. */
     private DescuentoManager descuentoManager;
+    /** Sugerencias de productos (ordenadas por ventas) mientras se escribe en la búsqueda (null = sin sugerencias). */
+    private AutocompletadoProductos autocompletado;
+    /** Bus de eventos del dominio (descuentos elegidos en el formulario). */
+    private BusEventos bus;
+    /** Suscripción a los eventos de descuento (null hasta inyectar los managers). */
+    private BusEventos.Suscripcion suscripcion;
+
+    // --- Autocompletado ---
+    /** Espera tras la última tecla antes de consultar las sugerencias. */
+    private static final Duration ESPERA_SUGERENCIAS = Duration.millis(150);
+    /** Número máximo de sugerencias mostradas. */
+    private static final int MAX_SUGERENCIAS = 8;
+    /** Hilos virtuales donde se resuelven las consultas de sugerencias, fuera del hilo de JavaFX. */
+    private static final ExecutorService CONSULTAS = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("sugerencias-", 0).factory());
+    /** Temporizador que agrupa las pulsaciones seguidas en una sola consulta. */
+    private final PauseTransition esperaSugerencias = new PauseTransition(ESPERA_SUGERENCIAS);
+    /** Generación de la última consulta lanzada; las respuestas de consultas anteriores se descartan. */
+    private final AtomicLong generacionSugerencias = new AtomicLong();
+    /** Consulta de sugerencias en curso (se cancela al lanzar otra). */
+    private CompletableFuture<List<Producto>> consultaEnCurso;
+    /** Menú desplegable con las sugerencias bajo el campo de búsqueda. */
+    private final ContextMenu menuSugerencias = new ContextMenu();
 
     // --- Elementos FXML ---
     @FXML private TextField busquedaProductoField;
@@ -68,12 +101,19 @@ public class VentaController implements DescuentoAplicadoListener {
     /**
      * Inyecta las dependencias de todos los Managers necesarios para el controlador.
      * Este método es llamado por el MainSystemController al cargar la vista.
+     * El autocompletado es null en una caja conectada al servidor de cobro (no tiene inventario local).
      */
-    public void setManagers(InventarioManager im, ClienteManager cm, TransaccionManager tm, DescuentoManager dm) {
-        this.inventarioManager = im;
-        this.clienteManager = cm;
+    public void setManagers(PuntoVenta tm, DescuentoManager dm, AutocompletadoProductos ac, BusEventos bus) {
         this.transaccionManager = tm;
         this.descuentoManager = dm;
+        this.autocompletado = ac;
+        this.bus = bus;
+        if (suscripcion != null) {
+            suscripcion.cancelar();
+        }
+        this.suscripcion = bus.suscribirPorLotes(
+                Set.of(EventoDominio.DescuentoAplicado.class, EventoDominio.DescuentoRemovido.class),
+                this::aplicarEventos, Platform::runLater);
 
         // Inicia la carga de la UI solo después de que todos los managers son inyectados.
         actualizarUICompleta();
@@ -103,17 +143,30 @@ public class VentaController implements DescuentoAplicadoListener {
             LineaVenta linea = event.getRowValue();
             int nuevaCantidad = event.getNewValue();
 
-            if (nuevaCantidad > 0) {
-                linea.setCantidad(nuevaCantidad);
-                transaccionManager.getVentaEnCurso().calcularTotales();
-            } else {
-                // Si la cantidad es cero o negativa, se remueve la línea del carrito
-                transaccionManager.getVentaEnCurso().getItemsVendidos().remove(linea);
+            // Reserva o libera la diferencia; con cantidad cero o negativa se remueve la línea del carrito
+            if (!transaccionManager.cambiarCantidad(linea, nuevaCantidad)) {
+                System.out.println("Sin stock disponible: " + linea.getProducto().getNombre());
             }
 
             lineasVentaTable.refresh();
             actualizarTotalesUI();
         });
+
+        // Autocompletado: cada tecla reinicia la espera; la consulta se lanza al dejar de escribir
+        esperaSugerencias.setOnFinished(event -> consultarSugerencias(busquedaProductoField.getText()));
+        busquedaProductoField.textProperty().addListener((obs, anterior, nuevo) -> {
+            if (nuevo == null || nuevo.isBlank()) {
+                esperaSugerencias.stop();
+                cancelarSugerencias();
+            } else {
+                esperaSugerencias.playFromStart();
+            }
+        });
+        busquedaProductoField.focusedProperty().addListener((obs, anterior, enfocado) -> {
+            if (!enfocado) {
+                menuSugerencias.hide();
+            }
+        });
     }
 
 
@@ -123,42 +176,40 @@ public class VentaController implements DescuentoAplicadoListener {
 
     /**
      * Maneja el evento de añadir un producto al carrito. Busca el producto por
-     * ID o nombre y lo añade (o incrementa la cantidad si ya existe).
+     * número de artículo exacto (lectura de código de barras) o, si ningún SKU coincide,
+     * por nombre, y lo añade (o incrementa la cantidad si ya existe) reservando la unidad en el inventario.
      */
     @FXML
     private void handleAnadirAlCarrito() {
         String input = busquedaProductoField.getText().trim();
-        String inputLower = input.toLowerCase();
 
-        // Lógica de búsqueda robusta, evitando NPE al verificar si los atributos son null
-        Producto p = inventarioManager.obtenerTodosLosProductos().stream()
-                .filter(prod ->
-                        (prod.getNumeroArticulo() != null && prod.getNumeroArticulo().equals(input)) ||
-                                (prod.getNombre() != null && prod.getNombre().toLowerCase().contains(inputLower))
-                )
-                .findFirst().orElse(null);
+        // 1. Búsqueda exacta en el índice de SKU; 2. Respaldo: coincidencia parcial del nombre
+        Producto p = transaccionManager.buscarPorNumeroArticulo(input)
+                .or(() -> transaccionManager.buscarPorTexto(input))
+                .orElse(null);
 
         if (p != null) {
-            List<LineaVenta> carritoData = transaccionManager.getVentaEnCurso().getItemsVendidos();
-            LineaVenta lineaExistente = carritoData.stream()
-                    .filter(lv -> lv.getProducto().getIdProducto() == p.getIdProducto()).findFirst().orElse(null);
-
-            if (lineaExistente != null) {
-                lineaExistente.setCantidad(lineaExistente.getCantidad() + 1);
-            } else {
-                // Añade una nueva línea de venta con cantidad inicial 1
-                carritoData.add(new LineaVenta(p, 1));
-            }
-
-            transaccionManager.getVentaEnCurso().calcularTotales();
-            lineasVentaTable.refresh();
-            actualizarTotalesUI();
-            busquedaProductoField.clear();
+            agregarUnidad(p);
         } else {
             System.out.println("Producto no encontrado: " + input);
         }
     }
 
+    /**
+     * Reserva una unidad del producto y la añade al carrito (o incrementa la línea existente).
+     * @param p El producto elegido.
+     */
+    private void agregarUnidad(Producto p) {
+        if (!transaccionManager.agregarAlCarrito(p, 1)) {
+            System.out.println("Sin stock disponible: " + p.getNombre());
+            return;
+        }
+
+        lineasVentaTable.refresh();
+        actualizarTotalesUI();
+        busquedaProductoField.clear();
+    }
+
     /**
      * Asigna un cliente a la venta en curso buscando por nombre o ID.
      */
@@ -170,18 +221,54 @@ public class VentaController implements DescuentoAplicadoListener {
         if (busqueda.isEmpty()) {
             venta.setCliente(null); // Quitar cliente (Anónimo)
         } else {
-            Optional<Cliente> clienteEncontrado = clienteManager.buscarCliente(busqueda);
+            Optional<Cliente> clienteEncontrado = transaccionManager.buscarCliente(busqueda);
             venta.setCliente(clienteEncontrado.orElse(null)); // Asignar o null si no se encuentra
         }
         actualizarUICompleta();
     }
 
+    /**
+     * Abre el formulario de clientes para registrar uno nuevo en el punto de venta y lo asigna a la venta en curso.
+     */
+    @FXML
+    private void handleRegistrarCliente() {
+        try {
+            FXMLLoader loader = new FXMLLoader(getClass().getResource("/org/example/f/view/cliente-form-view.fxml"));
+            Parent root = loader.load();
+
+            Stage stage = new Stage();
+            stage.setTitle("Registrar Cliente");
+            stage.setScene(new Scene(root));
+            stage.initModality(Modality.APPLICATION_MODAL);
+
+            ClienteFormController formController = loader.getController();
+            formController.setDialogStage(stage);
+            formController.setPuntoVenta(this.transaccionManager);
+            formController.setCliente(null);
+            stage.showAndWait();
+
+            Cliente registrado = formController.getClienteGuardado();
+            if (registrado != null) {
+                transaccionManager.getVentaEnCurso().setCliente(registrado);
+                actualizarUICompleta();
+            }
+        } catch (IOException e) {
+            System.err.println("Error al cargar el formulario de cliente. Verifique la ruta del FXML.");
+            e.printStackTrace();
+        }
+    }
+
     /**
      * Finaliza la transacción de venta, actualiza el stock y resetea el carrito.
      */
     @FXML
     private void handleRegistrarVenta() {
-        transaccionManager.registrarVenta();
+        Venta registrada = transaccionManager.registrarVenta();
+        if (registrada != null && autocompletado != null) {
+            // Reordenar las sugerencias no debe demorar el hilo de JavaFX
+            AutocompletadoProductos sugerencias = autocompletado;
+            CONSULTAS.execute(() -> sugerencias.registrarVenta(registrada));
+        }
         actualizarUICompleta();
         System.out.println("Venta registrada y sistema reseteado.");
     }
@@ -197,7 +284,7 @@ public class VentaController implements DescuentoAplicadoListener {
 
     /**
      * Abre la ventana modal para aplicar descuentos.
-     * Pasa el DescuentoManager y se inyecta a sí mismo (this) como Listener.
+     * Pasa el DescuentoManager y el bus donde el formulario publica el descuento elegido.
      */
     @FXML
     private void handleAplicarDescuento() {
@@ -213,7 +300,7 @@ public class VentaController implements DescuentoAplicadoListener {
             DescuentoController descuentoController = loader.getController();
 
             // Inyección al controlador modal de descuentos
-            descuentoController.initData(this.descuentoManager, this);
+            descuentoController.initData(this.descuentoManager, this.bus);
 
             Stage stage = new Stage();
             stage.setTitle("Aplicar Descuento");
@@ -229,27 +316,30 @@ public class VentaController implements DescuentoAplicadoListener {
 
 
     // =======================================================
-    // IMPLEMENTACIÓN DEL CALLBACK (DescuentoAplicadoListener)
+    // EVENTOS DEL DOMINIO (BusEventos)
     // =======================================================
 
     /**
-     * Implementación del método de la interfaz: Notificado cuando se aplica un descuento.
+     * Recibe en el hilo de JavaFX los eventos de descuento del último pulso (plegados: solo llega la
+     * última elección) y actualiza la vista una vez.
+     * @param eventos Los eventos del lote.
      */
-    @Override
-    public void onDescuentoAplicado(Descuento descuento) {
-        transaccionManager.getVentaEnCurso().aplicarDescuento(descuento);
-        actualizarUICompleta();
-        System.out.println("Descuento aplicado: " + descuento.getCodigo());
-    }
-
-    /**
-     * Implementación del método de la interfaz: Notificado cuando se remueve el descuento.
-     */
-    @Override
-    public void onDescuentoRemovido() {
-        transaccionManager.getVentaEnCurso().removerDescuento();
+    private void aplicarEventos(List<EventoDominio> eventos) {
+        for (EventoDominio evento : eventos) {
+            switch (evento) {
+                case EventoDominio.DescuentoAplicado aplicado -> {
+                    Descuento descuento = aplicado.descuento();
+                    transaccionManager.getVentaEnCurso().aplicarDescuento(descuento);
+                    System.out.println("Descuento aplicado: " + descuento.getCodigo());
+                }
+                case EventoDominio.DescuentoRemovido removido -> {
+                    transaccionManager.getVentaEnCurso().removerDescuento();
+                    System.out.println("Descuento removido.");
+                }
+                default -> { }
+            }
+        }
         actualizarUICompleta();
-        System.out.println("Descuento removido.");
     }
 
 
@@ -277,9 +367,90 @@ public class VentaController implements DescuentoAplicadoListener {
     }
 
     /**
-     * Recarga la tabla del carrito, actualiza la información del cliente y los totales de la UI.
+     * Vuelve a mostrar la venta en curso al regresar al módulo desde la caché de vistas,
+     * conservando lo que el cajero hubiera escrito en los campos de búsqueda.
+     */
+    @Override
+    public void refrescar() {
+        mostrarVentaEnCurso();
+    }
+
+    // =======================================================
+    // AUTOCOMPLETADO
+    // =======================================================
+
+    /**
+     * Lanza en segundo plano la consulta de sugerencias para el texto escrito, cancelando la anterior.
+     * Solo se muestra la respuesta de la consulta más reciente.
+     * @param texto El texto del campo de búsqueda.
+     */
+    private void consultarSugerencias(String texto) {
+        if (autocompletado == null || texto == null || texto.isBlank()) {
+            return;
+        }
+        long generacion = generacionSugerencias.incrementAndGet();
+        if (consultaEnCurso != null) {
+            consultaEnCurso.cancel(false);
+        }
+        consultaEnCurso = CompletableFuture.supplyAsync(() -> autocompletado.sugerir(texto, MAX_SUGERENCIAS), CONSULTAS);
+        consultaEnCurso.thenAccept(sugerencias -> Platform.runLater(() -> {
+            if (generacion == generacionSugerencias.get()) {
+                mostrarSugerencias(sugerencias);
+            }
+        }));
+    }
+
+    /** Descarta las consultas pendientes y oculta las sugerencias. */
+    private void cancelarSugerencias() {
+        generacionSugerencias.incrementAndGet();
+        if (consultaEnCurso != null) {
+            consultaEnCurso.cancel(false);
+            consultaEnCurso = null;
+        }
+        menuSugerencias.hide();
+    }
+
+    /**
+     * Muestra las sugerencias bajo el campo de búsqueda. Al elegir una, el producto se añade al carrito.
+     * @param sugerencias Los productos sugeridos, del más vendido al menos vendido.
+     */
+    private void mostrarSugerencias(List<Producto> sugerencias) {
+        if (sugerencias.isEmpty() || !busquedaProductoField.isFocused()) {
+            menuSugerencias.hide();
+            return;
+        }
+        menuSugerencias.getItems().clear();
+        for (Producto p : sugerencias) {
+            String articulo = p.getNumeroArticulo();
+            boolean conArticulo = articulo != null && !articulo.isBlank();
+            MenuItem item = new MenuItem(p.getNombre() + (conArticulo ? " (" + articulo + ")" : "")
+                    + String.format(" - $%.2f", p.getPrecio()));
+            item.setOnAction(event -> {
+                // Se añade el producto elegido, sin volver a buscarlo por su nombre o SKU
+                cancelarSugerencias();
+                agregarUnidad(p);
+            });
+            menuSugerencias.getItems().add(item);
+        }
+        if (!menuSugerencias.isShowing()) {
+            menuSugerencias.show(busquedaProductoField, Side.BOTTOM, 0, 0);
+        }
+    }
+
+    /**
+     * Recarga la tabla del carrito, actualiza la información del cliente y los totales de la UI,
+     * y limpia los campos de búsqueda.
      */
     private void actualizarUICompleta() {
+        mostrarVentaEnCurso();
+        busquedaProductoField.clear();
+        busquedaClienteField.clear();
+    }
+
+    /**
+     * Recarga la tabla del carrito, actualiza la información del cliente y los totales de la UI.
+     */
+    private void mostrarVentaEnCurso() {
         Venta venta = transaccionManager.getVentaEnCurso();
         Cliente clienteActual = venta.getCliente();
 
@@ -297,10 +468,8 @@ public class VentaController implements DescuentoAplicadoListener {
             clienteAsignadoLabel.setStyle("-fx-font-weight: bold; -fx-text-fill: black;");
         }
 
-        // 3. Actualizar totales y limpiar campos de búsqueda
+        // 3. Actualizar totales
         actualizarTotalesUI();
-        busquedaProductoField.clear();
-        busquedaClienteField.clear();
         lineasVentaTable.refresh();
     }
 }
\ No newline at end of file
@@ -0,0 +1,123 @@
+package org.example.f.modelos;
+
+import java.io.Serializable;
+
+/**
+ * Representa una regla de un Descuento limitada a un producto o a una categoría, con un umbral
+ * de cantidad opcional (escalones por volumen: varias condiciones sobre el mismo objetivo con
+ * distintas cantidades mínimas).
+ * <p>
+ * La condición se cumple cuando las líneas de la venta de su producto (o de su categoría) suman
+ * al menos {@code cantidadMinima} unidades; entonces su valor se aplica sobre el subtotal de esas líneas.
+ * Es inmutable y Serializable, como el Descuento que la contiene.
+ * </p>
+ *
+ * @author [Tu Nombre/Proyecto]
+ * @version 1.0
+ * @since 2025-11-03
+ */
+public final class CondicionDescuento implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Enumeración para definir sobre qué líneas de la venta actúa la condición.
+     */
+    public enum Alcance {
+        /** Las líneas de un producto concreto (por ID). */
+        PRODUCTO,
+        /** Las líneas de los productos de una categoría. */
+        CATEGORIA
+    }
+
+    /** Alcance de la condición. */
+    private final Alcance alcance;
+    /** ID del producto (solo con alcance PRODUCTO). */
+    private final int idProducto;
+    /** Nombre de la categoría (solo con alcance CATEGORIA). */
+    private final String categoria;
+    /** Unidades mínimas que deben sumar las líneas afectadas (1 = sin umbral). */
+    private final int cantidadMinima;
+    /** Valor del descuento (ej: 0.10 para 10%, o 25.00 para $25.00). */
+    private final double valor;
+    /** Tipo de descuento: PORCENTAJE o MONTO_FIJO (sobre el subtotal de las líneas afectadas). */
+    private final Descuento.TipoDescuento tipo;
+
+    private CondicionDescuento(Alcance alcance, int idProducto, String categoria, int cantidadMinima,
+                               double valor, Descuento.TipoDescuento tipo) {
+        this.alcance = alcance;
+        this.idProducto = idProducto;
+        this.categoria = categoria;
+        this.cantidadMinima = Math.max(1, cantidadMinima);
+        this.valor = valor;
+        this.tipo = tipo;
+    }
+
+    /**
+     * Crea una condición sobre un producto.
+     * @param idProducto El ID del producto.
+     * @param cantidadMinima Unidades mínimas del producto en la venta.
+     * @param valor El valor del descuento.
+     * @param tipo PORCENTAJE o MONTO_FIJO.
+     * @return La condición.
+     */
+    public static CondicionDescuento porProducto(int idProducto, int cantidadMinima, double valor, Descuento.TipoDescuento tipo) {
+        return new CondicionDescuento(Alcance.PRODUCTO, idProducto, null, cantidadMinima, valor, tipo);
+    }
+
+    /**
+     * Crea una condición sobre una categoría.
+     * @param categoria El nombre de la categoría (sin distinguir mayúsculas ni espacios sobrantes).
+     * @param cantidadMinima Unidades mínimas de la categoría en la venta.
+     * @param valor El valor del descuento.
+     * @param tipo PORCENTAJE o MONTO_FIJO.
+     * @return La condición.
+     */
+    public static CondicionDescuento porCategoria(String categoria, int cantidadMinima, double valor, Descuento.TipoDescuento tipo) {
+        return new CondicionDescuento(Alcance.CATEGORIA, 0, categoria, cantidadMinima, valor, tipo);
+    }
+
+    /**
+     * Calcula el monto a descontar de las líneas afectadas.
+     * @param montoBase El subtotal de las líneas afectadas.
+     * @return El monto a restar (nunca mayor que {@code montoBase}).
+     */
+    public double calcularMonto(double montoBase) {
+        if (tipo == Descuento.TipoDescuento.PORCENTAJE) {
+            return montoBase * valor;
+        }
+        return Math.min(valor, montoBase);
+    }
+
+    /**
+     * Normaliza un nombre de categoría para compararlo, con el mismo plegado (sin acentos ni mayúsculas)
+     * que el índice de categorías del inventario, así "Jardinería" y "jardineria" son la misma categoría.
+     * @param categoria La categoría (puede ser null).
+     * @return La clave de la categoría.
+     */
+    static String claveCategoria(String categoria) {
+        return categoria == null ? "" : PlegadoTexto.plegar(categoria.strip());
+    }
+
+    // =======================================================
+    // GETTERS
+    // =======================================================
+
+    /** @return El alcance de la condición. */
+    public Alcance getAlcance() { return alcance; }
+
+    /** @return El ID del producto (alcance PRODUCTO). */
+    public int getIdProducto() { return idProducto; }
+
+    /** @return La categoría (alcance CATEGORIA). */
+    public String getCategoria() { return categoria; }
+
+    /** @return Las unidades mínimas para que la condición se cumpla. */
+    public int getCantidadMinima() { return cantidadMinima; }
+
+    /** @return El valor del descuento. */
+    public double getValor() { return valor; }
+
+    /** @return El tipo de descuento. */
+    public Descuento.TipoDescuento getTipo() { return tipo; }
+}
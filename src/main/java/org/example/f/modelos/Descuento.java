@@ -1,6 +1,13 @@
 package org.example.f.modelos;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Representa la entidad de datos Descuento. Contiene la lógica para calcular
@@ -8,6 +15,14 @@ import java.io.Serializable;
  * <p>
  * Implementa Serializable para ser persistido y transferido entre capas.
  * </p>
+ * <p>
+ * Un descuento sin condiciones actúa sobre el total de la venta. Con condiciones
+ * ({@link CondicionDescuento}: por producto, por categoría y con escalones por cantidad) es una regla
+ * compuesta: las condiciones se compilan en tablas hash por ID de producto y por categoría, de modo
+ * que cada línea de la venta consulta solo las condiciones que le corresponden. Si una línea cumple
+ * una condición de su producto, esta prevalece sobre las de su categoría; entre los escalones del
+ * mismo objetivo se aplica el de mayor cantidad mínima alcanzada.
+ * </p>
  *
  * @author [Tu Nombre/Proyecto]
  * @version 1.0
@@ -25,6 +40,10 @@ public class Descuento implements Serializable {
     private TipoDescuento tipo;
     /** Descripción breve del descuento. */
     private String descripcion;
+    /** Condiciones por producto o categoría (vacía = descuento sobre el total). */
+    private ArrayList<CondicionDescuento> condiciones = new ArrayList<>();
+    /** Condiciones compiladas (se reconstruyen al deserializar). */
+    private transient Reglas reglas;
 
     /**
      * Enumeración para definir el tipo de cálculo del descuento.
@@ -50,6 +69,21 @@ public class Descuento implements Serializable {
         this.descripcion = descripcion;
     }
 
+    /**
+     * Constructor de un descuento compuesto por condiciones sobre productos o categorías.
+     * El valor y el tipo propios solo se muestran como referencia (el cálculo usa las condiciones).
+     * @param codigo El código único del descuento.
+     * @param valor El valor de referencia del descuento.
+     * @param tipo El tipo de referencia (PORCENTAJE o MONTO_FIJO).
+     * @param descripcion La descripción del descuento.
+     * @param condiciones Las condiciones (reglas) del descuento.
+     */
+    public Descuento(String codigo, double valor, TipoDescuento tipo, String descripcion, List<CondicionDescuento> condiciones) {
+        this(codigo, valor, tipo, descripcion);
+        this.condiciones = new ArrayList<>(condiciones);
+        this.reglas = Reglas.compilar(this.condiciones);
+    }
+
     /**
      * Calcula el monto monetario que se debe descontar del monto base.
      * <p>
@@ -69,6 +103,83 @@ public class Descuento implements Serializable {
         }
     }
 
+    /**
+     * Calcula el monto a descontar de una venta completa. Sin condiciones equivale a
+     * {@link #calcularMontoDescuento(double)} sobre el subtotal; con condiciones, cada línea se agrupa
+     * con las demás líneas de su mismo objetivo (producto o categoría) consultando las tablas compiladas,
+     * y a cada grupo se le aplica el escalón que alcanza su cantidad.
+     * @param lineas Las líneas de la venta.
+     * @param subtotal El subtotal de la venta.
+     * @return El monto total a restar (nunca mayor que el subtotal).
+     */
+    public double calcularMontoDescuento(List<LineaVenta> lineas, double subtotal) {
+        if (condiciones == null || condiciones.isEmpty()) { // null: serializado antes de existir las condiciones
+            return calcularMontoDescuento(subtotal);
+        }
+        if (reglas == null) {
+            reglas = Reglas.compilar(condiciones);
+        }
+
+        // 1. Agrupar las líneas por el objetivo de la condición que les corresponde
+        // Clave: el arreglo de escalones del objetivo (una instancia por producto o categoría) -> {unidades, monto}
+        Map<CondicionDescuento[], double[]> grupos = new HashMap<>();
+        for (LineaVenta lv : lineas) {
+            Producto p = lv.getProducto();
+            CondicionDescuento[] escalones = reglas.porProducto.get(p.getIdProducto());
+            if (escalones == null && !reglas.porCategoria.isEmpty()) {
+                escalones = reglas.porCategoria.get(CondicionDescuento.claveCategoria(p.getCategoria()));
+            }
+            if (escalones == null) { continue; }
+            double[] acumulado = grupos.computeIfAbsent(escalones, k -> new double[2]);
+            acumulado[0] += lv.getCantidad();
+            acumulado[1] += lv.getSubtotalLinea();
+        }
+
+        // 2. Aplicar a cada grupo el escalón de mayor cantidad mínima alcanzada
+        double monto = 0.0;
+        for (Map.Entry<CondicionDescuento[], double[]> grupo : grupos.entrySet()) {
+            double unidades = grupo.getValue()[0];
+            for (CondicionDescuento escalon : grupo.getKey()) {
+                if (unidades >= escalon.getCantidadMinima()) {
+                    monto += escalon.calcularMonto(grupo.getValue()[1]);
+                    break;
+                }
+            }
+        }
+        return Math.min(monto, subtotal);
+    }
+
+    /**
+     * Condiciones compiladas: producto → escalones y categoría → escalones, cada arreglo
+     * ordenado de la mayor a la menor cantidad mínima.
+     */
+    private static final class Reglas {
+        final Map<Integer, CondicionDescuento[]> porProducto = new HashMap<>();
+        final Map<String, CondicionDescuento[]> porCategoria = new HashMap<>();
+
+        static Reglas compilar(List<CondicionDescuento> condiciones) {
+            Map<Integer, List<CondicionDescuento>> productos = new HashMap<>();
+            Map<String, List<CondicionDescuento>> categorias = new HashMap<>();
+            for (CondicionDescuento c : condiciones) {
+                if (c.getAlcance() == CondicionDescuento.Alcance.PRODUCTO) {
+                    productos.computeIfAbsent(c.getIdProducto(), k -> new ArrayList<>()).add(c);
+                } else {
+                    categorias.computeIfAbsent(CondicionDescuento.claveCategoria(c.getCategoria()), k -> new ArrayList<>()).add(c);
+                }
+            }
+            Reglas reglas = new Reglas();
+            productos.forEach((id, lista) -> reglas.porProducto.put(id, escalones(lista)));
+            categorias.forEach((clave, lista) -> reglas.porCategoria.put(clave, escalones(lista)));
+            return reglas;
+        }
+
+        private static CondicionDescuento[] escalones(List<CondicionDescuento> lista) {
+            CondicionDescuento[] arreglo = lista.toArray(new CondicionDescuento[0]);
+            Arrays.sort(arreglo, Comparator.comparingInt(CondicionDescuento::getCantidadMinima).reversed());
+            return arreglo;
+        }
+    }
+
     // =======================================================
     // GETTERS
     // =======================================================
@@ -104,4 +215,12 @@ public class Descuento implements Serializable {
     public String getDescripcion() {
         return descripcion;
     }
+
+    /**
+     * Obtiene las condiciones por producto o categoría del descuento.
+     * @return Las condiciones (lista inmodificable; vacía si actúa sobre el total).
+     */
+    public List<CondicionDescuento> getCondiciones() {
+        return condiciones == null ? List.of() : Collections.unmodifiableList(condiciones);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,59 @@
+package org.example.f.modelos;
+
+import java.text.Normalizer;
+import java.util.Locale;
+
+/**
+ * Plegado de textos para las búsquedas: sin acentos ni diacríticos y sin distinguir mayúsculas,
+ * de modo que "perez" encuentra a "Pérez" y "PINZA" a "pinza".
+ * <p>
+ * El texto se descompone (Unicode NFD), se descartan las marcas combinantes y se convierte a
+ * mayúsculas y luego a minúsculas (así "ß" se pliega como "ss"). Los índices de búsqueda
+ * ({@code IndiceTrigramas}, {@code AutocompletadoProductos}, {@code IndiceClientes}) guardan el texto
+ * ya plegado de cada producto o cliente al indexarlo; una consulta se pliega una sola vez y después
+ * se compara carácter a carácter contra esas claves, sin crear objetos por comparación.
+ * </p>
+ * <p>
+ * Está en el paquete de modelos porque también lo usan las entidades: las categorías de
+ * {@link CondicionDescuento} se comparan con el mismo plegado que el índice de categorías del inventario.
+ * </p>
+ *
+ * @author [Tu Nombre/Proyecto]
+ * @version 1.0
+ * @since 2025-11-03
+ */
+public final class PlegadoTexto {
+
+    private PlegadoTexto() {
+    }
+
+    /**
+     * Pliega un texto para indexarlo o para buscarlo.
+     * @param texto El texto original (puede ser null).
+     * @return El texto plegado, o una cadena vacía si es null.
+     */
+    public static String plegar(String texto) {
+        if (texto == null) { return ""; }
+        if (esAscii(texto)) {
+            return texto.toLowerCase(Locale.ROOT); // Caso habitual (SKU, números): sin descomposición
+        }
+        String descompuesto = Normalizer.normalize(texto, Normalizer.Form.NFD);
+        StringBuilder sb = new StringBuilder(descompuesto.length());
+        for (int i = 0; i < descompuesto.length(); i++) {
+            char c = descompuesto.charAt(i);
+            int tipo = Character.getType(c);
+            if (tipo != Character.NON_SPACING_MARK && tipo != Character.COMBINING_SPACING_MARK
+                    && tipo != Character.ENCLOSING_MARK) {
+                sb.append(c);
+            }
+        }
+        return sb.toString().toUpperCase(Locale.ROOT).toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean esAscii(String texto) {
+        for (int i = 0; i < texto.length(); i++) {
+            if (texto.charAt(i) >= 0x80) { return false; }
+        }
+        return true;
+    }
+}
@@ -17,6 +17,9 @@ public class Producto implements Serializable {
 
     private static final long serialVersionUID = 1L;
 
+    /** Punto de reorden que se asigna a los productos que no definen uno propio. */
+    public static final int PUNTO_REORDEN_PREDETERMINADO = 5;
+
     // --- Atributos ---
 
     /** Identificador único del producto. */
@@ -36,6 +39,8 @@ public class Producto implements Serializable {
     private int stock;
     /** Nombre o identificador del proveedor. */
     private String proveedor;
+    /** Stock a partir del cual (incluido) el producto debe reponerse y genera una alerta. */
+    private int puntoReorden = PUNTO_REORDEN_PREDETERMINADO;
 
 
     // --- Constructores ---
@@ -217,4 +222,20 @@ public class Producto implements Serializable {
     public void setProveedor(String proveedor) {
         this.proveedor = proveedor;
     }
+
+    /**
+     * Obtiene el punto de reorden: con este stock o menos, el producto tiene stock bajo.
+     * @return El punto de reorden.
+     */
+    public int getPuntoReorden() {
+        return puntoReorden;
+    }
+
+    /**
+     * Establece el punto de reorden del producto.
+     * @param puntoReorden El nuevo punto de reorden.
+     */
+    public void setPuntoReorden(int puntoReorden) {
+        this.puntoReorden = puntoReorden;
+    }
 }
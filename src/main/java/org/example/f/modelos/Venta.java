@@ -97,9 +97,9 @@ public class Venta implements Serializable {
                 .mapToDouble(LineaVenta::getSubtotalLinea)
                 .sum();
 
-        // 2. Calcular Descuento Total usando la lógica del objeto Descuento
+        // 2. Calcular Descuento Total usando la lógica del objeto Descuento (solo las reglas de cada línea)
         if (this.descuentoAplicado != null) {
-            this.totalDescuento = this.descuentoAplicado.calcularMontoDescuento(this.subtotal);
+            this.totalDescuento = this.descuentoAplicado.calcularMontoDescuento(this.itemsVendidos, this.subtotal);
         } else {
             this.totalDescuento = 0.0;
         }
@@ -0,0 +1,33 @@
+package org.example.f.servicios;
+
+import org.example.f.modelos.Producto;
+
+/**
+ * Define la interfaz (contrato) para las clases que necesitan ser notificadas cuando un producto
+ * cruza su punto de reorden.
+ * <p>
+ * Las suscripciones se registran con {@link InventarioManager#suscribirAlertas(AlertaStockListener)}.
+ * Los avisos se entregan en el hilo que hizo el cambio de stock, después de confirmarlo y sin el
+ * bloqueo del manager; una interfaz gráfica debe pasar al hilo de la aplicación para actualizarse.
+ * </p>
+ *
+ * @author [Tu Nombre/Proyecto]
+ * @version 1.0
+ * @since 2025-11-03
+ */
+public interface AlertaStockListener {
+
+    /**
+     * Método llamado cuando el stock de un producto baja hasta su punto de reorden (o por debajo).
+     * @param producto El producto que requiere reposición.
+     */
+    void onStockBajo(Producto producto);
+
+    /**
+     * Método llamado cuando un producto con stock bajo vuelve a superar su punto de reorden,
+     * o cuando se elimina del catálogo.
+     * @param producto El producto repuesto o eliminado.
+     */
+    void onStockRepuesto(Producto producto);
+
+}
@@ -0,0 +1,71 @@
+package org.example.f.servicios;
+
+import org.example.f.modelos.Producto;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Contrato de la capa de persistencia incremental del inventario.
+ * <p>
+ * El InventarioManager aplica cada mutación en memoria y la anota aquí con sus bloqueos tomados;
+ * después, ya sin ellos, llama a {@link #confirmar(long)} para esperar a que sea durable. Los cambios
+ * de stock de productos distintos se anotan desde varios hilos a la vez, así que las implementaciones
+ * sincronizan sus métodos de anotación.
+ * Implementaciones: {@link DiarioInventario} (diario de solo anexado + instantáneas) y
+ * {@link AlmacenMapeado} (ranuras de ancho fijo en un archivo mapeado en memoria).
+ * </p>
+ *
+ * @author [Tu Nombre/Proyecto]
+ * @version 1.0
+ * @since 2025-11-03
+ */
+interface AlmacenInventario extends Closeable {
+
+    /**
+     * Par (producto, stock resultante) que forma parte de una actualización por lote.
+     * @param idProducto El ID del producto.
+     * @param stock El stock resultante tras aplicar la línea.
+     */
+    record CambioStock(int idProducto, int stock) { }
+
+    /**
+     * Anota el estado completo de un producto (alta o actualización).
+     * @param producto El producto a anotar.
+     * @return La secuencia del cambio, para pasarla a {@link #confirmar(long)}.
+     * @throws IOException Si el cambio no puede anotarse.
+     */
+    long anotarProducto(Producto producto) throws IOException;
+
+    /**
+     * Anota la baja de un producto.
+     * @param idProducto El ID del producto eliminado.
+     * @return La secuencia del cambio.
+     * @throws IOException Si el cambio no puede anotarse.
+     */
+    long anotarBaja(int idProducto) throws IOException;
+
+    /**
+     * Anota el stock resultante de un producto.
+     * @param idProducto El ID del producto.
+     * @param stock El nuevo stock (valor absoluto).
+     * @return La secuencia del cambio.
+     * @throws IOException Si el cambio no puede anotarse.
+     */
+    long anotarStock(int idProducto, int stock) throws IOException;
+
+    /**
+     * Anota como una unidad el stock resultante de todas las líneas de una venta.
+     * @param cambios Los pares (producto, stock resultante).
+     * @return La secuencia del cambio.
+     * @throws IOException Si el cambio no puede anotarse.
+     */
+    long anotarLote(List<CambioStock> cambios) throws IOException;
+
+    /**
+     * Bloquea hasta que el cambio con la secuencia indicada sea durable según la política del almacén.
+     * @param secuencia La secuencia devuelta al anotar.
+     * @throws IOException Si falla la escritura.
+     */
+    void confirmar(long secuencia) throws IOException;
+}
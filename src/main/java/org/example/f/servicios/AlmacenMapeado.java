@@ -0,0 +1,385 @@
+package org.example.f.servicios;
+
+import org.example.f.modelos.Producto;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Almacén del inventario en un archivo mapeado en memoria con ranuras de ancho fijo indexadas por ID.
+ * <p>
+ * Cada producto ocupa la ranura {@code idProducto} del archivo de ranuras ({@code inventario.ranuras}),
+ * con su estado, stock, precio y la posición de sus textos. Los textos de longitud variable (nombre,
+ * descripción, artículo, categoría, proveedor) se anexan a un archivo montón ({@code inventario.textos}).
+ * Un cambio de stock es una sola escritura de 4 bytes en el buffer mapeado, sin importar el tamaño del catálogo.
+ * </p>
+ * <p>
+ * Las ediciones de producto anexan un nuevo bloque de textos; el bloque anterior queda sin referencia
+ * (el montón solo crece con las ediciones, que son poco frecuentes frente a los cambios de stock).
+ * </p>
+ * <p>
+ * La versión 2 del esquema guarda además el punto de reorden en la ranura. Un archivo de la versión 1
+ * se actualiza al abrirlo, asignando a cada ranura el punto de reorden predeterminado.
+ * </p>
+ *
+ * @author [Tu Nombre/Proyecto]
+ * @version 1.0
+ * @since 2025-11-03
+ */
+class AlmacenMapeado implements AlmacenInventario {
+
+    /** Marca inicial del archivo de ranuras ("FERM"). */
+    private static final int MAGIA = 0x4645524D;
+    /** Versión del esquema de ranuras. */
+    private static final int VERSION = 2;
+    /** Versión anterior, sin punto de reorden en las ranuras (se actualiza al abrirla). */
+    private static final int VERSION_SIN_PUNTO_REORDEN = 1;
+    /** Tamaño de la cabecera: magia, versión, nextId, capacidad (con espacio de reserva). */
+    private static final int TAM_CABECERA = 64;
+    /** Tamaño de cada ranura en bytes. */
+    private static final int TAM_RANURA = 32;
+    /** Capacidad inicial (en ranuras) de un archivo nuevo. */
+    private static final int CAPACIDAD_INICIAL = 1024;
+
+    // Desplazamientos dentro de la cabecera
+    private static final int CAB_NEXT_ID = 8;
+    private static final int CAB_CAPACIDAD = 12;
+
+    // Desplazamientos dentro de cada ranura
+    private static final int RAN_ESTADO = 0;
+    private static final int RAN_STOCK = 4;
+    private static final int RAN_PRECIO = 8;
+    private static final int RAN_TEXTOS = 16;
+    private static final int RAN_PUNTO_REORDEN = 24;
+
+    /** Estado de una ranura sin producto. */
+    private static final int LIBRE = 0;
+    /** Estado de una ranura ocupada por un producto activo. */
+    private static final int OCUPADA = 1;
+
+    /** Política de sincronización con el disco de las escrituras en el buffer mapeado. */
+    private final InventarioManager.PoliticaSincronizacion politica;
+    /** Canal del archivo de ranuras. */
+    private final FileChannel canalRanuras;
+    /** Canal del archivo montón de textos (escritura al final). */
+    private final FileChannel canalTextos;
+    /** Vista mapeada del archivo de ranuras. */
+    private MappedByteBuffer ranuras;
+    /** Número de ranuras disponibles en el mapeo actual. */
+    private int capacidad;
+    /** Indica si el archivo de ranuras se creó al abrir el almacén (no había datos previos). */
+    private final boolean nuevo;
+    /** Hilo de sincronización periódica (solo con la política PERIODICA). */
+    private final ScheduledExecutorService sincronizador;
+    /** Contador de cambios anotados (secuencia devuelta a quien anota). */
+    private long secuencia;
+
+    /**
+     * Abre (o crea) el almacén mapeado.
+     * @param archivoRanuras El archivo de ranuras de ancho fijo.
+     * @param archivoTextos El archivo montón de textos.
+     * @param politica Cuándo forzar las escrituras al disco.
+     * @param periodoMs Periodo de sincronización para la política PERIODICA.
+     * @throws IOException Si los archivos no pueden abrirse o no son válidos.
+     */
+    AlmacenMapeado(Path archivoRanuras, Path archivoTextos,
+                   InventarioManager.PoliticaSincronizacion politica, long periodoMs) throws IOException {
+        this.politica = politica;
+        this.nuevo = !Files.exists(archivoRanuras) || Files.size(archivoRanuras) < TAM_CABECERA;
+        this.canalRanuras = FileChannel.open(archivoRanuras, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.canalTextos = FileChannel.open(archivoTextos, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        if (nuevo) {
+            mapear(CAPACIDAD_INICIAL);
+            ranuras.putInt(0, MAGIA).putInt(4, VERSION).putInt(CAB_NEXT_ID, 1).putInt(CAB_CAPACIDAD, CAPACIDAD_INICIAL);
+            ranuras.force();
+        } else {
+            ByteBuffer cabecera = ByteBuffer.allocate(16);
+            canalRanuras.read(cabecera, 0);
+            int version = cabecera.getInt(4);
+            if (cabecera.getInt(0) != MAGIA || (version != VERSION && version != VERSION_SIN_PUNTO_REORDEN)) {
+                canalRanuras.close();
+                canalTextos.close();
+                throw new IOException("El archivo " + archivoRanuras + " no es un almacén de inventario válido.");
+            }
+            mapear(cabecera.getInt(CAB_CAPACIDAD));
+            if (version == VERSION_SIN_PUNTO_REORDEN) {
+                actualizarEsquema();
+            }
+        }
+
+        if (politica == InventarioManager.PoliticaSincronizacion.PERIODICA) {
+            this.sincronizador = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread hilo = new Thread(r, "sincronizador-inventario");
+                hilo.setDaemon(true);
+                return hilo;
+            });
+            sincronizador.scheduleWithFixedDelay(this::sincronizarSilencioso, periodoMs, periodoMs, TimeUnit.MILLISECONDS);
+        } else {
+            this.sincronizador = null;
+        }
+    }
+
+    private void mapear(int nuevaCapacidad) throws IOException {
+        this.ranuras = canalRanuras.map(FileChannel.MapMode.READ_WRITE, 0, TAM_CABECERA + (long) nuevaCapacidad * TAM_RANURA);
+        this.capacidad = nuevaCapacidad;
+    }
+
+    /** Pasa un archivo de la versión 1 a la actual: rellena el punto de reorden de todas las ranuras. */
+    private void actualizarEsquema() {
+        for (int id = 1; id < capacidad; id++) {
+            ranuras.putInt(desplazamiento(id) + RAN_PUNTO_REORDEN, Producto.PUNTO_REORDEN_PREDETERMINADO);
+        }
+        ranuras.putInt(4, VERSION);
+        ranuras.force();
+    }
+
+    /**
+     * Indica si el almacén se acaba de crear (sin datos previos), en cuyo caso el manager
+     * debe volcar en él el catálogo obtenido del formato de instantánea + diario.
+     * @return {@code true} si el archivo de ranuras no existía.
+     */
+    boolean esNuevo() {
+        return nuevo;
+    }
+
+    // =======================================================
+    // CARGA Y VOLCADO COMPLETO
+    // =======================================================
+
+    /**
+     * Lee todos los productos activos del almacén.
+     * @param destino La lista donde se añaden los productos, en orden de ID.
+     * @return El siguiente ID a asignar.
+     * @throws IOException Si los textos no pueden leerse.
+     */
+    synchronized int cargar(List<Producto> destino) throws IOException {
+        long tamTextos = canalTextos.size();
+        ByteBuffer textos = tamTextos == 0 ? ByteBuffer.allocate(0)
+                : canalTextos.map(FileChannel.MapMode.READ_ONLY, 0, tamTextos);
+
+        for (int id = 1; id < capacidad; id++) {
+            int base = desplazamiento(id);
+            if (ranuras.getInt(base + RAN_ESTADO) != OCUPADA) { continue; }
+
+            int posicion = (int) ranuras.getLong(base + RAN_TEXTOS);
+            int longitud = textos.getInt(posicion);
+            ByteBuffer bloque = textos.slice(posicion + 4, longitud);
+            // Los argumentos se evalúan en orden, igual que se escribieron los textos en el bloque
+            Producto producto = new Producto(id, leerTexto(bloque), leerTexto(bloque), leerTexto(bloque), leerTexto(bloque),
+                    ranuras.getDouble(base + RAN_PRECIO), ranuras.getInt(base + RAN_STOCK), leerTexto(bloque));
+            producto.setPuntoReorden(ranuras.getInt(base + RAN_PUNTO_REORDEN));
+            destino.add(producto);
+        }
+        return ranuras.getInt(CAB_NEXT_ID);
+    }
+
+    /**
+     * Escribe en el almacén todos los productos de un catálogo (migración desde la instantánea).
+     * @param productos Los productos a volcar.
+     * @param nextId El siguiente ID a asignar.
+     * @throws IOException Si falla la escritura.
+     */
+    synchronized void volcar(List<Producto> productos, int nextId) throws IOException {
+        for (Producto p : productos) {
+            escribirProducto(p);
+        }
+        ranuras.putInt(CAB_NEXT_ID, Math.max(nextId, ranuras.getInt(CAB_NEXT_ID)));
+        sincronizar();
+    }
+
+    // =======================================================
+    // ANOTACIÓN DE CAMBIOS (IN-PLACE)
+    // =======================================================
+
+    @Override
+    public synchronized long anotarProducto(Producto producto) throws IOException {
+        int base = escribirProducto(producto);
+        if (producto.getIdProducto() >= ranuras.getInt(CAB_NEXT_ID)) {
+            ranuras.putInt(CAB_NEXT_ID, producto.getIdProducto() + 1);
+        }
+        if (politica == InventarioManager.PoliticaSincronizacion.SIEMPRE) {
+            canalTextos.force(false);
+            ranuras.force(0, TAM_CABECERA);
+            ranuras.force(base, TAM_RANURA);
+        }
+        return ++secuencia;
+    }
+
+    @Override
+    public synchronized long anotarBaja(int idProducto) {
+        if (idProducto > 0 && idProducto < capacidad) {
+            int base = desplazamiento(idProducto);
+            ranuras.putInt(base + RAN_ESTADO, LIBRE);
+            forzarSiCorresponde(base, TAM_RANURA);
+        }
+        return ++secuencia;
+    }
+
+    @Override
+    public synchronized long anotarStock(int idProducto, int stock) {
+        if (idProducto > 0 && idProducto < capacidad) {
+            int base = desplazamiento(idProducto);
+            ranuras.putInt(base + RAN_STOCK, stock);
+            forzarSiCorresponde(base + RAN_STOCK, 4);
+        }
+        return ++secuencia;
+    }
+
+    @Override
+    public synchronized long anotarLote(List<CambioStock> cambios) {
+        int desde = Integer.MAX_VALUE;
+        int hasta = 0;
+        for (CambioStock cambio : cambios) {
+            if (cambio.idProducto() <= 0 || cambio.idProducto() >= capacidad) { continue; }
+            int posicion = desplazamiento(cambio.idProducto()) + RAN_STOCK;
+            ranuras.putInt(posicion, cambio.stock());
+            desde = Math.min(desde, posicion);
+            hasta = Math.max(hasta, posicion + 4);
+        }
+        if (desde < hasta) {
+            forzarSiCorresponde(desde, hasta - desde);
+        }
+        return ++secuencia;
+    }
+
+    /**
+     * Las escrituras ya están en el buffer mapeado (y forzadas si la política es SIEMPRE);
+     * no hay nada pendiente que esperar.
+     */
+    @Override
+    public void confirmar(long secuencia) {
+    }
+
+    /**
+     * Fuerza al disco todas las páginas modificadas del almacén.
+     * @throws IOException Si falla la sincronización de los textos.
+     */
+    synchronized void sincronizar() throws IOException {
+        canalTextos.force(false);
+        ranuras.force();
+    }
+
+    private void sincronizarSilencioso() {
+        try {
+            sincronizar();
+        } catch (IOException e) {
+            System.err.println("Error al sincronizar el almacén del inventario: " + e.getMessage());
+        }
+    }
+
+    private void forzarSiCorresponde(int desde, int longitud) {
+        if (politica == InventarioManager.PoliticaSincronizacion.SIEMPRE) {
+            ranuras.force(desde, longitud);
+        }
+    }
+
+    /**
+     * Anexa los textos del producto al montón y rellena su ranura (creciendo el mapeo si hace falta).
+     * La ranura se marca como ocupada al final, cuando todos sus campos ya son válidos.
+     * @return El desplazamiento de la ranura escrita.
+     */
+    private int escribirProducto(Producto p) throws IOException {
+        int id = p.getIdProducto();
+        if (id <= 0) {
+            throw new IOException("ID de producto no válido para el almacén mapeado: " + id);
+        }
+        asegurarCapacidad(id);
+
+        long posicionTextos = anexarTextos(p);
+        int base = desplazamiento(id);
+        ranuras.putInt(base + RAN_STOCK, p.getCantidadEnStock());
+        ranuras.putDouble(base + RAN_PRECIO, p.getPrecio());
+        ranuras.putLong(base + RAN_TEXTOS, posicionTextos);
+        ranuras.putInt(base + RAN_PUNTO_REORDEN, p.getPuntoReorden());
+        ranuras.putInt(base + RAN_ESTADO, OCUPADA);
+        return base;
+    }
+
+    private void asegurarCapacidad(int id) throws IOException {
+        if (id < capacidad) { return; }
+        int nuevaCapacidad = capacidad;
+        while (nuevaCapacidad <= id) {
+            nuevaCapacidad *= 2;
+        }
+        ranuras.force();
+        mapear(nuevaCapacidad);
+        ranuras.putInt(CAB_CAPACIDAD, nuevaCapacidad);
+    }
+
+    /**
+     * Escribe al final del montón un bloque {@code [int longitud][textos]} con los cinco textos del producto.
+     * @return La posición del bloque dentro del montón.
+     */
+    private long anexarTextos(Producto p) throws IOException {
+        byte[][] textos = {
+                bytes(p.getNombre()), bytes(p.getDescripcion()), bytes(p.getNumeroArticulo()),
+                bytes(p.getCategoria()), bytes(p.getProveedor())
+        };
+        int longitud = 0;
+        for (byte[] texto : textos) {
+            longitud += 4 + (texto == null ? 0 : texto.length);
+        }
+
+        ByteBuffer bloque = ByteBuffer.allocate(4 + longitud).putInt(longitud);
+        for (byte[] texto : textos) {
+            if (texto == null) {
+                bloque.putInt(-1);
+            } else {
+                bloque.putInt(texto.length).put(texto);
+            }
+        }
+        bloque.flip();
+
+        long posicion = canalTextos.size();
+        if (posicion > Integer.MAX_VALUE - bloque.remaining()) {
+            throw new IOException("El montón de textos del inventario superó los 2 GB.");
+        }
+        long destino = posicion;
+        while (bloque.hasRemaining()) {
+            destino += canalTextos.write(bloque, destino);
+        }
+        return posicion;
+    }
+
+    private static byte[] bytes(String texto) {
+        return texto == null ? null : texto.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String leerTexto(ByteBuffer bloque) {
+        int longitud = bloque.getInt();
+        if (longitud < 0) { return null; }
+        byte[] datos = new byte[longitud];
+        bloque.get(datos);
+        return new String(datos, StandardCharsets.UTF_8);
+    }
+
+    private static int desplazamiento(int id) {
+        return TAM_CABECERA + id * TAM_RANURA;
+    }
+
+    /**
+     * Detiene la sincronización periódica, fuerza lo pendiente y cierra los archivos.
+     * @throws IOException Si falla la sincronización o el cierre.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (sincronizador != null) {
+            sincronizador.shutdown();
+        }
+        sincronizar();
+        canalRanuras.close();
+        canalTextos.close();
+    }
+}
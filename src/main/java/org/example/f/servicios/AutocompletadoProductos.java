@@ -0,0 +1,307 @@
+package org.example.f.servicios;
+
+import org.example.f.modelos.LineaVenta;
+import org.example.f.modelos.PlegadoTexto;
+import org.example.f.modelos.Producto;
+import org.example.f.modelos.Venta;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.stream.Stream;
+
+/**
+ * Servicio de autocompletado (typeahead) para la búsqueda de productos del punto de venta.
+ * <p>
+ * Mantiene un arreglo ordenado de claves plegadas (sin mayúsculas ni acentos): el nombre completo de cada
+ * producto, cada palabra del nombre a partir de su inicio, y el número de artículo. Un prefijo
+ * se resuelve con dos búsquedas binarias que delimitan el rango de claves que empiezan por él;
+ * sobre ese rango, un árbol de segmentos con la frecuencia de venta máxima de cada tramo permite
+ * extraer las {@code k} sugerencias más vendidas sin recorrer el rango completo.
+ * </p>
+ * <p>
+ * El índice se reconstruye bajo demanda cuando cambia el catálogo (ver
+ * {@link InventarioManager#getVersionCatalogo()}); las ventas solo actualizan frecuencias.
+ * Los métodos están sincronizados y están pensados para llamarse fuera del hilo de JavaFX.
+ * </p>
+ *
+ * @author [Tu Nombre/Proyecto]
+ * @version 1.0
+ * @since 2025-11-03
+ */
+public class AutocompletadoProductos {
+
+    /** Catálogo del que se construye el índice. */
+    private final InventarioManager inventarioManager;
+    /** Unidades vendidas por ID de producto (se conservan entre reconstrucciones). */
+    private final IndiceEnteros frecuencias = new IndiceEnteros(1024);
+    /** Versión del catálogo con la que se construyó el índice actual (-1 = nunca). */
+    private long versionIndexada = -1;
+
+    // --- Índice actual ---
+    /** Productos indexados (la "ranura" de un producto es su posición aquí). */
+    private Producto[] productos = new Producto[0];
+    /** Textos plegados de cada ranura: nombre y número de artículo. */
+    private String[] nombres = new String[0];
+    private String[] articulos = new String[0];
+    /**
+     * Claves ordenadas. Cada una codifica {@code ranura << 17 | esArticulo << 16 | desplazamiento}:
+     * la clave es el texto de la ranura (nombre o artículo) desde el desplazamiento.
+     */
+    private long[] claves = new long[0];
+    /** Primera posición en {@code posiciones} de las claves de cada ranura (formato CSR, tamaño ranuras + 1). */
+    private int[] inicioPosiciones = new int[1];
+    /** Posiciones en {@code claves} de las claves de cada ranura. */
+    private int[] posiciones = new int[0];
+    /** Ranura de cada ID de producto en el índice actual. */
+    private final IndiceEnteros ranuraPorId = new IndiceEnteros(1024);
+    /** Árbol de segmentos (montículo implícito) con la frecuencia máxima de cada tramo de {@code claves}. */
+    private int[] arbol = new int[2];
+    /** Número de hojas del árbol (potencia de dos, mayor o igual al número de claves). */
+    private int hojas = 1;
+
+    /**
+     * Crea el servicio sobre el catálogo del inventario.
+     * @param inventarioManager El manager del inventario.
+     */
+    public AutocompletadoProductos(InventarioManager inventarioManager) {
+        this.inventarioManager = inventarioManager;
+    }
+
+    // =======================================================
+    // FRECUENCIAS DE VENTA
+    // =======================================================
+
+    /**
+     * Suma a las frecuencias las unidades de una venta registrada.
+     * @param venta La venta finalizada.
+     */
+    public synchronized void registrarVenta(Venta venta) {
+        for (LineaVenta lv : venta.getItemsVendidos()) {
+            int id = lv.getProducto().getIdProducto();
+            int anterior = Math.max(0, frecuencias.obtener(id));
+            int nueva = (int) Math.min(Integer.MAX_VALUE, (long) anterior + lv.getCantidad());
+            frecuencias.poner(id, nueva);
+            actualizarHojas(id, nueva);
+        }
+    }
+
+    /**
+     * Carga las frecuencias a partir del historial de ventas (al iniciar).
+     * @param ventas Las ventas a contabilizar.
+     */
+    public void registrarVentas(Stream<Venta> ventas) {
+        ventas.forEach(this::registrarVenta);
+    }
+
+    // =======================================================
+    // CONSULTA
+    // =======================================================
+
+    /**
+     * Sugiere los productos cuyo nombre (o una de sus palabras) o número de artículo empiezan por el texto,
+     * de los más a los menos vendidos.
+     * @param prefijo El texto escrito por el cajero.
+     * @param k Número máximo de sugerencias.
+     * @return Las sugerencias, sin repetidos.
+     */
+    public synchronized List<Producto> sugerir(String prefijo, int k) {
+        String consulta = PlegadoTexto.plegar(prefijo.strip());
+        if (consulta.isEmpty() || k <= 0) { return List.of(); }
+
+        long version = inventarioManager.getVersionCatalogo();
+        if (version != versionIndexada) {
+            reconstruir(version);
+        }
+
+        int desde = primeraClaveMayorOIgual(consulta, false);
+        int hasta = primeraClaveMayorOIgual(consulta, true);
+        if (desde >= hasta) { return List.of(); }
+        return mejoresEnRango(desde, hasta, k);
+    }
+
+    /**
+     * Extrae las k ranuras distintas más vendidas del rango [desde, hasta) recorriendo el árbol de segmentos
+     * con una cola de prioridad: solo se abren los tramos cuya frecuencia máxima puede entrar en el resultado.
+     * A igual frecuencia, gana la clave menor (orden alfabético).
+     */
+    private List<Producto> mejoresEnRango(int desde, int hasta, int k) {
+        List<Producto> resultado = new ArrayList<>(k);
+        // Cada elemento: {cota de frecuencia del tramo, nodo, inicio del tramo, fin del tramo}
+        PriorityQueue<int[]> cola = new PriorityQueue<>((a, b) -> a[0] != b[0] ? Integer.compare(b[0], a[0]) : Integer.compare(a[2], b[2]));
+        cola.add(new int[] { arbol[1], 1, 0, hojas });
+        IndiceEnteros vistas = new IndiceEnteros(k * 2);
+
+        while (!cola.isEmpty() && resultado.size() < k) {
+            int[] tramo = cola.poll();
+            int nodo = tramo[1];
+            if (nodo >= hojas) {
+                // Hoja: su frecuencia es exacta y ningún tramo pendiente puede superarla
+                int ranura = (int) (claves[nodo - hojas] >>> 17);
+                if (vistas.obtener(ranura) == IndiceEnteros.AUSENTE) {
+                    vistas.poner(ranura, 1);
+                    resultado.add(productos[ranura]);
+                }
+                continue;
+            }
+            int medio = (tramo[2] + tramo[3]) >>> 1;
+            if (desde < medio) {
+                cola.add(new int[] { arbol[2 * nodo], 2 * nodo, tramo[2], medio });
+            }
+            if (hasta > medio) {
+                cola.add(new int[] { arbol[2 * nodo + 1], 2 * nodo + 1, medio, tramo[3] });
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Búsqueda binaria sobre las claves ordenadas.
+     * @param consulta El prefijo plegado.
+     * @param pasado {@code false}: primera clave mayor o igual al prefijo;
+     *               {@code true}: primera clave que ya no empieza por el prefijo y es mayor.
+     */
+    private int primeraClaveMayorOIgual(String consulta, boolean pasado) {
+        int bajo = 0;
+        int alto = claves.length;
+        while (bajo < alto) {
+            int medio = (bajo + alto) >>> 1;
+            int cmp = compararConPrefijo(claves[medio], consulta);
+            if (cmp < 0 || (pasado && cmp == 0)) {
+                bajo = medio + 1;
+            } else {
+                alto = medio;
+            }
+        }
+        return bajo;
+    }
+
+    /** Compara una clave con un prefijo: 0 si la clave empieza por él. */
+    private int compararConPrefijo(long clave, String prefijo) {
+        String texto = textoDe(clave);
+        int desplazamiento = (int) (clave & 0xFFFF);
+        int largo = Math.min(texto.length() - desplazamiento, prefijo.length());
+        for (int i = 0; i < largo; i++) {
+            int d = texto.charAt(desplazamiento + i) - prefijo.charAt(i);
+            if (d != 0) { return d; }
+        }
+        return texto.length() - desplazamiento >= prefijo.length() ? 0 : -1;
+    }
+
+    // =======================================================
+    // CONSTRUCCIÓN
+    // =======================================================
+
+    private void reconstruir(long version) {
+        List<Producto> catalogo = inventarioManager.obtenerTodosLosProductos();
+        int total = catalogo.size();
+        productos = catalogo.toArray(new Producto[0]);
+        ranuraPorId.limpiar();
+        for (int ranura = 0; ranura < total; ranura++) {
+            ranuraPorId.poner(productos[ranura].getIdProducto(), ranura);
+        }
+        nombres = new String[total];
+        articulos = new String[total];
+
+        long[] nuevas = new long[total * 4];
+        int cantidad = 0;
+        inicioPosiciones = new int[total + 1];
+        for (int ranura = 0; ranura < total; ranura++) {
+            nombres[ranura] = PlegadoTexto.plegar(productos[ranura].getNombre());
+            articulos[ranura] = PlegadoTexto.plegar(productos[ranura].getNumeroArticulo());
+            String nombre = nombres[ranura];
+            for (int i = 0; i < nombre.length() && i <= 0xFFFF; i++) {
+                // El nombre completo y cada palabra a partir de su inicio
+                if (i == 0 || (Character.isWhitespace(nombre.charAt(i - 1)) && !Character.isWhitespace(nombre.charAt(i)))) {
+                    if (cantidad == nuevas.length) { nuevas = Arrays.copyOf(nuevas, cantidad * 2); }
+                    nuevas[cantidad++] = ((long) ranura << 17) | i;
+                }
+            }
+            if (!articulos[ranura].isEmpty()) {
+                if (cantidad == nuevas.length) { nuevas = Arrays.copyOf(nuevas, cantidad * 2); }
+                nuevas[cantidad++] = ((long) ranura << 17) | (1L << 16);
+            }
+        }
+        claves = ordenar(Arrays.copyOf(nuevas, cantidad));
+
+        // Posiciones de las claves de cada ranura (para actualizar frecuencias tras una venta)
+        for (long clave : claves) { inicioPosiciones[(int) (clave >>> 17) + 1]++; }
+        for (int i = 0; i < total; i++) { inicioPosiciones[i + 1] += inicioPosiciones[i]; }
+        posiciones = new int[cantidad];
+        int[] llenas = Arrays.copyOf(inicioPosiciones, total);
+        for (int pos = 0; pos < cantidad; pos++) {
+            int ranura = (int) (claves[pos] >>> 17);
+            posiciones[llenas[ranura]++] = pos;
+        }
+
+        // Árbol de segmentos sobre las frecuencias
+        int capacidad = 1;
+        while (capacidad < cantidad) { capacidad <<= 1; }
+        arbol = new int[2 * capacidad];
+        hojas = capacidad;
+        for (int pos = 0; pos < cantidad; pos++) {
+            arbol[capacidad + pos] = Math.max(0, frecuencias.obtener(productos[(int) (claves[pos] >>> 17)].getIdProducto()));
+        }
+        for (int nodo = capacidad - 1; nodo >= 1; nodo--) {
+            arbol[nodo] = Math.max(arbol[2 * nodo], arbol[2 * nodo + 1]);
+        }
+        versionIndexada = version;
+    }
+
+    /** Actualiza las hojas de las claves de un producto y sus ancestros en el árbol. */
+    private void actualizarHojas(int idProducto, int frecuencia) {
+        int ranura = ranuraPorId.obtener(idProducto);
+        if (ranura == IndiceEnteros.AUSENTE) { return; } // Aún no indexado: se tomará al reconstruir
+        for (int i = inicioPosiciones[ranura]; i < inicioPosiciones[ranura + 1]; i++) {
+            int nodo = hojas + posiciones[i];
+            arbol[nodo] = frecuencia;
+            for (nodo >>= 1; nodo >= 1; nodo >>= 1) {
+                arbol[nodo] = Math.max(arbol[2 * nodo], arbol[2 * nodo + 1]);
+            }
+        }
+    }
+
+    // =======================================================
+    // AUXILIARES
+    // =======================================================
+
+    private String textoDe(long clave) {
+        int ranura = (int) (clave >>> 17);
+        return ((clave >>> 16) & 1) == 1 ? articulos[ranura] : nombres[ranura];
+    }
+
+    /** Compara dos claves por su texto (desde su desplazamiento) y, a igual texto, por ranura. */
+    private int comparar(long a, long b) {
+        String ta = textoDe(a);
+        String tb = textoDe(b);
+        int da = (int) (a & 0xFFFF);
+        int db = (int) (b & 0xFFFF);
+        int largo = Math.min(ta.length() - da, tb.length() - db);
+        for (int i = 0; i < largo; i++) {
+            int d = ta.charAt(da + i) - tb.charAt(db + i);
+            if (d != 0) { return d; }
+        }
+        int d = (ta.length() - da) - (tb.length() - db);
+        return d != 0 ? d : Long.compare(a, b);
+    }
+
+    /** Ordenación por mezcla de las claves (arreglo primitivo, sin objetos intermedios). */
+    private long[] ordenar(long[] datos) {
+        long[] origen = datos;
+        long[] destino = new long[datos.length];
+        for (int ancho = 1; ancho < datos.length; ancho <<= 1) {
+            for (int ini = 0; ini < datos.length; ini += 2 * ancho) {
+                int medio = Math.min(ini + ancho, datos.length);
+                int fin = Math.min(ini + 2 * ancho, datos.length);
+                int i = ini, j = medio, k = ini;
+                while (i < medio && j < fin) {
+                    destino[k++] = comparar(origen[i], origen[j]) <= 0 ? origen[i++] : origen[j++];
+                }
+                while (i < medio) { destino[k++] = origen[i++]; }
+                while (j < fin) { destino[k++] = origen[j++]; }
+            }
+            long[] t = origen; origen = destino; destino = t;
+        }
+        return origen;
+    }
+}
@@ -0,0 +1,157 @@
+package org.example.f.servicios;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Bus de eventos del dominio ({@link EventoDominio}) con entrega asíncrona y coalescente.
+ * <p>
+ * Publicar nunca ejecuta código de los suscriptores en el hilo que publica ni espera por ellos:
+ * el evento se deja en el buzón de cada suscripción interesada (un mapa breve protegido por su
+ * monitor), así que los managers pueden publicar con sus bloqueos tomados, en el mismo orden en
+ * que aplican los cambios. Cada buzón programa como mucho una entrega a la vez en su ejecutor; lo
+ * que llega mientras tanto se acumula y se pliega por clave ({@link EventoDominio#claveCoalescencia()}).
+ * </p>
+ * <p>
+ * Una interfaz JavaFX se suscribe con {@code Platform::runLater} como ejecutor: una ráfaga de miles
+ * de cambios llega como un solo lote por pulso de la interfaz, con un evento por entidad.
+ * </p>
+ *
+ * @author [Tu Nombre/Proyecto]
+ * @version 1.0
+ * @since 2025-11-03
+ */
+public class BusEventos {
+
+    /**
+     * Suscripción activa; al cancelarla deja de recibir lotes (incluido el que estuviera pendiente).
+     */
+    public interface Suscripcion {
+        /** Cancela la suscripción. */
+        void cancelar();
+    }
+
+    /** Hilo donde se entregan las suscripciones sin ejecutor propio (en orden de publicación). */
+    private final ExecutorService despachador = Executors.newSingleThreadExecutor(r -> {
+        Thread hilo = new Thread(r, "bus-eventos");
+        hilo.setDaemon(true);
+        return hilo;
+    });
+    /** Buzones de las suscripciones activas. */
+    private final List<Buzon> buzones = new CopyOnWriteArrayList<>();
+
+    /**
+     * Publica un evento para todas las suscripciones interesadas, sin esperar su entrega.
+     * @param evento El evento.
+     */
+    public void publicar(EventoDominio evento) {
+        for (Buzon buzon : buzones) {
+            buzon.ofrecer(evento);
+        }
+    }
+
+    /**
+     * Suscribe un receptor a un tipo de evento. Los eventos se entregan uno a uno, en orden, en el
+     * hilo del bus; los que se acumulan mientras el receptor trabaja se pliegan por clave.
+     * @param tipo El tipo de evento.
+     * @param receptor El receptor.
+     * @return La suscripción.
+     */
+    public <E extends EventoDominio> Suscripcion suscribir(Class<E> tipo, Consumer<? super E> receptor) {
+        return suscribirPorLotes(Set.of(tipo), lote -> {
+            for (EventoDominio evento : lote) {
+                receptor.accept(tipo.cast(evento));
+            }
+        }, despachador);
+    }
+
+    /**
+     * Suscribe un receptor de lotes a varios tipos de evento.
+     * @param tipos Los tipos de evento (vacío = todos).
+     * @param receptor Recibe cada lote, en orden de publicación y con un evento por clave.
+     * @param entrega Dónde se ejecutan las entregas (ej: {@code Platform::runLater}).
+     * @return La suscripción.
+     */
+    public Suscripcion suscribirPorLotes(Set<Class<? extends EventoDominio>> tipos,
+                                         Consumer<List<EventoDominio>> receptor, Executor entrega) {
+        Buzon buzon = new Buzon(tipos, receptor, entrega);
+        buzones.add(buzon);
+        return buzon;
+    }
+
+    /**
+     * Eventos pendientes de una suscripción, plegados por clave.
+     */
+    private final class Buzon implements Suscripcion {
+        private final Set<Class<? extends EventoDominio>> tipos;
+        private final Consumer<List<EventoDominio>> receptor;
+        private final Executor entrega;
+        /** Pendientes por clave (o por un objeto único si el evento no se pliega), en orden de llegada. */
+        private final Map<Object, EventoDominio> pendientes = new LinkedHashMap<>();
+        /** Indica que ya hay una entrega programada en el ejecutor. */
+        private boolean entregaProgramada;
+        private volatile boolean cancelada;
+
+        Buzon(Set<Class<? extends EventoDominio>> tipos, Consumer<List<EventoDominio>> receptor, Executor entrega) {
+            this.tipos = tipos;
+            this.receptor = receptor;
+            this.entrega = entrega;
+        }
+
+        void ofrecer(EventoDominio evento) {
+            if (cancelada || !acepta(evento)) { return; }
+            boolean programar;
+            synchronized (this) {
+                Object clave = evento.claveCoalescencia();
+                if (clave == null) {
+                    clave = new Object();
+                } else {
+                    pendientes.remove(clave); // El nuevo estado pasa al final del lote
+                }
+                pendientes.put(clave, evento);
+                programar = !entregaProgramada;
+                entregaProgramada = true;
+            }
+            if (programar) {
+                entrega.execute(this::entregar);
+            }
+        }
+
+        private boolean acepta(EventoDominio evento) {
+            if (tipos.isEmpty()) { return true; }
+            for (Class<? extends EventoDominio> tipo : tipos) {
+                if (tipo.isInstance(evento)) { return true; }
+            }
+            return false;
+        }
+
+        private void entregar() {
+            List<EventoDominio> lote;
+            synchronized (this) {
+                lote = new ArrayList<>(pendientes.values());
+                pendientes.clear();
+                entregaProgramada = false;
+            }
+            if (cancelada || lote.isEmpty()) { return; }
+            try {
+                receptor.accept(lote);
+            } catch (RuntimeException e) {
+                System.err.println("Error en un suscriptor de eventos: " + e.getMessage());
+            }
+        }
+
+        @Override
+        public void cancelar() {
+            cancelada = true;
+            buzones.remove(this);
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package org.example.f.servicios;
+
+import org.example.f.modelos.Cliente;
+import org.example.f.modelos.LineaVenta;
+import org.example.f.modelos.Producto;
+import org.example.f.modelos.Venta;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Punto de venta remoto: una caja conectada a un {@link ServidorCaja}.
+ * <p>
+ * Mantiene una copia local del carrito para la interfaz y envía cada cambio al servidor, que es quien
+ * reserva el stock en el inventario compartido y registra la venta; así todas las cajas venden contra
+ * el mismo stock. Una instancia corresponde a una caja (una conexión); no es segura para hilos.
+ * </p>
+ *
+ * @author [Tu Nombre/Proyecto]
+ * @version 1.0
+ * @since 2025-11-03
+ */
+public class ClienteCaja implements PuntoVenta, Closeable {
+
+    private final Socket socket;
+    private final BufferedReader entrada;
+    private final BufferedWriter salida;
+    /** Copia local del carrito (la autoritativa está en la sesión del servidor). */
+    private Venta ventaEnCurso = new Venta();
+
+    /**
+     * Conecta una caja al servidor.
+     * @param host El equipo del servidor.
+     * @param puerto El puerto del servidor.
+     * @throws IOException Si no puede conectarse.
+     */
+    public ClienteCaja(String host, int puerto) throws IOException {
+        this.socket = new Socket(host, puerto);
+        socket.setTcpNoDelay(true);
+        this.entrada = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        this.salida = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Conecta una caja a partir de una dirección {@code host:puerto} (o solo {@code host}).
+     * @param direccion La dirección del servidor.
+     * @return La caja conectada.
+     * @throws IOException Si no puede conectarse.
+     */
+    public static ClienteCaja conectar(String direccion) throws IOException {
+        int separador = direccion.lastIndexOf(':');
+        if (separador < 0) {
+            return new ClienteCaja(direccion, ServidorCaja.PUERTO_PREDETERMINADO);
+        }
+        return new ClienteCaja(direccion.substring(0, separador), Integer.parseInt(direccion.substring(separador + 1)));
+    }
+
+    // =======================================================
+    // CONSULTAS
+    // =======================================================
+
+    /**
+     * Busca un producto del inventario del servidor por ID.
+     * @param idProducto El ID del producto.
+     * @return El producto (con su stock disponible como cantidad en stock), si existe.
+     */
+    @Override
+    public Optional<Producto> buscarPorId(int idProducto) {
+        return leerProducto(enviar("PRODUCTO " + idProducto));
+    }
+
+    /**
+     * Busca un producto del inventario del servidor por número de artículo (código de barras).
+     * @param numeroArticulo El SKU.
+     * @return El producto (con su stock disponible como cantidad en stock), si existe.
+     */
+    @Override
+    public Optional<Producto> buscarPorNumeroArticulo(String numeroArticulo) {
+        return leerProducto(enviar("SKU " + numeroArticulo.strip()));
+    }
+
+    /**
+     * Busca en el inventario del servidor el producto más relevante cuyo nombre o descripción contiene el texto.
+     * @param texto El texto buscado.
+     * @return El producto (con su stock disponible como cantidad en stock), si alguno coincide.
+     */
+    @Override
+    public Optional<Producto> buscarPorTexto(String texto) {
+        String consulta = sinSeparadores(texto).strip();
+        return consulta.isEmpty() ? Optional.empty() : leerProducto(enviar("BUSCAR " + consulta));
+    }
+
+    /**
+     * Busca un cliente del catálogo del servidor por ID.
+     * @param idCliente El ID del cliente.
+     * @return El cliente, si existe.
+     */
+    public Optional<Cliente> buscarClientePorId(int idCliente) {
+        return leerCliente(enviar("CLIENTE " + idCliente));
+    }
+
+    /**
+     * Busca en el catálogo del servidor el cliente más relevante por ID, teléfono, correo o nombre.
+     * @param busqueda El texto buscado.
+     * @return El cliente, si alguno coincide.
+     */
+    @Override
+    public Optional<Cliente> buscarCliente(String busqueda) {
+        String consulta = sinSeparadores(busqueda).strip();
+        return consulta.isEmpty() ? Optional.empty() : leerCliente(enviar("BUSCAR_CLIENTE " + consulta));
+    }
+
+    /**
+     * Registra un cliente en el catálogo del servidor y le asigna el ID que este le dio.
+     * @param cliente El cliente nuevo.
+     * @return {@code true} si el servidor lo registró.
+     */
+    @Override
+    public boolean registrarCliente(Cliente cliente) {
+        String respuesta = enviar("ALTA_CLIENTE " + sinSeparadores(cliente.getNombre()) + ServidorCaja.SEPARADOR
+                + sinSeparadores(cliente.getTelefono()) + ServidorCaja.SEPARADOR + sinSeparadores(cliente.getEmail())
+                + ServidorCaja.SEPARADOR + sinSeparadores(cliente.getDireccion()));
+        if (!respuesta.startsWith("OK ")) {
+            System.out.println("Error: El servidor no registró el cliente (" + respuesta + ").");
+            return false;
+        }
+        cliente.setIdCliente(Integer.parseInt(respuesta.substring(3).strip()));
+        return true;
+    }
+
+    private static Optional<Cliente> leerCliente(String respuesta) {
+        if (!respuesta.startsWith("OK ")) { return Optional.empty(); }
+        String[] campos = respuesta.substring(3).split(ServidorCaja.SEPARADOR, -1);
+        return Optional.of(new Cliente(Integer.parseInt(campos[0]), campos[1], vacioANulo(campos[2]),
+                vacioANulo(campos[3]), vacioANulo(campos[4])));
+    }
+
+    private static String vacioANulo(String campo) {
+        return campo.isEmpty() ? null : campo;
+    }
+
+    /** Quita de un texto los caracteres que romperían el protocolo (saltos de línea y tabuladores). */
+    private static String sinSeparadores(String texto) {
+        return texto == null ? "" : texto.replaceAll("[\\t\\r\\n]", " ");
+    }
+
+    private static Optional<Producto> leerProducto(String respuesta) {
+        if (!respuesta.startsWith("OK ")) { return Optional.empty(); }
+        String[] campos = respuesta.substring(3).split(ServidorCaja.SEPARADOR, -1);
+        Producto p = new Producto();
+        p.setIdProducto(Integer.parseInt(campos[0]));
+        p.setNombre(campos[1]);
+        p.setPrecio(Double.parseDouble(campos[2]));
+        p.setCantidadEnStock(Integer.parseInt(campos[3]));
+        p.setCategoria(campos[4]);
+        return Optional.of(p);
+    }
+
+    // =======================================================
+    // CARRITO (PuntoVenta)
+    // =======================================================
+
+    @Override
+    public Venta getVentaEnCurso() {
+        return ventaEnCurso;
+    }
+
+    @Override
+    public boolean agregarAlCarrito(Producto producto, int cantidad) {
+        if (!enviar("AGREGAR " + producto.getIdProducto() + " " + cantidad).equals("OK")) {
+            return false;
+        }
+        LineaVenta lineaExistente = null;
+        for (LineaVenta lv : ventaEnCurso.getItemsVendidos()) {
+            if (lv.getProducto().getIdProducto() == producto.getIdProducto()) {
+                lineaExistente = lv;
+                break;
+            }
+        }
+        if (lineaExistente != null) {
+            lineaExistente.setCantidad(lineaExistente.getCantidad() + cantidad);
+        } else {
+            ventaEnCurso.getItemsVendidos().add(new LineaVenta(producto, cantidad));
+        }
+        ventaEnCurso.calcularTotales();
+        return true;
+    }
+
+    @Override
+    public boolean cambiarCantidad(LineaVenta linea, int nuevaCantidad) {
+        if (!enviar("CANTIDAD " + linea.getProducto().getIdProducto() + " " + nuevaCantidad).equals("OK")) {
+            return false;
+        }
+        if (nuevaCantidad > 0) {
+            linea.setCantidad(nuevaCantidad);
+        } else {
+            ventaEnCurso.getItemsVendidos().remove(linea);
+        }
+        ventaEnCurso.calcularTotales();
+        return true;
+    }
+
+    /**
+     * Registra el carrito en el servidor, junto con el cliente y el descuento asignados en la copia local.
+     * @return La copia local de la venta, con el ID y el total asignados por el servidor; o null si
+     *         la venta estaba vacía o el servidor la rechazó.
+     */
+    @Override
+    public Venta registrarVenta() {
+        String cliente = ventaEnCurso.getCliente() == null ? "-" : String.valueOf(ventaEnCurso.getCliente().getIdCliente());
+        String descuento = ventaEnCurso.getDescuentoAplicado() == null ? "-" : ventaEnCurso.getDescuentoAplicado().getCodigo();
+        String respuesta = enviar("REGISTRAR " + cliente + " " + descuento);
+        if (!respuesta.startsWith("OK ")) {
+            System.out.println("Error: El servidor no registró la venta (" + respuesta + ").");
+            return null;
+        }
+
+        Venta ventaFinalizada = ventaEnCurso;
+        ventaFinalizada.setIdVenta(Integer.parseInt(respuesta.split(" ")[1]));
+        ventaFinalizada.setFechaHora(LocalDateTime.now());
+        ventaEnCurso = new Venta();
+        return ventaFinalizada;
+    }
+
+    @Override
+    public void iniciarNuevaVenta() {
+        enviar("CANCELAR");
+        ventaEnCurso = new Venta();
+        System.out.println("Transacción de venta reiniciada.");
+    }
+
+    // =======================================================
+    // CONEXIÓN
+    // =======================================================
+
+    /**
+     * Envía una orden y espera su respuesta.
+     * @throws UncheckedIOException Si se pierde la conexión con el servidor.
+     */
+    private String enviar(String orden) {
+        try {
+            salida.write(orden);
+            salida.newLine();
+            salida.flush();
+            String respuesta = entrada.readLine();
+            if (respuesta == null) {
+                throw new IOException("El servidor cerró la conexión.");
+            }
+            return respuesta;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Se desconecta del servidor; la sesión de la caja se cierra y libera las reservas pendientes.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            salida.write("SALIR");
+            salida.newLine();
+            salida.flush();
+        } finally {
+            socket.close();
+        }
+    }
+}
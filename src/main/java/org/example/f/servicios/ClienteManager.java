@@ -2,14 +2,28 @@ package org.example.f.servicios;
 
 import org.example.f.modelos.Cliente;
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Clase de servicio POO encargada de la gestión del catálogo de Clientes.
  * Implementa las operaciones CRUD (Crear, Leer, Actualizar, Eliminar) y maneja
- * la persistencia de datos mediante la serialización a un archivo binario.
+ * la persistencia de datos en un archivo binario compacto ({@link CodecBinario}).
+ * <p>
+ * La persistencia es diferida (write-behind): cada mutación solo marca el catálogo como modificado
+ * y un único hilo escritor lo vuelca como máximo una vez cada {@code periodoEscrituraMs}, agrupando
+ * ráfagas de cambios en una sola escritura. Un cambio llega al disco, como mucho, un periodo después
+ * de hacerse (más lo que tarde la escritura). Antes de cerrar la aplicación debe llamarse a {@link #flush()}.
+ * </p>
  *
  * @author [Tu Nombre/Proyecto]
  * @version 1.0
@@ -17,12 +31,32 @@ import java.util.Optional;
  */
 public class ClienteManager {
 
-    /** Lista interna (simulación de base de datos) que contiene todos los objetos Cliente. */
-    private final List<Cliente> catalogoClientes;
+    /**
+     * Catálogo de clientes (simulación de base de datos) como vector inmutable: cada mutación publica una
+     * versión nueva que comparte con la anterior lo que no cambió, así que leerlo no requiere copias.
+     */
+    private volatile VectorPersistente<Cliente> catalogoClientes = VectorPersistente.vacio();
+    /** Índice ID → posición en {@code catalogoClientes}, mantenido en cada alta, modificación y baja. */
+    private final IndiceEnteros indicePorId = new IndiceEnteros(1024);
+    /** Índices por teléfono, correo electrónico y palabras del nombre, para la búsqueda en caja. */
+    private final IndiceClientes indiceBusqueda = new IndiceClientes();
     /** Contador para asignar el próximo ID único a un nuevo cliente. */
     private int nextId = 1;
-    /** Nombre del archivo binario utilizado para la serialización de datos. */
+    /** Nombre del archivo binario utilizado para la persistencia de datos. */
     private static final String FILE_NAME = "clientes.dat";
+    /** Intervalo máximo (ms) entre una mutación y su escritura en disco. */
+    private static final long PERIODO_ESCRITURA_MS = 500;
+
+    /** Intervalo de escritura diferida (cota de antigüedad de los datos en disco). */
+    private final long periodoEscrituraMs;
+    /** Hilo escritor en segundo plano. */
+    private final ScheduledExecutorService escritor;
+    /** Indica que el catálogo tiene cambios aún no escritos (y que ya hay una escritura programada). */
+    private final AtomicBoolean sucio = new AtomicBoolean(false);
+    /** Bus donde se publican los cambios del catálogo de clientes (null = sin eventos). */
+    private volatile BusEventos bus;
+    /** Serializa las escrituras del archivo (la diferida, flush() y guardarDatos()). */
+    private final Object bloqueoEscritura = new Object();
 
     /**
      * Constructor de la clase. Inicializa la lista interna y maneja la carga
@@ -30,7 +64,20 @@ public class ClienteManager {
      * carga datos iniciales de prueba.
      */
     public ClienteManager() {
-        this.catalogoClientes = new ArrayList<>();
+        this(PERIODO_ESCRITURA_MS);
+    }
+
+    /**
+     * Constructor con un intervalo de escritura diferida explícito.
+     * @param periodoEscrituraMs Intervalo máximo (ms, mayor que cero) entre una mutación y su escritura.
+     */
+    ClienteManager(long periodoEscrituraMs) {
+        this.periodoEscrituraMs = Math.max(1, periodoEscrituraMs);
+        this.escritor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread hilo = new Thread(r, "escritor-clientes");
+            hilo.setDaemon(true);
+            return hilo;
+        });
 
         if (!cargarDatos()) {
             cargarDatosIniciales();
@@ -65,35 +112,37 @@ public class ClienteManager {
      */
     private void registrarClienteInterno(Cliente cliente) {
         cliente.setIdCliente(nextId++);
-        this.catalogoClientes.add(cliente);
+        insertarEnCatalogo(cliente);
     }
 
     /**
      * Registra un nuevo cliente en el catálogo (Operación CRUD: Create).
-     * Asigna un nuevo ID, añade el cliente a la lista interna y persiste el catálogo.
+     * Asigna un nuevo ID, añade el cliente a la lista interna y programa la escritura del catálogo.
      * @param cliente El objeto Cliente nuevo a guardar.
      */
-    public void guardarCliente(Cliente cliente) {
+    public synchronized void guardarCliente(Cliente cliente) {
         cliente.setIdCliente(nextId++);
-        this.catalogoClientes.add(cliente);
+        insertarEnCatalogo(cliente);
+        publicar(new EventoDominio.ClienteActualizado(cliente));
         System.out.println("Cliente CREADO y registrado: " + cliente.getNombre() + " (ID: " + cliente.getIdCliente() + ")");
 
-        guardarDatos();
+        marcarSucio();
     }
 
     /**
      * Actualiza los datos de un cliente existente en el catálogo (Operación CRUD: Update).
-     * Busca el cliente por ID, reemplaza el objeto en la lista interna y persiste el catálogo.
+     * Busca el cliente por ID, reemplaza el objeto en la lista interna y programa la escritura del catálogo.
      * @param clienteActualizado El objeto Cliente con los datos modificados.
      */
-    public void actualizarCliente(Cliente clienteActualizado) {
+    public synchronized void actualizarCliente(Cliente clienteActualizado) {
         int index = findClienteIndexById(clienteActualizado.getIdCliente());
 
         if (index != -1) {
-            this.catalogoClientes.set(index, clienteActualizado);
+            reemplazarEnCatalogo(index, clienteActualizado);
+            publicar(new EventoDominio.ClienteActualizado(clienteActualizado));
             System.out.println("Cliente ACTUALIZADO: " + clienteActualizado.getNombre() + " (ID: " + clienteActualizado.getIdCliente() + ")");
 
-            guardarDatos();
+            marcarSucio();
         } else {
             System.out.println("Error: No se puede actualizar. Cliente ID " + clienteActualizado.getIdCliente() + " no encontrado.");
         }
@@ -103,47 +152,117 @@ public class ClienteManager {
      * Elimina un cliente del catálogo basado en su ID (Operación CRUD: Delete).
      * @param idCliente El ID del cliente a eliminar.
      */
-    public void eliminarCliente(int idCliente) {
-        boolean eliminado = this.catalogoClientes.removeIf(c -> c.getIdCliente() == idCliente);
+    public synchronized void eliminarCliente(int idCliente) {
+        boolean eliminado = quitarDelCatalogo(idCliente);
 
         if (eliminado) {
+            publicar(new EventoDominio.ClienteEliminado(idCliente));
             System.out.println("Cliente ID " + idCliente + " eliminado.");
-            guardarDatos();
+            marcarSucio();
         } else {
             System.out.println("Cliente ID " + idCliente + " no encontrado para eliminar.");
         }
     }
 
+    /**
+     * Asigna el bus donde se publican las altas, modificaciones y bajas de clientes.
+     * @param bus El bus de eventos (null = no publicar).
+     */
+    public void setBusEventos(BusEventos bus) {
+        this.bus = bus;
+    }
+
+    private void publicar(EventoDominio evento) {
+        BusEventos destino = bus;
+        if (destino != null) {
+            destino.publicar(evento);
+        }
+    }
+
+    /**
+     * Marca el catálogo como modificado y, si no había ya una escritura pendiente, la programa
+     * para dentro de {@code periodoEscrituraMs}. Los cambios posteriores se pliegan en esa misma escritura.
+     * Nunca escribe en el hilo que llama, así que puede invocarse con el bloqueo del manager tomado.
+     */
+    private void marcarSucio() {
+        if (sucio.compareAndSet(false, true)) {
+            escritor.schedule(this::flush, periodoEscrituraMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Escribe de inmediato los cambios pendientes, si los hay. Debe llamarse al cerrar la aplicación
+     * para no perder las mutaciones del último intervalo de escritura diferida.
+     */
+    public void flush() {
+        synchronized (bloqueoEscritura) {
+            if (sucio.get()) {
+                guardarDatos();
+            }
+        }
+    }
+
     /**
      * Escribe el catálogo completo de clientes (la lista interna) y el contador de ID
-     * al archivo de persistencia mediante serialización.
+     * al archivo de persistencia. Se escribe primero en un archivo temporal que luego
+     * reemplaza al definitivo, para no dejar un archivo a medias ante un corte.
+     * La escritura se hace sobre una copia, sin bloquear las mutaciones mientras dura.
      */
     public void guardarDatos() {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(FILE_NAME))) {
-            oos.writeObject(this.catalogoClientes);
-            oos.writeInt(this.nextId);
-            System.out.println("✅ Clientes guardados en " + FILE_NAME);
-        } catch (IOException e) {
-            System.err.println("❌ Error al guardar clientes: " + e.getMessage());
+        synchronized (bloqueoEscritura) {
+            List<Cliente> copia;
+            int idSiguiente;
+            synchronized (this) {
+                // Los cambios hechos a partir de aquí vuelven a marcar el catálogo y programan otra escritura
+                sucio.set(false);
+                copia = this.catalogoClientes; // Instantánea inmutable: no hace falta copiarla
+                idSiguiente = this.nextId;
+            }
+
+            Path temporal = Paths.get(FILE_NAME + ".tmp");
+            try {
+                CodecBinario.escribirClientes(temporal, copia, idSiguiente);
+                Files.move(temporal, Paths.get(FILE_NAME), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                System.out.println("✅ Clientes guardados en " + FILE_NAME);
+            } catch (IOException e) {
+                System.err.println("❌ Error al guardar clientes: " + e.getMessage());
+                marcarSucio(); // Se reintenta en el siguiente intervalo
+            }
         }
     }
 
     /**
      * Carga el catálogo de clientes desde el archivo de persistencia.
+     * Si el archivo está en el formato heredado (serialización de Java), lo lee, guarda una copia
+     * de respaldo ({@code .legado}) y lo reescribe en el formato binario.
      * @return {@code true} si la carga fue exitosa, {@code false} si el archivo no existe o hay un error.
      */
     private boolean cargarDatos() {
-        File file = new File(FILE_NAME);
-        if (!file.exists()) {
+        Path ruta = Paths.get(FILE_NAME);
+        if (!Files.exists(ruta)) {
             return false;
         }
 
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(FILE_NAME))) {
-            @SuppressWarnings("unchecked")
-            List<Cliente> loadedList = (List<Cliente>) ois.readObject();
-            this.catalogoClientes.addAll(loadedList);
-            this.nextId = ois.readInt();
-            System.out.println("✅ Clientes cargados exitosamente desde " + FILE_NAME);
+        try {
+            if (CodecBinario.esFormatoBinario(ruta)) {
+                CodecBinario.Catalogo<Cliente> catalogo = CodecBinario.leerClientes(ruta);
+                this.catalogoClientes = VectorPersistente.de(catalogo.elementos());
+                this.nextId = catalogo.nextId();
+                reindexar();
+                System.out.println("✅ Clientes cargados exitosamente desde " + FILE_NAME);
+                return true;
+            }
+
+            try (ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(ruta)))) {
+                @SuppressWarnings("unchecked")
+                List<Cliente> loadedList = (List<Cliente>) ois.readObject();
+                this.catalogoClientes = VectorPersistente.de(loadedList);
+                this.nextId = ois.readInt();
+            }
+            reindexar();
+            Files.copy(ruta, Paths.get(FILE_NAME + ".legado"), StandardCopyOption.REPLACE_EXISTING);
+            guardarDatos();
+            System.out.println("✅ Clientes migrados al formato binario desde " + FILE_NAME);
             return true;
         } catch (IOException | ClassNotFoundException e) {
             System.err.println("❌ Error al cargar clientes. Se usará nueva lista. " + e.getMessage());
@@ -152,11 +271,12 @@ public class ClienteManager {
     }
 
     /**
-     * Obtiene una copia de la lista completa de todos los clientes en el catálogo (Operación CRUD: Read).
-     * @return Una nueva {@code ArrayList} que contiene todos los objetos Cliente.
+     * Obtiene la lista completa de todos los clientes en el catálogo (Operación CRUD: Read), sin
+     * bloqueos ni copias. Es una instantánea inmutable: los cambios posteriores publican otra versión.
+     * @return La lista de clientes (no modificable).
      */
     public List<Cliente> obtenerTodosLosClientes() {
-        return new ArrayList<>(catalogoClientes);
+        return catalogoClientes;
     }
 
     /**
@@ -165,28 +285,96 @@ public class ClienteManager {
      * @return El índice del cliente en la lista, o -1 si no se encuentra.
      */
     private int findClienteIndexById(int idCliente) {
+        return indicePorId.obtener(idCliente);
+    }
+
+    /**
+     * Añade un cliente al final del catálogo y a los índices.
+     * @param cliente El cliente (con ID asignado).
+     */
+    private void insertarEnCatalogo(Cliente cliente) {
+        indicePorId.poner(cliente.getIdCliente(), catalogoClientes.size());
+        catalogoClientes = catalogoClientes.agregar(cliente);
+        indiceBusqueda.agregar(cliente);
+    }
+
+    /**
+     * Reemplaza el cliente de una posición del catálogo y actualiza sus entradas en los índices.
+     * @param index La posición del cliente (mismo ID).
+     * @param cliente El cliente con los datos nuevos.
+     */
+    private void reemplazarEnCatalogo(int index, Cliente cliente) {
+        catalogoClientes = catalogoClientes.asignar(index, cliente);
+        indiceBusqueda.agregar(cliente);
+    }
+
+    /**
+     * Quita un cliente del catálogo en tiempo constante: el último cliente ocupa su posición.
+     * @param idCliente El ID del cliente a quitar.
+     * @return {@code true} si el cliente existía.
+     */
+    private boolean quitarDelCatalogo(int idCliente) {
+        int index = indicePorId.quitar(idCliente);
+        if (index == IndiceEnteros.AUSENTE) { return false; }
+
+        indiceBusqueda.quitar(idCliente);
+        VectorPersistente<Cliente> catalogo = catalogoClientes;
+        Cliente ultimo = catalogo.get(catalogo.size() - 1);
+        catalogo = catalogo.quitarUltimo();
+        if (index < catalogo.size()) {
+            catalogo = catalogo.asignar(index, ultimo);
+            indicePorId.poner(ultimo.getIdCliente(), index);
+        }
+        catalogoClientes = catalogo; // Se publica la versión completa, sin pasos intermedios
+        return true;
+    }
+
+    /** Reconstruye los índices a partir del catálogo cargado. */
+    private void reindexar() {
+        indicePorId.limpiar();
+        indiceBusqueda.limpiar();
         for (int i = 0; i < catalogoClientes.size(); i++) {
-            if (catalogoClientes.get(i).getIdCliente() == idCliente) {
-                return i;
-            }
+            indicePorId.poner(catalogoClientes.get(i).getIdCliente(), i);
+            indiceBusqueda.agregar(catalogoClientes.get(i));
         }
-        return -1;
     }
 
     /**
-     * Busca un cliente por ID (numérico) o por coincidencia parcial de nombre (texto).
-     * @param busqueda Cadena de texto a buscar (puede ser un ID o parte del nombre).
+     * Busca un cliente por su ID, en tiempo constante (índice hash).
+     * @param idCliente El ID del cliente.
+     * @return Un {@code Optional} con el cliente, si existe.
+     */
+    public synchronized Optional<Cliente> buscarPorId(int idCliente) {
+        int index = findClienteIndexById(idCliente);
+        return index == IndiceEnteros.AUSENTE ? Optional.empty() : Optional.of(catalogoClientes.get(index));
+    }
+
+    /**
+     * Busca el cliente más relevante por ID, teléfono, correo electrónico o palabras del nombre.
+     * @param busqueda Cadena de texto a buscar (ver {@link #buscarClientes(String, int)}).
      * @return Un {@code Optional} que contiene el objeto Cliente si se encuentra una coincidencia.
      */
-    public Optional<Cliente> buscarCliente(String busqueda) {
-        try {
-            // Intenta buscar por ID
-            int id = Integer.parseInt(busqueda.trim());
-            return catalogoClientes.stream().filter(c -> c.getIdCliente() == id).findFirst();
-        } catch (NumberFormatException e) {
-            // Si falla, busca por nombre (coincidencia parcial sin importar mayúsculas/minúsculas)
-            String nombreBusqueda = busqueda.trim().toLowerCase();
-            return catalogoClientes.stream().filter(c -> c.getNombre().toLowerCase().contains(nombreBusqueda)).findFirst();
+    public synchronized Optional<Cliente> buscarCliente(String busqueda) {
+        List<Cliente> encontrados = buscarClientes(busqueda, 1);
+        return encontrados.isEmpty() ? Optional.empty() : Optional.of(encontrados.get(0));
+    }
+
+    /**
+     * Busca clientes por ID, teléfono (completo, con o sin separadores y prefijos, o sus últimos
+     * cuatro dígitos), correo electrónico exacto o palabras del nombre: cada palabra escrita debe
+     * ser el inicio de una palabra del nombre ("jua pe" encuentra a "Juan Pérez").
+     * El ID exacto va primero, después el teléfono o correo exactos y después los nombres,
+     * prefiriendo las palabras completas y los nombres más cortos.
+     * @param consulta El texto buscado.
+     * @param limite Número máximo de resultados.
+     * @return Los clientes encontrados, del más al menos relevante.
+     */
+    public synchronized List<Cliente> buscarClientes(String consulta, int limite) {
+        int[] ids = indiceBusqueda.buscar(consulta, limite);
+        List<Cliente> resultado = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            resultado.add(catalogoClientes.get(indicePorId.obtener(id)));
         }
+        return resultado;
     }
 }
\ No newline at end of file
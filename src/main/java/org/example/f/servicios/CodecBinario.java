@@ -0,0 +1,376 @@
+package org.example.f.servicios;
+
+import org.example.f.modelos.Cliente;
+import org.example.f.modelos.Producto;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Codificador binario compacto y versionado para los catálogos de Productos y Clientes.
+ * <p>
+ * Sustituye a la serialización de Java ({@code ObjectOutputStream}), que guarda descriptores de clase
+ * y metadatos por campo y depende del {@code serialVersionUID}. El formato es:
+ * </p>
+ * <ul>
+ * <li>Cabecera: {@code int MAGIA, byte versión, byte entidad, int nextId, int cantidad}.</li>
+ * <li>Productos: diccionario de textos repetidos (categorías y proveedores) seguido de los registros.</li>
+ * <li>Enteros como varint; textos como varint (longitud + 1, 0 = null) + bytes UTF-8;
+ * el precio como {@code double} de 8 bytes.</li>
+ * </ul>
+ * <p>
+ * Versiones: la 2 añade al final de cada producto su punto de reorden. Los archivos de la versión 1
+ * se siguen leyendo (con el punto de reorden predeterminado); siempre se escribe la versión actual.
+ * </p>
+ * <p>
+ * La lectura y la escritura pasan por un {@link FileChannel} con un buffer de 64 KB.
+ * </p>
+ *
+ * @author [Tu Nombre/Proyecto]
+ * @version 1.0
+ * @since 2025-11-03
+ */
+final class CodecBinario {
+
+    /** Marca inicial del archivo ("FERR"), distinta de la de la serialización de Java (0xACED). */
+    static final int MAGIA = 0x46455252;
+    /** Versión del esquema que escribe este codificador. */
+    static final byte VERSION_ACTUAL = 2;
+    /** Primera versión cuyos productos incluyen el punto de reorden. */
+    private static final byte VERSION_PUNTO_REORDEN = 2;
+    /** Identificador de entidad para archivos de productos. */
+    private static final byte ENTIDAD_PRODUCTO = 1;
+    /** Identificador de entidad para archivos de clientes. */
+    private static final byte ENTIDAD_CLIENTE = 2;
+    /** Tamaño del buffer intermedio entre el canal y la codificación. */
+    private static final int TAMANO_BUFFER = 64 * 1024;
+
+    /**
+     * Contenido de un archivo de catálogo: los elementos y el siguiente ID a asignar.
+     * @param elementos Los objetos leídos.
+     * @param nextId El contador de ID guardado junto al catálogo.
+     * @param <T> El tipo de entidad (Producto o Cliente).
+     */
+    record Catalogo<T>(List<T> elementos, int nextId) { }
+
+    private CodecBinario() {
+    }
+
+    /**
+     * Indica si el archivo está en el formato binario de este codificador
+     * (en lugar del formato heredado de serialización de Java).
+     * @param ruta El archivo a inspeccionar.
+     * @return {@code true} si comienza con la marca {@link #MAGIA}.
+     * @throws IOException Si el archivo no puede leerse.
+     */
+    static boolean esFormatoBinario(Path ruta) throws IOException {
+        try (FileChannel canal = FileChannel.open(ruta, StandardOpenOption.READ)) {
+            ByteBuffer cabecera = ByteBuffer.allocate(4);
+            while (cabecera.hasRemaining() && canal.read(cabecera) > 0) { }
+            return cabecera.position() == 4 && cabecera.getInt(0) == MAGIA;
+        }
+    }
+
+    // =======================================================
+    // PRODUCTOS
+    // =======================================================
+
+    /**
+     * Escribe el catálogo de productos en el formato binario.
+     * @param destino El archivo de destino (se sobrescribe).
+     * @param productos Los productos a guardar.
+     * @param nextId El siguiente ID a asignar.
+     * @throws IOException Si falla la escritura.
+     */
+    static void escribirProductos(Path destino, List<Producto> productos, int nextId) throws IOException {
+        // Diccionario de textos repetidos: cada categoría/proveedor se guarda una sola vez.
+        Map<String, Integer> indices = new HashMap<>();
+        List<String> diccionario = new ArrayList<>();
+        for (Producto p : productos) {
+            registrarEnDiccionario(p.getCategoria(), indices, diccionario);
+            registrarEnDiccionario(p.getProveedor(), indices, diccionario);
+        }
+
+        try (Salida out = new Salida(destino)) {
+            out.cabecera(ENTIDAD_PRODUCTO, nextId, productos.size());
+            out.varint(diccionario.size());
+            for (String texto : diccionario) {
+                out.texto(texto);
+            }
+            for (Producto p : productos) {
+                out.varint(p.getIdProducto());
+                out.texto(p.getNombre());
+                out.texto(p.getDescripcion());
+                out.texto(p.getNumeroArticulo());
+                out.varint(referencia(p.getCategoria(), indices));
+                out.decimal(p.getPrecio());
+                out.varintConSigno(p.getCantidadEnStock());
+                out.varint(referencia(p.getProveedor(), indices));
+                out.varintConSigno(p.getPuntoReorden());
+            }
+        }
+    }
+
+    /**
+     * Lee un catálogo de productos escrito con {@link #escribirProductos}.
+     * @param origen El archivo a leer.
+     * @return Los productos y el siguiente ID.
+     * @throws IOException Si el archivo no es válido o falla la lectura.
+     */
+    static Catalogo<Producto> leerProductos(Path origen) throws IOException {
+        try (Entrada in = new Entrada(origen)) {
+            int[] cabecera = in.cabecera(ENTIDAD_PRODUCTO);
+            int nextId = cabecera[0];
+            int cantidad = cabecera[1];
+            boolean conPuntoReorden = cabecera[2] >= VERSION_PUNTO_REORDEN;
+
+            String[] diccionario = new String[in.varint()];
+            for (int i = 0; i < diccionario.length; i++) {
+                diccionario[i] = in.texto();
+            }
+
+            List<Producto> productos = new ArrayList<>(cantidad);
+            for (int i = 0; i < cantidad; i++) {
+                int id = in.varint();
+                String nombre = in.texto();
+                String descripcion = in.texto();
+                String numeroArticulo = in.texto();
+                String categoria = desreferenciar(in.varint(), diccionario);
+                double precio = in.decimal();
+                int stock = in.varintConSigno();
+                String proveedor = desreferenciar(in.varint(), diccionario);
+                Producto producto = new Producto(id, nombre, descripcion, numeroArticulo, categoria, precio, stock, proveedor);
+                if (conPuntoReorden) {
+                    producto.setPuntoReorden(in.varintConSigno());
+                }
+                productos.add(producto);
+            }
+            return new Catalogo<>(productos, nextId);
+        }
+    }
+
+    private static void registrarEnDiccionario(String texto, Map<String, Integer> indices, List<String> diccionario) {
+        if (texto != null && !indices.containsKey(texto)) {
+            indices.put(texto, diccionario.size());
+            diccionario.add(texto);
+        }
+    }
+
+    /** @return El índice del texto en el diccionario + 1, o 0 si es null. */
+    private static int referencia(String texto, Map<String, Integer> indices) {
+        return texto == null ? 0 : indices.get(texto) + 1;
+    }
+
+    private static String desreferenciar(int referencia, String[] diccionario) throws IOException {
+        if (referencia == 0) { return null; }
+        if (referencia > diccionario.length) {
+            throw new IOException("Referencia de diccionario fuera de rango: " + referencia);
+        }
+        return diccionario[referencia - 1];
+    }
+
+    // =======================================================
+    // CLIENTES
+    // =======================================================
+
+    /**
+     * Escribe el catálogo de clientes en el formato binario.
+     * @param destino El archivo de destino (se sobrescribe).
+     * @param clientes Los clientes a guardar.
+     * @param nextId El siguiente ID a asignar.
+     * @throws IOException Si falla la escritura.
+     */
+    static void escribirClientes(Path destino, List<Cliente> clientes, int nextId) throws IOException {
+        try (Salida out = new Salida(destino)) {
+            out.cabecera(ENTIDAD_CLIENTE, nextId, clientes.size());
+            for (Cliente c : clientes) {
+                out.varint(c.getIdCliente());
+                out.texto(c.getNombre());
+                out.texto(c.getTelefono());
+                out.texto(c.getEmail());
+                out.texto(c.getDireccion());
+            }
+        }
+    }
+
+    /**
+     * Lee un catálogo de clientes escrito con {@link #escribirClientes}.
+     * @param origen El archivo a leer.
+     * @return Los clientes y el siguiente ID.
+     * @throws IOException Si el archivo no es válido o falla la lectura.
+     */
+    static Catalogo<Cliente> leerClientes(Path origen) throws IOException {
+        try (Entrada in = new Entrada(origen)) {
+            int[] cabecera = in.cabecera(ENTIDAD_CLIENTE);
+            List<Cliente> clientes = new ArrayList<>(cabecera[1]);
+            for (int i = 0; i < cabecera[1]; i++) {
+                clientes.add(new Cliente(in.varint(), in.texto(), in.texto(), in.texto(), in.texto()));
+            }
+            return new Catalogo<>(clientes, cabecera[0]);
+        }
+    }
+
+    // =======================================================
+    // PRIMITIVAS DE ESCRITURA / LECTURA
+    // =======================================================
+
+    /**
+     * Escritor con buffer sobre un FileChannel.
+     */
+    private static final class Salida implements AutoCloseable {
+        private final FileChannel canal;
+        private final ByteBuffer buffer = ByteBuffer.allocate(TAMANO_BUFFER);
+
+        Salida(Path destino) throws IOException {
+            this.canal = FileChannel.open(destino, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        void cabecera(byte entidad, int nextId, int cantidad) throws IOException {
+            asegurar(14);
+            buffer.putInt(MAGIA).put(VERSION_ACTUAL).put(entidad).putInt(nextId).putInt(cantidad);
+        }
+
+        void varint(int valor) throws IOException {
+            asegurar(5);
+            while ((valor & ~0x7F) != 0) {
+                buffer.put((byte) ((valor & 0x7F) | 0x80));
+                valor >>>= 7;
+            }
+            buffer.put((byte) valor);
+        }
+
+        void varintConSigno(int valor) throws IOException {
+            varint((valor << 1) ^ (valor >> 31)); // Codificación zigzag
+        }
+
+        void decimal(double valor) throws IOException {
+            asegurar(8);
+            buffer.putDouble(valor);
+        }
+
+        void texto(String texto) throws IOException {
+            if (texto == null) {
+                varint(0);
+                return;
+            }
+            byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+            varint(bytes.length + 1);
+            if (bytes.length <= buffer.capacity()) {
+                asegurar(bytes.length);
+                buffer.put(bytes);
+            } else {
+                vaciar();
+                ByteBuffer grande = ByteBuffer.wrap(bytes);
+                while (grande.hasRemaining()) { canal.write(grande); }
+            }
+        }
+
+        private void asegurar(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) { vaciar(); }
+        }
+
+        private void vaciar() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) { canal.write(buffer); }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                vaciar();
+            } finally {
+                canal.close();
+            }
+        }
+    }
+
+    /**
+     * Lector con buffer sobre un FileChannel.
+     */
+    private static final class Entrada implements AutoCloseable {
+        private final FileChannel canal;
+        private ByteBuffer buffer = ByteBuffer.allocate(TAMANO_BUFFER);
+
+        Entrada(Path origen) throws IOException {
+            this.canal = FileChannel.open(origen, StandardOpenOption.READ);
+            buffer.flip(); // Buffer vacío, listo para la primera recarga
+        }
+
+        /** @return {@code [nextId, cantidad, versión]} tras validar la marca, la versión y la entidad. */
+        int[] cabecera(byte entidadEsperada) throws IOException {
+            exigir(14);
+            if (buffer.getInt() != MAGIA) {
+                throw new IOException("El archivo no está en el formato binario de la Ferretería.");
+            }
+            byte version = buffer.get();
+            if (version < 1 || version > VERSION_ACTUAL) {
+                throw new IOException("Versión de esquema no soportada: " + version);
+            }
+            byte entidad = buffer.get();
+            if (entidad != entidadEsperada) {
+                throw new IOException("El archivo contiene otra entidad (" + entidad + ").");
+            }
+            return new int[] { buffer.getInt(), buffer.getInt(), version };
+        }
+
+        int varint() throws IOException {
+            int valor = 0;
+            for (int desplazamiento = 0; desplazamiento < 35; desplazamiento += 7) {
+                exigir(1);
+                byte b = buffer.get();
+                valor |= (b & 0x7F) << desplazamiento;
+                if (b >= 0) { return valor; }
+            }
+            throw new IOException("Varint mal formado.");
+        }
+
+        int varintConSigno() throws IOException {
+            int valor = varint();
+            return (valor >>> 1) ^ -(valor & 1);
+        }
+
+        double decimal() throws IOException {
+            exigir(8);
+            return buffer.getDouble();
+        }
+
+        String texto() throws IOException {
+            int longitud = varint() - 1;
+            if (longitud < 0) { return null; }
+            if (longitud > buffer.capacity()) {
+                buffer = ByteBuffer.allocate(longitud).put(buffer).flip();
+            }
+            exigir(longitud);
+            String texto = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), longitud, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + longitud);
+            return texto;
+        }
+
+        /** Garantiza que haya al menos {@code bytes} disponibles en el buffer, leyendo del canal. */
+        private void exigir(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes) { return; }
+            buffer.compact();
+            while (buffer.position() < bytes) {
+                if (canal.read(buffer) < 0) {
+                    throw new EOFException("Fin de archivo inesperado.");
+                }
+            }
+            buffer.flip();
+        }
+
+        @Override
+        public void close() throws IOException {
+            canal.close();
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package org.example.f.servicios;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * Contadores de stock sin bloqueos, uno por posición del catálogo de {@link InventarioManager}.
+ * <p>
+ * Cada posición guarda en un solo {@code long} el stock físico (32 bits altos) y las unidades
+ * reservadas por carritos abiertos (32 bits bajos), de modo que comprobar el disponible y reservar
+ * es una única operación CAS: dos cajas nunca reservan la misma última unidad. Las operaciones
+ * sobre un contador no crean objetos ni toman bloqueos.
+ * </p>
+ * <p>
+ * El arreglo solo crece o mueve posiciones con el bloqueo exclusivo del catálogo; las operaciones
+ * CAS se hacen con el bloqueo compartido, que les garantiza ver el arreglo vigente.
+ * </p>
+ *
+ * @author [Tu Nombre/Proyecto]
+ * @version 1.0
+ * @since 2025-11-03
+ */
+final class ContadoresStock {
+
+    /** Acceso atómico (volátil y CAS) a las celdas del arreglo. */
+    private static final VarHandle CELDA = MethodHandles.arrayElementVarHandle(long[].class);
+
+    /** Celdas {@code (stock << 32) | reservado}, indexadas por posición del catálogo. */
+    private long[] celdas;
+
+    /**
+     * Crea los contadores con espacio para {@code capacidad} posiciones.
+     * @param capacidad Número inicial de posiciones.
+     */
+    ContadoresStock(int capacidad) {
+        this.celdas = new long[Math.max(16, capacidad)];
+    }
+
+    // =======================================================
+    // ESTRUCTURA (con el bloqueo exclusivo del catálogo)
+    // =======================================================
+
+    /**
+     * Inicia una posición nueva con su stock y sin reservas.
+     * @param posicion La posición del producto en el catálogo.
+     * @param stock El stock del producto.
+     */
+    void iniciar(int posicion, int stock) {
+        if (posicion >= celdas.length) {
+            celdas = Arrays.copyOf(celdas, Math.max(posicion + 1, celdas.length * 2));
+        }
+        CELDA.setVolatile(celdas, posicion, empaquetar(stock, 0));
+    }
+
+    /**
+     * Mueve el contador de una posición a otra (baja con intercambio por el último producto).
+     * @param desde La posición de origen (queda libre).
+     * @param hacia La posición de destino.
+     */
+    void mover(int desde, int hacia) {
+        CELDA.setVolatile(celdas, hacia, (long) CELDA.getVolatile(celdas, desde));
+        CELDA.setVolatile(celdas, desde, 0L);
+    }
+
+    // =======================================================
+    // OPERACIONES CAS (con el bloqueo compartido del catálogo)
+    // =======================================================
+
+    /**
+     * Reserva unidades si el disponible (stock menos reservado) alcanza.
+     * @param posicion La posición del producto.
+     * @param cantidad Unidades a reservar (positivas).
+     * @return {@code true} si se reservaron; {@code false} si no hay disponible suficiente.
+     */
+    boolean reservar(int posicion, int cantidad) {
+        long actual;
+        do {
+            actual = (long) CELDA.getVolatile(celdas, posicion);
+            if ((long) stock(actual) - reservado(actual) < cantidad) { return false; }
+        } while (!CELDA.compareAndSet(celdas, posicion, actual, empaquetar(stock(actual), reservado(actual) + cantidad)));
+        return true;
+    }
+
+    /**
+     * Devuelve unidades reservadas al disponible (línea quitada del carrito o venta cancelada).
+     * @param posicion La posición del producto.
+     * @param cantidad Unidades a liberar (como máximo, las reservadas).
+     */
+    void liberar(int posicion, int cantidad) {
+        long actual;
+        do {
+            actual = (long) CELDA.getVolatile(celdas, posicion);
+        } while (!CELDA.compareAndSet(celdas, posicion, actual,
+                empaquetar(stock(actual), reservado(actual) - Math.min(cantidad, reservado(actual)))));
+    }
+
+    /**
+     * Convierte una reserva en venta: descuenta las unidades del stock y de lo reservado.
+     * Nunca falla, porque las unidades ya estaban apartadas.
+     * @param posicion La posición del producto.
+     * @param cantidad Unidades vendidas.
+     */
+    void confirmar(int posicion, int cantidad) {
+        long actual;
+        do {
+            actual = (long) CELDA.getVolatile(celdas, posicion);
+        } while (!CELDA.compareAndSet(celdas, posicion, actual,
+                empaquetar(Math.max(0, stock(actual) - cantidad), reservado(actual) - Math.min(cantidad, reservado(actual)))));
+    }
+
+    /**
+     * Descuenta unidades sin reserva previa (ajuste o venta directa), como mucho hasta el disponible
+     * (stock menos reservado): las unidades apartadas por los carritos abiertos no se pueden vender por
+     * esta vía, así que la confirmación de esas reservas nunca se queda sin stock. Una cantidad negativa
+     * repone stock y siempre se aplica completa.
+     * @param posicion La posición del producto.
+     * @param cantidad Unidades a descontar.
+     * @return Las unidades descontadas (menos que {@code cantidad} si el disponible no alcanzaba).
+     */
+    int descontar(int posicion, int cantidad) {
+        long actual;
+        int descontadas;
+        do {
+            actual = (long) CELDA.getVolatile(celdas, posicion);
+            int disponible = Math.max(0, stock(actual) - reservado(actual));
+            descontadas = cantidad < 0 ? cantidad : Math.min(cantidad, disponible);
+        } while (!CELDA.compareAndSet(celdas, posicion, actual, empaquetar(stock(actual) - descontadas, reservado(actual))));
+        return descontadas;
+    }
+
+    /**
+     * Fija el stock físico (edición del producto o reproducción del diario), conservando las reservas.
+     * @param posicion La posición del producto.
+     * @param stock El nuevo stock.
+     */
+    void fijar(int posicion, int stock) {
+        long actual;
+        do {
+            actual = (long) CELDA.getVolatile(celdas, posicion);
+        } while (!CELDA.compareAndSet(celdas, posicion, actual, empaquetar(stock, reservado(actual))));
+    }
+
+    /** @return El stock físico de una posición. */
+    int stock(int posicion) {
+        return stock((long) CELDA.getVolatile(celdas, posicion));
+    }
+
+    /** @return Las unidades reservadas de una posición. */
+    int reservado(int posicion) {
+        return reservado((long) CELDA.getVolatile(celdas, posicion));
+    }
+
+    private static long empaquetar(int stock, int reservado) {
+        return ((long) stock << 32) | (reservado & 0xFFFFFFFFL);
+    }
+
+    private static int stock(long celda) {
+        return (int) (celda >> 32);
+    }
+
+    private static int reservado(long celda) {
+        return (int) celda;
+    }
+}
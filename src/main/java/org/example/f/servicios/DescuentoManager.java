@@ -1,15 +1,27 @@
 package org.example.f.servicios;
 
+import org.example.f.modelos.CondicionDescuento;
 import org.example.f.modelos.Descuento;
 import org.example.f.modelos.Descuento.TipoDescuento;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serial;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
  * Clase de servicio POO encargada de gestionar el catálogo de descuentos disponibles.
  * <p>
+ * Los descuentos se indexan por código en una tabla hash, de modo que la búsqueda de un código
+ * (tecleado o escaneado en caja) es de tiempo constante. Cada descuento puede ser una regla compuesta
+ * por condiciones por producto, por categoría y con escalones por cantidad ({@link CondicionDescuento}),
+ * que el propio Descuento compila para evaluarla línea por línea.
+ * </p>
+ * <p>
  * Implementa {@link java.io.Serializable} para permitir la persistencia de su estado
  * (aunque actualmente los datos son inicializados en memoria).
  * </p>
@@ -24,6 +36,8 @@ public class DescuentoManager implements Serializable {
 
     /** Lista interna que almacena todos los objetos Descuento disponibles en el sistema. */
     private List<Descuento> catalogoDescuentos;
+    /** Índice código (normalizado) → descuento (no se serializa: se reconstruye desde el catálogo). */
+    private transient Map<String, Descuento> indicePorCodigo = new HashMap<>();
 
     /**
      * Constructor de la clase. Inicializa la lista de descuentos y carga
@@ -38,9 +52,36 @@ public class DescuentoManager implements Serializable {
      * Carga un conjunto de descuentos fijos de prueba en el catálogo interno.
      */
     private void inicializarDescuentos() {
-        catalogoDescuentos.add(new Descuento("TOT10", 0.10, TipoDescuento.PORCENTAJE, "10% en el total de la venta"));
-        catalogoDescuentos.add(new Descuento("FIX50", 50.00, TipoDescuento.MONTO_FIJO, "Descuento fijo de $50.00"));
-        catalogoDescuentos.add(new Descuento("PROMO25", 0.25, TipoDescuento.PORCENTAJE, "Promoción de temporada: 25%"));
+        agregarAlCatalogo(new Descuento("TOT10", 0.10, TipoDescuento.PORCENTAJE, "10% en el total de la venta"));
+        agregarAlCatalogo(new Descuento("FIX50", 50.00, TipoDescuento.MONTO_FIJO, "Descuento fijo de $50.00"));
+        agregarAlCatalogo(new Descuento("PROMO25", 0.25, TipoDescuento.PORCENTAJE, "Promoción de temporada: 25%"));
+        agregarAlCatalogo(new Descuento("HERR15", 0.15, TipoDescuento.PORCENTAJE, "15% en Herramientas",
+                List.of(CondicionDescuento.porCategoria("Herramientas", 1, 0.15, TipoDescuento.PORCENTAJE))));
+        agregarAlCatalogo(new Descuento("MAYOREO", 0.10, TipoDescuento.PORCENTAJE,
+                "Fijaciones por volumen: 5% desde 10 unidades, 10% desde 50",
+                List.of(CondicionDescuento.porCategoria("Fijaciones", 10, 0.05, TipoDescuento.PORCENTAJE),
+                        CondicionDescuento.porCategoria("Fijaciones", 50, 0.10, TipoDescuento.PORCENTAJE))));
+    }
+
+    /**
+     * Registra un descuento en el catálogo y en el índice por código.
+     * @param descuento El descuento a registrar.
+     * @throws IllegalArgumentException Si ya existe un descuento con el mismo código.
+     */
+    public void registrarDescuento(Descuento descuento) {
+        agregarAlCatalogo(descuento);
+    }
+
+    /**
+     * Añade un descuento al catálogo y al índice. Es privado para que el constructor pueda cargar los
+     * descuentos de prueba sin llamar a un método que una subclase podría redefinir.
+     */
+    private void agregarAlCatalogo(Descuento descuento) {
+        String codigo = normalizarCodigo(descuento.getCodigo());
+        if (indicePorCodigo.putIfAbsent(codigo, descuento) != null) {
+            throw new IllegalArgumentException("El código de descuento " + codigo + " ya existe.");
+        }
+        catalogoDescuentos.add(descuento);
     }
 
     /**
@@ -52,15 +93,32 @@ public class DescuentoManager implements Serializable {
     }
 
     /**
-     * Busca un descuento en el catálogo utilizando su código único.
+     * Busca un descuento en el catálogo utilizando su código único, en tiempo constante (índice hash).
      * La búsqueda se realiza sin importar mayúsculas/minúsculas o espacios iniciales/finales.
      * * @param codigo El código del descuento a buscar.
      * @return Un {@code Optional} que contiene el objeto Descuento si se encuentra una coincidencia.
      */
     public Optional<Descuento> buscarDescuentoPorCodigo(String codigo) {
-        String codigoNormalizado = codigo.trim().toUpperCase();
-        return this.catalogoDescuentos.stream()
-                .filter(d -> d.getCodigo().equals(codigoNormalizado))
-                .findFirst();
+        if (codigo == null) { return Optional.empty(); }
+        return Optional.ofNullable(indicePorCodigo.get(normalizarCodigo(codigo)));
+    }
+
+    private static String normalizarCodigo(String codigo) {
+        return codigo.trim().toUpperCase();
+    }
+
+    /**
+     * Restaura el estado serializado y reconstruye el índice por código a partir del catálogo.
+     * @param in El flujo de entrada.
+     * @throws IOException Si falla la lectura.
+     * @throws ClassNotFoundException Si no se encuentra la clase de un objeto serializado.
+     */
+    @Serial
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        indicePorCodigo = new HashMap<>();
+        for (Descuento descuento : catalogoDescuentos) {
+            indicePorCodigo.putIfAbsent(normalizarCodigo(descuento.getCodigo()), descuento);
+        }
     }
-}
\ No newline at end of file
+}
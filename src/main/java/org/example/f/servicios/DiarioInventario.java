@@ -0,0 +1,450 @@
+package org.example.f.servicios;
+
+import org.example.f.modelos.Producto;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Diario de escritura anticipada (write-ahead log) del inventario.
+ * <p>
+ * Cada mutación del catálogo se anota como un registro pequeño al final del archivo,
+ * en lugar de reescribir el catálogo completo. Periódicamente el InventarioManager
+ * compacta el diario: escribe una nueva instantánea (snapshot) y descarta los registros ya incluidos.
+ * </p>
+ * <p>
+ * Formato de cada registro: {@code [int longitud][byte tipo + datos][int crc32]}.
+ * Todos los registros son idempotentes (el producto completo, la baja o el stock resultante),
+ * por lo que reproducir dos veces el mismo tramo del diario deja el mismo estado.
+ * </p>
+ * <p>
+ * Escritura con confirmación agrupada (group commit): anotar un registro solo lo encola en memoria
+ * y devuelve su número de secuencia; {@link #confirmar(long)} lo hace durable. El primer hilo que
+ * confirma escribe y sincroniza ({@code force}) todo lo encolado hasta ese momento, y los hilos que
+ * llegan mientras tanto esperan y comparten la siguiente escritura. Así el costo de disco por venta
+ * no crece con el número de líneas ni con el número de cajas que cobran a la vez.
+ * </p>
+ *
+ * @author [Tu Nombre/Proyecto]
+ * @version 1.0
+ * @since 2025-11-03
+ */
+class DiarioInventario implements AlmacenInventario {
+
+    /** Registro con el producto completo (alta o actualización). */
+    static final byte TIPO_PRODUCTO = 1;
+    /** Registro de baja de un producto por ID. */
+    static final byte TIPO_BAJA = 2;
+    /** Registro con el stock resultante de un producto. */
+    static final byte TIPO_STOCK = 3;
+    /** Registro con el stock resultante de varios productos, aplicado como una unidad (venta completa). */
+    static final byte TIPO_LOTE = 4;
+
+    /**
+     * Contrato para aplicar los registros del diario al reconstruir el catálogo en memoria.
+     */
+    interface Receptor {
+        /** @param producto El producto (alta o actualización) a colocar en el catálogo. */
+        void aplicarProducto(Producto producto);
+        /** @param idProducto El ID del producto dado de baja. */
+        void aplicarBaja(int idProducto);
+        /** @param idProducto El ID del producto. @param stock El stock resultante. */
+        void aplicarStock(int idProducto, int stock);
+    }
+
+    /** Archivo activo del diario, donde se anotan los nuevos registros. */
+    private final Path archivo;
+    /** Tramo anterior del diario, pendiente de quedar incluido en una instantánea. */
+    private final Path archivoRotado;
+    /** Canal abierto en modo de anexado sobre el archivo activo. */
+    private FileChannel canal;
+
+    /** Registros encolados (ya enmarcados) que aún no se han escrito en el archivo. */
+    private final ByteArrayOutputStream pendientes = new ByteArrayOutputStream(4096);
+    /** Secuencia del último registro encolado. */
+    private long ultimaSecuencia;
+    /** Secuencia hasta la cual los registros están escritos y sincronizados en disco. */
+    private long secuenciaDurable;
+    /** Indica si algún hilo (el líder) está escribiendo un grupo en este momento. */
+    private boolean escribiendo;
+    /** Rango de secuencias del último grupo cuya escritura falló. */
+    private long fallidaDesde = 1, fallidaHasta = 0;
+    /** Indica que la última reproducción encontró un registro incompleto o corrupto y lo recortó. */
+    private boolean colaRecortada;
+
+    /**
+     * Abre (o crea) el diario en la ruta indicada.
+     * @param archivo La ruta del archivo del diario (ej: "inventario.log").
+     * @throws IOException Si el archivo no puede abrirse.
+     */
+    DiarioInventario(Path archivo) throws IOException {
+        this.archivo = archivo;
+        this.archivoRotado = archivo.resolveSibling(archivo.getFileName() + ".1");
+        this.canal = abrirCanal();
+    }
+
+    private FileChannel abrirCanal() throws IOException {
+        return FileChannel.open(archivo, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    // =======================================================
+    // ESCRITURA DE REGISTROS
+    // =======================================================
+
+    /**
+     * Encola el estado completo de un producto (alta o actualización).
+     * @param producto El producto a anotar.
+     * @return La secuencia del registro, para pasarla a {@link #confirmar(long)}.
+     * @throws IOException Si el producto no puede codificarse.
+     */
+    @Override
+    public synchronized long anotarProducto(Producto producto) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(96);
+        DataOutputStream out = new DataOutputStream(buffer);
+        out.writeByte(TIPO_PRODUCTO);
+        escribirProducto(out, producto);
+        return encolar(buffer.toByteArray());
+    }
+
+    /**
+     * Encola la baja de un producto.
+     * @param idProducto El ID del producto eliminado.
+     * @return La secuencia del registro.
+     */
+    @Override
+    public synchronized long anotarBaja(int idProducto) {
+        return encolar(ByteBuffer.allocate(5).put(TIPO_BAJA).putInt(idProducto).array());
+    }
+
+    /**
+     * Encola el stock resultante de un producto tras una venta o ajuste.
+     * @param idProducto El ID del producto.
+     * @param stock El nuevo stock (valor absoluto, no la diferencia).
+     * @return La secuencia del registro.
+     */
+    @Override
+    public synchronized long anotarStock(int idProducto, int stock) {
+        return encolar(ByteBuffer.allocate(9).put(TIPO_STOCK).putInt(idProducto).putInt(stock).array());
+    }
+
+    /**
+     * Encola en un único registro el stock resultante de todas las líneas de una venta.
+     * Al reproducirse, el lote se aplica completo o no se aplica (el CRC cubre el registro entero).
+     * @param cambios Los pares (producto, stock resultante) del lote.
+     * @return La secuencia del registro.
+     */
+    @Override
+    public synchronized long anotarLote(List<CambioStock> cambios) {
+        ByteBuffer datos = ByteBuffer.allocate(5 + cambios.size() * 8).put(TIPO_LOTE).putInt(cambios.size());
+        for (CambioStock cambio : cambios) {
+            datos.putInt(cambio.idProducto()).putInt(cambio.stock());
+        }
+        return encolar(datos.array());
+    }
+
+    /**
+     * Enmarca el contenido con su longitud y CRC32 y lo añade al grupo pendiente de escritura.
+     * @param datos El tipo de registro seguido de sus datos.
+     * @return La secuencia asignada al registro.
+     */
+    private long encolar(byte[] datos) {
+        CRC32 crc = new CRC32();
+        crc.update(datos);
+        ByteBuffer registro = ByteBuffer.allocate(datos.length + 8);
+        registro.putInt(datos.length).put(datos).putInt((int) crc.getValue());
+        pendientes.write(registro.array(), 0, registro.capacity());
+        return ++ultimaSecuencia;
+    }
+
+    /**
+     * Bloquea hasta que el registro con la secuencia indicada esté escrito y sincronizado en disco.
+     * Si no hay ningún grupo escribiéndose, el hilo actual se convierte en líder y escribe con una
+     * sola llamada a {@code force} todos los registros encolados hasta ese momento.
+     * @param secuencia La secuencia devuelta al anotar el registro.
+     * @throws IOException Si falla la escritura del grupo que contenía el registro.
+     */
+    @Override
+    public void confirmar(long secuencia) throws IOException {
+        byte[] grupo;
+        long hasta;
+        FileChannel destino;
+        synchronized (this) {
+            while (true) {
+                if (secuencia >= fallidaDesde && secuencia <= fallidaHasta) {
+                    throw new IOException("No se pudo escribir el grupo del diario que contenía el registro " + secuencia);
+                }
+                if (secuenciaDurable >= secuencia) { return; }
+                if (!escribiendo) { break; }
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrumpido esperando la escritura del diario");
+                }
+            }
+            escribiendo = true;
+            grupo = pendientes.toByteArray();
+            pendientes.reset();
+            hasta = ultimaSecuencia;
+            destino = canal;
+        }
+
+        IOException error = null;
+        try {
+            escribirYSincronizar(destino, grupo);
+        } catch (IOException e) {
+            error = e;
+        }
+
+        synchronized (this) {
+            escribiendo = false;
+            if (error == null) {
+                secuenciaDurable = hasta;
+            } else {
+                fallidaDesde = secuenciaDurable + 1;
+                fallidaHasta = hasta;
+                secuenciaDurable = hasta; // Los registros siguientes no deben esperar por este grupo
+            }
+            notifyAll();
+        }
+        if (error != null) { throw error; }
+    }
+
+    private static void escribirYSincronizar(FileChannel destino, byte[] grupo) throws IOException {
+        if (grupo.length == 0) { return; }
+        ByteBuffer buffer = ByteBuffer.wrap(grupo);
+        while (buffer.hasRemaining()) {
+            destino.write(buffer);
+        }
+        destino.force(false);
+    }
+
+    /**
+     * Espera a que termine el grupo en curso y escribe lo pendiente con el monitor tomado.
+     * Se usa antes de rotar o cerrar el archivo activo.
+     */
+    private void vaciarPendientes() throws IOException {
+        while (escribiendo) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrumpido esperando la escritura del diario");
+            }
+        }
+        escribirYSincronizar(canal, pendientes.toByteArray());
+        pendientes.reset();
+        secuenciaDurable = ultimaSecuencia;
+        notifyAll();
+    }
+
+    /**
+     * Obtiene el tamaño actual del diario activo, incluidos los registros aún no escritos.
+     * @return El tamaño en bytes.
+     * @throws IOException Si no puede consultarse el tamaño.
+     */
+    synchronized long tamano() throws IOException {
+        return canal.size() + pendientes.size();
+    }
+
+    // =======================================================
+    // COMPACTACIÓN
+    // =======================================================
+
+    /**
+     * Cierra el archivo activo, lo renombra como tramo rotado y abre un diario vacío.
+     * Debe llamarse en el mismo instante en que se copia el catálogo para la instantánea,
+     * de modo que el tramo rotado contenga exactamente lo que la instantánea va a incluir.
+     * @throws IOException Si falla el renombrado o la apertura del nuevo archivo.
+     */
+    synchronized void rotar() throws IOException {
+        vaciarPendientes();
+        canal.close();
+        try {
+            if (Files.exists(archivoRotado)) {
+                // Una compactación previa no terminó: se conservan ambos tramos, en orden.
+                try (FileChannel destino = FileChannel.open(archivoRotado, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                     FileChannel origen = FileChannel.open(archivo, StandardOpenOption.READ)) {
+                    origen.transferTo(0, origen.size(), destino);
+                }
+                Files.delete(archivo);
+            } else {
+                Files.move(archivo, archivoRotado, StandardCopyOption.ATOMIC_MOVE);
+            }
+        } finally {
+            canal = abrirCanal();
+        }
+    }
+
+    /**
+     * Elimina el tramo rotado una vez que la nueva instantánea está en disco.
+     * @throws IOException Si el archivo no puede eliminarse.
+     */
+    synchronized void descartarRotado() throws IOException {
+        Files.deleteIfExists(archivoRotado);
+    }
+
+    // =======================================================
+    // LECTURA (REPRODUCCIÓN AL ARRANCAR)
+    // =======================================================
+
+    /**
+     * Reproduce sobre el receptor el tramo rotado (si existe) y luego el archivo activo.
+     * La lectura de cada archivo se detiene en el primer registro incompleto o corrupto (escritura
+     * interrumpida), y el archivo se recorta en ese punto antes de anotar nada más: si no, los registros
+     * nuevos quedarían detrás de los bytes dañados y la siguiente reproducción también los perdería.
+     * Debe llamarse antes de la primera anotación.
+     * @param receptor El objeto que aplica cada registro al catálogo en memoria.
+     * @return El número de registros reproducidos.
+     * @throws IOException Si ocurre un error de lectura o al recortar el archivo.
+     */
+    synchronized int reproducir(Receptor receptor) throws IOException {
+        Lectura rotado = reproducirArchivo(archivoRotado, receptor);
+        if (rotado.danado()) {
+            try (FileChannel destino = FileChannel.open(archivoRotado, StandardOpenOption.WRITE)) {
+                destino.truncate(rotado.finValido());
+                destino.force(true);
+            }
+        }
+        Lectura activo = reproducirArchivo(archivo, receptor);
+        if (activo.danado()) {
+            canal.truncate(activo.finValido());
+            canal.force(true);
+        }
+        colaRecortada = rotado.danado() || activo.danado();
+        return rotado.registros() + activo.registros();
+    }
+
+    /**
+     * Indica si la última reproducción recortó un registro incompleto o corrupto (y con él,
+     * posiblemente, registros posteriores ilegibles): conviene escribir una instantánea nueva.
+     * @return {@code true} si se recortó el diario.
+     */
+    synchronized boolean huboColaRecortada() {
+        return colaRecortada;
+    }
+
+    /**
+     * Resultado de leer un archivo del diario.
+     * @param registros Registros reproducidos.
+     * @param finValido Posición (en bytes) donde termina el último registro válido.
+     * @param danado {@code true} si después de {@code finValido} quedan bytes que no forman un registro válido.
+     */
+    private record Lectura(int registros, long finValido, boolean danado) { }
+
+    private static Lectura reproducirArchivo(Path ruta, Receptor receptor) throws IOException {
+        int reproducidos = 0;
+        long finValido = 0;
+        long tamano;
+        try {
+            tamano = Files.size(ruta);
+        } catch (NoSuchFileException e) {
+            return new Lectura(0, 0, false);
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(ruta)))) {
+            while (finValido < tamano) {
+                byte[] datos;
+                int crcLeido;
+                try {
+                    int longitud = in.readInt();
+                    if (longitud <= 0 || longitud > (1 << 20)) { break; }
+                    datos = new byte[longitud];
+                    in.readFully(datos);
+                    crcLeido = in.readInt();
+                } catch (EOFException e) {
+                    break; // Registro truncado por un corte
+                }
+                CRC32 crc = new CRC32();
+                crc.update(datos);
+                if ((int) crc.getValue() != crcLeido) {
+                    System.err.println("Registro corrupto en " + ruta + "; se ignora el resto del diario.");
+                    break;
+                }
+                aplicarRegistro(new DataInputStream(new ByteArrayInputStream(datos)), receptor);
+                reproducidos++;
+                finValido += 4L + datos.length + 4L;
+            }
+        } catch (NoSuchFileException e) {
+            return new Lectura(0, 0, false);
+        }
+        if (finValido < tamano) {
+            System.err.println("Se recortan " + (tamano - finValido) + " bytes dañados al final de " + ruta + ".");
+        }
+        return new Lectura(reproducidos, finValido, finValido < tamano);
+    }
+
+    private static void aplicarRegistro(DataInputStream in, Receptor receptor) throws IOException {
+        byte tipo = in.readByte();
+        switch (tipo) {
+            case TIPO_PRODUCTO -> receptor.aplicarProducto(leerProducto(in));
+            case TIPO_BAJA -> receptor.aplicarBaja(in.readInt());
+            case TIPO_STOCK -> receptor.aplicarStock(in.readInt(), in.readInt());
+            case TIPO_LOTE -> {
+                int cambios = in.readInt();
+                for (int i = 0; i < cambios; i++) {
+                    receptor.aplicarStock(in.readInt(), in.readInt());
+                }
+            }
+            default -> throw new IOException("Tipo de registro desconocido en el diario: " + tipo);
+        }
+    }
+
+    // =======================================================
+    // CODIFICACIÓN DE PRODUCTOS
+    // =======================================================
+
+    private static void escribirProducto(DataOutputStream out, Producto p) throws IOException {
+        out.writeInt(p.getIdProducto());
+        escribirTexto(out, p.getNombre());
+        escribirTexto(out, p.getDescripcion());
+        escribirTexto(out, p.getNumeroArticulo());
+        escribirTexto(out, p.getCategoria());
+        out.writeDouble(p.getPrecio());
+        out.writeInt(p.getCantidadEnStock());
+        escribirTexto(out, p.getProveedor());
+        out.writeInt(p.getPuntoReorden());
+    }
+
+    private static Producto leerProducto(DataInputStream in) throws IOException {
+        int id = in.readInt();
+        String nombre = leerTexto(in);
+        String descripcion = leerTexto(in);
+        String numeroArticulo = leerTexto(in);
+        String categoria = leerTexto(in);
+        double precio = in.readDouble();
+        int stock = in.readInt();
+        String proveedor = leerTexto(in);
+        Producto producto = new Producto(id, nombre, descripcion, numeroArticulo, categoria, precio, stock, proveedor);
+        // Los registros anotados antes de existir el punto de reorden terminan en el proveedor
+        if (in.available() >= Integer.BYTES) {
+            producto.setPuntoReorden(in.readInt());
+        }
+        return producto;
+    }
+
+    private static void escribirTexto(DataOutputStream out, String texto) throws IOException {
+        out.writeBoolean(texto != null);
+        if (texto != null) { out.writeUTF(texto); }
+    }
+
+    private static String leerTexto(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    /**
+     * Escribe los registros pendientes y cierra el canal del archivo activo.
+     * @throws IOException Si falla la escritura o el cierre.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        vaciarPendientes();
+        canal.close();
+    }
+}
@@ -0,0 +1,521 @@
+package org.example.f.servicios;
+
+import org.example.f.modelos.Cliente;
+import org.example.f.modelos.CondicionDescuento;
+import org.example.f.modelos.Descuento;
+import org.example.f.modelos.LineaVenta;
+import org.example.f.modelos.Producto;
+import org.example.f.modelos.Venta;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.CRC32;
+
+/**
+ * Diario durable y segmentado del historial de ventas.
+ * <p>
+ * Cada venta completada se anexa a un segmento del directorio {@code ventas/}. Los segmentos
+ * rotan por día y por tamaño ({@code ventas-AAAAMMDD-NNN.seg}), de modo que una consulta por
+ * rango de fechas solo abre los segmentos de esos días. La lectura mapea los segmentos en memoria
+ * y decodifica las ventas una a una, sin cargar el historial completo en el heap.
+ * </p>
+ * <p>
+ * Formato de cada registro: {@code [int longitud][long fechaHora][datos][int crc32]}; la fecha va
+ * primero para poder descartar ventas fuera del rango sin decodificarlas.
+ * </p>
+ * <p>
+ * Si el descuento aplicado tiene condiciones por producto o categoría, los datos terminan con esas
+ * condiciones y la categoría de cada línea, para recalcular exactamente el mismo descuento al leer la venta.
+ * Los registros anteriores terminan en las líneas y se leen como descuentos sobre el total.
+ * </p>
+ * <p>
+ * Recuperación: una caída a mitad de {@link #anotar(Venta)} deja un registro incompleto al final del
+ * segmento. Antes de anexar a un segmento existente se recorre y se trunca al final del último registro
+ * válido, y la lectura se detiene en el primer registro dañado (nunca salta por encima de él).
+ * </p>
+ *
+ * @author [Tu Nombre/Proyecto]
+ * @version 1.0
+ * @since 2025-11-03
+ */
+class DiarioVentas implements Closeable {
+
+    /** Marca inicial de cada segmento ("FERV"). */
+    private static final int MAGIA = 0x46455256;
+    /** Versión del formato de los registros. */
+    private static final int VERSION = 1;
+    /** Tamaño máximo de un segmento antes de rotar al siguiente del mismo día. */
+    private static final long TAM_MAX_SEGMENTO = 16L * 1024 * 1024;
+    /** Formato de la fecha en el nombre de los segmentos. */
+    private static final DateTimeFormatter FORMATO_DIA = DateTimeFormatter.BASIC_ISO_DATE;
+    /** Zona horaria usada para convertir la fecha de la venta a milisegundos. */
+    private static final ZoneId ZONA = ZoneId.systemDefault();
+
+    /** Directorio que contiene los segmentos. */
+    private final Path directorio;
+    /** Canal del segmento activo (null hasta la primera venta). */
+    private FileChannel canal;
+    /** Día del segmento activo. */
+    private LocalDate diaActivo;
+    /** Número de orden del segmento activo dentro de su día. */
+    private int numeroActivo;
+
+    /**
+     * Abre el diario de ventas sobre un directorio (lo crea si no existe).
+     * @param directorio El directorio de segmentos (ej: "ventas").
+     * @throws IOException Si el directorio no puede crearse.
+     */
+    DiarioVentas(Path directorio) throws IOException {
+        this.directorio = directorio;
+        Files.createDirectories(directorio);
+    }
+
+    // =======================================================
+    // ESCRITURA
+    // =======================================================
+
+    /**
+     * Anexa una venta completada al segmento del día y la sincroniza con el disco.
+     * @param venta La venta finalizada (con ID y fecha asignados).
+     * @throws IOException Si falla la escritura.
+     */
+    synchronized void anotar(Venta venta) throws IOException {
+        byte[] datos = codificar(venta);
+        CRC32 crc = new CRC32();
+        crc.update(datos);
+
+        FileChannel destino = segmentoPara(venta.getFechaHora().toLocalDate(), datos.length + 8);
+        ByteBuffer registro = ByteBuffer.allocate(datos.length + 8);
+        registro.putInt(datos.length).put(datos).putInt((int) crc.getValue()).flip();
+        while (registro.hasRemaining()) {
+            destino.write(registro);
+        }
+        destino.force(false);
+    }
+
+    /**
+     * Devuelve el canal del segmento donde debe ir el próximo registro, rotando por día o tamaño.
+     */
+    private FileChannel segmentoPara(LocalDate dia, int tamRegistro) throws IOException {
+        if (canal != null && dia.equals(diaActivo) && canal.size() + tamRegistro <= TAM_MAX_SEGMENTO) {
+            return canal;
+        }
+        if (canal != null) {
+            canal.close();
+        }
+        if (!dia.equals(diaActivo)) {
+            diaActivo = dia;
+            numeroActivo = ultimoNumeroDe(dia);
+        }
+        Path ruta = rutaSegmento(dia, Math.max(numeroActivo, 1));
+        if (numeroActivo == 0 || Files.size(ruta) + tamRegistro > TAM_MAX_SEGMENTO) {
+            numeroActivo++;
+            ruta = rutaSegmento(dia, numeroActivo);
+        }
+        canal = abrirSegmento(ruta);
+        return canal;
+    }
+
+    /**
+     * Abre un segmento para anexar: si termina en un registro incompleto o dañado (caída durante una
+     * escritura), lo trunca al final del último registro válido; si no tiene cabecera válida, la escribe.
+     * @param ruta El segmento.
+     * @return El canal, posicionado al final de los registros válidos.
+     */
+    private static FileChannel abrirSegmento(Path ruta) throws IOException {
+        FileChannel segmento = FileChannel.open(ruta, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long tamano = segmento.size();
+            long fin = tamano < 8 ? 0 : finValido(segmento.map(FileChannel.MapMode.READ_ONLY, 0, tamano));
+            if (fin < tamano) {
+                System.err.println("Segmento de ventas " + ruta.getFileName() + " con registro incompleto: se trunca a "
+                        + fin + " de " + tamano + " bytes.");
+                segmento.truncate(fin);
+                segmento.force(true);
+            }
+            if (fin == 0) {
+                ByteBuffer cabecera = ByteBuffer.allocate(8).putInt(MAGIA).putInt(VERSION).flip();
+                while (cabecera.hasRemaining()) {
+                    segmento.write(cabecera, segmento.size());
+                }
+            }
+            segmento.position(segmento.size());
+            return segmento;
+        } catch (IOException | RuntimeException e) {
+            segmento.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Recorre los registros de un segmento validando su longitud y su CRC.
+     * @param buffer El contenido del segmento.
+     * @return La posición que sigue al último registro válido (0 si la cabecera no es válida).
+     */
+    private static long finValido(ByteBuffer buffer) {
+        if (buffer.limit() < 8 || buffer.getInt(0) != MAGIA) { return 0; }
+        int posicion = 8;
+        while (true) {
+            int longitud = longitudValida(buffer, posicion);
+            if (longitud < 0) { return posicion; }
+            posicion += 4 + longitud + 4;
+        }
+    }
+
+    /**
+     * Valida el registro que empieza en una posición.
+     * @return La longitud de sus datos, o -1 si no hay un registro completo con CRC correcto.
+     */
+    private static int longitudValida(ByteBuffer buffer, int posicion) {
+        if (buffer.limit() - posicion < 4) { return -1; }
+        int longitud = buffer.getInt(posicion);
+        if (longitud < 8 || buffer.limit() - posicion - 8 < longitud) { return -1; }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(posicion + 4, longitud));
+        return (int) crc.getValue() == buffer.getInt(posicion + 4 + longitud) ? longitud : -1;
+    }
+
+    private int ultimoNumeroDe(LocalDate dia) throws IOException {
+        int ultimo = 0;
+        for (Segmento s : listarSegmentos()) {
+            if (s.dia().equals(dia)) {
+                ultimo = Math.max(ultimo, s.numero());
+            }
+        }
+        return ultimo;
+    }
+
+    private Path rutaSegmento(LocalDate dia, int numero) {
+        return directorio.resolve(String.format("ventas-%s-%03d.seg", dia.format(FORMATO_DIA), numero));
+    }
+
+    // =======================================================
+    // LECTURA
+    // =======================================================
+
+    /**
+     * Recorre de forma perezosa las ventas registradas entre dos instantes (ambos incluidos).
+     * Solo se mapean los segmentos de los días del rango, a medida que el flujo avanza.
+     * @param desde Inicio del rango (null = sin límite inferior).
+     * @param hasta Fin del rango (null = sin límite superior).
+     * @return Un flujo de ventas en orden cronológico de registro.
+     */
+    Stream<Venta> leer(LocalDateTime desde, LocalDateTime hasta) {
+        long msDesde = desde == null ? Long.MIN_VALUE : aMilis(desde);
+        long msHasta = hasta == null ? Long.MAX_VALUE : aMilis(hasta);
+        LocalDate diaDesde = desde == null ? LocalDate.MIN : desde.toLocalDate();
+        LocalDate diaHasta = hasta == null ? LocalDate.MAX : hasta.toLocalDate();
+
+        List<Segmento> segmentos;
+        synchronized (this) {
+            try {
+                segmentos = listarSegmentos();
+            } catch (IOException e) {
+                System.err.println("Error al listar los segmentos de ventas: " + e.getMessage());
+                return Stream.empty();
+            }
+        }
+        return segmentos.stream()
+                .filter(s -> !s.dia().isBefore(diaDesde) && !s.dia().isAfter(diaHasta))
+                .flatMap(s -> StreamSupport.stream(Spliterators.spliteratorUnknownSize(
+                        new LectorSegmento(s.ruta(), msDesde, msHasta), Spliterator.ORDERED | Spliterator.NONNULL), false));
+    }
+
+    /**
+     * Obtiene el mayor ID de venta registrado (para continuar la numeración). Recorre los segmentos del
+     * más reciente al más antiguo hasta encontrar uno con ventas válidas: el último puede tener solo la
+     * cabecera (caída justo después de rotar) o estar dañado.
+     * @return El último ID, o 0 si no hay ventas registradas.
+     */
+    synchronized int ultimoIdVenta() {
+        try {
+            List<Segmento> segmentos = listarSegmentos();
+            for (int i = segmentos.size() - 1; i >= 0; i--) {
+                int ultimo = 0;
+                Iterator<Venta> ventas = new LectorSegmento(segmentos.get(i).ruta(), Long.MIN_VALUE, Long.MAX_VALUE);
+                while (ventas.hasNext()) {
+                    ultimo = Math.max(ultimo, ventas.next().getIdVenta());
+                }
+                if (ultimo > 0) { return ultimo; }
+            }
+            return 0;
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("Error al leer el último segmento de ventas: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Segmento del diario identificado por su día y número de orden.
+     */
+    private record Segmento(Path ruta, LocalDate dia, int numero) { }
+
+    /** @return Los segmentos existentes, ordenados por día y número. */
+    private List<Segmento> listarSegmentos() throws IOException {
+        List<Segmento> segmentos = new ArrayList<>();
+        try (DirectoryStream<Path> archivos = Files.newDirectoryStream(directorio, "ventas-*-*.seg")) {
+            for (Path ruta : archivos) {
+                String[] partes = ruta.getFileName().toString().replace(".seg", "").split("-");
+                try {
+                    segmentos.add(new Segmento(ruta, LocalDate.parse(partes[1], FORMATO_DIA), Integer.parseInt(partes[2])));
+                } catch (RuntimeException e) {
+                    System.err.println("Se ignora el archivo con nombre no válido: " + ruta);
+                }
+            }
+        }
+        Collections.sort(segmentos, (a, b) -> a.dia().equals(b.dia())
+                ? Integer.compare(a.numero(), b.numero()) : a.dia().compareTo(b.dia()));
+        return segmentos;
+    }
+
+    /**
+     * Iterador que recorre un segmento mapeado en memoria y decodifica solo las ventas del rango.
+     * Se detiene en el primer registro incompleto o con CRC incorrecto: su longitud no es fiable, así
+     * que no se puede saber dónde empieza el siguiente.
+     */
+    private static final class LectorSegmento implements Iterator<Venta> {
+        private final MappedByteBuffer buffer;
+        private final long msDesde;
+        private final long msHasta;
+        private Venta siguiente;
+
+        LectorSegmento(Path ruta, long msDesde, long msHasta) {
+            this.msDesde = msDesde;
+            this.msHasta = msHasta;
+            try (FileChannel canal = FileChannel.open(ruta, StandardOpenOption.READ)) {
+                // El mapeo sigue siendo válido después de cerrar el canal.
+                this.buffer = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (buffer.remaining() < 8 || buffer.getInt(0) != MAGIA) {
+                buffer.position(buffer.limit()); // Segmento vacío o ajeno: no produce ventas
+            } else {
+                buffer.position(8);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (siguiente == null && buffer.hasRemaining()) {
+                int longitud = longitudValida(buffer, buffer.position());
+                if (longitud < 0) {
+                    if (buffer.remaining() >= 4) {
+                        System.err.println("Registro de venta incompleto o corrupto; se ignora el resto del segmento.");
+                    }
+                    buffer.position(buffer.limit());
+                    return false;
+                }
+                int inicio = buffer.position() + 4;
+                long fechaMs = buffer.getLong(inicio);
+                buffer.position(inicio + longitud + 4);
+                if (fechaMs < msDesde || fechaMs > msHasta) { continue; }
+
+                ByteBuffer datos = buffer.slice(inicio, longitud);
+                try {
+                    siguiente = decodificar(datos);
+                } catch (IOException e) {
+                    System.err.println("No se pudo decodificar una venta: " + e.getMessage());
+                }
+            }
+            return siguiente != null;
+        }
+
+        @Override
+        public Venta next() {
+            if (!hasNext()) { throw new NoSuchElementException(); }
+            Venta venta = siguiente;
+            siguiente = null;
+            return venta;
+        }
+    }
+
+    // =======================================================
+    // CODIFICACIÓN
+    // =======================================================
+
+    private static byte[] codificar(Venta venta) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(64 + venta.getItemsVendidos().size() * 48);
+        DataOutputStream out = new DataOutputStream(buffer);
+        out.writeLong(aMilis(venta.getFechaHora()));
+        out.writeInt(venta.getIdVenta());
+
+        Cliente cliente = venta.getCliente();
+        out.writeBoolean(cliente != null);
+        if (cliente != null) {
+            out.writeInt(cliente.getIdCliente());
+            escribirTexto(out, cliente.getNombre());
+        }
+
+        Descuento descuento = venta.getDescuentoAplicado();
+        out.writeBoolean(descuento != null);
+        if (descuento != null) {
+            escribirTexto(out, descuento.getCodigo());
+            out.writeDouble(descuento.getValor());
+            out.writeByte(descuento.getTipo().ordinal());
+            escribirTexto(out, descuento.getDescripcion());
+        }
+
+        out.writeShort(venta.getItemsVendidos().size());
+        for (LineaVenta lv : venta.getItemsVendidos()) {
+            Producto p = lv.getProducto();
+            out.writeInt(p.getIdProducto());
+            escribirTexto(out, p.getNombre());
+            escribirTexto(out, p.getNumeroArticulo());
+            out.writeInt(lv.getCantidad());
+            out.writeDouble(lv.getPrecioUnitario());
+        }
+
+        List<CondicionDescuento> condiciones = descuento == null ? List.of() : descuento.getCondiciones();
+        if (!condiciones.isEmpty()) {
+            out.writeShort(condiciones.size());
+            for (CondicionDescuento c : condiciones) {
+                out.writeByte(c.getAlcance().ordinal());
+                out.writeInt(c.getIdProducto());
+                escribirTexto(out, c.getCategoria());
+                out.writeInt(c.getCantidadMinima());
+                out.writeDouble(c.getValor());
+                out.writeByte(c.getTipo().ordinal());
+            }
+            for (LineaVenta lv : venta.getItemsVendidos()) {
+                escribirTexto(out, lv.getProducto().getCategoria());
+            }
+        }
+        out.flush();
+        return buffer.toByteArray();
+    }
+
+    private static Venta decodificar(ByteBuffer datos) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteBufferInputStream(datos));
+        LocalDateTime fechaHora = LocalDateTime.ofInstant(Instant.ofEpochMilli(in.readLong()), ZONA);
+        int idVenta = in.readInt();
+
+        Cliente cliente = null;
+        if (in.readBoolean()) {
+            cliente = new Cliente(in.readInt(), leerTexto(in), null, null, null);
+        }
+
+        Descuento descuento = null;
+        if (in.readBoolean()) {
+            String codigo = leerTexto(in);
+            double valor = in.readDouble();
+            Descuento.TipoDescuento tipo = Descuento.TipoDescuento.values()[in.readByte()];
+            descuento = new Descuento(codigo, valor, tipo, leerTexto(in));
+        }
+
+        int lineas = in.readUnsignedShort();
+        List<LineaVenta> items = new ArrayList<>(lineas);
+        for (int i = 0; i < lineas; i++) {
+            // Producto reducido: solo los datos necesarios para mostrar y totalizar la línea.
+            Producto p = new Producto();
+            p.setIdProducto(in.readInt());
+            p.setNombre(leerTexto(in));
+            p.setNumeroArticulo(leerTexto(in));
+            int cantidad = in.readInt();
+            p.setPrecio(in.readDouble());
+            items.add(new LineaVenta(p, cantidad));
+        }
+
+        if (descuento != null && in.available() > 0) {
+            int total = in.readUnsignedShort();
+            List<CondicionDescuento> condiciones = new ArrayList<>(total);
+            for (int i = 0; i < total; i++) {
+                CondicionDescuento.Alcance alcance = CondicionDescuento.Alcance.values()[in.readByte()];
+                int idProducto = in.readInt();
+                String categoria = leerTexto(in);
+                int cantidadMinima = in.readInt();
+                double valor = in.readDouble();
+                Descuento.TipoDescuento tipo = Descuento.TipoDescuento.values()[in.readByte()];
+                condiciones.add(alcance == CondicionDescuento.Alcance.PRODUCTO
+                        ? CondicionDescuento.porProducto(idProducto, cantidadMinima, valor, tipo)
+                        : CondicionDescuento.porCategoria(categoria, cantidadMinima, valor, tipo));
+            }
+            for (LineaVenta lv : items) {
+                lv.getProducto().setCategoria(leerTexto(in));
+            }
+            descuento = new Descuento(descuento.getCodigo(), descuento.getValor(), descuento.getTipo(),
+                    descuento.getDescripcion(), condiciones);
+        }
+
+        Venta venta = new Venta(cliente, items);
+        venta.setIdVenta(idVenta);
+        venta.setFechaHora(fechaHora);
+        if (descuento != null) {
+            venta.aplicarDescuento(descuento);
+        }
+        return venta;
+    }
+
+    private static void escribirTexto(DataOutputStream out, String texto) throws IOException {
+        out.writeBoolean(texto != null);
+        if (texto != null) { out.writeUTF(texto); }
+    }
+
+    private static String leerTexto(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static long aMilis(LocalDateTime fechaHora) {
+        return fechaHora.atZone(ZONA).toInstant().toEpochMilli();
+    }
+
+    /**
+     * Adaptador mínimo para leer un ByteBuffer (región del segmento mapeado) como InputStream.
+     */
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] destino, int desde, int longitud) {
+            if (!buffer.hasRemaining()) { return -1; }
+            int leidos = Math.min(longitud, buffer.remaining());
+            buffer.get(destino, desde, leidos);
+            return leidos;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+
+    /**
+     * Cierra el segmento activo.
+     * @throws IOException Si falla el cierre.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (canal != null) {
+            canal.close();
+            canal = null;
+        }
+    }
+}
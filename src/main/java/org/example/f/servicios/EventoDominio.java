@@ -0,0 +1,105 @@
+package org.example.f.servicios;
+
+import org.example.f.modelos.Cliente;
+import org.example.f.modelos.Descuento;
+import org.example.f.modelos.Producto;
+import org.example.f.modelos.Venta;
+
+/**
+ * Eventos del dominio que publican los managers en el {@link BusEventos}.
+ * <p>
+ * Cada evento indica su clave de coalescencia: dentro de un mismo lote pendiente de entrega, un evento
+ * reemplaza al anterior con la misma clave (por ejemplo, varios cambios de stock de un producto se
+ * entregan como el último). Los eventos sin clave, como las ventas registradas, nunca se pliegan.
+ * </p>
+ *
+ * @author [Tu Nombre/Proyecto]
+ * @version 1.0
+ * @since 2025-11-03
+ */
+public sealed interface EventoDominio {
+
+    /**
+     * Clave con la que se pliegan los eventos que describen el estado de una misma entidad.
+     * @param familia La entidad ("producto", "stock", "cliente", "descuento").
+     * @param id El ID de la entidad.
+     */
+    record Clave(String familia, int id) { }
+
+    /**
+     * Devuelve la clave de coalescencia del evento.
+     * @return La clave, o null si el evento no debe plegarse con otros.
+     */
+    default Clave claveCoalescencia() {
+        return null;
+    }
+
+    /**
+     * Un producto se dio de alta o se modificó.
+     * @param producto El producto, tal como quedó en el catálogo.
+     */
+    record ProductoActualizado(Producto producto) implements EventoDominio {
+        @Override
+        public Clave claveCoalescencia() { return new Clave("producto", producto.getIdProducto()); }
+    }
+
+    /**
+     * Un producto se eliminó del catálogo (reemplaza a su alta o modificación pendiente).
+     * @param idProducto El ID del producto.
+     */
+    record ProductoEliminado(int idProducto) implements EventoDominio {
+        @Override
+        public Clave claveCoalescencia() { return new Clave("producto", idProducto); }
+    }
+
+    /**
+     * Cambió el stock físico de un producto (venta, ajuste o confirmación de reservas).
+     * @param idProducto El ID del producto.
+     * @param stock El nuevo stock.
+     */
+    record StockCambiado(int idProducto, int stock) implements EventoDominio {
+        @Override
+        public Clave claveCoalescencia() { return new Clave("stock", idProducto); }
+    }
+
+    /**
+     * Un cliente se registró o se modificó.
+     * @param cliente El cliente, tal como quedó en el catálogo.
+     */
+    record ClienteActualizado(Cliente cliente) implements EventoDominio {
+        @Override
+        public Clave claveCoalescencia() { return new Clave("cliente", cliente.getIdCliente()); }
+    }
+
+    /**
+     * Un cliente se eliminó del catálogo.
+     * @param idCliente El ID del cliente.
+     */
+    record ClienteEliminado(int idCliente) implements EventoDominio {
+        @Override
+        public Clave claveCoalescencia() { return new Clave("cliente", idCliente); }
+    }
+
+    /**
+     * Se registró una venta (nunca se pliega con otras).
+     * @param venta La venta finalizada, con ID y fecha.
+     */
+    record VentaRegistrada(Venta venta) implements EventoDominio { }
+
+    /**
+     * Se eligió un descuento para la venta en curso.
+     * @param descuento El descuento elegido.
+     */
+    record DescuentoAplicado(Descuento descuento) implements EventoDominio {
+        @Override
+        public Clave claveCoalescencia() { return new Clave("descuento", 0); }
+    }
+
+    /**
+     * Se quitó el descuento de la venta en curso (reemplaza a una aplicación pendiente).
+     */
+    record DescuentoRemovido() implements EventoDominio {
+        @Override
+        public Clave claveCoalescencia() { return new Clave("descuento", 0); }
+    }
+}
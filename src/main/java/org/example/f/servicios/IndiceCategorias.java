@@ -0,0 +1,195 @@
+package org.example.f.servicios;
+
+import org.example.f.modelos.PlegadoTexto;
+import org.example.f.modelos.Producto;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+/**
+ * Índice secundario categoría → productos, con totales por categoría mantenidos en cada mutación.
+ * <p>
+ * Dentro de cada categoría los productos se guardan ordenados por (stock, ID) en un conjunto de
+ * claves {@code long}, de modo que una consulta por categoría y rango de stock recorre solo los
+ * productos que cumplen ambos filtros. Cada categoría lleva su número de productos, las unidades
+ * en stock y el valor del stock (en centavos, para que las sumas incrementales no acumulen error).
+ * </p>
+ * <p>
+ * El índice guarda su propia copia de la categoría, el stock y el precio de cada producto, porque
+ * los objetos del catálogo pueden modificarse fuera del manager antes de llamar a
+ * {@code actualizarProducto}. Lo protege el bloqueo de {@link InventarioManager} (no es seguro para hilos).
+ * </p>
+ *
+ * @author [Tu Nombre/Proyecto]
+ * @version 1.0
+ * @since 2025-11-03
+ */
+final class IndiceCategorias {
+
+    /** Nombre con que se agrupan los productos sin categoría. */
+    static final String SIN_CATEGORIA = "Sin categoría";
+
+    /** Productos y totales de una categoría. */
+    static final class Categoria {
+        /** Nombre mostrado (el del primer producto registrado con esta categoría). */
+        final String nombre;
+        /** Claves (stock, ID) de sus productos, ordenadas. */
+        private final NavigableSet<Long> productos = new TreeSet<>();
+        private long unidades;
+        private long valorCentavos;
+
+        private Categoria(String nombre) {
+            this.nombre = nombre;
+        }
+
+        int productos() { return productos.size(); }
+        long unidades() { return unidades; }
+        double valorStock() { return valorCentavos / 100.0; }
+    }
+
+    /** Valores indexados de un producto. */
+    private static final class Entrada {
+        final int idProducto;
+        final Categoria categoria;
+        final double precio;
+        int stock;
+
+        Entrada(int idProducto, Categoria categoria, double precio, int stock) {
+            this.idProducto = idProducto;
+            this.categoria = categoria;
+            this.precio = precio;
+            this.stock = stock;
+        }
+
+        long valorCentavos() {
+            return Math.round(stock * precio * 100);
+        }
+    }
+
+    /** Categoría plegada (sin mayúsculas ni acentos) → categoría. */
+    private final Map<String, Categoria> categorias = new HashMap<>();
+    /** ID → ranura en {@code entradas}. */
+    private final IndiceEnteros ranuraPorId = new IndiceEnteros(1024);
+    private final List<Entrada> entradas = new ArrayList<>();
+
+    // =======================================================
+    // MANTENIMIENTO
+    // =======================================================
+
+    /**
+     * Indexa un producto, reemplazando su entrada anterior si ya estaba indexado.
+     * @param producto El producto (con ID asignado).
+     */
+    void agregar(Producto producto) {
+        quitar(producto.getIdProducto());
+        String nombre = nombreDe(producto.getCategoria());
+        Categoria categoria = categorias.computeIfAbsent(PlegadoTexto.plegar(nombre), k -> new Categoria(nombre));
+        Entrada entrada = new Entrada(producto.getIdProducto(), categoria, producto.getPrecio(), producto.getCantidadEnStock());
+
+        categoria.productos.add(clave(entrada.stock, entrada.idProducto));
+        categoria.unidades += entrada.stock;
+        categoria.valorCentavos += entrada.valorCentavos();
+        ranuraPorId.poner(entrada.idProducto, entradas.size());
+        entradas.add(entrada);
+    }
+
+    /**
+     * Quita un producto del índice (y su categoría, si queda vacía).
+     * @param idProducto El ID del producto.
+     */
+    void quitar(int idProducto) {
+        int ranura = ranuraPorId.quitar(idProducto);
+        if (ranura == IndiceEnteros.AUSENTE) { return; }
+
+        Entrada entrada = entradas.get(ranura);
+        Categoria categoria = entrada.categoria;
+        categoria.productos.remove(clave(entrada.stock, idProducto));
+        categoria.unidades -= entrada.stock;
+        categoria.valorCentavos -= entrada.valorCentavos();
+        if (categoria.productos.isEmpty()) {
+            categorias.remove(PlegadoTexto.plegar(categoria.nombre));
+        }
+
+        Entrada ultima = entradas.remove(entradas.size() - 1);
+        if (ranura < entradas.size()) {
+            entradas.set(ranura, ultima);
+            ranuraPorId.poner(ultima.idProducto, ranura);
+        }
+    }
+
+    /**
+     * Refleja un cambio de stock (venta, ajuste o reproducción del diario).
+     * @param idProducto El ID del producto.
+     * @param stock El nuevo stock.
+     */
+    void actualizarStock(int idProducto, int stock) {
+        int ranura = ranuraPorId.obtener(idProducto);
+        if (ranura == IndiceEnteros.AUSENTE) { return; }
+
+        Entrada entrada = entradas.get(ranura);
+        if (entrada.stock == stock) { return; }
+        Categoria categoria = entrada.categoria;
+        categoria.productos.remove(clave(entrada.stock, idProducto));
+        categoria.unidades -= entrada.stock;
+        categoria.valorCentavos -= entrada.valorCentavos();
+        entrada.stock = stock;
+        categoria.productos.add(clave(stock, idProducto));
+        categoria.unidades += stock;
+        categoria.valorCentavos += entrada.valorCentavos();
+    }
+
+    /** Vacía el índice. */
+    void limpiar() {
+        categorias.clear();
+        ranuraPorId.limpiar();
+        entradas.clear();
+    }
+
+    // =======================================================
+    // CONSULTA
+    // =======================================================
+
+    /** @return Las categorías con al menos un producto, ordenadas por nombre. */
+    List<Categoria> categorias() {
+        List<Categoria> lista = new ArrayList<>(categorias.values());
+        lista.sort(Comparator.comparing(c -> c.nombre, String.CASE_INSENSITIVE_ORDER));
+        return lista;
+    }
+
+    /**
+     * Obtiene los IDs de los productos de una categoría cuyo stock está en [stockMinimo, stockMaximo],
+     * ordenados por stock y luego por ID.
+     * @param categoria El nombre de la categoría (sin distinguir mayúsculas ni acentos).
+     * @param stockMinimo Stock mínimo (incluido).
+     * @param stockMaximo Stock máximo (incluido).
+     * @return Los IDs encontrados.
+     */
+    int[] buscar(String categoria, int stockMinimo, int stockMaximo) {
+        Categoria encontrada = categorias.get(PlegadoTexto.plegar(nombreDe(categoria)));
+        if (encontrada == null || stockMinimo > stockMaximo) { return new int[0]; }
+
+        NavigableSet<Long> rango = encontrada.productos.subSet(
+                clave(stockMinimo, 0), true, clave(stockMaximo, Integer.MAX_VALUE), true);
+        int[] ids = new int[rango.size()];
+        int i = 0;
+        for (long clave : rango) {
+            ids[i++] = (int) clave;
+        }
+        return ids;
+    }
+
+    /** Clave ordenable por (stock, ID): el stock (con signo) en los 32 bits altos y el ID en los bajos. */
+    private static long clave(int stock, int idProducto) {
+        return ((long) stock << 32) | (idProducto & 0xFFFFFFFFL);
+    }
+
+    /** @return La categoría sin espacios sobrantes, o {@link #SIN_CATEGORIA} si está vacía. */
+    static String nombreDe(String categoria) {
+        String nombre = categoria == null ? "" : categoria.strip();
+        return nombre.isEmpty() ? SIN_CATEGORIA : nombre;
+    }
+}
@@ -0,0 +1,447 @@
+package org.example.f.servicios;
+
+import org.example.f.modelos.Cliente;
+import org.example.f.modelos.PlegadoTexto;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Índices secundarios del catálogo de clientes: teléfono normalizado, correo electrónico y
+ * palabras del nombre, para asignar un cliente en caja sin recorrer todo el catálogo.
+ * <p>
+ * El teléfono se reduce a sus dígitos (y a los últimos diez, para ignorar prefijos de país o de
+ * larga distancia) y además se indexa por sus últimos cuatro dígitos. El nombre se divide en
+ * palabras plegadas que se guardan ordenadas, de modo que una palabra incompleta de la consulta
+ * es un rango del índice. Una consulta devuelve los IDs ordenados por relevancia; el índice por
+ * ID lo mantiene {@link ClienteManager}, que también protege esta clase con su propio bloqueo
+ * (no es segura para hilos).
+ * </p>
+ *
+ * @author [Tu Nombre/Proyecto]
+ * @version 1.0
+ * @since 2025-11-03
+ */
+final class IndiceClientes {
+
+    /** Dígitos que se conservan de un teléfono (número nacional sin prefijos). */
+    private static final int DIGITOS_TELEFONO = 10;
+    /** Dígitos finales por los que también se indexa el teléfono. */
+    private static final int DIGITOS_FINALES = 4;
+
+    // --- Puntuaciones (mayor es mejor) ---
+    private static final int PUNTOS_ID = 1000;
+    private static final int PUNTOS_TELEFONO = 900;
+    private static final int PUNTOS_EMAIL = 900;
+    private static final int PUNTOS_TELEFONO_FINAL = 500;
+    /** Por cada palabra de la consulta que coincide completa con una palabra del nombre. */
+    private static final int PUNTOS_PALABRA = 3;
+    /** Por cada palabra de la consulta que solo es el inicio de una palabra del nombre. */
+    private static final int PUNTOS_PREFIJO = 2;
+    /** Si el nombre completo empieza por la consulta. */
+    private static final int PUNTOS_INICIO_NOMBRE = 1;
+
+    /** Claves indexadas de un cliente (se guardan para verificar candidatos y para desindexarlo). */
+    private record Entrada(int idCliente, String nombre, String telefono, String email, String[] palabras) { }
+
+    /** Conjunto sin orden de IDs que comparten una clave. */
+    private static final class Ids {
+        int[] ids = new int[2];
+        int tamano;
+
+        void agregar(int id) {
+            for (int i = 0; i < tamano; i++) {
+                if (ids[i] == id) { return; }
+            }
+            if (tamano == ids.length) { ids = Arrays.copyOf(ids, tamano * 2); }
+            ids[tamano++] = id;
+        }
+
+        void quitar(int id) {
+            for (int i = 0; i < tamano; i++) {
+                if (ids[i] == id) {
+                    ids[i] = ids[--tamano];
+                    return;
+                }
+            }
+        }
+    }
+
+    /** ID → ranura en {@code entradas}. */
+    private final IndiceEnteros ranuraPorId = new IndiceEnteros(1024);
+    private final List<Entrada> entradas = new ArrayList<>();
+
+    private final Map<String, Ids> porTelefono = new HashMap<>();
+    private final Map<String, Ids> porTelefonoFinal = new HashMap<>();
+    private final Map<String, Ids> porEmail = new HashMap<>();
+    /** Palabra plegada del nombre → clientes; ordenado para resolver palabras incompletas como un rango. */
+    private final NavigableMap<String, Ids> porPalabra = new TreeMap<>();
+
+    /** IDs ya puntuados por ID, teléfono o correo en la consulta en curso (se reutiliza entre consultas). */
+    private final IndiceEnteros vistos = new IndiceEnteros(64);
+
+    // =======================================================
+    // MANTENIMIENTO
+    // =======================================================
+
+    /**
+     * Indexa un cliente, reemplazando su entrada anterior si ya estaba indexado.
+     * @param cliente El cliente (con ID asignado).
+     */
+    void agregar(Cliente cliente) {
+        quitar(cliente.getIdCliente());
+        String nombre = PlegadoTexto.plegar(cliente.getNombre());
+        Entrada entrada = new Entrada(cliente.getIdCliente(), nombre,
+                normalizarTelefono(cliente.getTelefono()), normalizarEmail(cliente.getEmail()), palabrasDe(nombre));
+
+        int id = entrada.idCliente();
+        if (entrada.telefono() != null) {
+            porTelefono.computeIfAbsent(entrada.telefono(), k -> new Ids()).agregar(id);
+            porTelefonoFinal.computeIfAbsent(finalDe(entrada.telefono()), k -> new Ids()).agregar(id);
+        }
+        if (entrada.email() != null) {
+            porEmail.computeIfAbsent(entrada.email(), k -> new Ids()).agregar(id);
+        }
+        for (String palabra : entrada.palabras()) {
+            porPalabra.computeIfAbsent(palabra, k -> new Ids()).agregar(id);
+        }
+        ranuraPorId.poner(id, entradas.size());
+        entradas.add(entrada);
+    }
+
+    /**
+     * Quita un cliente del índice.
+     * @param idCliente El ID del cliente.
+     */
+    void quitar(int idCliente) {
+        int ranura = ranuraPorId.quitar(idCliente);
+        if (ranura == IndiceEnteros.AUSENTE) { return; }
+
+        Entrada entrada = entradas.get(ranura);
+        if (entrada.telefono() != null) {
+            quitarDe(porTelefono, entrada.telefono(), idCliente);
+            quitarDe(porTelefonoFinal, finalDe(entrada.telefono()), idCliente);
+        }
+        if (entrada.email() != null) {
+            quitarDe(porEmail, entrada.email(), idCliente);
+        }
+        for (String palabra : entrada.palabras()) {
+            quitarDe(porPalabra, palabra, idCliente);
+        }
+
+        Entrada ultima = entradas.remove(entradas.size() - 1);
+        if (ranura < entradas.size()) {
+            entradas.set(ranura, ultima);
+            ranuraPorId.poner(ultima.idCliente(), ranura);
+        }
+    }
+
+    /** Vacía el índice. */
+    void limpiar() {
+        ranuraPorId.limpiar();
+        entradas.clear();
+        porTelefono.clear();
+        porTelefonoFinal.clear();
+        porEmail.clear();
+        porPalabra.clear();
+    }
+
+    private static void quitarDe(Map<String, Ids> indice, String clave, int id) {
+        Ids ids = indice.get(clave);
+        if (ids == null) { return; }
+        ids.quitar(id);
+        if (ids.tamano == 0) {
+            indice.remove(clave);
+        }
+    }
+
+    // =======================================================
+    // CONSULTA
+    // =======================================================
+
+    /**
+     * Busca clientes por ID, teléfono (completo o sus últimos cuatro dígitos), correo electrónico
+     * o palabras del nombre (cada palabra de la consulta debe ser el inicio de una palabra del nombre).
+     * @param consulta El texto escrito en caja.
+     * @param limite Número máximo de resultados.
+     * @return Los IDs encontrados, del más al menos relevante.
+     */
+    int[] buscar(String consulta, int limite) {
+        String texto = consulta == null ? "" : consulta.strip();
+        if (texto.isEmpty() || limite <= 0) { return new int[0]; }
+
+        Mejores mejores = new Mejores(limite);
+        vistos.limpiar();
+
+        String digitos = soloDigitos(texto);
+        if (digitos != null) {
+            buscarPorDigitos(digitos, mejores);
+        }
+        if (texto.indexOf('@') >= 0) {
+            Ids ids = porEmail.get(normalizarEmail(texto));
+            if (ids != null) {
+                for (int i = 0; i < ids.tamano; i++) { puntuar(ids.ids[i], PUNTOS_EMAIL, mejores); }
+            }
+        }
+        String plegada = PlegadoTexto.plegar(texto);
+        String[] palabras = palabrasDe(plegada);
+        if (palabras.length > 0) {
+            buscarPorNombre(plegada, palabras, mejores);
+        }
+        return mejores.ordenados();
+    }
+
+    private void buscarPorDigitos(String digitos, Mejores mejores) {
+        if (digitos.length() <= 9) {
+            int id = Integer.parseInt(digitos);
+            if (ranuraPorId.obtener(id) != IndiceEnteros.AUSENTE) {
+                puntuar(id, PUNTOS_ID, mejores);
+            }
+        }
+        String telefono = normalizarTelefono(digitos);
+        Ids ids = porTelefono.get(telefono);
+        if (ids != null) {
+            for (int i = 0; i < ids.tamano; i++) { puntuar(ids.ids[i], PUNTOS_TELEFONO, mejores); }
+        }
+        // Parte final del teléfono ("los últimos cuatro"): candidatos por sus 4 dígitos finales
+        if (digitos.length() >= DIGITOS_FINALES && digitos.length() < DIGITOS_TELEFONO) {
+            Ids finales = porTelefonoFinal.get(finalDe(digitos));
+            if (finales != null) {
+                for (int i = 0; i < finales.tamano; i++) {
+                    int id = finales.ids[i];
+                    if (entradas.get(ranuraPorId.obtener(id)).telefono().endsWith(digitos)) {
+                        puntuar(id, PUNTOS_TELEFONO_FINAL, mejores);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Parte de la palabra de la consulta con menos candidatos y verifica en cada candidato el resto de palabras.
+     */
+    private void buscarPorNombre(String consulta, String[] palabras, Mejores mejores) {
+        NavigableMap<String, Ids> guia = null;
+        String palabraGuia = null;
+        int menor = Integer.MAX_VALUE;
+        for (String palabra : palabras) {
+            NavigableMap<String, Ids> rango = rangoDePrefijo(palabra);
+            int total = 0;
+            for (Ids ids : rango.values()) {
+                total += ids.tamano;
+                if (total >= menor) { break; }
+            }
+            if (total < menor) {
+                menor = total;
+                guia = rango;
+                palabraGuia = palabra;
+            }
+            if (menor == 0) { return; }
+        }
+
+        // Un cliente con varias palabras en el rango aparece en varias listas: solo se evalúa desde la
+        // primera de ellas, así no hace falta recordar los candidatos vistos. Los puntos por nombre nunca
+        // superan a los de ID, teléfono o correo, y un ID repetido en el resultado se resuelve en Mejores.
+        for (Map.Entry<String, Ids> lista : guia.entrySet()) {
+            Ids ids = lista.getValue();
+            for (int i = 0; i < ids.tamano; i++) {
+                int id = ids.ids[i];
+                Entrada entrada = entradas.get(ranuraPorId.obtener(id));
+                if (!primeraConPrefijo(entrada, palabraGuia).equals(lista.getKey())) { continue; }
+                int puntos = puntosDeNombre(entrada, consulta, palabras);
+                if (puntos > 0) {
+                    mejores.ofrecer(id, puntos, entrada.nombre().length());
+                }
+            }
+        }
+    }
+
+    /** @return La primera palabra del nombre que empieza por el prefijo (el cliente está en su lista). */
+    private static String primeraConPrefijo(Entrada entrada, String prefijo) {
+        for (String palabra : entrada.palabras()) {
+            if (palabra.startsWith(prefijo)) { return palabra; }
+        }
+        return "";
+    }
+
+    /** @return Los puntos del nombre de un cliente para la consulta, o 0 si alguna palabra no coincide. */
+    private static int puntosDeNombre(Entrada entrada, String consulta, String[] palabras) {
+        int puntos = entrada.nombre().startsWith(consulta) ? PUNTOS_INICIO_NOMBRE : 0;
+        for (String buscada : palabras) {
+            int mejor = 0;
+            for (String palabra : entrada.palabras()) {
+                if (palabra.equals(buscada)) {
+                    mejor = PUNTOS_PALABRA;
+                    break;
+                }
+                if (palabra.startsWith(buscada)) {
+                    mejor = PUNTOS_PREFIJO;
+                }
+            }
+            if (mejor == 0) { return 0; }
+            puntos += mejor;
+        }
+        return puntos;
+    }
+
+    private NavigableMap<String, Ids> rangoDePrefijo(String prefijo) {
+        return porPalabra.subMap(prefijo, true, prefijo + Character.MAX_VALUE, false);
+    }
+
+    /** Registra un ID con su puntuación; si ya se había puntuado en esta consulta, se queda con la mejor. */
+    private void puntuar(int id, int puntos, Mejores mejores) {
+        int anterior = vistos.obtener(id);
+        if (anterior >= puntos) { return; }
+        vistos.poner(id, puntos);
+        Entrada entrada = entradas.get(ranuraPorId.obtener(id));
+        mejores.ofrecer(id, puntos, entrada.nombre().length());
+    }
+
+    /**
+     * Los {@code limite} mejores IDs de la consulta: montículo de mínimos sobre claves {@code long}
+     * (puntos, nombre más corto, ID menor), sin objetos por candidato.
+     */
+    private static final class Mejores {
+        private final long[] monticulo;
+        private int tamano;
+
+        Mejores(int limite) {
+            monticulo = new long[limite];
+        }
+
+        void ofrecer(int id, int puntos, int largoNombre) {
+            long clave = ((long) puntos << 48)
+                    | ((long) (0xFFFF - Math.min(largoNombre, 0xFFFF)) << 32)
+                    | (Integer.MAX_VALUE - id);
+            // Si el ID ya estaba con menos puntos, se sustituye su clave
+            for (int i = 0; i < tamano; i++) {
+                if (idDe(monticulo[i]) == id) {
+                    monticulo[i] = Math.max(monticulo[i], clave);
+                    hundir(i);
+                    return;
+                }
+            }
+            if (tamano < monticulo.length) {
+                monticulo[tamano] = clave;
+                flotar(tamano++);
+            } else if (clave > monticulo[0]) {
+                monticulo[0] = clave;
+                hundir(0);
+            }
+        }
+
+        int[] ordenados() {
+            long[] claves = Arrays.copyOf(monticulo, tamano);
+            Arrays.sort(claves);
+            int[] ids = new int[tamano];
+            for (int i = 0; i < tamano; i++) {
+                ids[i] = idDe(claves[tamano - 1 - i]);
+            }
+            return ids;
+        }
+
+        private static int idDe(long clave) {
+            return Integer.MAX_VALUE - (int) (clave & 0xFFFFFFFFL);
+        }
+
+        private void flotar(int i) {
+            while (i > 0) {
+                int padre = (i - 1) / 2;
+                if (monticulo[padre] <= monticulo[i]) { return; }
+                intercambiar(i, padre);
+                i = padre;
+            }
+        }
+
+        private void hundir(int i) {
+            while (true) {
+                int menor = i;
+                int izquierdo = 2 * i + 1;
+                int derecho = izquierdo + 1;
+                if (izquierdo < tamano && monticulo[izquierdo] < monticulo[menor]) { menor = izquierdo; }
+                if (derecho < tamano && monticulo[derecho] < monticulo[menor]) { menor = derecho; }
+                if (menor == i) { return; }
+                intercambiar(i, menor);
+                i = menor;
+            }
+        }
+
+        private void intercambiar(int a, int b) {
+            long t = monticulo[a];
+            monticulo[a] = monticulo[b];
+            monticulo[b] = t;
+        }
+    }
+
+    // =======================================================
+    // NORMALIZACIÓN
+    // =======================================================
+
+    /**
+     * Reduce un teléfono a sus dígitos y, si tiene más de diez, a los últimos diez (sin prefijos).
+     * @return El teléfono normalizado, o null si no tiene dígitos.
+     */
+    static String normalizarTelefono(String telefono) {
+        if (telefono == null) { return null; }
+        StringBuilder sb = new StringBuilder(telefono.length());
+        for (int i = 0; i < telefono.length(); i++) {
+            char c = telefono.charAt(i);
+            if (c >= '0' && c <= '9') { sb.append(c); }
+        }
+        if (sb.isEmpty()) { return null; }
+        return sb.length() > DIGITOS_TELEFONO ? sb.substring(sb.length() - DIGITOS_TELEFONO) : sb.toString();
+    }
+
+    /**
+     * Normaliza un correo electrónico (sin espacios y en minúsculas).
+     * @return El correo normalizado, o null si está vacío o no tiene '@'.
+     */
+    static String normalizarEmail(String email) {
+        if (email == null) { return null; }
+        String normalizado = email.strip().toLowerCase(Locale.ROOT);
+        return normalizado.indexOf('@') > 0 ? normalizado : null;
+    }
+
+    /**
+     * Devuelve los dígitos de una consulta que solo contiene dígitos y separadores de teléfono
+     * (espacios, guiones, puntos, paréntesis y '+'), o null si contiene cualquier otro carácter.
+     */
+    private static String soloDigitos(String texto) {
+        StringBuilder sb = new StringBuilder(texto.length());
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            if (c >= '0' && c <= '9') {
+                sb.append(c);
+            } else if (c != ' ' && c != '-' && c != '.' && c != '(' && c != ')' && c != '+') {
+                return null;
+            }
+        }
+        return sb.isEmpty() ? null : sb.toString();
+    }
+
+    private static String finalDe(String digitos) {
+        return digitos.length() <= DIGITOS_FINALES ? digitos : digitos.substring(digitos.length() - DIGITOS_FINALES);
+    }
+
+    /** Divide un texto ya plegado en palabras (letras y dígitos) sin repetidas. */
+    private static String[] palabrasDe(String plegado) {
+        List<String> palabras = new ArrayList<>(4);
+        int inicio = -1;
+        for (int i = 0; i <= plegado.length(); i++) {
+            boolean letra = i < plegado.length() && Character.isLetterOrDigit(plegado.charAt(i));
+            if (letra && inicio < 0) {
+                inicio = i;
+            } else if (!letra && inicio >= 0) {
+                String palabra = plegado.substring(inicio, i);
+                if (!palabras.contains(palabra)) { palabras.add(palabra); }
+                inicio = -1;
+            }
+        }
+        return palabras.toArray(new String[0]);
+    }
+}
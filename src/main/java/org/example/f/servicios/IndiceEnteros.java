@@ -0,0 +1,145 @@
+package org.example.f.servicios;
+
+import java.util.Arrays;
+
+/**
+ * Tabla hash de claves y valores {@code int} primitivos (sin objetos {@code Integer}).
+ * <p>
+ * Usa direccionamiento abierto con sondeo lineal sobre dos arreglos paralelos y borrado por
+ * desplazamiento hacia atrás, de modo que no quedan marcas de borrado que degraden las búsquedas.
+ * La capacidad es siempre potencia de dos y se duplica al superar el 50% de ocupación.
+ * No es segura para hilos: el llamador debe sincronizar el acceso.
+ * </p>
+ *
+ * @author [Tu Nombre/Proyecto]
+ * @version 1.0
+ * @since 2025-11-03
+ */
+final class IndiceEnteros {
+
+    /** Valor devuelto por {@link #obtener(int)} cuando la clave no existe. */
+    static final int AUSENTE = -1;
+    /** Marca de celda libre en el arreglo de claves (no se admite como clave). */
+    private static final int LIBRE = Integer.MIN_VALUE;
+    /** Capacidad mínima de la tabla. */
+    private static final int CAPACIDAD_MINIMA = 16;
+
+    private int[] claves;
+    private int[] valores;
+    private int tamano;
+    private int mascara;
+
+    /**
+     * Crea un índice vacío con espacio para al menos {@code esperados} entradas sin redimensionar.
+     * @param esperados Número de entradas esperado.
+     */
+    IndiceEnteros(int esperados) {
+        int capacidad = CAPACIDAD_MINIMA;
+        while (capacidad < esperados * 2) {
+            capacidad <<= 1;
+        }
+        reservar(capacidad);
+    }
+
+    private void reservar(int capacidad) {
+        claves = new int[capacidad];
+        valores = new int[capacidad];
+        Arrays.fill(claves, LIBRE);
+        mascara = capacidad - 1;
+        tamano = 0;
+    }
+
+    /** Dispersa la clave (mezcla de Fibonacci) para repartir IDs consecutivos por toda la tabla. */
+    private int posicionInicial(int clave) {
+        int h = clave * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mascara;
+    }
+
+    /**
+     * Obtiene el valor asociado a una clave.
+     * @param clave La clave buscada.
+     * @return El valor, o {@link #AUSENTE} si la clave no está en el índice.
+     */
+    int obtener(int clave) {
+        for (int i = posicionInicial(clave); ; i = (i + 1) & mascara) {
+            int actual = claves[i];
+            if (actual == clave) { return valores[i]; }
+            if (actual == LIBRE) { return AUSENTE; }
+        }
+    }
+
+    /**
+     * Asocia un valor a una clave, reemplazando el anterior si existía.
+     * @param clave La clave (cualquier entero salvo {@code Integer.MIN_VALUE}).
+     * @param valor El valor a asociar.
+     */
+    void poner(int clave, int valor) {
+        if (clave == LIBRE) {
+            throw new IllegalArgumentException("Clave no admitida: " + clave);
+        }
+        if ((tamano + 1) * 2 > claves.length) {
+            crecer();
+        }
+        int i = posicionInicial(clave);
+        while (claves[i] != LIBRE) {
+            if (claves[i] == clave) {
+                valores[i] = valor;
+                return;
+            }
+            i = (i + 1) & mascara;
+        }
+        claves[i] = clave;
+        valores[i] = valor;
+        tamano++;
+    }
+
+    /**
+     * Elimina una clave del índice.
+     * @param clave La clave a eliminar.
+     * @return El valor que tenía asociado, o {@link #AUSENTE} si no existía.
+     */
+    int quitar(int clave) {
+        int i = posicionInicial(clave);
+        while (claves[i] != clave) {
+            if (claves[i] == LIBRE) { return AUSENTE; }
+            i = (i + 1) & mascara;
+        }
+        int anterior = valores[i];
+
+        // Desplaza hacia atrás las entradas siguientes del mismo racimo que quedarían inalcanzables
+        int hueco = i;
+        for (int j = (i + 1) & mascara; claves[j] != LIBRE; j = (j + 1) & mascara) {
+            int ideal = posicionInicial(claves[j]);
+            if (((j - ideal) & mascara) >= ((j - hueco) & mascara)) {
+                claves[hueco] = claves[j];
+                valores[hueco] = valores[j];
+                hueco = j;
+            }
+        }
+        claves[hueco] = LIBRE;
+        tamano--;
+        return anterior;
+    }
+
+    /** Vacía el índice conservando su capacidad. */
+    void limpiar() {
+        Arrays.fill(claves, LIBRE);
+        tamano = 0;
+    }
+
+    /** @return El número de claves en el índice. */
+    int tamano() {
+        return tamano;
+    }
+
+    private void crecer() {
+        int[] clavesViejas = claves;
+        int[] valoresViejos = valores;
+        reservar(clavesViejas.length * 2);
+        for (int i = 0; i < clavesViejas.length; i++) {
+            if (clavesViejas[i] != LIBRE) {
+                poner(clavesViejas[i], valoresViejos[i]);
+            }
+        }
+    }
+}
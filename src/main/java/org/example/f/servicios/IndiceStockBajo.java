@@ -0,0 +1,99 @@
+package org.example.f.servicios;
+
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+/**
+ * Conjunto de productos con stock bajo (stock en o por debajo de su punto de reorden),
+ * mantenido en cada mutación en lugar de recalcularse recorriendo el catálogo.
+ * <p>
+ * Para cada producto en el conjunto se guarda su faltante ({@code puntoReorden - stock}, nunca negativo)
+ * y una clave ordenable por (faltante descendente, ID), de modo que los productos más urgentes salen
+ * primero. Cada actualización indica si el producto entró o salió del conjunto, para avisar a los
+ * suscriptores solo en los cruces del punto de reorden. No es seguro para hilos: lo protege el bloqueo
+ * de {@link InventarioManager}.
+ * </p>
+ *
+ * @author [Tu Nombre/Proyecto]
+ * @version 1.0
+ * @since 2025-11-03
+ */
+final class IndiceStockBajo {
+
+    /** Resultado de una actualización respecto al conjunto de stock bajo. */
+    enum Cruce {
+        /** El producto pasó a tener stock bajo. */
+        ENTRA,
+        /** El producto dejó de tener stock bajo (o se quitó del índice). */
+        SALE,
+        /** El producto sigue dentro o fuera del conjunto. */
+        NINGUNO
+    }
+
+    /** ID → faltante de los productos con stock bajo. */
+    private final IndiceEnteros faltantePorId = new IndiceEnteros(256);
+    /** Claves (-faltante, ID): el primer elemento es el producto más urgente. */
+    private final NavigableSet<Long> porUrgencia = new TreeSet<>();
+
+    /**
+     * Refleja el stock o el punto de reorden actual de un producto.
+     * @param idProducto El ID del producto.
+     * @param stock Su stock.
+     * @param puntoReorden Su punto de reorden.
+     * @return Si el producto entró, salió o no cambió de conjunto.
+     */
+    Cruce actualizar(int idProducto, int stock, int puntoReorden) {
+        int anterior = faltantePorId.obtener(idProducto);
+        boolean bajo = stock <= puntoReorden;
+        if (anterior != IndiceEnteros.AUSENTE) {
+            porUrgencia.remove(clave(anterior, idProducto));
+        }
+        if (!bajo) {
+            if (anterior == IndiceEnteros.AUSENTE) { return Cruce.NINGUNO; }
+            faltantePorId.quitar(idProducto);
+            return Cruce.SALE;
+        }
+
+        int faltante = (int) Math.min(Integer.MAX_VALUE, (long) puntoReorden - stock);
+        faltantePorId.poner(idProducto, faltante);
+        porUrgencia.add(clave(faltante, idProducto));
+        return anterior == IndiceEnteros.AUSENTE ? Cruce.ENTRA : Cruce.NINGUNO;
+    }
+
+    /**
+     * Quita un producto del índice (baja del catálogo).
+     * @param idProducto El ID del producto.
+     * @return {@link Cruce#SALE} si tenía stock bajo, {@link Cruce#NINGUNO} si no.
+     */
+    Cruce quitar(int idProducto) {
+        int anterior = faltantePorId.quitar(idProducto);
+        if (anterior == IndiceEnteros.AUSENTE) { return Cruce.NINGUNO; }
+        porUrgencia.remove(clave(anterior, idProducto));
+        return Cruce.SALE;
+    }
+
+    /** Vacía el índice. */
+    void limpiar() {
+        faltantePorId.limpiar();
+        porUrgencia.clear();
+    }
+
+    /** @return Los IDs con stock bajo, del mayor al menor faltante (y por ID a igual faltante). */
+    int[] ids() {
+        int[] ids = new int[porUrgencia.size()];
+        int i = 0;
+        for (long clave : porUrgencia) {
+            ids[i++] = (int) clave;
+        }
+        return ids;
+    }
+
+    /** @return El número de productos con stock bajo. */
+    int tamano() {
+        return porUrgencia.size();
+    }
+
+    private static long clave(int faltante, int idProducto) {
+        return ((long) -faltante << 32) | (idProducto & 0xFFFFFFFFL);
+    }
+}
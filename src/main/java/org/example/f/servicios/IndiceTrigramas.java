@@ -0,0 +1,437 @@
+package org.example.f.servicios;
+
+import org.example.f.modelos.PlegadoTexto;
+import org.example.f.modelos.Producto;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Índice invertido de trigramas sobre el nombre y la descripción de los productos,
+ * para búsquedas por subcadena sin recorrer el catálogo completo.
+ * <p>
+ * Cada trigrama (tres caracteres consecutivos ya plegados) se empaqueta en un {@code long} y
+ * apunta a una lista ordenada de IDs de producto. Una consulta calcula sus trigramas sin crear
+ * cadenas, intersecta las listas de forma perezosa partiendo de la más corta (avanzando cursores
+ * con búsqueda galopante), verifica cada candidato contra el texto plegado guardado en el índice
+ * y conserva solo los mejores según su posición de coincidencia.
+ * </p>
+ * <p>
+ * El índice se mantiene incrementalmente desde las mutaciones de {@link InventarioManager}, que
+ * lo protege con su propio bloqueo (esta clase no es segura para hilos).
+ * </p>
+ *
+ * @author [Tu Nombre/Proyecto]
+ * @version 1.0
+ * @since 2025-11-03
+ */
+final class IndiceTrigramas {
+
+    /** Número de caracteres de cada n-grama. */
+    private static final int N = 3;
+    /** Bit que distingue el trigrama con que empieza un nombre (fuera del rango de tres caracteres). */
+    private static final long MARCA_INICIO = 1L << 48;
+    /** Ordena las listas de trigramas de la más corta a la más larga. */
+    private static final Comparator<ListaIds> POR_TAMANO = Comparator.comparingInt(lista -> lista.tamano);
+    /** Coincidencias a reunir por cada resultado pedido antes de detener la intersección general. */
+    private static final int FACTOR_CANDIDATOS = 8;
+    /** Mínimo de coincidencias a reunir antes de detener la intersección general. */
+    private static final int MINIMO_CANDIDATOS = 64;
+
+    /** Texto plegado de un producto indexado (se guarda para verificar candidatos y para desindexarlo). */
+    private record Entrada(int idProducto, String nombre, String descripcion) { }
+
+    /** Lista ordenada (ascendente) de IDs que contienen un trigrama. */
+    private static final class ListaIds {
+        int[] ids = new int[4];
+        int tamano;
+
+        void agregar(int id) {
+            if (tamano == 0 || ids[tamano - 1] < id) {
+                anexar(id); // Caso habitual: los IDs nuevos son los mayores
+                return;
+            }
+            if (ids[tamano - 1] == id) { return; } // Trigrama repetido en el mismo producto
+            int pos = Arrays.binarySearch(ids, 0, tamano, id);
+            if (pos >= 0) { return; }
+            pos = -pos - 1;
+            if (tamano == ids.length) { ids = Arrays.copyOf(ids, tamano * 2); }
+            System.arraycopy(ids, pos, ids, pos + 1, tamano - pos);
+            ids[pos] = id;
+            tamano++;
+        }
+
+        private void anexar(int id) {
+            if (tamano == ids.length) { ids = Arrays.copyOf(ids, tamano * 2); }
+            ids[tamano++] = id;
+        }
+
+        void quitar(int id) {
+            int pos = Arrays.binarySearch(ids, 0, tamano, id);
+            if (pos < 0) { return; }
+            System.arraycopy(ids, pos + 1, ids, pos, tamano - pos - 1);
+            tamano--;
+        }
+
+        /** @return La primera posición desde {@code desde} cuyo ID es mayor o igual a {@code id} (búsqueda galopante). */
+        int avanzarHasta(int desde, int id) {
+            int paso = 1;
+            int bajo = desde;
+            int alto = desde;
+            while (alto < tamano && ids[alto] < id) {
+                bajo = alto + 1;
+                alto += paso;
+                paso <<= 1;
+            }
+            alto = Math.min(alto, tamano);
+            int pos = Arrays.binarySearch(ids, bajo, alto, id);
+            return pos >= 0 ? pos : -pos - 1;
+        }
+    }
+
+    // --- Tabla trigrama → lista (direccionamiento abierto sobre long; la clave 0 marca celda libre) ---
+    private long[] claves = new long[1024];
+    private ListaIds[] listas = new ListaIds[1024];
+    private int trigramasDistintos;
+
+    /** ID → ranura en {@code entradas}. */
+    private final IndiceEnteros ranuraPorId = new IndiceEnteros(1024);
+    private final List<Entrada> entradas = new ArrayList<>();
+
+    /** Arreglo de trabajo reutilizado para calcular los trigramas de un producto. */
+    private long[] trabajo = new long[64];
+
+    // =======================================================
+    // MANTENIMIENTO
+    // =======================================================
+
+    /**
+     * Indexa un producto, reemplazando su entrada anterior si ya estaba indexado.
+     * @param producto El producto (con ID asignado).
+     */
+    void agregar(Producto producto) {
+        quitar(producto.getIdProducto());
+        Entrada entrada = new Entrada(producto.getIdProducto(),
+                PlegadoTexto.plegar(producto.getNombre()), PlegadoTexto.plegar(producto.getDescripcion()));
+
+        int total = trigramasDe(entrada);
+        for (int i = 0; i < total; i++) {
+            listaPara(trabajo[i], true).agregar(entrada.idProducto());
+        }
+        ranuraPorId.poner(entrada.idProducto(), entradas.size());
+        entradas.add(entrada);
+    }
+
+    /**
+     * Quita un producto del índice.
+     * @param idProducto El ID del producto.
+     */
+    void quitar(int idProducto) {
+        int ranura = ranuraPorId.quitar(idProducto);
+        if (ranura == IndiceEnteros.AUSENTE) { return; }
+
+        Entrada entrada = entradas.get(ranura);
+        int total = trigramasDe(entrada);
+        for (int i = 0; i < total; i++) {
+            ListaIds lista = listaPara(trabajo[i], false);
+            if (lista != null) { lista.quitar(idProducto); }
+        }
+
+        Entrada ultima = entradas.remove(entradas.size() - 1);
+        if (ranura < entradas.size()) {
+            entradas.set(ranura, ultima);
+            ranuraPorId.poner(ultima.idProducto(), ranura);
+        }
+    }
+
+    /** Vacía el índice. */
+    void limpiar() {
+        claves = new long[1024];
+        listas = new ListaIds[1024];
+        trigramasDistintos = 0;
+        ranuraPorId.limpiar();
+        entradas.clear();
+    }
+
+    /**
+     * Calcula en {@code trabajo} los trigramas de ambos campos de una entrada. Puede haber repetidos:
+     * las listas ignoran un ID que ya contienen.
+     * @return El número de trigramas calculados.
+     */
+    private int trigramasDe(Entrada entrada) {
+        int total = 0;
+        int necesarios = entrada.nombre().length() + entrada.descripcion().length() + 1;
+        if (necesarios > trabajo.length) { trabajo = new long[Math.max(necesarios, trabajo.length * 2)]; }
+        for (String campo : List.of(entrada.nombre(), entrada.descripcion())) {
+            for (int i = 0; i + N <= campo.length(); i++) {
+                long trigrama = empaquetar(campo.charAt(i), campo.charAt(i + 1), campo.charAt(i + 2));
+                if (trigrama != 0) { trabajo[total++] = trigrama; }
+            }
+        }
+        String nombre = entrada.nombre();
+        if (nombre.length() >= N) {
+            trabajo[total++] = MARCA_INICIO | empaquetar(nombre.charAt(0), nombre.charAt(1), nombre.charAt(2));
+        }
+        return total;
+    }
+
+    // =======================================================
+    // CONSULTA
+    // =======================================================
+
+    /**
+     * Busca los productos cuyo nombre o descripción contienen la consulta como subcadena
+     * (sin distinguir mayúsculas ni acentos), ordenados por relevancia: primero los nombres que empiezan por
+     * la consulta, luego las demás coincidencias en el nombre (las más tempranas antes) y por último
+     * las de la descripción; a igual relevancia, el ID menor.
+     * <p>
+     * La búsqueda es perezosa: los nombres que empiezan por la consulta se recorren primero (con su
+     * propio trigrama inicial) y, si bastan para llenar el límite, no se examina nada más. Si no, la
+     * intersección general se detiene al reunir {@code FACTOR_CANDIDATOS * limite} coincidencias y
+     * ordena solo esas, para que las consultas muy comunes no recorran listas enormes.
+     * </p>
+     * @param consulta El texto buscado (se ignoran espacios al inicio y al final).
+     * @param limite Número máximo de resultados.
+     * @return Los IDs de los productos encontrados, del más al menos relevante.
+     */
+    int[] buscar(String consulta, int limite) {
+        consulta = PlegadoTexto.plegar(consulta); // Una sola vez: las comparaciones son contra textos ya plegados
+        int inicio = 0;
+        int fin = consulta.length();
+        while (inicio < fin && Character.isWhitespace(consulta.charAt(inicio))) { inicio++; }
+        while (fin > inicio && Character.isWhitespace(consulta.charAt(fin - 1))) { fin--; }
+        if (fin == inicio || limite <= 0) { return new int[0]; }
+
+        Mejores mejores = new Mejores(limite);
+        int objetivo = (int) Math.min(Integer.MAX_VALUE, Math.max((long) limite * FACTOR_CANDIDATOS, MINIMO_CANDIDATOS));
+        if (fin - inicio < N) {
+            // Consulta más corta que un trigrama: se verifican los productos en orden, sin índice
+            int encontrados = 0;
+            for (int k = 0; k < entradas.size() && encontrados < objetivo; k++) {
+                Entrada e = entradas.get(k);
+                if (evaluar(e, consulta, inicio, fin, mejores, true) || evaluar(e, consulta, inicio, fin, mejores, false)) {
+                    encontrados++;
+                }
+            }
+            return mejores.ids();
+        }
+
+        // 1. Listas de los trigramas de la consulta, de la más corta a la más larga
+        ListaIds[] requeridas = new ListaIds[fin - inicio - N + 1];
+        int distintas = 0;
+        for (int i = inicio; i + N <= fin; i++) {
+            ListaIds lista = listaPara(empaquetar(consulta.charAt(i), consulta.charAt(i + 1), consulta.charAt(i + 2)), false);
+            if (lista == null || lista.tamano == 0) { return new int[0]; } // Un trigrama ausente: no hay coincidencias
+            boolean repetida = false;
+            for (int j = 0; j < distintas; j++) { repetida |= requeridas[j] == lista; }
+            if (!repetida) { requeridas[distintas++] = lista; }
+        }
+
+        // 2. Nombres que empiezan por la consulta: máxima relevancia, en orden de ID
+        ListaIds iniciales = listaPara(MARCA_INICIO | empaquetar(consulta.charAt(inicio), consulta.charAt(inicio + 1), consulta.charAt(inicio + 2)), false);
+        if (iniciales != null) {
+            ListaIds[] conInicial = Arrays.copyOf(requeridas, distintas + 1);
+            conInicial[distintas] = iniciales;
+            Arrays.sort(conInicial, POR_TAMANO);
+            intersectar(conInicial, conInicial.length, consulta, inicio, fin, mejores, limite, true);
+            if (mejores.tamano() >= limite) { return mejores.ids(); }
+        }
+
+        // 3. Resto de coincidencias (los nombres con la consulta al inicio ya se evaluaron)
+        Arrays.sort(requeridas, 0, distintas, POR_TAMANO);
+        intersectar(requeridas, distintas, consulta, inicio, fin, mejores, objetivo, false);
+        return mejores.ids();
+    }
+
+    /**
+     * Intersección perezosa: cada ID de la lista más corta (la primera) se busca en las demás avanzando
+     * sus cursores, y los que están en todas se verifican contra el texto. Como todas las listas están
+     * ordenadas por ID, los candidatos salen en orden de ID; se detiene al verificar {@code objetivo} coincidencias.
+     */
+    private void intersectar(ListaIds[] listas, int cantidad, String consulta, int inicio, int fin,
+                             Mejores mejores, int objetivo, boolean soloIniciales) {
+        ListaIds guia = listas[0];
+        int[] cursores = new int[cantidad];
+        int encontrados = 0;
+        candidatos:
+        for (int k = 0; k < guia.tamano && encontrados < objetivo; k++) {
+            int id = guia.ids[k];
+            for (int j = 1; j < cantidad; j++) {
+                ListaIds otra = listas[j];
+                cursores[j] = otra.avanzarHasta(cursores[j], id);
+                if (cursores[j] == otra.tamano) { break candidatos; } // Una lista agotada termina la intersección
+                if (otra.ids[cursores[j]] != id) { continue candidatos; }
+            }
+            if (evaluar(entradas.get(ranuraPorId.obtener(id)), consulta, inicio, fin, mejores, soloIniciales)) {
+                encontrados++;
+            }
+        }
+    }
+
+    /**
+     * Verifica un candidato y, si contiene la consulta, lo ofrece a la lista de mejores.
+     * Puntuación (menor es mejor): coincidencia en el nombre antes que en la descripción, luego su posición.
+     * @param soloIniciales {@code true} para aceptar solo nombres que empiezan por la consulta;
+     *                      {@code false} para aceptar todo lo demás.
+     * @return {@code true} si el candidato se ofreció.
+     */
+    private static boolean evaluar(Entrada e, String consulta, int inicio, int fin, Mejores mejores, boolean soloIniciales) {
+        int pos = indiceDe(e.nombre(), consulta, inicio, fin);
+        if ((pos == 0) != soloIniciales) { return false; }
+        long puntuacion = pos;
+        if (pos < 0) {
+            pos = indiceDe(e.descripcion(), consulta, inicio, fin);
+            if (pos < 0) { return false; }
+            puntuacion = (1L << 62) | pos;
+        }
+        mejores.ofrecer(e.idProducto(), puntuacion);
+        return true;
+    }
+
+    /**
+     * Busca {@code consulta[inicio, fin)} (ya plegada) dentro de un texto ya plegado, sin crear cadenas.
+     * @return La posición de la primera coincidencia, o -1.
+     */
+    private static int indiceDe(String texto, String consulta, int inicio, int fin) {
+        int largo = fin - inicio;
+        for (int i = 0; i + largo <= texto.length(); i++) {
+            int j = 0;
+            while (j < largo && texto.charAt(i + j) == consulta.charAt(inicio + j)) { j++; }
+            if (j == largo) { return i; }
+        }
+        return -1;
+    }
+
+    /**
+     * Conserva los {@code limite} candidatos de menor puntuación en un montículo de máximos.
+     * Los arreglos empiezan pequeños y crecen hasta el límite a medida que llegan candidatos, así un
+     * límite grande no reserva memoria que la búsqueda no llega a usar.
+     */
+    private static final class Mejores {
+        /** Capacidad inicial de los arreglos (o el límite, si es menor). */
+        private static final int CAPACIDAD_INICIAL = 1024;
+
+        private final int limite;
+        private int[] ids;
+        private long[] puntuaciones;
+        private int tamano;
+
+        Mejores(int limite) {
+            this.limite = limite;
+            int capacidad = Math.min(limite, CAPACIDAD_INICIAL);
+            ids = new int[capacidad];
+            puntuaciones = new long[capacidad];
+        }
+
+        void ofrecer(int id, long puntuacion) {
+            if (tamano == ids.length && tamano < limite) {
+                int capacidad = (int) Math.min(limite, 2L * tamano);
+                ids = Arrays.copyOf(ids, capacidad);
+                puntuaciones = Arrays.copyOf(puntuaciones, capacidad);
+            }
+            if (tamano < ids.length) {
+                ids[tamano] = id;
+                puntuaciones[tamano] = puntuacion;
+                subir(tamano++);
+            } else if (esMejor(puntuacion, id, 0)) {
+                ids[0] = id;
+                puntuaciones[0] = puntuacion;
+                bajar(0);
+            }
+        }
+
+        int tamano() { return tamano; }
+
+        /** @return {@code true} si (puntuacion, id) es mejor que el elemento de la posición i. */
+        private boolean esMejor(long puntuacion, int id, int i) {
+            return puntuacion < puntuaciones[i] || (puntuacion == puntuaciones[i] && id < ids[i]);
+        }
+
+        private void subir(int i) {
+            while (i > 0) {
+                int padre = (i - 1) / 2;
+                if (!esMejor(puntuaciones[padre], ids[padre], i)) { break; }
+                intercambiar(i, padre);
+                i = padre;
+            }
+        }
+
+        private void bajar(int i) {
+            while (true) {
+                int mayor = i;
+                for (int hijo = 2 * i + 1; hijo <= 2 * i + 2 && hijo < tamano; hijo++) {
+                    if (esMejor(puntuaciones[mayor], ids[mayor], hijo)) { mayor = hijo; } // El hijo es peor: sube
+                }
+                if (mayor == i) { return; }
+                intercambiar(i, mayor);
+                i = mayor;
+            }
+        }
+
+        private void intercambiar(int a, int b) {
+            int id = ids[a]; ids[a] = ids[b]; ids[b] = id;
+            long p = puntuaciones[a]; puntuaciones[a] = puntuaciones[b]; puntuaciones[b] = p;
+        }
+
+        /** @return Los IDs ordenados del mejor al peor (vacía el montículo). */
+        int[] ids() {
+            int[] resultado = new int[tamano];
+            for (int i = tamano - 1; i >= 0; i--) {
+                resultado[i] = ids[0];
+                intercambiar(0, --tamano);
+                bajar(0);
+            }
+            return resultado;
+        }
+    }
+
+    // =======================================================
+    // AUXILIARES
+    // =======================================================
+
+    /** Empaqueta tres caracteres (ya plegados) en un trigrama. */
+    private static long empaquetar(char a, char b, char c) {
+        return ((long) a << 32) | ((long) b << 16) | c;
+    }
+
+    private int posicionInicial(long clave) {
+        long h = clave * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & (claves.length - 1);
+    }
+
+    /**
+     * Obtiene la lista de un trigrama, creándola si se pide.
+     * @return La lista, o null si no existe y {@code crear} es falso.
+     */
+    private ListaIds listaPara(long trigrama, boolean crear) {
+        int i = posicionInicial(trigrama);
+        while (claves[i] != 0) {
+            if (claves[i] == trigrama) { return listas[i]; }
+            i = (i + 1) & (claves.length - 1);
+        }
+        if (!crear) { return null; }
+        if ((trigramasDistintos + 1) * 2 > claves.length) {
+            crecer();
+            return listaPara(trigrama, true);
+        }
+        claves[i] = trigrama;
+        listas[i] = new ListaIds();
+        trigramasDistintos++;
+        return listas[i];
+    }
+
+    private void crecer() {
+        long[] clavesViejas = claves;
+        ListaIds[] listasViejas = listas;
+        claves = new long[clavesViejas.length * 2];
+        listas = new ListaIds[clavesViejas.length * 2];
+        for (int j = 0; j < clavesViejas.length; j++) {
+            if (clavesViejas[j] == 0) { continue; }
+            int i = posicionInicial(clavesViejas[j]);
+            while (claves[i] != 0) { i = (i + 1) & (claves.length - 1); }
+            claves[i] = clavesViejas[j];
+            listas[i] = listasViejas[j];
+        }
+    }
+}
@@ -1,15 +1,89 @@
 package org.example.f.servicios;
 
+import org.example.f.modelos.LineaVenta;
+import org.example.f.modelos.PlegadoTexto;
 import org.example.f.modelos.Producto;
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
 
 /**
  * Clase de servicio POO encargada de gestionar el catálogo de productos y el inventario.
  * Implementa operaciones CRUD, lógica de persistencia (serialización) y funcionalidades
  * relacionadas con el stock.
+ * <p>
+ * La persistencia es journaled: cada mutación se anota en un diario de solo anexado
+ * ({@link DiarioInventario}) y un hilo en segundo plano compacta periódicamente el diario
+ * en una nueva instantánea del catálogo. Al arrancar se carga la última instantánea
+ * y se reproduce el diario pendiente.
+ * </p>
+ * <p>
+ * Las mutaciones se aplican en memoria bajo el bloqueo del manager y se confirman en disco
+ * fuera de él, de modo que las ventas concurrentes comparten una misma escritura sincronizada.
+ * </p>
+ * <p>
+ * Concurrencia (varias cajas sobre un mismo inventario): la estructura del catálogo (lista e índices)
+ * la protege un bloqueo de lectura/escritura. Las altas, modificaciones y bajas toman la escritura;
+ * las consultas y los cambios de stock toman la lectura, así que una consulta nunca espera a una venta
+ * ni al revés. Cada cambio de stock toma además el bloqueo de la franja de su producto (bloqueo por
+ * franjas de IDs), de modo que las ventas de productos distintos avanzan en paralelo y las del mismo
+ * producto se serializan sin perder descuentos. Una venta de varios productos toma sus franjas en
+ * orden ascendente, así que dos ventas nunca se bloquean mutuamente. Los índices que dependen del stock
+ * (categorías y stock bajo) se actualizan dentro de un bloqueo propio y breve.
+ * </p>
+ * <p>
+ * El stock vive en contadores sin bloqueos ({@link ContadoresStock}) con el stock físico y las
+ * unidades reservadas por los carritos abiertos: reservar al añadir al carrito, liberar al quitarlo y
+ * confirmar al registrar la venta son operaciones CAS que no crean objetos ni esperan a otras cajas,
+ * y dos cajas nunca pueden vender la misma última unidad. Después, con la franja del producto tomada
+ * brevemente, el valor vigente del contador se refleja en el Producto, los índices y el diario (sin
+ * esperar al disco), de modo que los registros de un mismo producto quedan en orden.
+ * </p>
+ * <p>
+ * Orden de bloqueo: compactación → catálogo → franjas (ascendentes) → índices de stock → almacén.
+ * </p>
+ * <p>
+ * Como alternativa existe el modo {@link ModoPersistencia#MAPEADO} ({@link AlmacenMapeado}):
+ * ranuras de ancho fijo en un archivo mapeado en memoria, donde un cambio de stock es una
+ * escritura en el lugar. Se selecciona con la propiedad del sistema {@code ferreteria.inventario.modo=mapeado}
+ * (y {@code ferreteria.inventario.sync=siempre|periodica|nunca}).
+ * </p>
+ * <p>
+ * Cada producto tiene su propio punto de reorden. El conjunto de productos con stock bajo se mantiene
+ * en cada mutación ({@link IndiceStockBajo}) y los cruces del punto de reorden se notifican a los
+ * suscriptores ({@link AlertaStockListener}) después de confirmar el cambio, fuera del bloqueo.
+ * </p>
+ * <p>
+ * Si se le asigna un {@link BusEventos}, publica las altas, modificaciones, bajas y cambios de stock
+ * ({@link EventoDominio}) con el bloqueo del producto tomado, así que los eventos de un mismo producto
+ * salen en el orden en que se aplicaron; la entrega a los suscriptores es asíncrona.
+ * </p>
+ * <p>
+ * Para catálogos muy grandes, {@link #obtenerPagina(int, int, OrdenProductos, FiltroProductos)} devuelve
+ * una ventana del catálogo ordenado y filtrado, de modo que una vista solo materializa las filas visibles.
+ * </p>
  *
  * @author [Tu Nombre/Proyecto]
  * @version 1.0
@@ -17,25 +91,385 @@ import java.util.stream.Collectors;
  */
 public class InventarioManager {
 
-    /** Lista interna (simulación de base de datos) que contiene todos los objetos Producto. */
-    private final List<Producto> catalogoProductos;
+    /**
+     * Modo de persistencia del inventario.
+     */
+    public enum ModoPersistencia {
+        /** Instantánea binaria + diario de solo anexado con compactación en segundo plano. */
+        DIARIO,
+        /** Archivo mapeado en memoria con ranuras de ancho fijo indexadas por ID. */
+        MAPEADO
+    }
+
+    /**
+     * Cuándo se fuerzan al disco las escrituras del modo MAPEADO.
+     */
+    public enum PoliticaSincronizacion {
+        /** Cada cambio se fuerza al disco antes de volver (máxima durabilidad). */
+        SIEMPRE,
+        /** Un hilo en segundo plano fuerza los cambios cada cierto periodo. */
+        PERIODICA,
+        /** El sistema operativo decide cuándo escribir las páginas modificadas. */
+        NUNCA
+    }
+
+    /**
+     * Totales de una categoría del inventario, mantenidos en cada mutación.
+     * @param categoria Nombre de la categoría.
+     * @param productos Número de productos.
+     * @param unidades Unidades en stock.
+     * @param valorStock Valor del stock (stock por precio de venta).
+     */
+    public record ResumenCategoria(String categoria, int productos, long unidades, double valorStock) { }
+
+    /** Campo por el que se ordena una consulta paginada. */
+    public enum CampoOrden {
+        /** Orden del catálogo (el de {@link #obtenerTodosLosProductos()}). */
+        CATALOGO,
+        NOMBRE,
+        ARTICULO,
+        CATEGORIA,
+        PRECIO,
+        STOCK
+    }
+
+    /**
+     * Orden de una consulta paginada. Los textos se comparan sin distinguir mayúsculas ni acentos y los
+     * empates se resuelven por ID, así que el orden es estable entre páginas.
+     * @param campo El campo.
+     * @param descendente {@code true} para ordenar de mayor a menor.
+     */
+    public record OrdenProductos(CampoOrden campo, boolean descendente) {
+        /** El orden del catálogo. */
+        public static final OrdenProductos CATALOGO = new OrdenProductos(CampoOrden.CATALOGO, false);
+    }
+
+    /**
+     * Filtros de una consulta (los mismos de {@link #buscarPorCategoria(String, int, int)}).
+     * @param categoria La categoría (sin distinguir mayúsculas ni acentos), o null para todas.
+     * @param stockMinimo Stock mínimo (incluido); {@code Integer.MIN_VALUE} para no acotar.
+     * @param stockMaximo Stock máximo (incluido); {@code Integer.MAX_VALUE} para no acotar.
+     */
+    public record FiltroProductos(String categoria, int stockMinimo, int stockMaximo) {
+        /** Sin filtros: todo el catálogo. */
+        public static final FiltroProductos TODOS = new FiltroProductos(null, Integer.MIN_VALUE, Integer.MAX_VALUE);
+
+        /** @return {@code true} si el filtro no descarta ningún producto. */
+        public boolean vacio() {
+            return categoria == null && !acotaStock();
+        }
+
+        /** @return {@code true} si el filtro depende del stock (y un cambio de stock puede alterar el resultado). */
+        public boolean acotaStock() {
+            return stockMinimo != Integer.MIN_VALUE || stockMaximo != Integer.MAX_VALUE;
+        }
+
+        /**
+         * Indica si un producto cumple el filtro, para que una vista filtrada decida si un producto que
+         * cambió entra, sigue o sale de ella sin repetir la consulta.
+         * @param producto El producto.
+         * @return {@code true} si el producto aparecería en el resultado de la consulta.
+         */
+        public boolean cumple(Producto producto) {
+            int stock = producto.getCantidadEnStock();
+            if (stock < stockMinimo || stock > stockMaximo) { return false; }
+            if (categoria == null) { return true; }
+            return PlegadoTexto.plegar(IndiceCategorias.nombreDe(categoria))
+                    .equals(PlegadoTexto.plegar(IndiceCategorias.nombreDe(producto.getCategoria())));
+        }
+    }
+
+    /**
+     * Una página de una consulta.
+     * @param offset Posición de la primera fila de la página dentro del resultado.
+     * @param productos Las filas de la página (como mucho las pedidas; menos al final del resultado).
+     * @param total El número total de productos del resultado.
+     */
+    public record PaginaProductos(int offset, List<Producto> productos, int total) { }
+
+    /**
+     * Catálogo de productos (simulación de base de datos) como vector inmutable: cada alta, modificación
+     * o baja publica una versión nueva, con el bloqueo de escritura tomado, que comparte con la anterior
+     * todo lo que no cambió. Los lectores obtienen una instantánea coherente sin bloqueos ni copias.
+     */
+    private volatile VectorPersistente<Producto> catalogoProductos = VectorPersistente.vacio();
+    /**
+     * Índice primitivo ID → posición en {@code catalogoProductos}. Se mantiene en cada mutación;
+     * las bajas mueven el último producto al hueco, así que toda operación por ID es de tiempo constante.
+     */
+    private final IndiceEnteros indicePorId = new IndiceEnteros(1024);
+    /** Índice único número de artículo (SKU) → ID del producto, para búsquedas exactas por código de barras. */
+    private final Map<String, Integer> indicePorSku = new HashMap<>();
+    /**
+     * SKU con el que se indexó el producto de cada posición del catálogo (paralela a {@code catalogoProductos}).
+     * Permite retirar la clave vieja aunque el objeto Producto ya se haya modificado en el formulario.
+     */
+    private final List<String> skuPorPosicion = new ArrayList<>();
+    /** Índice de trigramas sobre nombre y descripción, para la búsqueda por texto. */
+    private final IndiceTrigramas indiceTexto = new IndiceTrigramas();
+    /** Índice categoría → productos (ordenados por stock), con totales por categoría. */
+    private final IndiceCategorias indiceCategorias = new IndiceCategorias();
+    /** Número de franjas del bloqueo por producto (potencia de dos). */
+    private static final int FRANJAS = 64;
+    /**
+     * Bloqueo de la estructura del catálogo. Escritura: altas, modificaciones, bajas y la copia para
+     * compactar. Lectura: consultas, reservas y cambios de stock. No es reentrante; a diferencia de
+     * un {@code ReentrantReadWriteLock}, tomar la lectura no crea objetos.
+     */
+    private final StampedLock bloqueoCatalogo = new StampedLock();
+    /** Vista de lectura del bloqueo del catálogo. */
+    private final Lock lecturaCatalogo = bloqueoCatalogo.asReadLock();
+    /** Vista de escritura del bloqueo del catálogo. */
+    private final Lock escrituraCatalogo = bloqueoCatalogo.asWriteLock();
+    /** Stock físico y reservado de cada posición del catálogo (paralelo a {@code catalogoProductos}). */
+    private final ContadoresStock contadores = new ContadoresStock(1024);
+    /** Bloqueos por franja de IDs de producto para los cambios de stock. */
+    private final ReentrantLock[] franjas = new ReentrantLock[FRANJAS];
+    /** Protege los índices que cambian con el stock (categorías y stock bajo) y los avisos pendientes. */
+    private final Object bloqueoIndicesStock = new Object();
+    /** Productos con el stock en o por debajo de su punto de reorden, del más al menos urgente. */
+    private final IndiceStockBajo indiceStockBajo = new IndiceStockBajo();
+    /** Suscriptores a las alertas de stock bajo. */
+    private final List<AlertaStockListener> suscriptoresAlertas = new CopyOnWriteArrayList<>();
+    /** Bus donde se publican los cambios del catálogo y del stock (null = sin eventos). */
+    private volatile BusEventos bus;
+    /** Cruces del punto de reorden anotados bajo el bloqueo y pendientes de entregar a los suscriptores. */
+    private List<AvisoStock> avisosPendientes = new ArrayList<>();
+    /** Se incrementa con cada alta, modificación o baja de producto (no con los cambios de stock). */
+    private long versionCatalogo;
+    /** Cuenta los cambios de stock reflejados (sin contención entre cajas), para invalidar las vistas que dependen del stock. */
+    private final LongAdder cambiosStock = new LongAdder();
+    /** Última consulta ordenada que se paginó (null = ninguna). Se calcula con {@code bloqueoVista} tomado. */
+    private volatile VistaOrdenada vistaOrdenada;
+    /** Serializa el cálculo de la vista ordenada (cada cambio de stock pendiente se consume una sola vez). */
+    private final Object bloqueoVista = new Object();
+    /** Si la última vista depende del stock: solo entonces se anotan los productos con el stock cambiado. */
+    private volatile boolean vistaDependeDelStock;
+    /** IDs cuyo stock cambió desde que se calculó la vista ordenada, pendientes de recolocar en ella. */
+    private final Set<Integer> stockSinRecolocar = ConcurrentHashMap.newKeySet();
     /** Contador para asignar el próximo ID único a un nuevo producto. */
     private int nextId = 1;
-    /** Nombre del archivo binario utilizado para la serialización de datos del inventario. */
+    /** Nombre del archivo binario con la instantánea del inventario (formato de {@link CodecBinario}). */
     private static final String FILE_NAME = "inventario.dat";
-    /** Umbral mínimo de stock para considerar un producto como "bajo" y generar una alerta. */
-    private static final int UMBRAL_STOCK_BAJO = 5;
+    /** Nombre del archivo del diario de mutaciones pendientes de compactar. */
+    private static final String LOG_NAME = "inventario.log";
+    /** Nombre del archivo de ranuras de ancho fijo del modo MAPEADO. */
+    private static final String RANURAS_NAME = "inventario.ranuras";
+    /** Nombre del archivo montón de textos del modo MAPEADO. */
+    private static final String TEXTOS_NAME = "inventario.textos";
+    /** Periodo (ms) de sincronización por defecto para la política PERIODICA. */
+    private static final long PERIODO_SINCRONIZACION_MS = 1000;
+    /** Tamaño del diario (en bytes) a partir del cual se programa una compactación. */
+    private static final long UMBRAL_COMPACTACION = 4L * 1024 * 1024;
+    /** Secuencia que indica que una mutación no quedó anotada en el diario. */
+    private static final long SIN_REGISTRO = -1;
+    /** Con más de 1/N del resultado con el stock cambiado, la vista ordenada se reordena completa en lugar de recolocar. */
+    private static final int DIVISOR_RECOLOCACION = 8;
+    /** Orden de las claves: texto, número y, para desempatar, ID. */
+    private static final Comparator<ClaveOrden> COMPARADOR_CLAVES = Comparator.comparing(ClaveOrden::texto)
+            .thenComparingDouble(ClaveOrden::numero)
+            .thenComparingInt(ClaveOrden::id);
+
+    /**
+     * Cruce del punto de reorden pendiente de notificar.
+     * @param producto El producto.
+     * @param bajo {@code true} si entró en stock bajo, {@code false} si salió.
+     */
+    private record AvisoStock(Producto producto, boolean bajo) { }
+
+    /**
+     * Resultado ordenado y filtrado de una consulta paginada, con las versiones con que se calculó.
+     * Conserva las claves ordenadas (con el stock que tenía cada producto al colocarlo) para poder
+     * recolocar los productos cuyo stock cambió sin volver a ordenar.
+     */
+    private record VistaOrdenada(OrdenProductos orden, FiltroProductos filtro, long versionCatalogo,
+                                 long versionStock, ClaveOrden[] claves, List<Producto> productos) { }
+
+    /** Clave de ordenación de un producto, copiada antes de ordenar. */
+    private record ClaveOrden(Producto producto, String texto, double numero, int id) { }
+
+    /** Diario de escritura anticipada (modo DIARIO; null en modo MAPEADO o si no pudo abrirse). */
+    private final DiarioInventario diario;
+    /** Almacén mapeado en memoria (modo MAPEADO; null en modo DIARIO). */
+    private final AlmacenMapeado mapeado;
+    /** Destino de las anotaciones de cada mutación: el diario o el almacén mapeado. */
+    private final AlmacenInventario almacen;
+    /** Hilo en segundo plano que pliega el diario en una nueva instantánea. */
+    private final ExecutorService compactador;
+    /** Indica si ya hay una compactación programada, para no encolar varias. */
+    private final AtomicBoolean compactacionPendiente = new AtomicBoolean(false);
+    /** Serializa las compactaciones (la programada y las llamadas explícitas a guardarDatos). */
+    private final Object bloqueoCompactacion = new Object();
+    /** Indica que el archivo se cargó en el formato heredado y debe reescribirse en el binario. */
+    private boolean migracionPendiente;
 
     /**
      * Constructor de la clase. Inicializa la lista interna y maneja la carga
-     * de datos desde el archivo de persistencia. Si el archivo no existe,
-     * carga datos iniciales de prueba.
+     * de datos: lee la última instantánea y reproduce el diario pendiente.
+     * Si no existen datos persistidos, carga datos iniciales de prueba.
+     * El modo de persistencia se toma de las propiedades del sistema (por defecto, DIARIO).
      */
     public InventarioManager() {
-        this.catalogoProductos = new ArrayList<>();
-        if (!cargarDatos()) {
-            cargarDatosIniciales();
-            guardarDatos();
+        this(modoConfigurado(), politicaConfigurada());
+    }
+
+    /**
+     * Constructor con un modo de persistencia explícito.
+     * @param modo DIARIO (instantánea + diario) o MAPEADO (ranuras en archivo mapeado).
+     * @param politica Política de sincronización del modo MAPEADO (se ignora en modo DIARIO).
+     */
+    public InventarioManager(ModoPersistencia modo, PoliticaSincronizacion politica) {
+        for (int i = 0; i < FRANJAS; i++) {
+            franjas[i] = new ReentrantLock();
+        }
+        this.compactador = Executors.newSingleThreadExecutor(r -> {
+            Thread hilo = new Thread(r, "compactador-inventario");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        this.mapeado = (modo == ModoPersistencia.MAPEADO) ? abrirAlmacenMapeado(politica) : null;
+
+        if (mapeado != null && !mapeado.esNuevo()) {
+            this.diario = null;
+            cargarAlmacenMapeado();
+        } else {
+            boolean hayInstantanea = cargarDatos();
+            DiarioInventario diarioAbierto = abrirDiario();
+            int reproducidos = reproducirDiario(diarioAbierto);
+            // Si se recortó un registro dañado, una instantánea nueva deja el estado recuperado fuera del diario
+            boolean diarioRecortado = diarioAbierto != null && diarioAbierto.huboColaRecortada();
+            boolean sinDatos = !hayInstantanea && reproducidos == 0;
+            if (sinDatos) {
+                cargarDatosIniciales();
+            }
+
+            if (mapeado != null) {
+                // Primera ejecución en modo MAPEADO: se vuelca una sola vez el catálogo existente.
+                this.diario = null;
+                cerrarSilencioso(diarioAbierto);
+                volcarEnAlmacenMapeado();
+            } else {
+                this.diario = diarioAbierto;
+                if (sinDatos || migracionPendiente || diarioRecortado) {
+                    guardarDatos();
+                } else if (reproducidos > 0) {
+                    programarCompactacion();
+                }
+            }
+        }
+        this.almacen = (mapeado != null) ? mapeado : diario;
+    }
+
+    private static ModoPersistencia modoConfigurado() {
+        return "mapeado".equalsIgnoreCase(System.getProperty("ferreteria.inventario.modo"))
+                ? ModoPersistencia.MAPEADO : ModoPersistencia.DIARIO;
+    }
+
+    private static PoliticaSincronizacion politicaConfigurada() {
+        String valor = System.getProperty("ferreteria.inventario.sync", "periodica");
+        try {
+            return PoliticaSincronizacion.valueOf(valor.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.err.println("Política de sincronización desconocida: " + valor + ". Se usará PERIODICA.");
+            return PoliticaSincronizacion.PERIODICA;
+        }
+    }
+
+    /**
+     * Abre el almacén mapeado. Si no puede abrirse, el manager vuelve al modo DIARIO.
+     * @param politica La política de sincronización.
+     * @return El almacén abierto, o null si ocurrió un error.
+     */
+    private AlmacenMapeado abrirAlmacenMapeado(PoliticaSincronizacion politica) {
+        try {
+            return new AlmacenMapeado(Paths.get(RANURAS_NAME), Paths.get(TEXTOS_NAME), politica, PERIODO_SINCRONIZACION_MS);
+        } catch (IOException e) {
+            System.err.println("Error al abrir el almacén mapeado; se usará el diario: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void cargarAlmacenMapeado() {
+        try {
+            List<Producto> cargados = new ArrayList<>();
+            this.nextId = mapeado.cargar(cargados);
+            this.catalogoProductos = VectorPersistente.de(cargados);
+            reindexar();
+        } catch (IOException e) {
+            System.err.println("Error al cargar el almacén mapeado del inventario: " + e.getMessage());
+        }
+    }
+
+    private void volcarEnAlmacenMapeado() {
+        try {
+            mapeado.volcar(catalogoProductos, nextId);
+        } catch (IOException e) {
+            System.err.println("Error al crear el almacén mapeado del inventario: " + e.getMessage());
+        }
+    }
+
+    private static void cerrarSilencioso(Closeable recurso) {
+        if (recurso == null) { return; }
+        try {
+            recurso.close();
+        } catch (IOException e) {
+            System.err.println("Error al cerrar " + recurso + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Abre el diario de mutaciones. Si no puede abrirse, el manager sigue funcionando
+     * reescribiendo la instantánea completa en cada mutación (modo anterior).
+     * @return El diario abierto, o null si ocurrió un error.
+     */
+    private DiarioInventario abrirDiario() {
+        try {
+            return new DiarioInventario(Paths.get(LOG_NAME));
+        } catch (IOException e) {
+            System.err.println("Error al abrir el diario del inventario: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Aplica sobre el catálogo cargado los registros del diario que aún no están en la instantánea.
+     * @param diario El diario recién abierto.
+     * @return El número de registros reproducidos.
+     */
+    private int reproducirDiario(DiarioInventario diario) {
+        if (diario == null) { return 0; }
+        try {
+            return diario.reproducir(new DiarioInventario.Receptor() {
+                @Override
+                public void aplicarProducto(Producto producto) {
+                    int index = findProductoIndexById(producto.getIdProducto());
+                    if (index != -1) {
+                        reemplazarEnCatalogo(index, producto);
+                    } else {
+                        insertarEnCatalogo(producto);
+                    }
+                    nextId = Math.max(nextId, producto.getIdProducto() + 1);
+                }
+
+                @Override
+                public void aplicarBaja(int idProducto) {
+                    quitarDelCatalogo(idProducto);
+                }
+
+                @Override
+                public void aplicarStock(int idProducto, int stock) {
+                    int index = findProductoIndexById(idProducto);
+                    if (index != -1) {
+                        Producto p = catalogoProductos.get(index);
+                        p.setCantidadEnStock(stock);
+                        contadores.fijar(index, stock);
+                        actualizarIndicesStock(p, stock);
+                    }
+                }
+            });
+        } catch (IOException e) {
+            System.err.println("Error al reproducir el diario del inventario: " + e.getMessage());
+            return 0;
         }
     }
 
@@ -66,35 +500,178 @@ public class InventarioManager {
      */
     private void agregarProductoInterno(Producto producto) {
         producto.setIdProducto(nextId++);
-        this.catalogoProductos.add(producto);
+        insertarEnCatalogo(producto);
     }
 
     /**
      * Escribe el catálogo completo de productos y el contador de ID
-     * al archivo de persistencia mediante serialización.
+     * al archivo de persistencia en el formato binario de {@link CodecBinario} (compactación).
+     * <p>
+     * La copia del catálogo y la rotación del diario se hacen juntas bajo el bloqueo exclusivo del catálogo,
+     * de modo que la instantánea incluye exactamente los registros rotados; la escritura del
+     * archivo ocurre fuera del bloqueo para no detener las ventas en curso.
+     * </p>
+     * <p>
+     * En modo MAPEADO los datos ya están en su lugar: solo se fuerzan al disco las páginas modificadas.
+     * </p>
      */
     public void guardarDatos() {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(FILE_NAME))) {
-            oos.writeObject(this.catalogoProductos);
-            oos.writeInt(this.nextId);
+        if (mapeado != null) {
+            try {
+                mapeado.sincronizar();
+            } catch (IOException e) {
+                System.err.println("Error al sincronizar el almacén del inventario: " + e.getMessage());
+            }
+            return;
+        }
+        synchronized (bloqueoCompactacion) {
+            List<Producto> copia;
+            int siguienteId;
+            escrituraCatalogo.lock();
+            try {
+                copia = new ArrayList<>(catalogoProductos.size());
+                for (Producto p : catalogoProductos) {
+                    copia.add(copiar(p));
+                }
+                siguienteId = this.nextId;
+                if (diario != null) {
+                    try {
+                        diario.rotar();
+                    } catch (IOException e) {
+                        System.err.println("Error al rotar el diario del inventario: " + e.getMessage());
+                    }
+                }
+            } finally {
+                escrituraCatalogo.unlock();
+            }
+
+            Path destino = Paths.get(FILE_NAME);
+            Path temporal = Paths.get(FILE_NAME + ".tmp");
+            try {
+                CodecBinario.escribirProductos(temporal, copia, siguienteId);
+                Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                if (diario != null) {
+                    diario.descartarRotado();
+                }
+            } catch (IOException e) {
+                System.err.println("Error al guardar inventario: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Programa una compactación en segundo plano si no hay otra pendiente.
+     */
+    private void programarCompactacion() {
+        if (compactacionPendiente.compareAndSet(false, true)) {
+            compactador.execute(() -> {
+                try {
+                    guardarDatos();
+                } finally {
+                    compactacionPendiente.set(false);
+                }
+            });
+        }
+    }
+
+    /**
+     * Anota una mutación en el almacén (diario o archivo mapeado). Se invoca con el bloqueo del catálogo
+     * (y, en los cambios de stock, la franja del producto) tomado, justo después de aplicar el cambio en
+     * memoria, para que el orden de los registros de un mismo producto coincida con el de sus mutaciones.
+     * <p>
+     * Nunca llama a guardarDatos() directamente (el orden de bloqueo de la compactación es el inverso);
+     * sin almacén disponible, programa la reescritura de la instantánea completa.
+     * </p>
+     * @param anotacion La operación de escritura en el almacén.
+     * @return La secuencia del registro, o {@code SIN_REGISTRO} si no se anotó nada.
+     */
+    private long anotar(Anotacion anotacion) {
+        if (almacen == null) {
+            programarCompactacion();
+            return SIN_REGISTRO;
+        }
+        try {
+            return anotacion.anotar(almacen);
         } catch (IOException e) {
-            System.err.println("Error al guardar inventario: " + e.getMessage());
+            System.err.println("Error al anotar en el diario del inventario: " + e.getMessage());
+            programarCompactacion();
+            return SIN_REGISTRO;
+        }
+    }
+
+    /**
+     * Espera (sin el bloqueo del manager) a que el registro anotado sea durable. Los hilos que confirman
+     * a la vez comparten una sola escritura del diario. Si el diario supera el umbral, programa la compactación.
+     * @param secuencia La secuencia devuelta por {@link #anotar(Anotacion)}.
+     */
+    private void confirmar(long secuencia) {
+        if (secuencia == SIN_REGISTRO) { return; }
+        try {
+            almacen.confirmar(secuencia);
+            if (diario != null && diario.tamano() > UMBRAL_COMPACTACION) {
+                programarCompactacion();
+            }
+        } catch (IOException e) {
+            // El estado en memoria es correcto: una instantánea completa lo vuelve a dejar en disco.
+            System.err.println("Error al escribir el diario del inventario: " + e.getMessage());
+            if (diario != null) {
+                programarCompactacion();
+            }
         }
     }
 
+    /**
+     * Operación de escritura sobre el almacén que devuelve la secuencia del registro anotado.
+     */
+    @FunctionalInterface
+    private interface Anotacion {
+        long anotar(AlmacenInventario almacen) throws IOException;
+    }
+
+    /**
+     * Crea una copia independiente de un producto para escribirla en la instantánea.
+     * @param p El producto original.
+     * @return Una nueva instancia con los mismos datos.
+     */
+    private static Producto copiar(Producto p) {
+        Producto copia = new Producto(p.getIdProducto(), p.getNombre(), p.getDescripcion(), p.getNumeroArticulo(),
+                p.getCategoria(), p.getPrecio(), p.getCantidadEnStock(), p.getProveedor());
+        copia.setPuntoReorden(p.getPuntoReorden());
+        return copia;
+    }
+
     /**
      * Carga el catálogo de productos desde el archivo de persistencia.
+     * Si el archivo está en el formato heredado (serialización de Java), lo lee, guarda una copia
+     * de respaldo ({@code .legado}) y marca el catálogo para reescribirlo en el formato binario.
      * @return {@code true} si la carga fue exitosa, {@code false} si el archivo no existe o hay un error.
      */
     private boolean cargarDatos() {
-        File file = new File(FILE_NAME);
-        if (!file.exists()) { return false; }
-
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(FILE_NAME))) {
-            @SuppressWarnings("unchecked")
-            List<Producto> loadedList = (List<Producto>) ois.readObject();
-            this.catalogoProductos.addAll(loadedList);
-            this.nextId = ois.readInt();
+        Path ruta = Paths.get(FILE_NAME);
+        if (!Files.exists(ruta)) { return false; }
+
+        try {
+            if (CodecBinario.esFormatoBinario(ruta)) {
+                CodecBinario.Catalogo<Producto> catalogo = CodecBinario.leerProductos(ruta);
+                this.catalogoProductos = VectorPersistente.de(catalogo.elementos());
+                this.nextId = catalogo.nextId();
+                reindexar();
+                return true;
+            }
+
+            try (ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(ruta)))) {
+                @SuppressWarnings("unchecked")
+                List<Producto> loadedList = (List<Producto>) ois.readObject();
+                for (Producto p : loadedList) {
+                    p.setPuntoReorden(Producto.PUNTO_REORDEN_PREDETERMINADO); // El formato heredado no lo guardaba
+                }
+                this.catalogoProductos = VectorPersistente.de(loadedList);
+                this.nextId = ois.readInt();
+            }
+            reindexar();
+            Files.copy(ruta, Paths.get(FILE_NAME + ".legado"), StandardCopyOption.REPLACE_EXISTING);
+            this.migracionPendiente = true;
+            System.out.println("Inventario en formato heredado; se migrará al formato binario.");
             return true;
         } catch (IOException | ClassNotFoundException e) {
             System.err.println("Error al cargar inventario: " + e.getMessage());
@@ -106,33 +683,49 @@ public class InventarioManager {
      * Registra un nuevo producto en el catálogo (Operación CRUD: Create).
      * Asigna un nuevo ID si es necesario, añade el producto a la lista y persiste el catálogo.
      * @param nuevoProducto El objeto Producto nuevo a guardar.
+     * @throws IllegalArgumentException Si su número de artículo ya pertenece a otro producto.
      */
     public void agregarProducto(Producto nuevoProducto) {
-        if (nuevoProducto.getIdProducto() == 0) {
-            nuevoProducto.setIdProducto(nextId++);
+        long secuencia;
+        escrituraCatalogo.lock();
+        try {
+            verificarSkuDisponible(nuevoProducto);
+            if (nuevoProducto.getIdProducto() == 0) {
+                nuevoProducto.setIdProducto(nextId++);
+            }
+            insertarEnCatalogo(nuevoProducto);
+            secuencia = anotar(d -> d.anotarProducto(nuevoProducto));
+            publicar(new EventoDominio.ProductoActualizado(nuevoProducto));
+        } finally {
+            escrituraCatalogo.unlock();
         }
-        this.catalogoProductos.add(nuevoProducto);
-        guardarDatos();
+        confirmar(secuencia);
+        entregarAvisos();
     }
 
     /**
      * Actualiza los datos de un producto existente en el catálogo (Operación CRUD: Update).
      * Busca el producto por ID, reemplaza el objeto en la lista interna y persiste el catálogo.
      * @param productoActualizado El objeto Producto con los datos modificados.
+     * @throws IllegalArgumentException Si su número de artículo ya pertenece a otro producto.
      */
     public void actualizarProducto(Producto productoActualizado) {
-        int index = -1;
-        for (int i = 0; i < catalogoProductos.size(); i++) {
-            if (catalogoProductos.get(i).getIdProducto() == productoActualizado.getIdProducto()) {
-                index = i;
-                break;
-            }
-        }
+        long secuencia = SIN_REGISTRO;
+        escrituraCatalogo.lock();
+        try {
+            int index = findProductoIndexById(productoActualizado.getIdProducto());
 
-        if (index != -1) {
-            this.catalogoProductos.set(index, productoActualizado);
-            guardarDatos();
+            if (index != -1) {
+                verificarSkuDisponible(productoActualizado);
+                reemplazarEnCatalogo(index, productoActualizado);
+                secuencia = anotar(d -> d.anotarProducto(productoActualizado));
+                publicar(new EventoDominio.ProductoActualizado(productoActualizado));
+            }
+        } finally {
+            escrituraCatalogo.unlock();
         }
+        confirmar(secuencia);
+        entregarAvisos();
     }
 
     /**
@@ -140,48 +733,781 @@ public class InventarioManager {
      * @param idProducto El ID del producto a eliminar.
      */
     public void eliminarProducto(int idProducto) {
-        boolean eliminado = catalogoProductos.removeIf(p -> p.getIdProducto() == idProducto);
-        if (eliminado) {
-            guardarDatos(); // Persiste el cambio
+        long secuencia = SIN_REGISTRO;
+        escrituraCatalogo.lock();
+        try {
+            if (quitarDelCatalogo(idProducto)) {
+                secuencia = anotar(d -> d.anotarBaja(idProducto)); // Persiste el cambio
+                publicar(new EventoDominio.ProductoEliminado(idProducto));
+            }
+        } finally {
+            escrituraCatalogo.unlock();
         }
+        confirmar(secuencia);
+        entregarAvisos();
     }
 
     /**
      * Actualiza el stock de un producto después de una venta o ajuste (Lógica de Negocio).
+     * El descuento es una operación CAS sobre el contador del producto (sin reserva previa) y nunca toma
+     * las unidades reservadas por carritos abiertos: se descuenta como mucho el disponible. Las ventas de
+     * otros productos y las consultas siguen en paralelo.
      * @param productoVendido El objeto Producto (solo se usa su ID).
-     * @param cantidadVendida La cantidad a restar del stock actual.
+     * @param cantidadVendida La cantidad a restar del stock actual (negativa para reponer).
+     * @return Las unidades que no pudieron descontarse por falta de disponible (0 si se descontó todo).
+     */
+    public int actualizarStockProducto(Producto productoVendido, int cantidadVendida) {
+        long secuencia = SIN_REGISTRO;
+        int faltante = 0;
+
+        lecturaCatalogo.lock();
+        try {
+            int index = findProductoIndexById(productoVendido.getIdProducto());
+            if (index != -1) {
+                faltante = cantidadVendida - contadores.descontar(index, cantidadVendida);
+                secuencia = reflejarStock(index);
+            }
+        } finally {
+            lecturaCatalogo.unlock();
+        }
+        confirmar(secuencia);
+        entregarAvisos();
+        if (faltante > 0) {
+            System.err.println("Stock insuficiente para " + productoVendido.getNombre() + ": faltaron " + faltante + " unidades.");
+        }
+        return faltante;
+    }
+
+    /**
+     * Descuenta del stock todas las líneas de una venta como una sola unidad (Lógica de Negocio),
+     * sin reservas previas.
+     * <p>
+     * Cada línea se descuenta con una operación CAS y después todas se reflejan juntas con las franjas
+     * de sus productos tomadas (en orden ascendente, para que dos ventas con productos en común no se
+     * bloqueen mutuamente), en un único registro del diario con una sola escritura sincronizada. Las
+     * ventas que se registran al mismo tiempo desde otras cajas comparten esa escritura (confirmación agrupada).
+     * Como en {@link #actualizarStockProducto(Producto, int)}, cada línea se descuenta como mucho hasta
+     * el disponible, sin tocar las unidades reservadas por carritos abiertos.
+     * </p>
+     * @param lineas Las líneas de la venta (producto y cantidad vendida).
+     * @return Las líneas que no pudieron descontarse completas, con las unidades que faltaron (vacía si no faltó nada).
+     */
+    public List<LineaVenta> actualizarStockLote(List<LineaVenta> lineas) {
+        return aplicarLote(lineas, false);
+    }
+
+    /**
+     * Confirma las reservas de una venta: cada línea pasa de reservada a vendida con una operación CAS
+     * que nunca falla ni espera a otras cajas (las unidades ya estaban apartadas). El reflejo en el
+     * diario es el mismo que el de {@link #actualizarStockLote(List)}.
+     * @param lineas Las líneas de la venta, reservadas antes con {@link #reservarStock(int, int)}.
+     */
+    public void confirmarReservas(List<LineaVenta> lineas) {
+        aplicarLote(lineas, true);
+    }
+
+    private List<LineaVenta> aplicarLote(List<LineaVenta> lineas, boolean reservadas) {
+        long secuencia = SIN_REGISTRO;
+        List<LineaVenta> faltantes = new ArrayList<>();
+
+        lecturaCatalogo.lock();
+        try {
+            for (LineaVenta lv : lineas) {
+                int index = findProductoIndexById(lv.getProducto().getIdProducto());
+                if (index == -1) { continue; }
+                if (reservadas) {
+                    contadores.confirmar(index, lv.getCantidad());
+                } else {
+                    int faltante = lv.getCantidad() - contadores.descontar(index, lv.getCantidad());
+                    if (faltante > 0) {
+                        faltantes.add(new LineaVenta(lv.getProducto(), faltante));
+                    }
+                }
+            }
+            secuencia = reflejarStock(lineas);
+        } finally {
+            lecturaCatalogo.unlock();
+        }
+        confirmar(secuencia);
+        entregarAvisos();
+        for (LineaVenta lv : faltantes) {
+            System.err.println("Stock insuficiente para " + lv.getProducto().getNombre() + ": faltaron " + lv.getCantidad() + " unidades.");
+        }
+        return faltantes;
+    }
+
+    /**
+     * Aparta unidades de un producto para un carrito abierto (operación CAS, sin bloqueos ni objetos nuevos).
+     * Las unidades reservadas dejan de estar disponibles para otras cajas hasta que se liberen o se confirmen.
+     * @param idProducto El ID del producto.
+     * @param cantidad Unidades a reservar.
+     * @return {@code true} si se reservaron; {@code false} si el producto no existe o no hay disponible suficiente.
      */
-    public void actualizarStockProducto(Producto productoVendido, int cantidadVendida) {
-        int idBuscado = productoVendido.getIdProducto();
+    public boolean reservarStock(int idProducto, int cantidad) {
+        if (cantidad <= 0) { return true; }
+        lecturaCatalogo.lock();
+        try {
+            int index = findProductoIndexById(idProducto);
+            return index != -1 && contadores.reservar(index, cantidad);
+        } finally {
+            lecturaCatalogo.unlock();
+        }
+    }
+
+    /**
+     * Devuelve al disponible unidades reservadas (línea quitada del carrito o venta cancelada).
+     * @param idProducto El ID del producto.
+     * @param cantidad Unidades a liberar.
+     */
+    public void liberarStock(int idProducto, int cantidad) {
+        if (cantidad <= 0) { return; }
+        lecturaCatalogo.lock();
+        try {
+            int index = findProductoIndexById(idProducto);
+            if (index != -1) {
+                contadores.liberar(index, cantidad);
+            }
+        } finally {
+            lecturaCatalogo.unlock();
+        }
+    }
+
+    /**
+     * Obtiene el stock disponible de un producto: el físico menos lo reservado por los carritos abiertos.
+     * @param idProducto El ID del producto.
+     * @return Las unidades disponibles, o 0 si el producto no existe.
+     */
+    public int obtenerStockDisponible(int idProducto) {
+        lecturaCatalogo.lock();
+        try {
+            int index = findProductoIndexById(idProducto);
+            return index == -1 ? 0 : contadores.stock(index) - contadores.reservado(index);
+        } finally {
+            lecturaCatalogo.unlock();
+        }
+    }
 
-        for (Producto p : catalogoProductos) {
-            if (p.getIdProducto() == idBuscado) {
-                int nuevoStock = p.getCantidadEnStock() - cantidadVendida;
+    /**
+     * Refleja el valor vigente del contador de un producto en el Producto, los índices y el almacén,
+     * con la franja del producto tomada (así los registros de un producto quedan en orden). Si otro hilo
+     * ya reflejó ese valor, no anota nada. Se llama con la lectura del catálogo tomada.
+     * @param index La posición del producto.
+     * @return La secuencia del registro, o {@code SIN_REGISTRO}.
+     */
+    private long reflejarStock(int index) {
+        Producto p = catalogoProductos.get(index);
+        ReentrantLock franja = franjas[franjaDe(p.getIdProducto())];
+        franja.lock();
+        try {
+            int stock = contadores.stock(index);
+            if (p.getCantidadEnStock() == stock) { return SIN_REGISTRO; }
+            p.setCantidadEnStock(stock);
+            actualizarIndicesStock(p, stock);
+            int idProducto = p.getIdProducto();
+            contarCambioStock(idProducto);
+            if (bus != null) { publicar(new EventoDominio.StockCambiado(idProducto, stock)); }
+            return anotar(d -> d.anotarStock(idProducto, stock));
+        } finally {
+            franja.unlock();
+        }
+    }
 
-                if (nuevoStock < 0) { nuevoStock = 0; } // Asegura que el stock no sea negativo
+    /**
+     * Refleja los contadores de todos los productos de una venta en un único registro, con sus franjas
+     * tomadas en orden ascendente. Se llama con la lectura del catálogo tomada.
+     * @param lineas Las líneas de la venta.
+     * @return La secuencia del registro, o {@code SIN_REGISTRO}.
+     */
+    private long reflejarStock(List<LineaVenta> lineas) {
+        int[] tomadas = franjasDe(lineas);
+        for (int f : tomadas) {
+            franjas[f].lock();
+        }
+        try {
+            List<AlmacenInventario.CambioStock> cambios = new ArrayList<>(lineas.size());
+            for (LineaVenta lv : lineas) {
+                int index = findProductoIndexById(lv.getProducto().getIdProducto());
+                if (index == -1) { continue; }
 
-                p.setCantidadEnStock(nuevoStock);
-                guardarDatos();
-                return;
+                Producto p = catalogoProductos.get(index);
+                int stock = contadores.stock(index);
+                if (p.getCantidadEnStock() == stock) { continue; } // Ya reflejado (o línea repetida)
+                p.setCantidadEnStock(stock);
+                actualizarIndicesStock(p, stock);
+                contarCambioStock(p.getIdProducto());
+                cambios.add(new AlmacenInventario.CambioStock(p.getIdProducto(), stock));
+                if (bus != null) { publicar(new EventoDominio.StockCambiado(p.getIdProducto(), stock)); }
+            }
+            return cambios.isEmpty() ? SIN_REGISTRO : anotar(d -> d.anotarLote(cambios));
+        } finally {
+            for (int i = tomadas.length - 1; i >= 0; i--) {
+                franjas[tomadas[i]].unlock();
             }
         }
     }
 
     /**
-     * Obtiene una copia de la lista completa de todos los productos en el catálogo.
-     * @return Una nueva {@code ArrayList} que contiene todos los objetos Producto.
+     * Cuenta un cambio de stock reflejado y, si la vista ordenada depende del stock, anota el producto
+     * para recolocarlo en ella. Se llama después de actualizar el Producto. El producto se anota antes de
+     * contar el cambio: quien vea el contador nuevo encuentra también el producto en el conjunto.
+     * @param idProducto El ID del producto.
+     */
+    private void contarCambioStock(int idProducto) {
+        if (vistaDependeDelStock) {
+            stockSinRecolocar.add(idProducto);
+        }
+        cambiosStock.increment();
+    }
+
+    /** @return La franja de bloqueo de un producto (mezcla de Fibonacci, como {@link IndiceEnteros}). */
+    private static int franjaDe(int idProducto) {
+        int h = idProducto * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & (FRANJAS - 1);
+    }
+
+    /** @return Las franjas distintas de los productos de una venta, en orden ascendente. */
+    private static int[] franjasDe(List<LineaVenta> lineas) {
+        long marcadas = 0; // FRANJAS = 64: un bit por franja
+        for (LineaVenta lv : lineas) {
+            marcadas |= 1L << franjaDe(lv.getProducto().getIdProducto());
+        }
+        int[] tomadas = new int[Long.bitCount(marcadas)];
+        for (int i = 0; i < tomadas.length; i++) {
+            tomadas[i] = Long.numberOfTrailingZeros(marcadas);
+            marcadas &= marcadas - 1;
+        }
+        return tomadas;
+    }
+
+    /**
+     * Refleja un cambio de stock en los índices que dependen de él (con la franja del producto tomada).
+     * @param producto El producto.
+     * @param stock Su nuevo stock.
+     */
+    private void actualizarIndicesStock(Producto producto, int stock) {
+        synchronized (bloqueoIndicesStock) {
+            indiceCategorias.actualizarStock(producto.getIdProducto(), stock);
+            registrarCruce(producto, indiceStockBajo.actualizar(producto.getIdProducto(), stock, producto.getPuntoReorden()));
+        }
+    }
+
+    /**
+     * Ejecuta una consulta con el bloqueo de lectura del catálogo: no espera a los cambios de stock,
+     * solo a las altas, modificaciones y bajas en curso.
+     */
+    private <T> T leer(Supplier<T> consulta) {
+        lecturaCatalogo.lock();
+        try {
+            return consulta.get();
+        } finally {
+            lecturaCatalogo.unlock();
+        }
+    }
+
+    /**
+     * Ejecuta una consulta sobre los índices que dependen del stock (categorías y stock bajo),
+     * que los cambios de stock modifican dentro de su propio bloqueo breve.
+     */
+    private <T> T leerIndicesStock(Supplier<T> consulta) {
+        return leer(() -> {
+            synchronized (bloqueoIndicesStock) {
+                return consulta.get();
+            }
+        });
+    }
+
+    /**
+     * Obtiene la lista completa de todos los productos en el catálogo, sin bloqueos ni copias.
+     * <p>
+     * Es una instantánea inmutable: no cambia con las altas, modificaciones o bajas posteriores
+     * (que publican una versión nueva del catálogo). Los productos son los del catálogo, por lo que
+     * su stock refleja las ventas posteriores.
+     * </p>
+     * @return La lista de productos (no modificable).
      */
     public List<Producto> obtenerTodosLosProductos() {
-        return new ArrayList<>(catalogoProductos);
+        return catalogoProductos;
+    }
+
+    /**
+     * Busca un producto por su ID en tiempo constante (índice hash).
+     * @param idProducto El ID del producto.
+     * @return Un {@code Optional} con el producto, o vacío si no existe.
+     */
+    public Optional<Producto> buscarPorId(int idProducto) {
+        return leer(() -> productoPorId(idProducto));
+    }
+
+    private Optional<Producto> productoPorId(int idProducto) {
+        int index = findProductoIndexById(idProducto);
+        return index == -1 ? Optional.empty() : Optional.of(catalogoProductos.get(index));
+    }
+
+    /**
+     * Busca un producto por su número de artículo exacto (lectura de código de barras).
+     * Se ignoran los espacios al inicio y al final.
+     * @param numeroArticulo El número de artículo (SKU).
+     * @return Un {@code Optional} con el producto, o vacío si ningún producto tiene ese SKU.
+     */
+    public Optional<Producto> buscarPorNumeroArticulo(String numeroArticulo) {
+        String clave = claveSku(numeroArticulo);
+        if (clave == null) { return Optional.empty(); }
+        return leer(() -> {
+            Integer id = indicePorSku.get(clave);
+            return id == null ? Optional.<Producto>empty() : productoPorId(id);
+        });
+    }
+
+    /**
+     * Obtiene la versión del catálogo: cambia con cada alta, modificación o baja de producto,
+     * de modo que los índices externos (como el autocompletado) saben cuándo reconstruirse.
+     * @return La versión actual del catálogo.
+     */
+    public long getVersionCatalogo() {
+        return leer(() -> versionCatalogo);
+    }
+
+    /**
+     * Busca productos cuyo nombre o descripción contienen el texto (sin distinguir mayúsculas ni acentos),
+     * usando el índice de trigramas. Los resultados se ordenan por relevancia: primero las
+     * coincidencias en el nombre, y entre ellas las que aparecen antes.
+     * @param texto El texto buscado.
+     * @param limite Número máximo de resultados.
+     * @return Los productos encontrados, del más al menos relevante.
+     */
+    public List<Producto> buscarPorTexto(String texto, int limite) {
+        return leer(() -> {
+            int[] ids = indiceTexto.buscar(texto, limite);
+            List<Producto> resultado = new ArrayList<>(ids.length);
+            agregarPorIds(ids, resultado);
+            return resultado;
+        });
+    }
+
+    /**
+     * Obtiene los totales de cada categoría (número de productos, unidades y valor del stock),
+     * sin recorrer el catálogo: se mantienen en cada mutación.
+     * @return Los totales por categoría, ordenados por nombre.
+     */
+    public List<ResumenCategoria> obtenerResumenCategorias() {
+        return leerIndicesStock(() -> {
+            List<ResumenCategoria> resumen = new ArrayList<>();
+            for (IndiceCategorias.Categoria c : indiceCategorias.categorias()) {
+                resumen.add(new ResumenCategoria(c.nombre, c.productos(), c.unidades(), c.valorStock()));
+            }
+            return resumen;
+        });
+    }
+
+    /**
+     * Consulta por facetas: productos de una categoría con el stock dentro de un rango.
+     * Solo se recorren los productos que cumplen ambos filtros.
+     * @param categoria La categoría (sin distinguir mayúsculas ni acentos), o null para todas.
+     * @param stockMinimo Stock mínimo (incluido); {@code Integer.MIN_VALUE} para no acotar.
+     * @param stockMaximo Stock máximo (incluido); {@code Integer.MAX_VALUE} para no acotar.
+     * @return Los productos encontrados, ordenados por stock (de menor a mayor) dentro de cada categoría.
+     */
+    public List<Producto> buscarPorCategoria(String categoria, int stockMinimo, int stockMaximo) {
+        return leerIndicesStock(() -> {
+            List<Producto> resultado = new ArrayList<>();
+            if (categoria == null) {
+                for (IndiceCategorias.Categoria c : indiceCategorias.categorias()) {
+                    agregarPorIds(indiceCategorias.buscar(c.nombre, stockMinimo, stockMaximo), resultado);
+                }
+            } else {
+                agregarPorIds(indiceCategorias.buscar(categoria, stockMinimo, stockMaximo), resultado);
+            }
+            return resultado;
+        });
+    }
+
+    private void agregarPorIds(int[] ids, List<Producto> destino) {
+        for (int id : ids) {
+            destino.add(catalogoProductos.get(findProductoIndexById(id)));
+        }
+    }
+
+    // =======================================================
+    // PAGINACIÓN
+    // =======================================================
+
+    /**
+     * Obtiene una página del catálogo ordenado y filtrado, para las vistas que no pueden cargar el catálogo completo.
+     * <p>
+     * En el orden del catálogo y sin filtros, la página se toma directamente de la instantánea del catálogo.
+     * En otro caso el resultado se ordena una vez y se conserva mientras no cambie el catálogo, así que
+     * recorrer las páginas de una misma consulta no vuelve a ordenar. Las claves se copian antes de
+     * ordenar, así que las ventas concurrentes no alteran la ordenación en curso. Conviene llamarlo fuera
+     * del hilo de la interfaz.
+     * </p>
+     * <p>
+     * Costo: un alta, modificación o baja obliga a reordenar todo (O(n log n)) en la siguiente consulta.
+     * Si el orden o el filtro dependen del stock, las ventas no reordenan: los k productos con el stock
+     * cambiado desde la consulta anterior se quitan del resultado y se vuelven a colocar en su sitio con
+     * una mezcla, en O(n + k log k) y una copia del arreglo de n referencias. Solo si cambió más de
+     * 1/{@value #DIVISOR_RECOLOCACION} del resultado se reordena completo. Con otros órdenes y filtros los
+     * cambios de stock no cuestan nada.
+     * </p>
+     * @param offset Posición de la primera fila (desde 0).
+     * @param limite Número máximo de filas.
+     * @param orden El orden.
+     * @param filtro Los filtros.
+     * @return La página, con el total del resultado.
+     * @throws IllegalArgumentException Si el offset o el límite son negativos.
+     */
+    public PaginaProductos obtenerPagina(int offset, int limite, OrdenProductos orden, FiltroProductos filtro) {
+        if (offset < 0 || limite < 0) {
+            throw new IllegalArgumentException("Página no válida: offset " + offset + ", límite " + limite + ".");
+        }
+        List<Producto> resultado = (orden.campo() == CampoOrden.CATALOGO && !orden.descendente() && filtro.vacio())
+                ? catalogoProductos : vistaOrdenada(orden, filtro);
+        int total = resultado.size();
+        int desde = Math.min(offset, total);
+        int hasta = (int) Math.min(total, (long) offset + limite);
+        return new PaginaProductos(offset, List.copyOf(resultado.subList(desde, hasta)), total);
+    }
+
+    /**
+     * Devuelve el resultado ordenado de una consulta, reutilizando el último si sigue vigente o
+     * recolocando en él los productos con el stock cambiado.
+     */
+    private List<Producto> vistaOrdenada(OrdenProductos orden, FiltroProductos filtro) {
+        boolean dependeDelStock = orden.campo() == CampoOrden.STOCK || filtro.acotaStock();
+        synchronized (bloqueoVista) {
+            // Las versiones se leen antes que el catálogo: un cambio posterior deja la vista marcada como vieja
+            long version = getVersionCatalogo();
+            long stock = dependeDelStock ? cambiosStock.sum() : 0;
+            VistaOrdenada vista = vistaOrdenada;
+            boolean mismaConsulta = vista != null && vista.orden().equals(orden) && vista.filtro().equals(filtro)
+                    && vista.versionCatalogo() == version;
+            if (mismaConsulta && vista.versionStock() == stock) {
+                return vista.productos();
+            }
+            if (mismaConsulta && dependeDelStock) {
+                VistaOrdenada recolocada = recolocar(vista, stock);
+                if (recolocada != null) {
+                    vistaOrdenada = recolocada;
+                    return recolocada.productos();
+                }
+            }
+
+            // Desde aquí, los cambios de stock que no vean las claves quedan anotados para recolocarlos
+            vistaDependeDelStock = dependeDelStock;
+            stockSinRecolocar.clear();
+            List<ClaveOrden> lista = new ArrayList<>();
+            int posicion = 0;
+            for (Producto p : catalogoProductos) {
+                if (filtro.cumple(p)) {
+                    lista.add(claveDe(p, orden.campo(), posicion));
+                }
+                posicion++;
+            }
+            ClaveOrden[] claves = lista.toArray(new ClaveOrden[0]);
+            Arrays.sort(claves, comparadorDe(orden));
+            vistaOrdenada = crearVista(orden, filtro, version, stock, claves);
+            return vistaOrdenada.productos();
+        }
+    }
+
+    /**
+     * Recoloca en una vista los productos cuyo stock cambió desde que se calculó, sin reordenarla: quita
+     * sus claves viejas en una pasada y mezcla las nuevas (ordenadas entre sí) con el resto.
+     * @param vista La vista vigente para el catálogo actual.
+     * @param stock El número de cambios de stock leído antes de consumir los pendientes.
+     * @return La vista nueva, o null si cambiaron demasiados productos y conviene reordenar completo.
+     */
+    private VistaOrdenada recolocar(VistaOrdenada vista, long stock) {
+        ClaveOrden[] claves = vista.claves();
+        if (stockSinRecolocar.size() > Math.max(64, claves.length / DIVISOR_RECOLOCACION)) {
+            return null;
+        }
+        IndiceEnteros cambiados = new IndiceEnteros(stockSinRecolocar.size());
+        List<ClaveOrden> nuevas = new ArrayList<>();
+        lecturaCatalogo.lock();
+        try {
+            for (Iterator<Integer> it = stockSinRecolocar.iterator(); it.hasNext(); ) {
+                int id = it.next();
+                it.remove();
+                cambiados.poner(id, 0);
+                int index = findProductoIndexById(id);
+                if (index == -1) { continue; }
+                Producto p = catalogoProductos.get(index);
+                if (vista.filtro().cumple(p)) { // Con un filtro de stock, el producto puede entrar o salir
+                    nuevas.add(claveDe(p, vista.orden().campo(), index));
+                }
+            }
+        } finally {
+            lecturaCatalogo.unlock();
+        }
+
+        Comparator<ClaveOrden> comparador = comparadorDe(vista.orden());
+        nuevas.sort(comparador);
+        ClaveOrden[] resultado = new ClaveOrden[claves.length + nuevas.size()];
+        int i = 0, j = 0, k = 0;
+        while (i < claves.length || j < nuevas.size()) {
+            if (i < claves.length && cambiados.obtener(claves[i].id()) != IndiceEnteros.AUSENTE) {
+                i++; // Clave con el stock viejo: el producto se coloca de nuevo desde `nuevas`
+            } else if (j == nuevas.size() || (i < claves.length && comparador.compare(claves[i], nuevas.get(j)) <= 0)) {
+                resultado[k++] = claves[i++];
+            } else {
+                resultado[k++] = nuevas.get(j++);
+            }
+        }
+        return crearVista(vista.orden(), vista.filtro(), vista.versionCatalogo(), stock,
+                k == resultado.length ? resultado : Arrays.copyOf(resultado, k));
+    }
+
+    private static Comparator<ClaveOrden> comparadorDe(OrdenProductos orden) {
+        return orden.descendente() ? COMPARADOR_CLAVES.reversed() : COMPARADOR_CLAVES;
+    }
+
+    private static VistaOrdenada crearVista(OrdenProductos orden, FiltroProductos filtro, long versionCatalogo,
+                                            long versionStock, ClaveOrden[] claves) {
+        Producto[] productos = new Producto[claves.length];
+        for (int i = 0; i < productos.length; i++) {
+            productos[i] = claves[i].producto();
+        }
+        return new VistaOrdenada(orden, filtro, versionCatalogo, versionStock, claves,
+                Collections.unmodifiableList(Arrays.asList(productos)));
+    }
+
+    private static ClaveOrden claveDe(Producto p, CampoOrden campo, int posicion) {
+        return switch (campo) {
+            case CATALOGO -> new ClaveOrden(p, "", posicion, p.getIdProducto());
+            case NOMBRE -> new ClaveOrden(p, PlegadoTexto.plegar(p.getNombre()), 0, p.getIdProducto());
+            case ARTICULO -> new ClaveOrden(p, PlegadoTexto.plegar(p.getNumeroArticulo()), 0, p.getIdProducto());
+            case CATEGORIA -> new ClaveOrden(p, PlegadoTexto.plegar(IndiceCategorias.nombreDe(p.getCategoria())), 0, p.getIdProducto());
+            case PRECIO -> new ClaveOrden(p, "", p.getPrecio(), p.getIdProducto());
+            case STOCK -> new ClaveOrden(p, "", p.getCantidadEnStock(), p.getIdProducto());
+        };
+    }
+
+    /**
+     * Busca el índice de un producto dentro de la lista interna basado en su ID.
+     * @param idProducto El ID del producto a buscar.
+     * @return El índice del producto en la lista, o -1 si no se encuentra.
+     */
+    private int findProductoIndexById(int idProducto) {
+        return indicePorId.obtener(idProducto);
+    }
+
+    /**
+     * Añade un producto al final del catálogo y lo registra en el índice por ID.
+     * @param producto El producto (con su ID ya asignado).
+     */
+    private void insertarEnCatalogo(Producto producto) {
+        contadores.iniciar(catalogoProductos.size(), producto.getCantidadEnStock());
+        indicePorId.poner(producto.getIdProducto(), catalogoProductos.size());
+        catalogoProductos = catalogoProductos.agregar(producto);
+        skuPorPosicion.add(indexarSku(producto));
+        indiceTexto.agregar(producto);
+        indiceCategorias.agregar(producto);
+        registrarCruce(producto, indiceStockBajo.actualizar(producto.getIdProducto(), producto.getCantidadEnStock(), producto.getPuntoReorden()));
+        versionCatalogo++;
+    }
+
+    /**
+     * Reemplaza el producto de una posición del catálogo y actualiza su entrada en el índice de SKU.
+     * @param index La posición del producto (mismo ID).
+     * @param producto El producto con los datos nuevos.
+     */
+    private void reemplazarEnCatalogo(int index, Producto producto) {
+        desindexarSku(skuPorPosicion.get(index), producto.getIdProducto());
+        catalogoProductos = catalogoProductos.asignar(index, producto);
+        contadores.fijar(index, producto.getCantidadEnStock()); // Conserva las reservas de los carritos
+        skuPorPosicion.set(index, indexarSku(producto));
+        indiceTexto.agregar(producto);
+        indiceCategorias.agregar(producto);
+        registrarCruce(producto, indiceStockBajo.actualizar(producto.getIdProducto(), producto.getCantidadEnStock(), producto.getPuntoReorden()));
+        versionCatalogo++;
+    }
+
+    /**
+     * Quita un producto del catálogo en tiempo constante: el último producto ocupa su posición.
+     * @param idProducto El ID del producto a quitar.
+     * @return {@code true} si el producto existía.
+     */
+    private boolean quitarDelCatalogo(int idProducto) {
+        int index = indicePorId.quitar(idProducto);
+        if (index == IndiceEnteros.AUSENTE) { return false; }
+
+        desindexarSku(skuPorPosicion.get(index), idProducto);
+        indiceTexto.quitar(idProducto);
+        indiceCategorias.quitar(idProducto);
+        registrarCruce(catalogoProductos.get(index), indiceStockBajo.quitar(idProducto));
+        versionCatalogo++;
+        contadores.mover(catalogoProductos.size() - 1, index);
+        // La versión nueva se arma completa antes de publicarla: los lectores nunca ven el paso intermedio
+        VectorPersistente<Producto> catalogo = catalogoProductos;
+        Producto ultimo = catalogo.get(catalogo.size() - 1);
+        catalogo = catalogo.quitarUltimo();
+        String skuUltimo = skuPorPosicion.remove(skuPorPosicion.size() - 1);
+        if (index < catalogo.size()) {
+            catalogo = catalogo.asignar(index, ultimo);
+            skuPorPosicion.set(index, skuUltimo);
+            indicePorId.poner(ultimo.getIdProducto(), index);
+        }
+        catalogoProductos = catalogo;
+        return true;
+    }
+
+    /**
+     * Comprueba que el número de artículo de un producto no pertenezca ya a otro producto.
+     * @param producto El producto a registrar o actualizar.
+     * @throws IllegalArgumentException Si el SKU está asignado a otro ID.
+     */
+    private void verificarSkuDisponible(Producto producto) {
+        String clave = claveSku(producto.getNumeroArticulo());
+        Integer otro = clave == null ? null : indicePorSku.get(clave);
+        if (otro != null && otro != producto.getIdProducto()) {
+            throw new IllegalArgumentException("El número de artículo " + clave + " ya está asignado al producto ID " + otro + ".");
+        }
+    }
+
+    /**
+     * Registra el SKU de un producto en el índice único.
+     * @return La clave indexada, o null si el producto no tiene SKU o el SKU ya estaba tomado.
+     */
+    private String indexarSku(Producto producto) {
+        String clave = claveSku(producto.getNumeroArticulo());
+        if (clave == null) { return null; }
+        Integer otro = indicePorSku.putIfAbsent(clave, producto.getIdProducto());
+        if (otro != null && otro != producto.getIdProducto()) {
+            // Solo ocurre con datos anteriores al índice único: se conserva el primer producto
+            System.err.println("Número de artículo duplicado " + clave + " (IDs " + otro + " y " + producto.getIdProducto() + "); se indexa solo el primero.");
+            return null;
+        }
+        return clave;
+    }
+
+    private void desindexarSku(String clave, int idProducto) {
+        if (clave != null) {
+            indicePorSku.remove(clave, idProducto);
+        }
+    }
+
+    /** Normaliza un número de artículo para el índice (sin espacios; vacío = sin SKU). */
+    private static String claveSku(String numeroArticulo) {
+        if (numeroArticulo == null) { return null; }
+        String clave = numeroArticulo.trim();
+        return clave.isEmpty() ? null : clave;
+    }
+
+    /** Reconstruye el índice por ID a partir del catálogo cargado. */
+    private void reindexar() {
+        indicePorId.limpiar();
+        indicePorSku.clear();
+        skuPorPosicion.clear();
+        indiceTexto.limpiar();
+        indiceCategorias.limpiar();
+        indiceStockBajo.limpiar();
+        versionCatalogo++;
+        for (int i = 0; i < catalogoProductos.size(); i++) {
+            Producto p = catalogoProductos.get(i);
+            indicePorId.poner(p.getIdProducto(), i);
+            contadores.iniciar(i, p.getCantidadEnStock());
+            skuPorPosicion.add(indexarSku(p));
+            indiceTexto.agregar(p);
+            indiceCategorias.agregar(p);
+            indiceStockBajo.actualizar(p.getIdProducto(), p.getCantidadEnStock(), p.getPuntoReorden()); // Sin avisos: es una carga
+        }
     }
 
     /**
-     * Obtiene una lista de productos cuyo stock está en o por debajo del umbral mínimo.
-     * @return Una lista filtrada de objetos Producto que requieren reposición.
+     * Obtiene los productos cuyo stock está en o por debajo de su punto de reorden, sin recorrer
+     * el catálogo: el conjunto se mantiene en cada mutación.
+     * @return Los productos que requieren reposición, del mayor al menor faltante.
      */
     public List<Producto> obtenerProductosStockBajo() {
-        return catalogoProductos.stream()
-                .filter(p -> p.getCantidadEnStock() <= UMBRAL_STOCK_BAJO)
-                .collect(Collectors.toList());
+        return leerIndicesStock(() -> {
+            List<Producto> resultado = new ArrayList<>(indiceStockBajo.tamano());
+            agregarPorIds(indiceStockBajo.ids(), resultado);
+            return resultado;
+        });
+    }
+
+    /**
+     * Cuenta los productos con stock bajo (por ejemplo, para el indicador de alertas).
+     * @return El número de productos en o por debajo de su punto de reorden.
+     */
+    public int contarProductosStockBajo() {
+        return leerIndicesStock(indiceStockBajo::tamano);
+    }
+
+    // =======================================================
+    // ALERTAS DE STOCK BAJO
+    // =======================================================
+
+    /**
+     * Suscribe un oyente a los cruces del punto de reorden. Los avisos se entregan en el hilo que
+     * hizo el cambio, después de confirmarlo y sin el bloqueo del manager.
+     * @param listener El oyente a suscribir.
+     */
+    public void suscribirAlertas(AlertaStockListener listener) {
+        suscriptoresAlertas.add(listener);
+    }
+
+    /**
+     * Cancela la suscripción de un oyente a las alertas de stock bajo.
+     * @param listener El oyente a retirar.
+     */
+    public void cancelarSuscripcion(AlertaStockListener listener) {
+        suscriptoresAlertas.remove(listener);
+    }
+
+    // =======================================================
+    // EVENTOS DEL DOMINIO
+    // =======================================================
+
+    /**
+     * Asigna el bus donde se publican las altas, modificaciones, bajas y cambios de stock.
+     * @param bus El bus de eventos (null = no publicar).
+     */
+    public void setBusEventos(BusEventos bus) {
+        this.bus = bus;
+    }
+
+    private void publicar(EventoDominio evento) {
+        BusEventos destino = bus;
+        if (destino != null) {
+            destino.publicar(evento);
+        }
+    }
+
+    /**
+     * Anota un cruce del punto de reorden para entregarlo tras la mutación.
+     * Sin suscriptores no se anota nada, así que la carga inicial no acumula avisos.
+     */
+    private void registrarCruce(Producto producto, IndiceStockBajo.Cruce cruce) {
+        if (cruce == IndiceStockBajo.Cruce.NINGUNO || suscriptoresAlertas.isEmpty()) { return; }
+        synchronized (bloqueoIndicesStock) {
+            avisosPendientes.add(new AvisoStock(producto, cruce == IndiceStockBajo.Cruce.ENTRA));
+        }
+    }
+
+    /**
+     * Entrega a los suscriptores los avisos pendientes. Se llama sin el bloqueo del manager,
+     * de modo que un oyente puede consultar el inventario; sus excepciones no afectan a la mutación.
+     */
+    private void entregarAvisos() {
+        List<AvisoStock> avisos;
+        synchronized (bloqueoIndicesStock) {
+            if (avisosPendientes.isEmpty()) { return; }
+            avisos = avisosPendientes;
+            avisosPendientes = new ArrayList<>();
+        }
+        for (AvisoStock aviso : avisos) {
+            for (AlertaStockListener listener : suscriptoresAlertas) {
+                try {
+                    if (aviso.bajo()) {
+                        listener.onStockBajo(aviso.producto());
+                    } else {
+                        listener.onStockRepuesto(aviso.producto());
+                    }
+                } catch (RuntimeException e) {
+                    System.err.println("Error en un suscriptor de alertas de stock: " + e.getMessage());
+                }
+            }
+        }
     }
 }
\ No newline at end of file
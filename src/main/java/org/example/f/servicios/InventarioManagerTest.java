@@ -5,7 +5,19 @@ import org.example.f.servicios.InventarioManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import org.example.f.modelos.Cliente;
+import org.example.f.modelos.CondicionDescuento;
+import org.example.f.modelos.Descuento;
+import org.example.f.modelos.LineaVenta;
+import org.example.f.modelos.Venta;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -27,6 +39,8 @@ public class InventarioManagerTest {
         nuevo.setNumeroArticulo("P098");
         nuevo.setCategoria("Albanil");
 
+        // El SKU es único: se retira la "Pala" que haya quedado persistida de una ejecución anterior
+        manager.buscarPorNumeroArticulo("P098").ifPresent(p -> manager.eliminarProducto(p.getIdProducto()));
         manager.agregarProducto(nuevo);
 
         List<Producto> productos = manager.obtenerTodosLosProductos();
@@ -35,4 +49,804 @@ public class InventarioManagerTest {
 
         assertTrue(encontrado, "El producto 'Pala' debería estar en el inventario.");
     }
+
+    @Test
+    public void testBuscarPorIdTrasEliminar() {
+        Producto a = new Producto();
+        a.setNombre("Cincel");
+        manager.agregarProducto(a);
+        Producto b = new Producto();
+        b.setNombre("Lija");
+        manager.agregarProducto(b);
+
+        manager.eliminarProducto(a.getIdProducto());
+
+        assertTrue(manager.buscarPorId(a.getIdProducto()).isEmpty(), "El producto eliminado no debería encontrarse.");
+        assertEquals("Lija", manager.buscarPorId(b.getIdProducto()).map(Producto::getNombre).orElse(null));
+
+        manager.eliminarProducto(b.getIdProducto());
+    }
+
+    @Test
+    public void testNumeroArticuloUnico() {
+        Producto a = new Producto();
+        a.setNombre("Nivel");
+        a.setNumeroArticulo("N-UNICO-1");
+        manager.agregarProducto(a);
+
+        Producto b = new Producto();
+        b.setNombre("Otro nivel");
+        b.setNumeroArticulo(" N-UNICO-1 ");
+        assertThrows(IllegalArgumentException.class, () -> manager.agregarProducto(b));
+        assertEquals(a.getIdProducto(), manager.buscarPorNumeroArticulo("N-UNICO-1").map(Producto::getIdProducto).orElse(-1));
+
+        manager.eliminarProducto(a.getIdProducto());
+        assertTrue(manager.buscarPorNumeroArticulo("N-UNICO-1").isEmpty());
+    }
+
+    @Test
+    public void testBuscarPorTexto() {
+        Producto a = new Producto();
+        a.setNombre("Sierra Circular XK7");
+        manager.agregarProducto(a);
+        Producto b = new Producto();
+        b.setNombre("Disco de corte");
+        b.setDescripcion("Compatible con sierra circular xk7");
+        manager.agregarProducto(b);
+
+        List<Producto> encontrados = manager.buscarPorTexto("circular xk7", 10);
+
+        assertEquals(List.of(a.getIdProducto(), b.getIdProducto()),
+                encontrados.stream().map(Producto::getIdProducto).toList(),
+                "La coincidencia en el nombre debería ir antes que la de la descripción.");
+
+        manager.eliminarProducto(a.getIdProducto());
+        manager.eliminarProducto(b.getIdProducto());
+        assertTrue(manager.buscarPorTexto("circular xk7", 10).isEmpty());
+    }
+
+    @Test
+    public void testBuscarPorTextoSinAcentos() {
+        Producto p = new Producto();
+        p.setNombre("Llave Allen Pequeña");
+        p.setDescripcion("Cabeza hexagonal, acero al carbón");
+        manager.agregarProducto(p);
+
+        assertEquals(List.of(p.getIdProducto()), manager.buscarPorTexto("llave allen pequena", 10).stream().map(Producto::getIdProducto).toList());
+        assertEquals(List.of(p.getIdProducto()), manager.buscarPorTexto("ACERO AL CARBON", 10).stream().map(Producto::getIdProducto).toList());
+
+        manager.eliminarProducto(p.getIdProducto());
+    }
+
+    @Test
+    public void testBuscarPorCategoriaYStock() {
+        Producto a = new Producto();
+        a.setNombre("Codo PVC");
+        a.setCategoria("Plomería Prueba");
+        a.setPrecio(10.0);
+        a.setCantidadEnStock(2);
+        manager.agregarProducto(a);
+        Producto b = new Producto();
+        b.setNombre("Tubo PVC");
+        b.setCategoria("plomeria prueba");
+        b.setPrecio(25.5);
+        b.setCantidadEnStock(15);
+        manager.agregarProducto(b);
+        Producto c = new Producto();
+        c.setNombre("Llave de paso");
+        c.setCategoria("Plomería Prueba");
+        c.setPrecio(80.0);
+        c.setCantidadEnStock(8);
+        manager.agregarProducto(c);
+
+        assertEquals(List.of(c.getIdProducto(), b.getIdProducto()),
+                manager.buscarPorCategoria("PLOMERIA PRUEBA", 5, 20).stream().map(Producto::getIdProducto).toList(),
+                "Solo los productos en el rango de stock, del menor al mayor stock.");
+
+        manager.actualizarStockProducto(b, 5);
+        InventarioManager.ResumenCategoria resumen = resumenDe("Plomería Prueba");
+        assertEquals(3, resumen.productos());
+        assertEquals(2 + 10 + 8, resumen.unidades());
+        assertEquals(2 * 10.0 + 10 * 25.5 + 8 * 80.0, resumen.valorStock(), 0.001);
+
+        manager.eliminarProducto(a.getIdProducto());
+        manager.eliminarProducto(b.getIdProducto());
+        manager.eliminarProducto(c.getIdProducto());
+        assertNull(resumenDe("Plomería Prueba"), "Una categoría sin productos desaparece del resumen.");
+    }
+
+    @Test
+    public void testAlertaPuntoDeReorden() {
+        Producto p = new Producto();
+        p.setNombre("Broca 8mm Prueba");
+        p.setCantidadEnStock(30);
+        p.setPuntoReorden(10);
+        manager.agregarProducto(p);
+
+        List<String> avisos = new java.util.ArrayList<>();
+        AlertaStockListener listener = new AlertaStockListener() {
+            @Override
+            public void onStockBajo(Producto producto) { avisos.add("bajo:" + producto.getIdProducto()); }
+
+            @Override
+            public void onStockRepuesto(Producto producto) { avisos.add("repuesto:" + producto.getIdProducto()); }
+        };
+        manager.suscribirAlertas(listener);
+        try {
+            manager.actualizarStockProducto(p, 15); // 30 -> 15: sigue por encima
+            assertTrue(avisos.isEmpty());
+            assertFalse(manager.obtenerProductosStockBajo().contains(p));
+
+            manager.actualizarStockProducto(p, 5); // 15 -> 10: cruza el punto de reorden
+            manager.actualizarStockProducto(p, 2); // 10 -> 8: ya estaba en stock bajo
+            assertEquals(List.of("bajo:" + p.getIdProducto()), avisos);
+            assertTrue(manager.obtenerProductosStockBajo().contains(p));
+
+            p.setCantidadEnStock(40);
+            manager.actualizarProducto(p);
+            assertEquals(List.of("bajo:" + p.getIdProducto(), "repuesto:" + p.getIdProducto()), avisos);
+            assertFalse(manager.obtenerProductosStockBajo().contains(p));
+        } finally {
+            manager.cancelarSuscripcion(listener);
+            manager.eliminarProducto(p.getIdProducto());
+        }
+    }
+
+    @Test
+    public void testVentasConcurrentesStockExacto() throws Exception {
+        final int productos = 6;
+        final int hilos = 16;
+        final int ventasPorHilo = 1500;
+        final int stockInicial = 1_000_000;
+
+        List<Producto> catalogo = new ArrayList<>();
+        for (int i = 0; i < productos; i++) {
+            Producto p = new Producto();
+            p.setNombre("Estrés " + i);
+            p.setCategoria("Categoría Estrés");
+            p.setPrecio(1.0);
+            p.setCantidadEnStock(stockInicial);
+            manager.agregarProducto(p);
+            catalogo.add(p);
+        }
+
+        // Cada caja vende productos al azar (a menudo los mismos que las demás), unas veces de uno
+        // en uno y otras en ventas de varias líneas; mientras tanto otro hilo consulta sin parar.
+        AtomicIntegerArray vendidos = new AtomicIntegerArray(productos);
+        CountDownLatch salida = new CountDownLatch(1);
+        ExecutorService cajas = Executors.newFixedThreadPool(hilos + 1);
+        List<Future<?>> tareas = new ArrayList<>();
+        try {
+            for (int h = 0; h < hilos; h++) {
+                tareas.add(cajas.submit(() -> {
+                    salida.await();
+                    ThreadLocalRandom azar = ThreadLocalRandom.current();
+                    for (int v = 0; v < ventasPorHilo; v++) {
+                        if (azar.nextBoolean()) {
+                            int i = azar.nextInt(productos);
+                            int cantidad = 1 + azar.nextInt(3);
+                            manager.actualizarStockProducto(catalogo.get(i), cantidad);
+                            vendidos.addAndGet(i, cantidad);
+                        } else {
+                            List<LineaVenta> lineas = new ArrayList<>();
+                            for (int l = 0; l < 3; l++) {
+                                int i = azar.nextInt(productos);
+                                lineas.add(new LineaVenta(catalogo.get(i), 1));
+                                vendidos.incrementAndGet(i);
+                            }
+                            manager.actualizarStockLote(lineas);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            Future<?> lector = cajas.submit(() -> {
+                salida.await();
+                while (tareas.stream().anyMatch(t -> !t.isDone())) {
+                    assertEquals(productos, manager.buscarPorCategoria("Categoría Estrés", 0, Integer.MAX_VALUE).size());
+                    manager.buscarPorId(catalogo.get(0).getIdProducto()).orElseThrow();
+                }
+                return null;
+            });
+
+            salida.countDown();
+            for (Future<?> tarea : tareas) {
+                tarea.get();
+            }
+            lector.get();
+        } finally {
+            cajas.shutdownNow();
+        }
+
+        long unidadesEsperadas = 0;
+        for (int i = 0; i < productos; i++) {
+            int esperado = stockInicial - vendidos.get(i);
+            unidadesEsperadas += esperado;
+            assertEquals(esperado, manager.buscarPorId(catalogo.get(i).getIdProducto()).orElseThrow().getCantidadEnStock(),
+                    "Ningún descuento de stock debe perderse entre cajas concurrentes.");
+        }
+        assertEquals(unidadesEsperadas, resumenDe("Categoría Estrés").unidades());
+
+        for (Producto p : catalogo) {
+            manager.eliminarProducto(p.getIdProducto());
+        }
+    }
+
+    @Test
+    public void testReservasNoVendenMasDelStock() throws Exception {
+        Producto p = new Producto();
+        p.setNombre("Martillo Reserva");
+        p.setCantidadEnStock(50);
+        manager.agregarProducto(p);
+
+        // 8 cajas intentan apartar 100 unidades de una en una: solo 50 pueden lograrlo
+        ExecutorService cajas = Executors.newFixedThreadPool(8);
+        List<Future<Integer>> tareas = new ArrayList<>();
+        try {
+            for (int h = 0; h < 8; h++) {
+                tareas.add(cajas.submit(() -> {
+                    int reservadas = 0;
+                    for (int i = 0; i < 100; i++) {
+                        if (manager.reservarStock(p.getIdProducto(), 1)) { reservadas++; }
+                    }
+                    return reservadas;
+                }));
+            }
+            int total = 0;
+            for (Future<Integer> tarea : tareas) {
+                total += tarea.get();
+            }
+            assertEquals(50, total, "Dos cajas nunca deben reservar la misma unidad.");
+        } finally {
+            cajas.shutdownNow();
+        }
+        assertEquals(0, manager.obtenerStockDisponible(p.getIdProducto()));
+        assertEquals(50, manager.buscarPorId(p.getIdProducto()).orElseThrow().getCantidadEnStock(),
+                "Reservar no descuenta el stock físico.");
+
+        manager.liberarStock(p.getIdProducto(), 20);
+        manager.confirmarReservas(List.of(new LineaVenta(p, 30)));
+        assertEquals(20, manager.buscarPorId(p.getIdProducto()).orElseThrow().getCantidadEnStock());
+        assertEquals(20, manager.obtenerStockDisponible(p.getIdProducto()));
+
+        manager.eliminarProducto(p.getIdProducto());
+    }
+
+    @Test
+    public void testVentaDirectaNoTomaUnidadesReservadas() {
+        Producto p = new Producto();
+        p.setNombre("Pinza Reserva");
+        p.setCantidadEnStock(5);
+        manager.agregarProducto(p);
+
+        assertTrue(manager.reservarStock(p.getIdProducto(), 4));
+        // Solo queda 1 unidad libre: la venta directa de 3 descuenta 1 e informa las 2 que faltaron
+        assertEquals(2, manager.actualizarStockProducto(p, 3));
+        assertEquals(4, manager.buscarPorId(p.getIdProducto()).orElseThrow().getCantidadEnStock());
+        assertEquals(0, manager.obtenerStockDisponible(p.getIdProducto()));
+
+        List<LineaVenta> faltantes = manager.actualizarStockLote(List.of(new LineaVenta(p, 2)));
+        assertEquals(1, faltantes.size());
+        assertEquals(2, faltantes.get(0).getCantidad());
+
+        // La confirmación del carrito sigue encontrando sus 4 unidades
+        manager.confirmarReservas(List.of(new LineaVenta(p, 4)));
+        assertEquals(0, manager.buscarPorId(p.getIdProducto()).orElseThrow().getCantidadEnStock());
+
+        // Reponer (cantidad negativa) se aplica completo
+        assertEquals(0, manager.actualizarStockProducto(p, -7));
+        assertEquals(7, manager.obtenerStockDisponible(p.getIdProducto()));
+
+        manager.eliminarProducto(p.getIdProducto());
+    }
+
+    @Test
+    public void testSesionesDeVentaIndependientes() throws Exception {
+        Producto p = new Producto();
+        p.setNombre("Taladro Sesión");
+        p.setPrecio(900.0);
+        p.setCantidadEnStock(5);
+        manager.agregarProducto(p);
+
+        TransaccionManager tm = new TransaccionManager(manager,
+                java.nio.file.Files.createTempDirectory("ventas-prueba"), java.time.Duration.ofMillis(50));
+        String caja1 = tm.abrirSesion();
+        String caja2 = tm.abrirSesion();
+        assertTrue(tm.agregarAlCarrito(caja1, p, 3));
+        assertFalse(tm.agregarAlCarrito(caja2, p, 3), "La otra caja ya apartó esas unidades.");
+        assertTrue(tm.agregarAlCarrito(caja2, p, 2));
+
+        assertNotNull(tm.registrarVenta(caja2));
+        assertEquals(3, manager.buscarPorId(p.getIdProducto()).orElseThrow().getCantidadEnStock());
+        assertEquals(3, tm.getVentaEnCurso(caja1).getItemsVendidos().get(0).getCantidad());
+
+        // La caja 1 queda inactiva: su sesión expira y sus reservas vuelven al disponible
+        Thread.sleep(120);
+        tm.expirarSesiones();
+        assertThrows(IllegalArgumentException.class, () -> tm.getVentaEnCurso(caja1));
+        assertEquals(3, manager.obtenerStockDisponible(p.getIdProducto()));
+        assertNotNull(tm.getVentaEnCurso(), "La sesión principal nunca expira.");
+
+        manager.eliminarProducto(p.getIdProducto());
+    }
+
+    @Test
+    public void testServidorCajaCompartido() throws Exception {
+        Producto p = new Producto();
+        p.setNombre("Escalera Servidor");
+        p.setPrecio(1200.0);
+        p.setCantidadEnStock(2);
+        manager.agregarProducto(p);
+
+        TransaccionManager tm = new TransaccionManager(manager, java.nio.file.Files.createTempDirectory("ventas-servidor"));
+        ClienteManager clientes = new ClienteManager();
+        Cliente registrado;
+        try (ServidorCaja servidor = new ServidorCaja(manager, clientes, tm, new DescuentoManager())) {
+            servidor.iniciar(0);
+            try (ClienteCaja caja1 = new ClienteCaja("localhost", servidor.getPuerto());
+                 ClienteCaja caja2 = new ClienteCaja("localhost", servidor.getPuerto())) {
+                Producto remoto = caja1.buscarPorId(p.getIdProducto()).orElseThrow();
+                assertEquals(2, remoto.getCantidadEnStock());
+                // La búsqueda por nombre de la vista de ventas también se resuelve en el servidor
+                assertEquals(p.getIdProducto(), caja2.buscarPorTexto("escalera servidor").orElseThrow().getIdProducto());
+
+                // Los clientes se dan de alta y se buscan en el catálogo del servidor
+                registrado = new Cliente(0, "Rosa\tServidor", "5511223344", "rosa@servidor.mx", null);
+                assertTrue(caja1.registrarCliente(registrado));
+                assertTrue(registrado.getIdCliente() > 0);
+                assertEquals("Rosa Servidor", clientes.buscarPorId(registrado.getIdCliente()).orElseThrow().getNombre());
+                assertEquals(registrado.getIdCliente(), caja2.buscarCliente("3344").orElseThrow().getIdCliente());
+                Cliente remotoCliente = caja2.buscarClientePorId(registrado.getIdCliente()).orElseThrow();
+                assertEquals("rosa@servidor.mx", remotoCliente.getEmail());
+                assertNull(remotoCliente.getDireccion());
+                assertTrue(caja2.buscarClientePorId(Integer.MAX_VALUE).isEmpty());
+
+                assertTrue(caja1.agregarAlCarrito(remoto, 2));
+                assertFalse(caja2.agregarAlCarrito(remoto, 1), "Las cajas comparten el mismo stock.");
+                caja1.getVentaEnCurso().setCliente(remotoCliente);
+                assertNotNull(caja1.registrarVenta());
+                assertNull(caja2.registrarVenta(), "Un carrito vacío no se registra.");
+            }
+        }
+        assertEquals(0, manager.buscarPorId(p.getIdProducto()).orElseThrow().getCantidadEnStock());
+        // La venta se registró con el cliente del servidor (por su ID)
+        assertEquals(List.of(registrado.getIdCliente()), tm.obtenerHistorialVentas(java.time.LocalDateTime.now().minusMinutes(1), null)
+                .map(v -> v.getCliente().getIdCliente()).toList());
+        clientes.eliminarCliente(registrado.getIdCliente());
+        clientes.flush();
+
+        manager.eliminarProducto(p.getIdProducto());
+    }
+
+    @Test
+    public void testDiarioRecortaRegistroDanadoAntesDeAnotar() throws Exception {
+        java.nio.file.Path dir = java.nio.file.Files.createTempDirectory("diario-danado");
+        java.nio.file.Path log = dir.resolve("inventario.log");
+        List<String> aplicados = new ArrayList<>();
+        DiarioInventario.Receptor receptor = new DiarioInventario.Receptor() {
+            @Override public void aplicarProducto(Producto producto) { aplicados.add("producto " + producto.getIdProducto()); }
+            @Override public void aplicarBaja(int idProducto) { aplicados.add("baja " + idProducto); }
+            @Override public void aplicarStock(int idProducto, int stock) { aplicados.add("stock " + idProducto + "=" + stock); }
+        };
+
+        try (DiarioInventario diario = new DiarioInventario(log)) {
+            diario.confirmar(diario.anotarStock(1, 10));
+        }
+        // Corte a mitad de un registro: quedan bytes sueltos al final
+        java.nio.file.Files.write(log, new byte[] {0, 0, 0, 40, 3, 0, 0}, java.nio.file.StandardOpenOption.APPEND);
+
+        try (DiarioInventario diario = new DiarioInventario(log)) {
+            assertEquals(1, diario.reproducir(receptor));
+            assertTrue(diario.huboColaRecortada());
+            diario.confirmar(diario.anotarStock(2, 20)); // Confirmado: no debe perderse
+        }
+
+        aplicados.clear();
+        try (DiarioInventario diario = new DiarioInventario(log)) {
+            assertEquals(2, diario.reproducir(receptor));
+            assertFalse(diario.huboColaRecortada());
+        }
+        assertEquals(List.of("stock 1=10", "stock 2=20"), aplicados);
+    }
+
+    @Test
+    public void testDiarioVentasRecortaColaYContinuaNumeracion() throws Exception {
+        java.nio.file.Path directorio = java.nio.file.Files.createTempDirectory("ventas-diario");
+        java.time.LocalDateTime dia = java.time.LocalDateTime.of(2025, 11, 3, 10, 0);
+        Producto p = new Producto();
+        p.setIdProducto(7);
+        p.setNombre("Taladro Diario");
+        p.setPrecio(50.0);
+
+        try (DiarioVentas diario = new DiarioVentas(directorio)) {
+            diario.anotar(ventaDePrueba(1, dia, p));
+            diario.anotar(ventaDePrueba(2, dia.plusMinutes(1), p));
+        }
+        java.nio.file.Path segmento;
+        try (java.util.stream.Stream<java.nio.file.Path> archivos = java.nio.file.Files.list(directorio)) {
+            segmento = archivos.findFirst().orElseThrow();
+        }
+        // Caída a mitad de una escritura: una longitud que abarcaría registros posteriores y unos bytes sueltos
+        java.nio.file.Files.write(segmento, new byte[] {0, 0, 0, 40, 1, 2, 3}, java.nio.file.StandardOpenOption.APPEND);
+
+        try (DiarioVentas diario = new DiarioVentas(directorio)) {
+            assertEquals(2, diario.ultimoIdVenta());
+            diario.anotar(ventaDePrueba(3, dia.plusMinutes(2), p));
+            assertEquals(List.of(1, 2, 3), diario.leer(null, null).map(Venta::getIdVenta).toList(),
+                    "La venta nueva no queda detrás del registro dañado.");
+        }
+
+        // Caída justo después de rotar: el segmento más reciente solo tiene la cabecera
+        java.nio.file.Files.write(directorio.resolve("ventas-20251104-001.seg"),
+                java.nio.ByteBuffer.allocate(8).putInt(0x46455256).putInt(1).array());
+        try (DiarioVentas diario = new DiarioVentas(directorio)) {
+            assertEquals(3, diario.ultimoIdVenta(), "La numeración continúa desde el segmento anterior.");
+            diario.anotar(ventaDePrueba(4, dia.plusDays(1), p));
+            assertEquals(List.of(1, 2, 3, 4), diario.leer(null, null).map(Venta::getIdVenta).toList());
+        }
+    }
+
+    private static Venta ventaDePrueba(int id, java.time.LocalDateTime fechaHora, Producto p) {
+        Venta venta = new Venta(null, new ArrayList<>(List.of(new LineaVenta(p, 1))));
+        venta.setIdVenta(id);
+        venta.setFechaHora(fechaHora);
+        return venta;
+    }
+
+    @Test
+    public void testInstantaneaDelCatalogoNoCambia() {
+        List<Producto> antes = manager.obtenerTodosLosProductos();
+        int tamanoAntes = antes.size();
+
+        Producto p = new Producto();
+        p.setNombre("Brocha Instantánea");
+        manager.agregarProducto(p);
+        List<Producto> despues = manager.obtenerTodosLosProductos();
+        manager.eliminarProducto(p.getIdProducto());
+
+        assertEquals(tamanoAntes, antes.size(), "La instantánea anterior no ve el alta.");
+        assertTrue(despues.contains(p), "La instantánea posterior al alta la contiene.");
+        assertEquals(tamanoAntes, manager.obtenerTodosLosProductos().size());
+        assertThrows(UnsupportedOperationException.class, () -> antes.add(p));
+    }
+
+    @Test
+    public void testVectorPersistenteEquivaleAListaMutable() {
+        // Secuencia aleatoria de altas, reemplazos y bajas del último, que cruza varios niveles del árbol
+        java.util.Random azar = new java.util.Random(42);
+        List<Integer> esperado = new ArrayList<>();
+        VectorPersistente<Integer> vector = VectorPersistente.vacio();
+        VectorPersistente<Integer> anterior = vector;
+        List<Integer> copiaAnterior = List.of();
+        for (int paso = 0; paso < 40_000; paso++) {
+            int operacion = azar.nextInt(10);
+            if (operacion < 6 || esperado.isEmpty()) {
+                esperado.add(paso);
+                vector = vector.agregar(paso);
+            } else if (operacion < 8) {
+                int i = azar.nextInt(esperado.size());
+                esperado.set(i, -paso);
+                vector = vector.asignar(i, -paso);
+            } else {
+                esperado.remove(esperado.size() - 1);
+                vector = vector.quitarUltimo();
+            }
+            if (paso % 997 == 0) {
+                assertEquals(esperado, vector);
+                assertEquals(copiaAnterior, anterior, "Las versiones anteriores no cambian.");
+                anterior = vector;
+                copiaAnterior = List.copyOf(esperado);
+            }
+        }
+        assertEquals(esperado, vector);
+        while (!esperado.isEmpty()) {
+            esperado.remove(esperado.size() - 1);
+            vector = vector.quitarUltimo();
+        }
+        assertTrue(vector.isEmpty());
+        assertEquals(copiaAnterior, anterior);
+    }
+
+    @Test
+    public void testObtenerPaginaOrdenadaYFiltrada() {
+        String categoria = "Paginación " + System.nanoTime();
+        List<Producto> creados = new ArrayList<>();
+        for (int i = 0; i < 45; i++) {
+            Producto p = new Producto();
+            p.setNombre("Página " + i);
+            p.setCategoria(categoria);
+            p.setCantidadEnStock((i * 7) % 45); // Stocks distintos, fuera del orden de alta
+            manager.agregarProducto(p);
+            creados.add(p);
+        }
+        try {
+            InventarioManager.OrdenProductos porStock = new InventarioManager.OrdenProductos(InventarioManager.CampoOrden.STOCK, true);
+            InventarioManager.FiltroProductos filtro = new InventarioManager.FiltroProductos(categoria, Integer.MIN_VALUE, Integer.MAX_VALUE);
+
+            List<Integer> stocks = new ArrayList<>();
+            for (int offset = 0; offset < 45; offset += 20) {
+                InventarioManager.PaginaProductos pagina = manager.obtenerPagina(offset, 20, porStock, filtro);
+                assertEquals(45, pagina.total());
+                pagina.productos().forEach(p -> stocks.add(p.getCantidadEnStock()));
+            }
+            List<Integer> esperados = new ArrayList<>();
+            for (int s = 44; s >= 0; s--) { esperados.add(s); }
+            assertEquals(esperados, stocks, "Las páginas recorren el resultado completo, de mayor a menor stock.");
+
+            // Un cambio de stock invalida la vista ordenada por stock
+            Producto primero = creados.get(0); // Stock 0: el último
+            manager.actualizarStockProducto(primero, -100);
+            assertEquals(primero.getIdProducto(), manager.obtenerPagina(0, 1, porStock, filtro).productos().get(0).getIdProducto());
+
+            InventarioManager.FiltroProductos acotado = new InventarioManager.FiltroProductos(categoria, 10, 19);
+            assertEquals(10, manager.obtenerPagina(0, 100, porStock, acotado).total());
+            assertEquals(0, manager.obtenerPagina(500, 20, porStock, filtro).productos().size());
+
+            // Las ventas entre consultas se recolocan en la vista (y entran o salen del filtro de stock)
+            ThreadLocalRandom azar = ThreadLocalRandom.current();
+            for (int ronda = 0; ronda < 20; ronda++) {
+                for (int v = 0; v < 3; v++) {
+                    manager.actualizarStockProducto(creados.get(azar.nextInt(creados.size())), azar.nextInt(-6, 6));
+                }
+                List<Integer> obtenidos = manager.obtenerPagina(0, 100, porStock, acotado).productos().stream()
+                        .map(Producto::getIdProducto).toList();
+                List<Integer> ordenados = creados.stream()
+                        .filter(p -> p.getCantidadEnStock() >= 10 && p.getCantidadEnStock() <= 19)
+                        .sorted(java.util.Comparator.comparingInt(Producto::getCantidadEnStock)
+                                .thenComparingInt(Producto::getIdProducto).reversed())
+                        .map(Producto::getIdProducto).toList();
+                assertEquals(ordenados, obtenidos);
+            }
+        } finally {
+            creados.forEach(p -> manager.eliminarProducto(p.getIdProducto()));
+        }
+    }
+
+    @Test
+    public void testBusEventosPliegaPorPulso() {
+        Producto p = new Producto();
+        p.setNombre("Tornillo Evento");
+        p.setCantidadEnStock(5000);
+        manager.agregarProducto(p);
+
+        // El "pulso" de la interfaz se simula con una cola que se vacía a mano
+        java.util.ArrayDeque<Runnable> pulso = new java.util.ArrayDeque<>();
+        List<List<EventoDominio>> lotes = new ArrayList<>();
+        BusEventos bus = new BusEventos();
+        bus.suscribirPorLotes(java.util.Set.of(EventoDominio.StockCambiado.class, EventoDominio.ProductoEliminado.class),
+                lotes::add, pulso::add);
+        manager.setBusEventos(bus);
+        try {
+            for (int i = 0; i < 1000; i++) {
+                manager.actualizarStockProducto(p, 1);
+            }
+            assertEquals(1, pulso.size(), "Una ráfaga programa una sola entrega.");
+            pulso.poll().run();
+            assertEquals(List.of(List.of(new EventoDominio.StockCambiado(p.getIdProducto(), 4000))), lotes,
+                    "Los mil cambios llegan plegados en el último estado.");
+        } finally {
+            manager.eliminarProducto(p.getIdProducto());
+            manager.setBusEventos(null);
+        }
+        pulso.poll().run();
+        assertEquals(new EventoDominio.ProductoEliminado(p.getIdProducto()), lotes.get(1).get(0));
+    }
+
+    @Test
+    public void testDescuentoPorCategoriaIgnoraAcentosYMayusculas() {
+        Producto p = new Producto();
+        p.setIdProducto(1);
+        p.setNombre("Manguera");
+        p.setCategoria("jardineria");
+        p.setPrecio(100.0);
+        Descuento descuento = new Descuento("JARDIN10", 0.10, Descuento.TipoDescuento.PORCENTAJE, "10% en Jardinería",
+                List.of(CondicionDescuento.porCategoria(" Jardinería ", 1, 0.10, Descuento.TipoDescuento.PORCENTAJE)));
+
+        assertEquals(20.0, descuento.calcularMontoDescuento(List.of(new LineaVenta(p, 2)), 200.0), 1e-9);
+    }
+
+    @Test
+    public void testDescuentoPorEscalonesYPrioridadDelProducto() {
+        Descuento mayoreo = new DescuentoManager().buscarDescuentoPorCodigo("mayoreo").orElseThrow();
+        Producto tornillo = new Producto(1, "Tornillo", "", null, "Fijaciones", 10.0, 100, null);
+        Producto taquete = new Producto(2, "Taquete", "", null, " fijaciones", 10.0, 100, null);
+
+        // Escalones por las unidades de toda la categoría: 5% desde 10, 10% desde 50
+        assertEquals(0.0, mayoreo.calcularMontoDescuento(List.of(new LineaVenta(tornillo, 9)), 90.0), 1e-9);
+        assertEquals(5.0, mayoreo.calcularMontoDescuento(List.of(new LineaVenta(tornillo, 10)), 100.0), 1e-9);
+        assertEquals(55.0, mayoreo.calcularMontoDescuento(
+                List.of(new LineaVenta(tornillo, 30), new LineaVenta(taquete, 25)), 550.0), 1e-9);
+
+        // La condición del producto tiene prioridad sobre la de su categoría
+        Descuento combinado = new Descuento("COMBO", 0.05, Descuento.TipoDescuento.PORCENTAJE, "Prueba",
+                List.of(CondicionDescuento.porCategoria("Fijaciones", 1, 0.05, Descuento.TipoDescuento.PORCENTAJE),
+                        CondicionDescuento.porProducto(tornillo.getIdProducto(), 1, 0.20, Descuento.TipoDescuento.PORCENTAJE)));
+        assertEquals(20.0 + 5.0, combinado.calcularMontoDescuento(
+                List.of(new LineaVenta(tornillo, 10), new LineaVenta(taquete, 10)), 200.0), 1e-9);
+
+        // Un monto fijo nunca deja el total en negativo
+        Descuento fijo = new Descuento("FIJO", 500.0, Descuento.TipoDescuento.MONTO_FIJO, "Prueba",
+                List.of(CondicionDescuento.porProducto(tornillo.getIdProducto(), 1, 500.0, Descuento.TipoDescuento.MONTO_FIJO)));
+        assertEquals(30.0, fijo.calcularMontoDescuento(List.of(new LineaVenta(tornillo, 3)), 30.0), 1e-9);
+    }
+
+    @Test
+    public void testIndiceTrigramasSinTopeDeResultados() {
+        IndiceTrigramas indice = new IndiceTrigramas();
+        for (int id = 1; id <= 3000; id++) {
+            indice.agregar(new Producto(id, "Broca " + id, "", null, "", 1.0, 1, null));
+        }
+        assertEquals(3000, indice.buscar("broca", 5000).length, "Un límite mayor que la capacidad inicial no recorta.");
+        assertEquals(3000, indice.buscar("broca", Integer.MAX_VALUE).length);
+        assertEquals(1500, indice.buscar("broca", 1500).length);
+        assertEquals(java.util.stream.IntStream.rangeClosed(1, 3000).boxed().collect(java.util.stream.Collectors.toSet()),
+                java.util.Arrays.stream(indice.buscar("broca", 3000)).boxed().collect(java.util.stream.Collectors.toSet()));
+    }
+
+    @Test
+    public void testCodecBinarioIdaYVuelta() throws Exception {
+        java.nio.file.Path dir = java.nio.file.Files.createTempDirectory("codec");
+        Producto completo = new Producto(7, "Taladro Percutor ½\"", "Uso rudo", "TAL-07", "Herramientas", 1499.90, -3, "Truper");
+        completo.setPuntoReorden(12);
+        Producto vacio = new Producto(300, "x".repeat(70_000), null, null, null, 0.0, 0, null);
+        Producto otro = new Producto(8, "Rotomartillo", "", "ROT-08", "Herramientas", 2999.0, 150, "Truper");
+        List<Producto> productos = List.of(completo, vacio, otro);
+
+        java.nio.file.Path archivo = dir.resolve("inventario.dat");
+        CodecBinario.escribirProductos(archivo, productos, 301);
+        assertTrue(CodecBinario.esFormatoBinario(archivo));
+        CodecBinario.Catalogo<Producto> leido = CodecBinario.leerProductos(archivo);
+        assertEquals(301, leido.nextId());
+        assertEquals(productos.size(), leido.elementos().size());
+        for (int i = 0; i < productos.size(); i++) {
+            Producto esperado = productos.get(i);
+            Producto real = leido.elementos().get(i);
+            assertEquals(esperado.getIdProducto(), real.getIdProducto());
+            assertEquals(esperado.getNombre(), real.getNombre());
+            assertEquals(esperado.getDescripcion(), real.getDescripcion());
+            assertEquals(esperado.getNumeroArticulo(), real.getNumeroArticulo());
+            assertEquals(esperado.getCategoria(), real.getCategoria());
+            assertEquals(esperado.getPrecio(), real.getPrecio());
+            assertEquals(esperado.getCantidadEnStock(), real.getCantidadEnStock());
+            assertEquals(esperado.getProveedor(), real.getProveedor());
+            assertEquals(esperado.getPuntoReorden(), real.getPuntoReorden());
+        }
+
+        java.nio.file.Path archivoClientes = dir.resolve("clientes.dat");
+        CodecBinario.escribirClientes(archivoClientes, List.of(new Cliente(4, "Ana Gómez", "5598765432", null, "Avenida 345")), 5);
+        CodecBinario.Catalogo<Cliente> clientes = CodecBinario.leerClientes(archivoClientes);
+        assertEquals(5, clientes.nextId());
+        Cliente ana = clientes.elementos().get(0);
+        assertEquals(List.of(4, "Ana Gómez", "5598765432", "Avenida 345"),
+                List.of(ana.getIdCliente(), ana.getNombre(), ana.getTelefono(), ana.getDireccion()));
+        assertNull(ana.getEmail());
+        assertThrows(java.io.IOException.class, () -> CodecBinario.leerProductos(archivoClientes), "La entidad no coincide.");
+    }
+
+    @Test
+    public void testCodecBinarioLeeVersion1SinPuntoReorden() throws Exception {
+        // Archivo de la versión 1, escrito a mano: los productos terminan en el proveedor
+        java.nio.ByteBuffer v1 = java.nio.ByteBuffer.allocate(256);
+        v1.putInt(CodecBinario.MAGIA).put((byte) 1).put((byte) 1).putInt(10).putInt(2);
+        v1.put((byte) 1); // Diccionario: un texto
+        textoV1(v1, "Fijaciones");
+        for (int id : new int[] {3, 4}) {
+            v1.put((byte) id);
+            textoV1(v1, "Clavo " + id);
+            textoV1(v1, null);
+            textoV1(v1, "CLV-" + id);
+            v1.put((byte) 1).putDouble(2.5 * id);
+            v1.put((byte) (10 * id << 1)); // Stock en zigzag (cabe en un byte)
+            v1.put((byte) 0); // Sin proveedor
+        }
+        java.nio.file.Path archivo = java.nio.file.Files.createTempDirectory("codec-v1").resolve("inventario.dat");
+        java.nio.file.Files.write(archivo, java.util.Arrays.copyOf(v1.array(), v1.position()));
+
+        CodecBinario.Catalogo<Producto> leido = CodecBinario.leerProductos(archivo);
+        assertEquals(10, leido.nextId());
+        assertEquals(List.of("CLV-3", "CLV-4"), leido.elementos().stream().map(Producto::getNumeroArticulo).toList());
+        Producto segundo = leido.elementos().get(1);
+        assertEquals("Fijaciones", segundo.getCategoria());
+        assertEquals(10.0, segundo.getPrecio());
+        assertEquals(40, segundo.getCantidadEnStock());
+        assertTrue(leido.elementos().stream().allMatch(p -> p.getPuntoReorden() == Producto.PUNTO_REORDEN_PREDETERMINADO));
+
+        // Al volver a guardarlo se escribe la versión actual, con el punto de reorden
+        CodecBinario.escribirProductos(archivo, leido.elementos(), leido.nextId());
+        assertEquals(CodecBinario.VERSION_ACTUAL, java.nio.file.Files.readAllBytes(archivo)[4]);
+        assertEquals(Producto.PUNTO_REORDEN_PREDETERMINADO, CodecBinario.leerProductos(archivo).elementos().get(1).getPuntoReorden());
+    }
+
+    /** Escribe un texto corto como en el codificador: longitud + 1 (0 = null) y los bytes UTF-8. */
+    private static void textoV1(java.nio.ByteBuffer buffer, String texto) {
+        if (texto == null) {
+            buffer.put((byte) 0);
+            return;
+        }
+        byte[] bytes = texto.getBytes(java.nio.charset.StandardCharsets.UTF_8);
+        buffer.put((byte) (bytes.length + 1)).put(bytes);
+    }
+
+    @Test
+    public void testIndiceClientesPorIdTelefonoCorreoYNombre() {
+        IndiceClientes indice = new IndiceClientes();
+        indice.agregar(new Cliente(1, "Juan Pérez", "55 1234 5678", "Juan.Perez@mail.com", null));
+        indice.agregar(new Cliente(2, "Juana Pereira López", "+52 (55) 9876-5678", "juana@mail.com", null));
+        indice.agregar(new Cliente(3, "Pedro Juárez", "5511112222", null, null));
+
+        assertArrayEquals(new int[] {2}, indice.buscar("2", 10));
+        assertArrayEquals(new int[] {1}, indice.buscar("5512345678", 10));
+        assertArrayEquals(new int[] {1}, indice.buscar("+52 55-1234-5678", 10));
+        assertArrayEquals(new int[] {2}, indice.buscar("55 9876 5678", 10));
+        assertEquals(java.util.Set.of(1, 2), java.util.Arrays.stream(indice.buscar("5678", 10)).boxed().collect(java.util.stream.Collectors.toSet()));
+        assertArrayEquals(new int[] {1}, indice.buscar(" JUAN.perez@mail.com ", 10));
+
+        // Cada palabra es el inicio de una palabra del nombre, en cualquier orden y sin acentos
+        assertArrayEquals(new int[] {1}, indice.buscar("juan perez", 10));
+        assertArrayEquals(new int[] {1}, indice.buscar("PÉREZ jua", 10));
+        assertArrayEquals(new int[] {1, 3, 2}, indice.buscar("jua pe", 10), "A igual puntuación, el nombre más corto.");
+        assertArrayEquals(new int[] {1, 3}, indice.buscar("jua pe", 2));
+        assertArrayEquals(new int[] {2}, indice.buscar("juan lopez", 10), "\"juan\" también es el inicio de \"juana\".");
+        assertEquals(0, indice.buscar("juan ruiz", 10).length);
+
+        // Al actualizar un cliente se retiran sus claves anteriores
+        indice.agregar(new Cliente(1, "Juan Pablo Ruiz", "5500001111", null, null));
+        assertEquals(0, indice.buscar("5512345678", 10).length);
+        assertEquals(0, indice.buscar("juan.perez@mail.com", 10).length);
+        assertArrayEquals(new int[] {2}, indice.buscar("pere", 10));
+        assertArrayEquals(new int[] {1}, indice.buscar("ruiz", 10));
+        assertArrayEquals(new int[] {1}, indice.buscar("1111", 10));
+
+        // Al eliminarlo, ninguna de sus claves lo encuentra y los demás siguen indexados
+        indice.quitar(2);
+        assertEquals(0, indice.buscar("2", 10).length);
+        assertEquals(0, indice.buscar("juana@mail.com", 10).length);
+        assertEquals(0, indice.buscar("9876", 10).length);
+        assertEquals(0, indice.buscar("pereira", 10).length);
+        assertArrayEquals(new int[] {3}, indice.buscar("5511112222", 10));
+        assertArrayEquals(new int[] {3}, indice.buscar("pedro", 10));
+    }
+
+    @Test
+    public void testAutocompletadoPorPrefijoYVentas() {
+        Producto alfa = new Producto(0, "Qorvex Alfa", "", "QVX-1", "", 10.0, 5, null);
+        Producto beta = new Producto(0, "Qorvex Beta", "", "QVX-2", "", 10.0, 5, null);
+        Producto gama = new Producto(0, "Qorvexa Gama", "", null, "", 10.0, 5, null);
+        Producto vecino = new Producto(0, "Qorvey", "", null, "", 10.0, 5, null); // Justo después del rango de "qorvex"
+        for (Producto p : List.of(alfa, beta, gama, vecino)) {
+            if (p.getNumeroArticulo() != null) {
+                manager.buscarPorNumeroArticulo(p.getNumeroArticulo()).ifPresent(v -> manager.eliminarProducto(v.getIdProducto()));
+            }
+            manager.agregarProducto(p);
+        }
+        AutocompletadoProductos sugerencias = new AutocompletadoProductos(manager);
+
+        // Sin ventas, a igual frecuencia se ordena por la clave (alfabético)
+        assertEquals(List.of(alfa, beta, gama), sugerencias.sugerir("QORVÉX", 10));
+        assertEquals(List.of(gama), sugerencias.sugerir("qorvexa", 10));
+        assertEquals(List.of(vecino), sugerencias.sugerir("qorvey", 10));
+        assertEquals(List.of(beta), sugerencias.sugerir("qvx-2", 10));
+        assertTrue(sugerencias.sugerir("gama", 50).contains(gama), "Cada palabra del nombre es un prefijo.");
+        assertTrue(sugerencias.sugerir("qorvexz", 10).isEmpty());
+
+        // Las ventas reordenan por frecuencia; un producto con varias claves en el rango aparece una vez
+        sugerencias.registrarVenta(new Venta(null, List.of(new LineaVenta(gama, 3), new LineaVenta(beta, 1))));
+        assertEquals(List.of(gama, beta, alfa), sugerencias.sugerir("qorvex", 10));
+        assertEquals(List.of(gama), sugerencias.sugerir("qorvex", 1));
+        sugerencias.registrarVenta(new Venta(null, List.of(new LineaVenta(alfa, 1))));
+        assertEquals(List.of(gama, alfa, beta), sugerencias.sugerir("qorvex", 10), "Empate: gana la clave menor.");
+
+        // Un cambio en el catálogo reconstruye el índice y conserva las frecuencias
+        manager.eliminarProducto(gama.getIdProducto());
+        assertEquals(List.of(alfa, beta), sugerencias.sugerir("qorvex", 10));
+
+        for (Producto p : List.of(alfa, beta, vecino)) {
+            manager.eliminarProducto(p.getIdProducto());
+        }
+    }
+
+    private InventarioManager.ResumenCategoria resumenDe(String categoria) {
+        return manager.obtenerResumenCategorias().stream()
+                .filter(r -> r.categoria().equals(categoria)).findFirst().orElse(null);
+    }
 }
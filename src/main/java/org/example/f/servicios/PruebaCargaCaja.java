@@ -0,0 +1,134 @@
+package org.example.f.servicios;
+
+import org.example.f.modelos.Producto;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Prueba de carga del servidor de cobro: cientos de cajas simuladas en la misma máquina, cada una con
+ * su conexión a un {@link ServidorCaja}, construyen y registran ventas contra el mismo inventario.
+ * <p>
+ * Informa las ventas por segundo y la latencia del registro (la orden {@code REGISTRAR}, que confirma
+ * las reservas y escribe la venta en los diarios): mediana, percentil 99 y máximo. Al terminar comprueba
+ * que el stock de cada producto bajó exactamente en las unidades vendidas.
+ * </p>
+ * <p>
+ * Uso: {@code java org.example.f.servicios.PruebaCargaCaja [cajas] [ventasPorCaja] [productos]}
+ * (por defecto 300, 20 y 200). Usa los archivos de inventario del directorio actual, por lo que
+ * conviene ejecutarla en un directorio de trabajo vacío; el historial de ventas va a un directorio temporal.
+ * </p>
+ *
+ * @author [Tu Nombre/Proyecto]
+ * @version 1.0
+ * @since 2025-11-03
+ */
+final class PruebaCargaCaja {
+
+    private static final int STOCK_INICIAL = 1_000_000;
+
+    private PruebaCargaCaja() { }
+
+    public static void main(String[] args) throws Exception {
+        int cajas = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+        int ventasPorCaja = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int numProductos = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+
+        InventarioManager inventario = new InventarioManager();
+        List<Producto> productos = new ArrayList<>();
+        for (int i = 0; i < numProductos; i++) {
+            Producto p = new Producto();
+            p.setNombre("Carga " + i);
+            p.setCategoria("Prueba de carga");
+            p.setPrecio(10.0 + i);
+            p.setCantidadEnStock(STOCK_INICIAL);
+            inventario.agregarProducto(p);
+            productos.add(p);
+        }
+        TransaccionManager transacciones = new TransaccionManager(inventario, Files.createTempDirectory("ventas-carga"));
+
+        long[][] latencias = new long[cajas][];
+        long[] unidadesVendidas;
+        long inicio;
+        long fin;
+        try (ServidorCaja servidor = new ServidorCaja(inventario, new ClienteManager(), transacciones, new DescuentoManager());
+             ExecutorService hilos = Executors.newVirtualThreadPerTaskExecutor()) {
+            servidor.iniciar(0);
+            int puerto = servidor.getPuerto();
+
+            CountDownLatch listas = new CountDownLatch(cajas);
+            CountDownLatch salida = new CountDownLatch(1);
+            List<Future<long[]>> tareas = new ArrayList<>();
+            for (int c = 0; c < cajas; c++) {
+                final int caja = c;
+                tareas.add(hilos.submit(() -> {
+                    long[] vendidas = new long[numProductos];
+                    try (ClienteCaja cliente = new ClienteCaja("localhost", puerto)) {
+                        listas.countDown();
+                        salida.await();
+                        ThreadLocalRandom azar = ThreadLocalRandom.current();
+                        long[] propias = new long[ventasPorCaja];
+                        for (int v = 0; v < ventasPorCaja; v++) {
+                            int lineas = 1 + azar.nextInt(3);
+                            for (int l = 0; l < lineas; l++) {
+                                int i = azar.nextInt(numProductos);
+                                int cantidad = 1 + azar.nextInt(2);
+                                if (cliente.agregarAlCarrito(productos.get(i), cantidad)) {
+                                    vendidas[i] += cantidad;
+                                }
+                            }
+                            long t0 = System.nanoTime();
+                            if (cliente.registrarVenta() == null) {
+                                throw new IllegalStateException("La caja " + caja + " no pudo registrar una venta.");
+                            }
+                            propias[v] = System.nanoTime() - t0;
+                        }
+                        latencias[caja] = propias;
+                    }
+                    return vendidas;
+                }));
+            }
+
+            listas.await();
+            inicio = System.nanoTime();
+            salida.countDown();
+            unidadesVendidas = new long[numProductos];
+            for (Future<long[]> tarea : tareas) {
+                long[] vendidas = tarea.get();
+                for (int i = 0; i < numProductos; i++) {
+                    unidadesVendidas[i] += vendidas[i];
+                }
+            }
+            fin = System.nanoTime();
+        }
+
+        long[] todas = Arrays.stream(latencias).flatMapToLong(Arrays::stream).sorted().toArray();
+        double segundos = (fin - inicio) / 1e9;
+        System.out.println(String.format(Locale.ROOT,
+                "%d cajas x %d ventas: %d ventas en %.2f s = %.0f ventas/s | registro p50 %.2f ms, p99 %.2f ms, max %.2f ms",
+                cajas, ventasPorCaja, todas.length, segundos, todas.length / segundos,
+                percentil(todas, 0.50), percentil(todas, 0.99), todas[todas.length - 1] / 1e6));
+
+        int erroneos = 0;
+        for (int i = 0; i < numProductos; i++) {
+            Producto p = inventario.buscarPorId(productos.get(i).getIdProducto()).orElseThrow();
+            if (p.getCantidadEnStock() != STOCK_INICIAL - unidadesVendidas[i]) { erroneos++; }
+            inventario.eliminarProducto(p.getIdProducto());
+        }
+        System.out.println(erroneos == 0 ? "Stock exacto en todos los productos."
+                : "ERROR: " + erroneos + " productos con stock incorrecto.");
+    }
+
+    /** @return El percentil {@code q} (en ms) de latencias ordenadas en nanosegundos. */
+    private static double percentil(long[] ordenadas, double q) {
+        int i = (int) Math.ceil(q * ordenadas.length) - 1;
+        return ordenadas[Math.max(0, i)] / 1e6;
+    }
+}
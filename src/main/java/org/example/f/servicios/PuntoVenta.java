@@ -0,0 +1,97 @@
+package org.example.f.servicios;
+
+import org.example.f.modelos.Cliente;
+import org.example.f.modelos.LineaVenta;
+import org.example.f.modelos.Producto;
+import org.example.f.modelos.Venta;
+
+import java.util.Optional;
+
+/**
+ * Define la interfaz (contrato) de un punto de venta: el carrito de una caja y su registro.
+ * <p>
+ * La implementan {@link TransaccionManager} (en el mismo proceso, sobre su sesión principal) y
+ * {@link ClienteCaja} (contra un {@link ServidorCaja} compartido por varias cajas), de modo que la
+ * vista de ventas funciona igual con cualquiera de los dos. Los productos que se añaden al carrito
+ * deben obtenerse con las búsquedas de este mismo punto de venta, para que su ID sea el del
+ * inventario donde se reservan; lo mismo vale para los clientes que se asignan a la venta.
+ * </p>
+ *
+ * @author [Tu Nombre/Proyecto]
+ * @version 1.0
+ * @since 2025-11-03
+ */
+public interface PuntoVenta {
+
+    /**
+     * Busca un producto del inventario del punto de venta por ID.
+     * @param idProducto El ID del producto.
+     * @return El producto, si existe.
+     */
+    Optional<Producto> buscarPorId(int idProducto);
+
+    /**
+     * Busca un producto del inventario del punto de venta por número de artículo exacto (código de barras).
+     * @param numeroArticulo El SKU.
+     * @return El producto, si existe.
+     */
+    Optional<Producto> buscarPorNumeroArticulo(String numeroArticulo);
+
+    /**
+     * Busca el producto más relevante cuyo nombre o descripción contiene el texto (sin distinguir
+     * mayúsculas ni acentos), dando prioridad a las coincidencias en el nombre.
+     * @param texto El texto buscado.
+     * @return El producto encontrado, si alguno coincide.
+     */
+    Optional<Producto> buscarPorTexto(String texto);
+
+    /**
+     * Busca el cliente más relevante por ID, teléfono, correo electrónico o palabras del nombre,
+     * en el catálogo de clientes del punto de venta.
+     * @param busqueda El texto buscado.
+     * @return El cliente encontrado, si alguno coincide.
+     */
+    Optional<Cliente> buscarCliente(String busqueda);
+
+    /**
+     * Registra un cliente nuevo en el catálogo de clientes del punto de venta.
+     * @param cliente El cliente (sin ID); al volver tiene el ID asignado por el catálogo.
+     * @return {@code true} si se registró.
+     */
+    boolean registrarCliente(Cliente cliente);
+
+    /**
+     * Obtiene el carrito en construcción. Las líneas deben modificarse con
+     * {@link #agregarAlCarrito(Producto, int)} y {@link #cambiarCantidad(LineaVenta, int)}.
+     * @return El objeto Venta en curso.
+     */
+    Venta getVentaEnCurso();
+
+    /**
+     * Añade unidades de un producto al carrito, reservándolas en el inventario.
+     * @param producto El producto a añadir.
+     * @param cantidad Unidades a añadir.
+     * @return {@code true} si se añadieron; {@code false} si no hay stock disponible suficiente.
+     */
+    boolean agregarAlCarrito(Producto producto, int cantidad);
+
+    /**
+     * Cambia la cantidad de una línea del carrito (cero o negativa la quita).
+     * @param linea La línea del carrito.
+     * @param nuevaCantidad La nueva cantidad.
+     * @return {@code true} si se aplicó; {@code false} si no hay stock disponible para el aumento.
+     */
+    boolean cambiarCantidad(LineaVenta linea, int nuevaCantidad);
+
+    /**
+     * Registra el carrito como venta completada y empieza uno nuevo.
+     * @return El objeto Venta finalizado, o null si la venta estaba vacía o no pudo registrarse.
+     */
+    Venta registrarVenta();
+
+    /**
+     * Vacía el carrito, liberando sus reservas de stock.
+     */
+    void iniciarNuevaVenta();
+
+}
@@ -0,0 +1,278 @@
+package org.example.f.servicios;
+
+import org.example.f.modelos.Cliente;
+import org.example.f.modelos.Descuento;
+import org.example.f.modelos.LineaVenta;
+import org.example.f.modelos.Producto;
+import org.example.f.modelos.Venta;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Servicio de cobro sin interfaz gráfica que comparte un mismo inventario entre varias cajas.
+ * <p>
+ * Escucha en un puerto local y atiende cada conexión en su propio hilo virtual: una conexión es una
+ * caja y tiene su propia sesión de {@link TransaccionManager}, que se cierra (liberando las reservas
+ * del carrito) al desconectarse. Las cajas se conectan con {@link ClienteCaja}.
+ * </p>
+ * <p>
+ * El protocolo es de texto, una orden por línea y una respuesta por línea ({@code OK ...},
+ * {@code NO}, {@code SIN_STOCK}, {@code VACIA} o {@code ERROR mensaje}); los campos de un producto
+ * van separados por tabuladores:
+ * </p>
+ * <ul>
+ * <li>{@code PRODUCTO id} / {@code SKU numeroArticulo} / {@code BUSCAR texto} (el más relevante)
+ * → {@code OK id\tnombre\tprecio\tdisponible\tcategoria} o {@code NO}</li>
+ * <li>{@code CLIENTE id} / {@code BUSCAR_CLIENTE texto} (el más relevante)
+ * → {@code OK id\tnombre\ttelefono\temail\tdireccion} o {@code NO}</li>
+ * <li>{@code ALTA_CLIENTE nombre\ttelefono\temail\tdireccion} → {@code OK id}</li>
+ * <li>{@code AGREGAR id cantidad} / {@code CANTIDAD id nuevaCantidad} → {@code OK} o {@code SIN_STOCK}</li>
+ * <li>{@code REGISTRAR idCliente|- codigoDescuento|-} → {@code OK idVenta total}</li>
+ * <li>{@code CANCELAR} → {@code OK}; {@code SALIR} cierra la conexión.</li>
+ * </ul>
+ *
+ * @author [Tu Nombre/Proyecto]
+ * @version 1.0
+ * @since 2025-11-03
+ */
+public class ServidorCaja implements Closeable {
+
+    /** Puerto predeterminado del servicio. */
+    public static final int PUERTO_PREDETERMINADO = 7070;
+    /** Separador de los campos de un producto en las respuestas. */
+    static final String SEPARADOR = "\t";
+
+    private final InventarioManager inventarioManager;
+    private final ClienteManager clienteManager;
+    private final TransaccionManager transaccionManager;
+    private final DescuentoManager descuentoManager;
+
+    /** Socket de escucha (null hasta {@link #iniciar(int)}). */
+    private ServerSocket socketServidor;
+    /** Conexiones abiertas, para cerrarlas al detener el servicio. */
+    private final Set<Socket> conexiones = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Crea el servicio sobre los managers compartidos (Inyección por Constructor).
+     * @param inventario El inventario compartido por todas las cajas.
+     * @param clientes El catálogo de clientes.
+     * @param transacciones El gestor de ventas (una sesión por caja conectada).
+     * @param descuentos El catálogo de descuentos.
+     */
+    public ServidorCaja(InventarioManager inventario, ClienteManager clientes,
+                        TransaccionManager transacciones, DescuentoManager descuentos) {
+        this.inventarioManager = inventario;
+        this.clienteManager = clientes;
+        this.transaccionManager = transacciones;
+        this.descuentoManager = descuentos;
+    }
+
+    /**
+     * Empieza a escuchar en la interfaz local y a aceptar cajas en segundo plano.
+     * @param puerto El puerto (0 = uno libre cualquiera).
+     * @throws IOException Si el puerto no puede abrirse.
+     */
+    public synchronized void iniciar(int puerto) throws IOException {
+        socketServidor = new ServerSocket(puerto, 512, InetAddress.getLoopbackAddress());
+        // Hilo de plataforma (no demonio): mantiene vivo el proceso hasta close()
+        Thread.ofPlatform().name("servidor-caja").start(this::aceptar);
+        System.out.println("Servidor de cajas escuchando en el puerto " + getPuerto() + ".");
+    }
+
+    /** @return El puerto en que escucha el servicio. */
+    public int getPuerto() {
+        return socketServidor.getLocalPort();
+    }
+
+    private void aceptar() {
+        while (!socketServidor.isClosed()) {
+            try {
+                Socket socket = socketServidor.accept();
+                socket.setTcpNoDelay(true);
+                conexiones.add(socket);
+                Thread.ofVirtual().name("caja-" + socket.getPort()).start(() -> atender(socket));
+            } catch (IOException e) {
+                if (!socketServidor.isClosed()) {
+                    System.err.println("Error al aceptar una caja: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Atiende una caja hasta que se desconecta. Su sesión se cierra siempre al salir.
+     */
+    private void atender(Socket socket) {
+        String sesion = transaccionManager.abrirSesion();
+        try (socket;
+             BufferedReader entrada = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             BufferedWriter salida = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+            String linea;
+            while ((linea = entrada.readLine()) != null) {
+                if (linea.equals("SALIR")) { break; }
+                String respuesta;
+                try {
+                    respuesta = procesar(sesion, linea);
+                } catch (RuntimeException e) {
+                    respuesta = "ERROR " + limpiar(String.valueOf(e.getMessage()));
+                }
+                salida.write(respuesta);
+                salida.newLine();
+                salida.flush();
+            }
+        } catch (SocketException e) {
+            // La caja se desconectó sin SALIR
+        } catch (IOException e) {
+            System.err.println("Error en la conexión de una caja: " + e.getMessage());
+        } finally {
+            conexiones.remove(socket);
+            transaccionManager.cerrarSesion(sesion);
+        }
+    }
+
+    /**
+     * Ejecuta una orden del protocolo sobre la sesión de la caja.
+     * @param sesion La sesión de la caja.
+     * @param orden La línea recibida.
+     * @return La línea de respuesta.
+     */
+    String procesar(String sesion, String orden) {
+        String[] partes = orden.strip().split(" ", 3);
+        switch (partes[0]) {
+            case "PRODUCTO":
+                return describir(inventarioManager.buscarPorId(Integer.parseInt(partes[1])));
+            case "SKU":
+                return describir(inventarioManager.buscarPorNumeroArticulo(orden.strip().substring(4)));
+            case "BUSCAR":
+                return describir(inventarioManager.buscarPorTexto(orden.strip().substring(7), 1).stream().findFirst());
+            case "CLIENTE":
+                return describirCliente(clienteManager.buscarPorId(Integer.parseInt(partes[1])));
+            case "BUSCAR_CLIENTE":
+                return describirCliente(clienteManager.buscarCliente(orden.strip().substring(15)));
+            case "ALTA_CLIENTE":
+                return altaCliente(orden.substring(orden.indexOf(' ') + 1));
+            case "AGREGAR": {
+                Optional<Producto> producto = inventarioManager.buscarPorId(Integer.parseInt(partes[1]));
+                if (producto.isEmpty()) { return "NO"; }
+                return transaccionManager.agregarAlCarrito(sesion, producto.get(), Integer.parseInt(partes[2]))
+                        ? "OK" : "SIN_STOCK";
+            }
+            case "CANTIDAD": {
+                int idProducto = Integer.parseInt(partes[1]);
+                LineaVenta linea = null;
+                for (LineaVenta lv : transaccionManager.getVentaEnCurso(sesion).getItemsVendidos()) {
+                    if (lv.getProducto().getIdProducto() == idProducto) {
+                        linea = lv;
+                        break;
+                    }
+                }
+                if (linea == null) { return "NO"; }
+                return transaccionManager.cambiarCantidad(sesion, linea, Integer.parseInt(partes[2])) ? "OK" : "SIN_STOCK";
+            }
+            case "REGISTRAR":
+                return registrar(sesion, partes.length > 1 ? partes[1] : "-", partes.length > 2 ? partes[2] : "-");
+            case "CANCELAR":
+                transaccionManager.iniciarNuevaVenta(sesion);
+                return "OK";
+            default:
+                return "ERROR Orden desconocida: " + partes[0];
+        }
+    }
+
+    private String registrar(String sesion, String idCliente, String codigoDescuento) {
+        Venta carrito = transaccionManager.getVentaEnCurso(sesion);
+        Cliente cliente = idCliente.equals("-") ? null : clienteManager.buscarPorId(Integer.parseInt(idCliente)).orElse(null);
+        Descuento descuento = codigoDescuento.equals("-") ? null
+                : descuentoManager.buscarDescuentoPorCodigo(codigoDescuento).orElse(null);
+        carrito.setCliente(cliente);
+        if (descuento != null) {
+            carrito.aplicarDescuento(descuento);
+        } else {
+            carrito.removerDescuento();
+        }
+
+        Venta registrada = transaccionManager.registrarVenta(sesion);
+        if (registrada == null) { return "VACIA"; }
+        return "OK " + registrada.getIdVenta() + " " + String.format(Locale.ROOT, "%.2f", registrada.getTotalFinal());
+    }
+
+    private String altaCliente(String datos) {
+        String[] campos = datos.split(SEPARADOR, -1);
+        if (campos[0].isBlank()) { return "ERROR El nombre del cliente es obligatorio."; }
+        Cliente cliente = new Cliente(0, campos[0].strip(), campo(campos, 1), campo(campos, 2), campo(campos, 3));
+        clienteManager.guardarCliente(cliente);
+        return "OK " + cliente.getIdCliente();
+    }
+
+    private static String campo(String[] campos, int i) {
+        return i < campos.length && !campos[i].isBlank() ? campos[i].strip() : null;
+    }
+
+    private static String describirCliente(Optional<Cliente> encontrado) {
+        if (encontrado.isEmpty()) { return "NO"; }
+        Cliente c = encontrado.get();
+        return "OK " + c.getIdCliente() + SEPARADOR + limpiar(c.getNombre()) + SEPARADOR + limpiar(c.getTelefono())
+                + SEPARADOR + limpiar(c.getEmail()) + SEPARADOR + limpiar(c.getDireccion());
+    }
+
+    private String describir(Optional<Producto> encontrado) {
+        if (encontrado.isEmpty()) { return "NO"; }
+        Producto p = encontrado.get();
+        return "OK " + p.getIdProducto() + SEPARADOR + limpiar(p.getNombre()) + SEPARADOR + p.getPrecio()
+                + SEPARADOR + inventarioManager.obtenerStockDisponible(p.getIdProducto())
+                + SEPARADOR + limpiar(p.getCategoria());
+    }
+
+    /** Quita de un texto los caracteres que romperían el protocolo (saltos de línea y tabuladores). */
+    private static String limpiar(String texto) {
+        return texto == null ? "" : texto.replaceAll("[\\t\\r\\n]", " ");
+    }
+
+    /**
+     * Deja de aceptar cajas y cierra las conexiones abiertas (sus sesiones liberan las reservas).
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (socketServidor != null) {
+            socketServidor.close();
+        }
+        for (Socket socket : conexiones) {
+            socket.close();
+        }
+    }
+
+    /**
+     * Arranca el servicio de cobro sin interfaz gráfica sobre los archivos del directorio actual.
+     * @param args Opcional: el puerto (por defecto {@value #PUERTO_PREDETERMINADO}).
+     * @throws IOException Si el puerto no puede abrirse.
+     */
+    public static void main(String[] args) throws IOException {
+        int puerto = args.length > 0 ? Integer.parseInt(args[0]) : PUERTO_PREDETERMINADO;
+        InventarioManager inventario = new InventarioManager();
+        ClienteManager clientes = new ClienteManager();
+        ServidorCaja servidor = new ServidorCaja(inventario, clientes, new TransaccionManager(inventario), new DescuentoManager());
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                servidor.close();
+            } catch (IOException e) {
+                System.err.println("Error al detener el servidor de cajas: " + e.getMessage());
+            }
+            clientes.flush();
+            inventario.guardarDatos();
+        }));
+        servidor.iniciar(puerto);
+    }
+}
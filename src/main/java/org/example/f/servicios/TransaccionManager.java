@@ -1,29 +1,99 @@
 package org.example.f.servicios;
 
+import org.example.f.modelos.Cliente;
+import org.example.f.modelos.LineaVenta;
 import org.example.f.modelos.Producto;
 import org.example.f.modelos.Venta;
-import org.example.f.modelos.LineaVenta;
-import java.util.ArrayList;
-import java.util.List;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
 
 /**
  * Clase de servicio POO encargada de gestionar el ciclo de vida de una transacción de venta.
  * Sus responsabilidades incluyen iniciar nuevas ventas, registrar ventas completadas,
  * actualizar el inventario (coordinación con InventarioManager) y mantener el historial.
+ * <p>
+ * Las unidades del carrito se reservan en el inventario al añadirlas, de modo que otra caja no pueda
+ * vender las mismas últimas unidades; al registrar la venta las reservas se confirman y al cancelarla
+ * se liberan.
+ * </p>
+ * <p>
+ * Cada carrito pertenece a una sesión (una caja, una venta aparcada, un pedido en línea), de modo que
+ * muchos carritos se construyen y registran a la vez contra el mismo inventario. Las operaciones de
+ * una sesión se serializan entre sí; las de sesiones distintas corren en paralelo. Una sesión sin
+ * actividad durante el tiempo de inactividad expira y libera sus reservas; mientras está vacía solo
+ * ocupa su registro (la Venta se crea con el primer uso). Los métodos sin sesión operan sobre
+ * {@link #SESION_PRINCIPAL}, que nunca expira.
+ * </p>
  *
  * @author [Tu Nombre/Proyecto]
  * @version 1.0
  * @since 2025-11-03
  */
-public class TransaccionManager {
+public class TransaccionManager implements PuntoVenta {
+
+    /** Sesión usada por los métodos sin sesión explícita (la caja local); nunca expira. */
+    public static final String SESION_PRINCIPAL = "principal";
 
     /** Instancia del InventarioManager, utilizada para actualizar el stock tras una venta. */
     private final InventarioManager inventarioManager;
 
-    /** Lista que almacena todas las transacciones de venta completadas. */
-    private final List<Venta> historialVentas;
-    /** Objeto Venta que representa la transacción actual que se está construyendo (el carrito). */
-    private Venta ventaEnCurso;
+    /** Nombre del directorio donde se guardan los segmentos del historial de ventas. */
+    private static final String DIRECTORIO_VENTAS = "ventas";
+    /** Tiempo sin actividad tras el que expira una sesión. */
+    private static final Duration INACTIVIDAD_PREDETERMINADA = Duration.ofMinutes(30);
+
+    /** Diario durable donde se anexan todas las transacciones de venta completadas (null si no pudo abrirse). */
+    private final DiarioVentas diarioVentas;
+    /** Siguiente ID de venta a asignar. */
+    private final AtomicInteger nextIdVenta;
+    /** Sesiones abiertas por ID. */
+    private final Map<String, Sesion> sesiones = new ConcurrentHashMap<>();
+    /** Contador para generar IDs de sesión. */
+    private final AtomicLong nextIdSesion = new AtomicLong(1);
+    /** Tiempo sin actividad (ns) tras el que expira una sesión. */
+    private final long inactividadNanos;
+    /** Bus donde se publican las ventas registradas (null = sin eventos). */
+    private volatile BusEventos bus;
+    /** Catálogo de clientes del punto de venta local (null = sin clientes). */
+    private volatile ClienteManager clienteManager;
+    /** Hilo que retira las sesiones expiradas. */
+    private final ScheduledExecutorService expirador;
+
+    /**
+     * Carrito de una sesión. Su monitor serializa las operaciones de la sesión y la expiración.
+     */
+    private static final class Sesion {
+        final String id;
+        /** Instante ({@link System#nanoTime()}) de la última operación. */
+        volatile long ultimoUso = System.nanoTime();
+        /** El carrito (null mientras la sesión está vacía). */
+        Venta venta;
+        /** Indica que la sesión ya se cerró o expiró. */
+        boolean cerrada;
+
+        Sesion(String id) {
+            this.id = id;
+        }
+
+        Venta venta() {
+            if (venta == null) {
+                venta = new Venta(); // Asume que Venta tiene constructor vacío
+            }
+            return venta;
+        }
+    }
 
 
     /**
@@ -32,52 +102,374 @@ public class TransaccionManager {
      * @param manager La instancia del InventarioManager.
      */
     public TransaccionManager(InventarioManager manager) {
+        this(manager, Paths.get(DIRECTORIO_VENTAS), INACTIVIDAD_PREDETERMINADA);
+    }
+
+    /**
+     * Constructor que permite indicar el directorio del historial de ventas.
+     * @param manager La instancia del InventarioManager.
+     * @param directorioVentas El directorio de segmentos del diario de ventas.
+     */
+    TransaccionManager(InventarioManager manager, Path directorioVentas) {
+        this(manager, directorioVentas, INACTIVIDAD_PREDETERMINADA);
+    }
+
+    /**
+     * Constructor que permite indicar el directorio del historial y el tiempo de inactividad de las sesiones.
+     * @param manager La instancia del InventarioManager.
+     * @param directorioVentas El directorio de segmentos del diario de ventas.
+     * @param inactividad Tiempo sin actividad tras el que expira una sesión.
+     */
+    TransaccionManager(InventarioManager manager, Path directorioVentas, Duration inactividad) {
         this.inventarioManager = manager;
-        this.historialVentas = new ArrayList<>();
-        iniciarNuevaVenta();
+        this.diarioVentas = abrirDiarioVentas(directorioVentas);
+        this.nextIdVenta = new AtomicInteger((diarioVentas != null ? diarioVentas.ultimoIdVenta() : 0) + 1);
+        this.inactividadNanos = Math.max(1, inactividad.toNanos());
+        sesiones.put(SESION_PRINCIPAL, new Sesion(SESION_PRINCIPAL));
+
+        this.expirador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread hilo = new Thread(r, "expirador-sesiones");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        long periodoMs = Math.max(10, inactividad.toMillis() / 4);
+        expirador.scheduleWithFixedDelay(this::expirarSesiones, periodoMs, periodoMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Asigna el bus donde se publican las ventas registradas.
+     * @param bus El bus de eventos (null = no publicar).
+     */
+    public void setBusEventos(BusEventos bus) {
+        this.bus = bus;
+    }
+
+    /**
+     * Asigna el catálogo de clientes en que el punto de venta local busca y registra clientes.
+     * @param clienteManager El catálogo de clientes (null = sin clientes).
+     */
+    public void setClienteManager(ClienteManager clienteManager) {
+        this.clienteManager = clienteManager;
+    }
+
+    // =======================================================
+    // SESIONES
+    // =======================================================
+
+    /**
+     * Abre una sesión nueva con el carrito vacío.
+     * @return El ID de la sesión.
+     */
+    public String abrirSesion() {
+        String id = "S" + nextIdSesion.getAndIncrement();
+        sesiones.put(id, new Sesion(id));
+        return id;
+    }
+
+    /**
+     * Cierra una sesión y libera las reservas de su carrito. No hace nada si ya no existe.
+     * @param sesion El ID de la sesión ({@link #SESION_PRINCIPAL} solo se vacía).
+     */
+    public void cerrarSesion(String sesion) {
+        if (SESION_PRINCIPAL.equals(sesion)) {
+            iniciarNuevaVenta(sesion);
+            return;
+        }
+        Sesion s = sesiones.get(sesion);
+        if (s == null) { return; }
+        synchronized (s) {
+            cerrar(s);
+        }
+    }
+
+    /** @return El número de sesiones abiertas (incluida la principal). */
+    public int contarSesiones() {
+        return sesiones.size();
+    }
+
+    /**
+     * Retira las sesiones sin actividad durante el tiempo de inactividad, liberando sus reservas.
+     */
+    void expirarSesiones() {
+        long ahora = System.nanoTime();
+        for (Sesion s : sesiones.values()) {
+            if (s.id.equals(SESION_PRINCIPAL) || ahora - s.ultimoUso < inactividadNanos) { continue; }
+            synchronized (s) {
+                if (!s.cerrada && System.nanoTime() - s.ultimoUso >= inactividadNanos) {
+                    cerrar(s);
+                    System.out.println("Sesión de venta expirada: " + s.id);
+                }
+            }
+        }
+    }
+
+    /** Cierra una sesión (con su monitor tomado). */
+    private void cerrar(Sesion s) {
+        if (s.cerrada) { return; }
+        s.cerrada = true;
+        sesiones.remove(s.id, s);
+        liberarReservas(s);
+    }
+
+    /**
+     * Busca una sesión abierta y marca su uso.
+     * @throws IllegalArgumentException Si la sesión no existe o ya expiró.
+     */
+    private Sesion sesion(String id) {
+        Sesion s = sesiones.get(id);
+        if (s == null) {
+            throw new IllegalArgumentException("La sesión " + id + " no existe o ha expirado.");
+        }
+        s.ultimoUso = System.nanoTime();
+        return s;
+    }
+
+    /** Comprueba, con el monitor de la sesión tomado, que no expiró entre la búsqueda y el bloqueo. */
+    private static void comprobarAbierta(Sesion s) {
+        if (s.cerrada) {
+            throw new IllegalArgumentException("La sesión " + s.id + " no existe o ha expirado.");
+        }
+    }
+
+    private void liberarReservas(Sesion s) {
+        if (s.venta == null) { return; }
+        for (LineaVenta lv : s.venta.getItemsVendidos()) {
+            inventarioManager.liberarStock(lv.getProducto().getIdProducto(), lv.getCantidad());
+        }
+        s.venta = null;
+    }
+
+    // =======================================================
+    // CONSULTAS (PuntoVenta)
+    // =======================================================
+
+    /**
+     * Busca un producto por ID en el inventario de este manager.
+     * @param idProducto El ID del producto.
+     * @return El producto, si existe.
+     */
+    @Override
+    public Optional<Producto> buscarPorId(int idProducto) {
+        return inventarioManager.buscarPorId(idProducto);
+    }
+
+    /**
+     * Busca un producto por número de artículo exacto en el inventario de este manager.
+     * @param numeroArticulo El SKU.
+     * @return El producto, si existe.
+     */
+    @Override
+    public Optional<Producto> buscarPorNumeroArticulo(String numeroArticulo) {
+        return inventarioManager.buscarPorNumeroArticulo(numeroArticulo);
+    }
+
+    /**
+     * Busca el producto más relevante que contiene el texto, con el índice de texto del inventario.
+     * @param texto El texto buscado.
+     * @return El producto encontrado, si alguno coincide.
+     */
+    @Override
+    public Optional<Producto> buscarPorTexto(String texto) {
+        return inventarioManager.buscarPorTexto(texto, 1).stream().findFirst();
+    }
+
+    /**
+     * Busca un cliente en el catálogo asignado con {@link #setClienteManager(ClienteManager)}.
+     * @param busqueda El texto buscado.
+     * @return El cliente encontrado, o vacío si no hay catálogo o nadie coincide.
+     */
+    @Override
+    public Optional<Cliente> buscarCliente(String busqueda) {
+        ClienteManager clientes = clienteManager;
+        return clientes == null ? Optional.empty() : clientes.buscarCliente(busqueda);
+    }
+
+    /**
+     * Registra un cliente en el catálogo asignado con {@link #setClienteManager(ClienteManager)}.
+     * @param cliente El cliente nuevo.
+     * @return {@code true} si se registró; {@code false} si no hay catálogo de clientes.
+     */
+    @Override
+    public boolean registrarCliente(Cliente cliente) {
+        ClienteManager clientes = clienteManager;
+        if (clientes == null) { return false; }
+        clientes.guardarCliente(cliente);
+        return true;
     }
 
+    // =======================================================
+    // CARRITO
+    // =======================================================
+
     /**
-     * Inicia un nuevo objeto Venta, vaciando el carrito actual y preparándolo para una nueva transacción.
+     * Inicia un nuevo objeto Venta, vaciando el carrito actual (y liberando sus reservas de stock)
+     * y preparándolo para una nueva transacción.
      */
+    @Override
     public void iniciarNuevaVenta() {
-        this.ventaEnCurso = new Venta(); // Asume que Venta tiene constructor vacío
+        iniciarNuevaVenta(SESION_PRINCIPAL);
+    }
+
+    /**
+     * Vacía el carrito de una sesión, liberando sus reservas de stock.
+     * @param sesion El ID de la sesión.
+     */
+    public void iniciarNuevaVenta(String sesion) {
+        Sesion s = sesion(sesion);
+        synchronized (s) {
+            comprobarAbierta(s);
+            liberarReservas(s);
+        }
         System.out.println("Transacción de venta reiniciada.");
     }
 
+    /**
+     * Añade unidades de un producto al carrito (o las suma a su línea), reservándolas antes en el inventario.
+     * @param producto El producto a añadir.
+     * @param cantidad Unidades a añadir.
+     * @return {@code true} si se añadieron; {@code false} si no hay stock disponible suficiente.
+     */
+    @Override
+    public boolean agregarAlCarrito(Producto producto, int cantidad) {
+        return agregarAlCarrito(SESION_PRINCIPAL, producto, cantidad);
+    }
+
+    /**
+     * Añade unidades de un producto al carrito de una sesión, reservándolas antes en el inventario.
+     * @param sesion El ID de la sesión.
+     * @param producto El producto a añadir.
+     * @param cantidad Unidades a añadir.
+     * @return {@code true} si se añadieron; {@code false} si no hay stock disponible suficiente.
+     */
+    public boolean agregarAlCarrito(String sesion, Producto producto, int cantidad) {
+        Sesion s = sesion(sesion);
+        synchronized (s) {
+            comprobarAbierta(s);
+            if (!inventarioManager.reservarStock(producto.getIdProducto(), cantidad)) {
+                return false;
+            }
+            Venta venta = s.venta();
+            LineaVenta lineaExistente = null;
+            for (LineaVenta lv : venta.getItemsVendidos()) {
+                if (lv.getProducto().getIdProducto() == producto.getIdProducto()) {
+                    lineaExistente = lv;
+                    break;
+                }
+            }
+            if (lineaExistente != null) {
+                lineaExistente.setCantidad(lineaExistente.getCantidad() + cantidad);
+            } else {
+                venta.getItemsVendidos().add(new LineaVenta(producto, cantidad));
+            }
+            venta.calcularTotales();
+            return true;
+        }
+    }
+
+    /**
+     * Cambia la cantidad de una línea del carrito, reservando o liberando la diferencia.
+     * Si la nueva cantidad es cero o negativa, la línea se quita del carrito.
+     * @param linea La línea del carrito.
+     * @param nuevaCantidad La nueva cantidad.
+     * @return {@code true} si se aplicó; {@code false} si no hay stock disponible para el aumento.
+     */
+    @Override
+    public boolean cambiarCantidad(LineaVenta linea, int nuevaCantidad) {
+        return cambiarCantidad(SESION_PRINCIPAL, linea, nuevaCantidad);
+    }
+
+    /**
+     * Cambia la cantidad de una línea del carrito de una sesión, reservando o liberando la diferencia.
+     * Si la nueva cantidad es cero o negativa, la línea se quita del carrito.
+     * @param sesion El ID de la sesión.
+     * @param linea La línea del carrito.
+     * @param nuevaCantidad La nueva cantidad.
+     * @return {@code true} si se aplicó; {@code false} si no hay stock disponible para el aumento.
+     */
+    public boolean cambiarCantidad(String sesion, LineaVenta linea, int nuevaCantidad) {
+        Sesion s = sesion(sesion);
+        synchronized (s) {
+            comprobarAbierta(s);
+            Venta venta = s.venta();
+            if (!venta.getItemsVendidos().contains(linea)) { return false; }
+
+            int idProducto = linea.getProducto().getIdProducto();
+            int diferencia = Math.max(0, nuevaCantidad) - linea.getCantidad();
+            if (diferencia > 0 && !inventarioManager.reservarStock(idProducto, diferencia)) {
+                return false;
+            }
+            if (diferencia < 0) {
+                inventarioManager.liberarStock(idProducto, -diferencia);
+            }
+            if (nuevaCantidad > 0) {
+                linea.setCantidad(nuevaCantidad);
+            } else {
+                venta.getItemsVendidos().remove(linea);
+            }
+            venta.calcularTotales();
+            return true;
+        }
+    }
+
     /**
      * Registra la venta en curso como completada, actualiza el stock y reinicia la transacción.
      * <p>
      * <ul>
      * <li>1. Verifica si la venta está vacía.</li>
-     * <li>2. Itera sobre los ítems vendidos y llama a InventarioManager para actualizar el stock.</li>
-     * <li>3. Añade la venta al historial.</li>
+     * <li>2. Confirma las reservas de todas las líneas en un solo lote (una escritura durable por venta).</li>
+     * <li>3. Asigna ID y fecha, y anexa la venta al diario durable de ventas.</li>
      * <li>4. Inicia una nueva venta.</li>
      * </ul>
      * </p>
      * @return El objeto Venta finalizado, o null si la venta estaba vacía.
      */
+    @Override
     public Venta registrarVenta() {
-        if (ventaEnCurso.getItemsVendidos().isEmpty()) {
-            System.out.println("Error: No se puede registrar una venta vacía.");
-            return null;
+        Venta ventaFinalizada = registrarVenta(SESION_PRINCIPAL);
+        if (ventaFinalizada != null) {
+            System.out.println("Transacción de venta reiniciada.");
         }
+        return ventaFinalizada;
+    }
+
+    /**
+     * Registra el carrito de una sesión como venta completada (ver {@link #registrarVenta()}).
+     * La sesión sigue abierta con el carrito vacío.
+     * @param sesion El ID de la sesión.
+     * @return El objeto Venta finalizado, o null si la venta estaba vacía.
+     */
+    public Venta registrarVenta(String sesion) {
+        Sesion s = sesion(sesion);
+        Venta ventaFinalizada;
+        synchronized (s) {
+            comprobarAbierta(s);
+            if (s.venta == null || s.venta.getItemsVendidos().isEmpty()) {
+                System.out.println("Error: No se puede registrar una venta vacía.");
+                return null;
+            }
 
-        // 🛑 Lógica de coordinación: Actualizar el stock
-        for (LineaVenta lv : ventaEnCurso.getItemsVendidos()) {
-            Producto productoVendido = lv.getProducto();
-            int cantidad = lv.getCantidad();
+            // 🛑 Lógica de coordinación: Confirmar el stock de todas las líneas como una unidad
+            inventarioManager.confirmarReservas(s.venta.getItemsVendidos());
 
-            // Llamada al servicio externo para modificar el estado del inventario
-            inventarioManager.actualizarStockProducto(productoVendido, cantidad);
+            // Preparar para la siguiente venta (las reservas ya se confirmaron)
+            ventaFinalizada = s.venta;
+            s.venta = null;
         }
 
-        // Finalizar y archivar
-        Venta ventaFinalizada = this.ventaEnCurso;
-        historialVentas.add(ventaFinalizada);
-
-        // Preparar para la siguiente venta
-        iniciarNuevaVenta();
+        // Finalizar y archivar (fuera del monitor de la sesión)
+        ventaFinalizada.setIdVenta(nextIdVenta.getAndIncrement());
+        ventaFinalizada.setFechaHora(LocalDateTime.now());
+        if (diarioVentas != null) {
+            try {
+                diarioVentas.anotar(ventaFinalizada);
+            } catch (IOException e) {
+                System.err.println("Error al registrar la venta en el historial: " + e.getMessage());
+            }
+        }
+        BusEventos destino = bus;
+        if (destino != null) {
+            destino.publicar(new EventoDominio.VentaRegistrada(ventaFinalizada));
+        }
 
         return ventaFinalizada;
     }
@@ -86,15 +478,46 @@ public class TransaccionManager {
      * Obtiene la instancia del objeto Venta que se está construyendo actualmente (el carrito).
      * @return El objeto Venta en curso.
      */
+    @Override
     public Venta getVentaEnCurso() {
-        return ventaEnCurso;
+        return getVentaEnCurso(SESION_PRINCIPAL);
+    }
+
+    /**
+     * Obtiene el carrito de una sesión. Las líneas deben modificarse con {@link #agregarAlCarrito}
+     * y {@link #cambiarCantidad} para que las reservas de stock se mantengan.
+     * @param sesion El ID de la sesión.
+     * @return El objeto Venta en curso de la sesión.
+     */
+    public Venta getVentaEnCurso(String sesion) {
+        Sesion s = sesion(sesion);
+        synchronized (s) {
+            comprobarAbierta(s);
+            return s.venta();
+        }
     }
 
     /**
-     * Obtiene una copia de la lista completa de todas las ventas registradas.
-     * @return Una nueva {@code ArrayList} que contiene el historial de ventas.
+     * Recorre las ventas registradas entre dos instantes, leyéndolas del diario bajo demanda.
+     * Solo se abren los segmentos de los días del rango; el historial completo nunca se copia en memoria.
+     * El flujo debe consumirse (o limitarse) por quien lo solicita.
+     * @param desde Inicio del rango, incluido (null = desde la primera venta).
+     * @param hasta Fin del rango, incluido (null = hasta la última venta).
+     * @return Un {@code Stream} de las ventas del rango, en orden de registro.
      */
-    public List<Venta> obtenerHistorialVentas() {
-        return new ArrayList<>(historialVentas);
+    public Stream<Venta> obtenerHistorialVentas(LocalDateTime desde, LocalDateTime hasta) {
+        if (diarioVentas == null) {
+            return Stream.empty();
+        }
+        return diarioVentas.leer(desde, hasta);
+    }
+
+    private static DiarioVentas abrirDiarioVentas(Path directorio) {
+        try {
+            return new DiarioVentas(directorio);
+        } catch (IOException e) {
+            System.err.println("No se pudo abrir el historial de ventas: " + e.getMessage());
+            return null;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,248 @@
+package org.example.f.servicios;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+/**
+ * Lista inmutable con compartición estructural (vector persistente).
+ * <p>
+ * Los elementos se guardan en un árbol de ancho 32 más una "cola" con los últimos (hasta 32)
+ * elementos. Cada modificación devuelve un vector nuevo que comparte con el anterior todos los nodos
+ * que no cambian: añadir al final copia solo la cola (y, cada 32 elementos, un camino del árbol);
+ * reemplazar o quitar el último copia un camino de la raíz a una hoja. Con ancho 32 el árbol tiene
+ * a lo sumo tres o cuatro niveles para catálogos de cualquier tamaño realista, así que las escrituras
+ * copian unos pocos arreglos cortos en lugar de toda la lista.
+ * </p>
+ * <p>
+ * Una instancia nunca cambia: puede publicarse en un campo {@code volatile} y leerse desde cualquier
+ * hilo sin bloqueos ni copias. Los métodos de modificación de {@link java.util.List} lanzan
+ * {@link UnsupportedOperationException}.
+ * </p>
+ *
+ * @param <E> El tipo de los elementos.
+ *
+ * @author [Tu Nombre/Proyecto]
+ * @version 1.0
+ * @since 2025-11-03
+ */
+final class VectorPersistente<E> extends AbstractList<E> implements RandomAccess {
+
+    private static final int BITS = 5;
+    private static final int ANCHO = 1 << BITS;
+    private static final int MASCARA = ANCHO - 1;
+    private static final Object[] NODO_VACIO = new Object[ANCHO];
+    private static final VectorPersistente<?> VACIO = new VectorPersistente<>(0, BITS, NODO_VACIO, new Object[0]);
+
+    private final int tamano;
+    /** Desplazamiento (en bits) del nivel de la raíz. */
+    private final int desplazamiento;
+    /** Raíz del árbol: los nodos internos contienen arreglos hijos; las hojas, elementos. */
+    private final Object[] raiz;
+    /** Últimos elementos, fuera del árbol (de 0 a 32). */
+    private final Object[] cola;
+
+    private VectorPersistente(int tamano, int desplazamiento, Object[] raiz, Object[] cola) {
+        this.tamano = tamano;
+        this.desplazamiento = desplazamiento;
+        this.raiz = raiz;
+        this.cola = cola;
+    }
+
+    /**
+     * Devuelve el vector vacío.
+     * @param <E> El tipo de los elementos.
+     * @return El vector vacío (compartido).
+     */
+    @SuppressWarnings("unchecked")
+    static <E> VectorPersistente<E> vacio() {
+        return (VectorPersistente<E>) VACIO;
+    }
+
+    /**
+     * Crea un vector con los elementos de una colección, en su orden.
+     * @param <E> El tipo de los elementos.
+     * @param elementos Los elementos.
+     * @return El vector.
+     */
+    static <E> VectorPersistente<E> de(Collection<? extends E> elementos) {
+        VectorPersistente<E> vector = vacio();
+        for (E e : elementos) {
+            vector = vector.agregar(e);
+        }
+        return vector;
+    }
+
+    @Override
+    public int size() {
+        return tamano;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+        return (E) hojaDe(index)[index & MASCARA];
+    }
+
+    /** Posición del primer elemento de la cola. */
+    private int inicioCola() {
+        return tamano < ANCHO ? 0 : ((tamano - 1) >>> BITS) << BITS;
+    }
+
+    /** Devuelve el arreglo (hoja o cola) que contiene la posición indicada. */
+    private Object[] hojaDe(int index) {
+        if (index < 0 || index >= tamano) {
+            throw new IndexOutOfBoundsException("Índice " + index + " fuera de rango (tamaño " + tamano + ")");
+        }
+        if (index >= inicioCola()) { return cola; }
+        Object[] nodo = raiz;
+        for (int nivel = desplazamiento; nivel > 0; nivel -= BITS) {
+            nodo = (Object[]) nodo[(index >>> nivel) & MASCARA];
+        }
+        return nodo;
+    }
+
+    /**
+     * Devuelve un vector con un elemento más al final.
+     * @param elemento El elemento.
+     * @return El vector nuevo (este no cambia).
+     */
+    VectorPersistente<E> agregar(E elemento) {
+        if (tamano - inicioCola() < ANCHO) {
+            Object[] nuevaCola = Arrays.copyOf(cola, cola.length + 1);
+            nuevaCola[cola.length] = elemento;
+            return new VectorPersistente<>(tamano + 1, desplazamiento, raiz, nuevaCola);
+        }
+        // La cola está llena: pasa al árbol como hoja y se empieza una cola nueva
+        Object[] nuevaRaiz;
+        int nuevoDesplazamiento = desplazamiento;
+        if ((tamano >>> BITS) > (1 << desplazamiento)) {
+            // El árbol está lleno: crece un nivel
+            nuevaRaiz = new Object[ANCHO];
+            nuevaRaiz[0] = raiz;
+            nuevaRaiz[1] = camino(desplazamiento, cola);
+            nuevoDesplazamiento += BITS;
+        } else {
+            nuevaRaiz = insertarHoja(desplazamiento, raiz, cola);
+        }
+        return new VectorPersistente<>(tamano + 1, nuevoDesplazamiento, nuevaRaiz, new Object[] {elemento});
+    }
+
+    private Object[] insertarHoja(int nivel, Object[] padre, Object[] hoja) {
+        int sub = ((tamano - 1) >>> nivel) & MASCARA;
+        Object[] copia = padre.clone();
+        if (nivel == BITS) {
+            copia[sub] = hoja;
+        } else {
+            Object[] hijo = (Object[]) padre[sub];
+            copia[sub] = hijo != null ? insertarHoja(nivel - BITS, hijo, hoja) : camino(nivel - BITS, hoja);
+        }
+        return copia;
+    }
+
+    /** Crea la rama de nodos nuevos que lleva desde un nivel hasta la hoja. */
+    private static Object[] camino(int nivel, Object[] hoja) {
+        if (nivel == 0) { return hoja; }
+        Object[] nodo = new Object[ANCHO];
+        nodo[0] = camino(nivel - BITS, hoja);
+        return nodo;
+    }
+
+    /**
+     * Devuelve un vector con el elemento de una posición reemplazado.
+     * @param index La posición.
+     * @param elemento El elemento nuevo.
+     * @return El vector nuevo (este no cambia).
+     */
+    VectorPersistente<E> asignar(int index, E elemento) {
+        hojaDe(index); // Valida el índice
+        if (index >= inicioCola()) {
+            Object[] nuevaCola = cola.clone();
+            nuevaCola[index & MASCARA] = elemento;
+            return new VectorPersistente<>(tamano, desplazamiento, raiz, nuevaCola);
+        }
+        return new VectorPersistente<>(tamano, desplazamiento, asignar(desplazamiento, raiz, index, elemento), cola);
+    }
+
+    private static Object[] asignar(int nivel, Object[] nodo, int index, Object elemento) {
+        Object[] copia = nodo.clone();
+        if (nivel == 0) {
+            copia[index & MASCARA] = elemento;
+        } else {
+            int sub = (index >>> nivel) & MASCARA;
+            copia[sub] = asignar(nivel - BITS, (Object[]) nodo[sub], index, elemento);
+        }
+        return copia;
+    }
+
+    /**
+     * Devuelve un vector sin el último elemento.
+     * @return El vector nuevo (este no cambia).
+     * @throws NoSuchElementException Si el vector está vacío.
+     */
+    VectorPersistente<E> quitarUltimo() {
+        if (tamano == 0) { throw new NoSuchElementException("El vector está vacío."); }
+        if (tamano == 1) { return vacio(); }
+        if (tamano - inicioCola() > 1) {
+            return new VectorPersistente<>(tamano - 1, desplazamiento, raiz, Arrays.copyOf(cola, cola.length - 1));
+        }
+        // La cola queda vacía: la última hoja del árbol pasa a ser la cola
+        Object[] nuevaCola = hojaDe(tamano - 2);
+        Object[] nuevaRaiz = quitarHoja(desplazamiento, raiz);
+        int nuevoDesplazamiento = desplazamiento;
+        if (nuevaRaiz == null) {
+            nuevaRaiz = NODO_VACIO;
+        }
+        if (desplazamiento > BITS && nuevaRaiz[1] == null) {
+            // La raíz quedó con un solo hijo: el árbol baja un nivel
+            nuevaRaiz = (Object[]) nuevaRaiz[0];
+            nuevoDesplazamiento -= BITS;
+        }
+        return new VectorPersistente<>(tamano - 1, nuevoDesplazamiento, nuevaRaiz, nuevaCola);
+    }
+
+    /** Quita la última hoja del subárbol; devuelve null si el nodo queda vacío. */
+    private Object[] quitarHoja(int nivel, Object[] nodo) {
+        int sub = ((tamano - 2) >>> nivel) & MASCARA;
+        if (nivel > BITS) {
+            Object[] hijo = quitarHoja(nivel - BITS, (Object[]) nodo[sub]);
+            if (hijo == null && sub == 0) { return null; }
+            Object[] copia = nodo.clone();
+            copia[sub] = hijo;
+            return copia;
+        }
+        if (sub == 0) { return null; }
+        Object[] copia = nodo.clone();
+        copia[sub] = null;
+        return copia;
+    }
+
+    /**
+     * Recorre el vector hoja por hoja (sin descender desde la raíz en cada elemento).
+     */
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<>() {
+            private int siguiente;
+            private Object[] hoja;
+
+            @Override
+            public boolean hasNext() {
+                return siguiente < tamano;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public E next() {
+                if (siguiente >= tamano) { throw new NoSuchElementException(); }
+                if ((siguiente & MASCARA) == 0 || hoja == null) {
+                    hoja = hojaDe(siguiente);
+                }
+                return (E) hoja[siguiente++ & MASCARA];
+            }
+        };
+    }
+}